@@ -1,8 +1,11 @@
 package com.example.demo.accounting.controllers;
 
+import com.example.demo.accounting.entities.AccountingPeriod;
 import com.example.demo.accounting.entities.ChartOfAccounts;
 import com.example.demo.accounting.entities.JournalEntry;
+import com.example.demo.accounting.repositories.AccountingPeriodRepository;
 import com.example.demo.accounting.services.AccountingService;
+import com.example.demo.accounting.services.PeriodCloseService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -14,6 +17,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +29,8 @@ import java.util.Map;
 public class AccountingController {
 
     private final AccountingService accountingService;
+    private final PeriodCloseService periodCloseService;
+    private final AccountingPeriodRepository accountingPeriodRepo;
 
     // ========== Chart of Accounts Endpoints ==========
 
@@ -194,4 +200,27 @@ public class AccountingController {
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    // ========== Period Close Endpoints ==========
+
+    @PostMapping("/periods/{year}/{month}/close")
+    @Operation(summary = "Close an accounting period and store its closing balances")
+    public ResponseEntity<Map<String, Object>> closePeriod(
+            @PathVariable int year,
+            @PathVariable int month,
+            Authentication authentication) {
+        try {
+            String closedBy = authentication != null ? authentication.getName() : "system";
+            return ResponseEntity.ok(periodCloseService.close(YearMonth.of(year, month), closedBy));
+        } catch (Exception e) {
+            log.error("Error closing period {}-{}", year, month, e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @GetMapping("/periods")
+    @Operation(summary = "Get closed accounting periods")
+    public ResponseEntity<List<AccountingPeriod>> getPeriods() {
+        return ResponseEntity.ok(accountingPeriodRepo.findAllByOrderByPeriodDesc());
+    }
 }
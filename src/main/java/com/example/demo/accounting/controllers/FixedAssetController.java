@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -81,11 +82,12 @@ public class FixedAssetController {
     public ResponseEntity<?> calculateDepreciation(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate month) {
         try {
-            assetService.calculateMonthlyDepreciation(month);
-            return ResponseEntity.ok(Map.of(
-                    "message", "Depreciation calculated successfully for " + month,
-                    "status", "success"
-            ));
+            Map<String, Object> result = new LinkedHashMap<>(assetService.calculateMonthlyDepreciation(month));
+            result.put("message", "Depreciation calculated successfully for " + month);
+            result.put("status", "success");
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Error calculating depreciation", e);
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
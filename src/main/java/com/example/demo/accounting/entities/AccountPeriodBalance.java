@@ -0,0 +1,45 @@
+package com.example.demo.accounting.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Period-end ledger balance - cumulative posted debits and credits per account and branch up to the
+ * last day of a closed period. Any movement between two closed month ends is the difference of two
+ * sets of rows.
+ */
+@Entity
+@Table(name = "account_period_balances", uniqueConstraints = @UniqueConstraint(
+        name = "uk_account_period_balances_account_branch_period", columnNames = {"account_code", "branch_code", "period"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountPeriodBalance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_code", nullable = false, length = 20)
+    private String accountCode;
+
+    @Column(name = "branch_code")
+    private String branchCode;
+
+    @Column(nullable = false, length = 7)
+    private String period; // yyyy-MM
+
+    @Column(nullable = false)
+    private Double debitTotal;
+
+    @Column(nullable = false)
+    private Double creditTotal;
+
+    private LocalDateTime computedAt;
+}
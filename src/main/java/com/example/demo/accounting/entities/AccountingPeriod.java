@@ -0,0 +1,45 @@
+package com.example.demo.accounting.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Accounting Period - a month that has been (or is being) closed. Months without a row are open.
+ */
+@Entity
+@Table(name = "accounting_periods")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountingPeriod {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 7)
+    private String period; // yyyy-MM
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PeriodStatus status;
+
+    private LocalDateTime closingStartedAt;
+
+    private LocalDateTime closedAt;
+
+    private String closedBy;
+
+    private Integer balanceRows;
+
+    public enum PeriodStatus {
+        CLOSING,    // No further postings; closing balances being written
+        CLOSED      // Closing balances stored in account_period_balances
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.accounting.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Depreciation sub-ledger - one row per asset per period, pointing at the summary journal entry
+ * that carried it to the general ledger
+ */
+@Entity
+@Table(name = "asset_depreciation", uniqueConstraints = @UniqueConstraint(
+        name = "uk_asset_depreciation_asset_period", columnNames = {"asset_id", "period"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssetDepreciation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "asset_id", nullable = false)
+    private Long assetId;
+
+    @Column(nullable = false, length = 7)
+    private String period; // yyyy-MM
+
+    private String categoryCode;
+
+    private String branchCode;
+
+    @Column(nullable = false)
+    private Double amount;
+
+    private Double accumulatedDepreciation;
+
+    private Double bookValue;
+
+    private String journalNumber;
+
+    private LocalDateTime postedAt;
+}
@@ -62,6 +62,8 @@ public class FixedAsset {
 
     private String location;
 
+    private String branchCode; // Owning branch; depreciation is journalled per category and branch
+
     private String assignedTo; // Employee or department
 
     @Enumerated(EnumType.STRING)
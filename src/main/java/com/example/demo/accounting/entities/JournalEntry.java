@@ -40,6 +40,8 @@ public class JournalEntry {
     @Column(nullable = false)
     private String reference; // Invoice number, receipt number, etc.
 
+    private String branchCode;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private JournalType journalType;
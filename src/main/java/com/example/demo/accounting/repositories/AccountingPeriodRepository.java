@@ -0,0 +1,13 @@
+package com.example.demo.accounting.repositories;
+
+import com.example.demo.accounting.entities.AccountingPeriod;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AccountingPeriodRepository extends JpaRepository<AccountingPeriod, Long> {
+
+    List<AccountingPeriod> findAllByOrderByPeriodDesc();
+}
@@ -5,6 +5,9 @@ import com.example.demo.accounting.entities.JournalEntry;
 import com.example.demo.accounting.entities.JournalEntryLine;
 import com.example.demo.accounting.repositories.ChartOfAccountsRepo;
 import com.example.demo.accounting.repositories.JournalEntryRepo;
+import com.example.demo.system.cache.ReferenceCache;
+import com.example.demo.system.cache.ReferenceDataCache;
+import com.example.demo.system.services.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
@@ -22,6 +25,9 @@ public class AccountingService {
 
     private final ChartOfAccountsRepo chartOfAccountsRepo;
     private final JournalEntryRepo journalEntryRepo;
+    private final ReferenceDataCache referenceDataCache;
+    private final IdGenerator idGenerator;
+    private final PeriodCloseService periodCloseService;
 
     // ========== Chart of Accounts ==========
 
@@ -30,7 +36,9 @@ public class AccountingService {
         if (chartOfAccountsRepo.existsByAccountCode(account.getAccountCode())) {
             throw new RuntimeException("Account code already exists: " + account.getAccountCode());
         }
-        return chartOfAccountsRepo.save(account);
+        ChartOfAccounts saved = chartOfAccountsRepo.save(account);
+        referenceDataCache.invalidate(ReferenceDataCache.CHART_OF_ACCOUNTS);
+        return saved;
     }
 
     @Transactional
@@ -47,7 +55,9 @@ public class AccountingService {
         existing.setIsActive(account.getIsActive());
         existing.setUpdatedAt(LocalDateTime.now());
         
-        return chartOfAccountsRepo.save(existing);
+        ChartOfAccounts saved = chartOfAccountsRepo.save(existing);
+        referenceDataCache.invalidate(ReferenceDataCache.CHART_OF_ACCOUNTS);
+        return saved;
     }
 
     public List<ChartOfAccounts> getAllAccounts() {
@@ -62,6 +72,17 @@ public class AccountingService {
         return chartOfAccountsRepo.findByAccountCode(accountCode);
     }
 
+    /**
+     * Account name for a code, from the reference-data cache. Only the name is cached; balances
+     * change with every posting and are always read from the table.
+     */
+    public Optional<String> getAccountName(String accountCode) {
+        ReferenceCache<String, String> cache = referenceDataCache.cache(ReferenceDataCache.CHART_OF_ACCOUNTS);
+        return cache.get(accountCode, code -> chartOfAccountsRepo.findByAccountCode(code)
+                .map(ChartOfAccounts::getAccountName)
+                .orElse(null));
+    }
+
     public List<ChartOfAccounts> getAccountsByType(ChartOfAccounts.AccountType type) {
         return chartOfAccountsRepo.findByAccountType(type);
     }
@@ -83,8 +104,7 @@ public class AccountingService {
             line.setJournalEntry(entry);
             
             // Get account name
-            Optional<ChartOfAccounts> account = chartOfAccountsRepo.findByAccountCode(line.getAccountCode());
-            account.ifPresent(chartOfAccounts -> line.setAccountName(chartOfAccounts.getAccountName()));
+            getAccountName(line.getAccountCode()).ifPresent(line::setAccountName);
         }
 
         entry.calculateTotals();
@@ -110,6 +130,13 @@ public class AccountingService {
             throw new RuntimeException("Cannot post unbalanced entry");
         }
 
+        LocalDate postingDate = periodCloseService.postingDate(entry.getTransactionDate());
+        if (!postingDate.equals(entry.getTransactionDate())) {
+            entry.setNotes((entry.getNotes() != null ? entry.getNotes() + "\n" : "") +
+                          "Dated " + entry.getTransactionDate() + " in a closed period; posted on " + postingDate);
+            entry.setTransactionDate(postingDate);
+        }
+
         // Update account balances
         for (JournalEntryLine line : entry.getLines()) {
             updateAccountBalance(line);
@@ -151,9 +178,10 @@ public class AccountingService {
         // Create reversal entry
         JournalEntry reversalEntry = JournalEntry.builder()
                 .journalNumber(generateJournalNumber(JournalEntry.JournalType.ADJUSTMENT))
-                .transactionDate(LocalDate.now())
+                .transactionDate(periodCloseService.postingDate(LocalDate.now()))
                 .description("REVERSAL: " + originalEntry.getDescription() + " - Reason: " + reason)
                 .reference("REV-" + originalEntry.getJournalNumber())
+                .branchCode(originalEntry.getBranchCode())
                 .journalType(JournalEntry.JournalType.ADJUSTMENT)
                 .status(JournalEntry.JournalStatus.POSTED)
                 .createdBy(reversedBy)
@@ -234,21 +262,7 @@ public class AccountingService {
     }
 
     private String generateJournalNumber(JournalEntry.JournalType type) {
-        String prefix = switch (type) {
-            case GENERAL -> "GJ";
-            case SALES -> "SJ";
-            case PURCHASES -> "PJ";
-            case CASH_RECEIPTS -> "CR";
-            case CASH_PAYMENTS -> "CP";
-            case LOAN_DISBURSEMENT -> "LD";
-            case LOAN_REPAYMENT -> "LR";
-            case DEPOSIT -> "DE";
-            case WITHDRAWAL -> "WD";
-            case ADJUSTMENT -> "AJ";
-            case CLOSING -> "CJ";
-        };
-        
-        return prefix + "-" + System.currentTimeMillis();
+        return idGenerator.nextJournalNumber(type);
     }
 
     /**
@@ -293,6 +307,9 @@ public class AccountingService {
         createStandardAccount("2020", "Member Savings", ChartOfAccounts.AccountType.LIABILITY, 
                              ChartOfAccounts.AccountCategory.CURRENT_LIABILITY, "2000", 
                              ChartOfAccounts.NormalBalance.CREDIT, true, createdBy);
+        createStandardAccount("2060", "Payroll Deductions Payable", ChartOfAccounts.AccountType.LIABILITY, 
+                             ChartOfAccounts.AccountCategory.CURRENT_LIABILITY, "2000", 
+                             ChartOfAccounts.NormalBalance.CREDIT, true, createdBy);
 
         // Equity
         createStandardAccount("3000", "Equity", ChartOfAccounts.AccountType.EQUITY, 
@@ -327,6 +344,7 @@ public class AccountingService {
                              ChartOfAccounts.AccountCategory.ADMINISTRATIVE_EXPENSE, "5000", 
                              ChartOfAccounts.NormalBalance.DEBIT, false, createdBy);
 
+        referenceDataCache.invalidate(ReferenceDataCache.CHART_OF_ACCOUNTS);
         log.info("Standard chart of accounts initialized successfully");
     }
 
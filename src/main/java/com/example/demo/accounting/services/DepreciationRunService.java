@@ -0,0 +1,252 @@
+package com.example.demo.accounting.services;
+
+import com.example.demo.accounting.entities.FixedAsset;
+import com.example.demo.accounting.entities.JournalEntry;
+import com.example.demo.accounting.entities.JournalEntryLine;
+import com.example.demo.config.DataSourceRoute;
+import com.example.demo.system.services.JobCoordinator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Month-end depreciation for all active fixed assets. Every asset's charge is computed in one pass
+ * over a single query, then assets are grouped by category and branch. Each group commits on its
+ * own: one summary journal entry for the group total, a sub-ledger row per asset in
+ * {@code asset_depreciation}, and the asset balances, both written in JDBC batches.
+ * <p>
+ * The sub-ledger is unique per asset and period, and assets already in it for the period are not
+ * selected, so a run can be repeated or resumed after a failed group without charging twice.
+ */
+@Service
+@Log4j2
+public class DepreciationRunService {
+
+    private static final String EXPENSE_ACCOUNT = "5130";
+    private static final String ACCUMULATED_ACCOUNT = "1059";
+    private static final String NO_BRANCH = "UNASSIGNED";
+    private static final String JOB = "fixed-asset-depreciation";
+
+    private static final String ASSETS_SQL =
+            "SELECT fa.id, fa.asset_code, fa.depreciation_method, fa.purchase_cost, fa.residual_value, " +
+            "fa.useful_life_years, fa.depreciation_rate, fa.accumulated_depreciation, fa.current_book_value, " +
+            "fa.branch_code, c.code AS category_code " +
+            "FROM fixed_assets fa JOIN asset_categories c ON c.id = fa.category_id " +
+            "WHERE fa.status = 'ACTIVE' AND fa.purchase_date < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM asset_depreciation d WHERE d.asset_id = fa.id AND d.period = ?) " +
+            "ORDER BY fa.id";
+
+    private static final String LEDGER_SQL =
+            "INSERT INTO asset_depreciation (asset_id, period, category_code, branch_code, amount, " +
+            "accumulated_depreciation, book_value, journal_number, posted_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ASSET_SQL =
+            "UPDATE fixed_assets SET accumulated_depreciation = ?, current_book_value = ?, updated_at = ? WHERE id = ?";
+
+    private static final class AssetRow {
+        private final long id;
+        private final String categoryCode;
+        private final String branchCode;
+        private final double accumulated;
+        private final double bookValue;
+        private final double charge;
+
+        private AssetRow(ResultSet rs) throws SQLException {
+            this.id = rs.getLong("id");
+            this.categoryCode = rs.getString("category_code");
+            String branch = rs.getString("branch_code");
+            this.branchCode = branch != null && !branch.isBlank() ? branch : NO_BRANCH;
+            double cost = rs.getDouble("purchase_cost");
+            this.accumulated = rs.getDouble("accumulated_depreciation");
+            double residual = rs.getDouble("residual_value");
+            this.bookValue = rs.getObject("current_book_value") != null ? rs.getDouble("current_book_value") : cost - accumulated;
+            Integer life = (Integer) rs.getObject("useful_life_years");
+            Double rate = rs.getObject("depreciation_rate") != null ? rs.getDouble("depreciation_rate") : null;
+            this.charge = monthlyCharge(rs.getString("depreciation_method"), cost, residual, life, rate, bookValue);
+        }
+
+        private double accumulatedAfter() {
+            return round(accumulated + charge);
+        }
+
+        // from the same book value the charge was capped with, so the residual is never crossed
+        private double bookValueAfter() {
+            return round(bookValue - charge);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountingService accountingService;
+    private final JobCoordinator jobCoordinator;
+
+    public DepreciationRunService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  AccountingService accountingService, JobCoordinator jobCoordinator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.accountingService = accountingService;
+        this.jobCoordinator = jobCoordinator;
+    }
+
+    /**
+     * Depreciates the previous month on the first of each month, on one node.
+     */
+    @Scheduled(cron = "${depreciation.cron:0 0 1 1 * *}")
+    public void runMonthEnd() {
+        LocalDate month = LocalDate.now().minusMonths(1).withDayOfMonth(1);
+        DataSourceRoute.run(DataSourceRoute.BATCH,
+                () -> jobCoordinator.runExclusive(JOB, () -> depreciate(month)));
+    }
+
+    /**
+     * Depreciates every active asset bought before {@code month} for the month containing it, under
+     * the same lease as the month-end run so each group's commit is fenced.
+     *
+     * @throws IllegalStateException when another node holds the depreciation lease
+     */
+    public Map<String, Object> run(LocalDate month) {
+        AtomicReference<Map<String, Object>> result = new AtomicReference<>();
+        boolean ran = DataSourceRoute.call(DataSourceRoute.BATCH,
+                () -> jobCoordinator.runExclusive(JOB, () -> result.set(depreciate(month))));
+        if (!ran) {
+            throw new IllegalStateException("Depreciation is already running on another node");
+        }
+        return result.get();
+    }
+
+    private Map<String, Object> depreciate(LocalDate month) {
+        long started = System.currentTimeMillis();
+        String period = YearMonth.from(month).toString();
+        LocalDate postingDate = month.withDayOfMonth(month.lengthOfMonth());
+
+        List<AssetRow> assets = jdbcTemplate.query(ASSETS_SQL, (rs, i) -> new AssetRow(rs), Date.valueOf(month), period);
+        Map<String, List<AssetRow>> groups = new TreeMap<>();
+        for (AssetRow asset : assets) {
+            if (asset.charge > 0) {
+                groups.computeIfAbsent(asset.categoryCode + "/" + asset.branchCode, k -> new ArrayList<>()).add(asset);
+            }
+        }
+
+        List<String> journals = new ArrayList<>();
+        int depreciated = 0;
+        double total = 0.0;
+        for (List<AssetRow> group : groups.values()) {
+            journals.add(transactionTemplate.execute(status -> {
+                String journalNumber = postGroup(group, period, postingDate);
+                jobCoordinator.fence();
+                return journalNumber;
+            }));
+            depreciated += group.size();
+            total += group.stream().mapToDouble(a -> a.charge).sum();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("period", period);
+        result.put("assetsDepreciated", depreciated);
+        result.put("totalDepreciation", round(total));
+        result.put("journals", journals);
+        result.put("elapsedMs", System.currentTimeMillis() - started);
+        log.info("Depreciation for {}: {} assets in {} journals, total {} in {} ms",
+                period, depreciated, journals.size(), round(total), result.get("elapsedMs"));
+        return result;
+    }
+
+    private String postGroup(List<AssetRow> group, String period, LocalDate postingDate) {
+        AssetRow first = group.get(0);
+        double amount = round(group.stream().mapToDouble(a -> a.charge).sum());
+        String label = first.categoryCode + " / " + first.branchCode;
+
+        JournalEntry entry = JournalEntry.builder()
+                .transactionDate(postingDate)
+                .description("Monthly Depreciation " + period + ": " + label + " (" + group.size() + " assets)")
+                .reference("DEP-" + period + "-" + first.categoryCode + "-" + first.branchCode)
+                .journalType(JournalEntry.JournalType.ADJUSTMENT)
+                .branchCode(first.branchCode)
+                .createdBy("system")
+                .build();
+        List<JournalEntryLine> lines = new ArrayList<>();
+        lines.add(JournalEntryLine.builder()
+                .accountCode(EXPENSE_ACCOUNT)
+                .type(JournalEntryLine.EntryType.DEBIT)
+                .amount(amount)
+                .description("Depreciation: " + label)
+                .lineNumber(1)
+                .build());
+        lines.add(JournalEntryLine.builder()
+                .accountCode(ACCUMULATED_ACCOUNT)
+                .type(JournalEntryLine.EntryType.CREDIT)
+                .amount(amount)
+                .description("Accumulated: " + label)
+                .lineNumber(2)
+                .build());
+        entry.setLines(lines);
+        JournalEntry posted = accountingService.createJournalEntry(entry, "system");
+        accountingService.postJournalEntry(posted.getId(), "system");
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // a concurrent run for the same period fails here on the unique key and rolls the group back
+        jdbcTemplate.batchUpdate(LEDGER_SQL, group, group.size(), (ps, asset) -> {
+            ps.setLong(1, asset.id);
+            ps.setString(2, period);
+            ps.setString(3, asset.categoryCode);
+            ps.setString(4, asset.branchCode);
+            ps.setDouble(5, asset.charge);
+            ps.setDouble(6, asset.accumulatedAfter());
+            ps.setDouble(7, asset.bookValueAfter());
+            ps.setString(8, posted.getJournalNumber());
+            ps.setTimestamp(9, now);
+        });
+        jdbcTemplate.batchUpdate(ASSET_SQL, group, group.size(), (ps, asset) -> {
+            ps.setDouble(1, asset.accumulatedAfter());
+            ps.setDouble(2, asset.bookValueAfter());
+            ps.setTimestamp(3, now);
+            ps.setLong(4, asset.id);
+        });
+        return posted.getJournalNumber();
+    }
+
+    /**
+     * One month's charge, never taking the book value below the residual value.
+     */
+    static double monthlyCharge(String method, double cost, double residual, Integer usefulLifeYears,
+                                Double ratePercent, double bookValue) {
+        if (usefulLifeYears == null || usefulLifeYears <= 0) {
+            return 0.0;
+        }
+        double remaining = bookValue - residual;
+        if (remaining <= 0) {
+            return 0.0;
+        }
+        double charge;
+        if (FixedAsset.DepreciationMethod.STRAIGHT_LINE.name().equals(method)) {
+            charge = (cost - residual) / (usefulLifeYears * 12);
+        } else if (FixedAsset.DepreciationMethod.DECLINING_BALANCE.name().equals(method)) {
+            double rate = ratePercent != null ? ratePercent / 100 : 0.20;
+            charge = bookValue * rate / 12;
+        } else {
+            return 0.0;
+        }
+        return round(Math.min(charge, remaining));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
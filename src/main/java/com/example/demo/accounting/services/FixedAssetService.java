@@ -12,6 +12,7 @@ import java.time.LocalDate;
 import java.time.Period;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service("fixedAssetService")
 @RequiredArgsConstructor
@@ -21,6 +22,7 @@ public class FixedAssetService {
     private final FixedAssetRepository assetRepo;
     private final AssetCategoryRepository categoryRepo;
     private final AccountingService accountingService;
+    private final DepreciationRunService depreciationRunService;
 
     @Transactional
     public FixedAsset registerAsset(FixedAsset asset, String createdBy) {
@@ -52,43 +54,19 @@ public class FixedAssetService {
         existing.setAssetName(asset.getAssetName());
         existing.setDescription(asset.getDescription());
         existing.setLocation(asset.getLocation());
+        existing.setBranchCode(asset.getBranchCode());
         existing.setAssignedTo(asset.getAssignedTo());
         existing.setStatus(asset.getStatus());
 
         return assetRepo.save(existing);
     }
 
-    @Transactional
-    public void calculateMonthlyDepreciation(LocalDate month) {
+    /**
+     * Depreciation is run in bulk by {@link DepreciationRunService}; returns the run summary
+     */
+    public Map<String, Object> calculateMonthlyDepreciation(LocalDate month) {
         log.info("Calculating depreciation for month: {}", month);
-
-        List<FixedAsset> activeAssets = assetRepo.findByStatusOrderByAssetCodeAsc(FixedAsset.AssetStatus.ACTIVE);
-        
-        for (FixedAsset asset : activeAssets) {
-            // Skip if asset was purchased this month
-            if (asset.getPurchaseDate().isAfter(month) || asset.getPurchaseDate().equals(month)) {
-                continue;
-            }
-
-            Double monthlyDepreciation = calculateDepreciationAmount(asset);
-            
-            if (monthlyDepreciation > 0) {
-                // Update accumulated depreciation
-                asset.setAccumulatedDepreciation(asset.getAccumulatedDepreciation() + monthlyDepreciation);
-                asset.calculateCurrentBookValue();
-
-                // Create journal entry
-                JournalEntry journalEntry = createDepreciationJournalEntry(asset, monthlyDepreciation, month);
-                JournalEntry posted = accountingService.createJournalEntry(journalEntry, "system");
-                accountingService.postJournalEntry(posted.getId(), "system");
-
-                assetRepo.save(asset);
-                
-                log.info("Depreciation for {}: {}", asset.getAssetCode(), monthlyDepreciation);
-            }
-        }
-
-        log.info("Monthly depreciation calculation completed");
+        return depreciationRunService.run(month);
     }
 
     @Transactional
@@ -182,31 +160,12 @@ public class FixedAssetService {
 
     // ========== Helper Methods ==========
 
-    private Double calculateDepreciationAmount(FixedAsset asset) {
-        if (asset.getUsefulLifeYears() == null || asset.getUsefulLifeYears() <= 0) {
-            return 0.0;
-        }
-
-        Double depreciableAmount = asset.getPurchaseCost() - asset.getResidualValue();
-
-        if (asset.getDepreciationMethod() == FixedAsset.DepreciationMethod.STRAIGHT_LINE) {
-            // Monthly straight-line depreciation
-            return depreciableAmount / (asset.getUsefulLifeYears() * 12);
-        } else if (asset.getDepreciationMethod() == FixedAsset.DepreciationMethod.DECLINING_BALANCE) {
-            // Monthly declining balance
-            Double rate = asset.getDepreciationRate() != null ? asset.getDepreciationRate() / 100 : 0.20;
-            Double monthlyRate = rate / 12;
-            return asset.getCurrentBookValue() * monthlyRate;
-        }
-
-        return 0.0;
-    }
-
     private JournalEntry createAssetPurchaseJournalEntry(FixedAsset asset, String createdBy) {
         JournalEntry entry = JournalEntry.builder()
                 .transactionDate(asset.getPurchaseDate())
                 .description("Asset Purchase: " + asset.getAssetName())
                 .reference(asset.getAssetCode())
+                .branchCode(asset.getBranchCode())
                 .journalType(JournalEntry.JournalType.PURCHASES)
                 .createdBy(createdBy)
                 .build();
@@ -240,46 +199,12 @@ public class FixedAssetService {
         return entry;
     }
 
-    private JournalEntry createDepreciationJournalEntry(FixedAsset asset, Double amount, LocalDate month) {
-        JournalEntry entry = JournalEntry.builder()
-                .transactionDate(month.withDayOfMonth(month.lengthOfMonth())) // Last day of month
-                .description("Monthly Depreciation: " + asset.getAssetName())
-                .reference("DEP-" + asset.getAssetCode() + "-" + month.toString())
-                .journalType(JournalEntry.JournalType.ADJUSTMENT)
-                .createdBy("system")
-                .build();
-
-        List<JournalEntryLine> lines = new ArrayList<>();
-
-        // Debit: Depreciation Expense
-        JournalEntryLine debitLine = JournalEntryLine.builder()
-                .accountCode("5130") // Depreciation expense
-                .type(JournalEntryLine.EntryType.DEBIT)
-                .amount(amount)
-                .description("Depreciation: " + asset.getAssetName())
-                .lineNumber(1)
-                .build();
-        lines.add(debitLine);
-
-        // Credit: Accumulated Depreciation
-        JournalEntryLine creditLine = JournalEntryLine.builder()
-                .accountCode("1059") // Accumulated depreciation
-                .type(JournalEntryLine.EntryType.CREDIT)
-                .amount(amount)
-                .description("Accumulated: " + asset.getAssetName())
-                .lineNumber(2)
-                .build();
-        lines.add(creditLine);
-
-        entry.setLines(lines);
-        return entry;
-    }
-
     private JournalEntry createAssetDisposalJournalEntry(FixedAsset asset, String disposedBy) {
         JournalEntry entry = JournalEntry.builder()
                 .transactionDate(asset.getDisposalDate())
                 .description("Asset Disposal: " + asset.getAssetName())
                 .reference("DISP-" + asset.getAssetCode())
+                .branchCode(asset.getBranchCode())
                 .journalType(JournalEntry.JournalType.GENERAL)
                 .createdBy(disposedBy)
                 .build();
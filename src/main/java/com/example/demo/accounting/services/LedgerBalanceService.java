@@ -0,0 +1,132 @@
+package com.example.demo.accounting.services;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Account totals from posted journal lines, one {@code GROUP BY account_code} per question, so the
+ * cost follows the number of accounts rather than the size of the loan book. Balances start from
+ * the closing balances of the last closed period (see {@link PeriodCloseService}) and add only the
+ * lines posted since; movements between two closed month ends need no journal lines at all.
+ */
+@Service
+public class LedgerBalanceService {
+
+    // reversed entries stay in: their reversal is posted separately and nets them off
+    static final String POSTED = "e.status IN ('POSTED', 'APPROVED', 'REVERSED')";
+
+    private static final String MOVEMENTS_SQL =
+            "SELECT l.account_code, " +
+            "SUM(CASE WHEN l.type = 'DEBIT' THEN l.amount ELSE 0 END) AS debit, " +
+            "SUM(CASE WHEN l.type = 'CREDIT' THEN l.amount ELSE 0 END) AS credit " +
+            "FROM journal_entry_lines l JOIN journal_entries e ON e.id = l.journal_entry_id " +
+            "WHERE " + POSTED + " AND e.transaction_date >= ? AND e.transaction_date <= ? " +
+            "GROUP BY l.account_code";
+
+    private static final String CLOSED_SQL =
+            "SELECT account_code, SUM(debit_total) AS debit, SUM(credit_total) AS credit " +
+            "FROM account_period_balances WHERE period = ? GROUP BY account_code";
+
+    private static final String CLOSED_PERIODS_SQL =
+            "SELECT period FROM accounting_periods WHERE status = 'CLOSED'";
+
+    private static final LocalDate BEGINNING = LocalDate.of(1900, 1, 1);
+
+    /**
+     * Posted debit and credit totals of one account.
+     */
+    public static final class Totals {
+        public static final Totals ZERO = new Totals(0.0, 0.0);
+
+        private final double debit;
+        private final double credit;
+
+        public Totals(double debit, double credit) {
+            this.debit = debit;
+            this.credit = credit;
+        }
+
+        public double debit() {
+            return debit;
+        }
+
+        public double credit() {
+            return credit;
+        }
+
+        public Totals minus(Totals other) {
+            return new Totals(debit - other.debit, credit - other.credit);
+        }
+
+        public Totals plus(Totals other) {
+            return new Totals(debit + other.debit, credit + other.credit);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LedgerBalanceService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Cumulative totals per account up to and including {@code asOf}.
+     */
+    public Map<String, Totals> balancesAsOf(LocalDate asOf) {
+        YearMonth lastFull = asOf.equals(YearMonth.from(asOf).atEndOfMonth())
+                ? YearMonth.from(asOf) : YearMonth.from(asOf).minusMonths(1);
+        String closed = closedPeriods().floor(lastFull.toString());
+        if (closed == null) {
+            return movements(BEGINNING, asOf);
+        }
+        YearMonth period = YearMonth.parse(closed);
+        Map<String, Totals> balances = closing(period);
+        if (period.atEndOfMonth().isBefore(asOf)) {
+            movements(period.plusMonths(1).atDay(1), asOf).forEach((code, delta) -> balances.merge(code, delta, Totals::plus));
+        }
+        return balances;
+    }
+
+    /**
+     * Totals per account posted between {@code from} and {@code to}, both inclusive.
+     */
+    public Map<String, Totals> movements(LocalDate from, LocalDate to) {
+        if (from.getDayOfMonth() == 1 && to.equals(YearMonth.from(to).atEndOfMonth())) {
+            TreeSet<String> closed = closedPeriods();
+            YearMonth before = YearMonth.from(from).minusMonths(1);
+            if (closed.contains(YearMonth.from(to).toString()) && closed.contains(before.toString())) {
+                Map<String, Totals> opening = closing(before);
+                Map<String, Totals> result = closing(YearMonth.from(to));
+                result.replaceAll((code, totals) -> totals.minus(opening.getOrDefault(code, Totals.ZERO)));
+                return result;
+            }
+        }
+        return query(MOVEMENTS_SQL, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    private TreeSet<String> closedPeriods() {
+        return new TreeSet<>(jdbcTemplate.queryForList(CLOSED_PERIODS_SQL, String.class));
+    }
+
+    /**
+     * Closing totals of a closed period, summed over branches.
+     */
+    private Map<String, Totals> closing(YearMonth period) {
+        return query(CLOSED_SQL, period.toString());
+    }
+
+    private Map<String, Totals> query(String sql, Object... args) {
+        Map<String, Totals> totals = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            totals.put(rs.getString("account_code"), new Totals(rs.getDouble("debit"), rs.getDouble("credit")));
+        }, args);
+        return totals;
+    }
+}
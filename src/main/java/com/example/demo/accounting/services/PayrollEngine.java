@@ -0,0 +1,152 @@
+package com.example.demo.accounting.services;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Computes a payroll run in bulk. Statutory rates are an immutable {@link StatutoryRates} built
+ * once and shared by every computation. Details are read with one query and computed in parallel;
+ * each employee's pay depends only on their own row. Results are written back in JDBC batches,
+ * and the run totals in the same transaction.
+ */
+@Service
+@Log4j2
+public class PayrollEngine {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String DETAILS_SQL =
+            "SELECT id, basic_salary, housing_allowance, transport_allowance, other_allowances, overtime, bonus, " +
+            "loan_deductions, advance_deductions, other_deductions FROM payroll_details WHERE payroll_run_id = ?";
+
+    private static final String DETAIL_SQL =
+            "UPDATE payroll_details SET gross_salary = ?, paye = ?, nhif = ?, nssf = ?, total_deductions = ?, " +
+            "net_salary = ? WHERE id = ?";
+
+    private static final String TOTALS_SQL =
+            "UPDATE payroll_runs SET total_gross_salary = ?, total_deductions = ?, total_net_salary = ?, " +
+            "status = 'PROCESSED' WHERE id = ? AND status = 'DRAFT'";
+
+    /**
+     * Kenyan PAYE bands, NHIF brackets and NSSF tiers (simplified 2024 rates).
+     */
+    public static final class StatutoryRates {
+        // PAYE: gross up to payeUpTo[i] pays payeBase[i] + (gross - payeFrom[i]) * payeRate[i]
+        private final double[] payeUpTo = {24000, 32333, 500000, 800000, Double.MAX_VALUE};
+        private final double[] payeFrom = {0, 24000, 32333, 500000, 800000};
+        private final double[] payeBase = {0, 2400, 4483, 144783, 242283};
+        private final double[] payeRate = {0.10, 0.25, 0.30, 0.325, 0.35};
+        // NHIF: gross below nhifBelow[i] pays nhifAmount[i]
+        private final double[] nhifBelow = {6000, 8000, 12000, 15000, 20000, 25000, 30000, 35000, 40000,
+                45000, 50000, 60000, 70000, 80000, 90000, 100000};
+        private final double[] nhifAmount = {150, 300, 400, 500, 600, 750, 850, 900, 950,
+                1000, 1100, 1200, 1300, 1400, 1500, 1600};
+        private final double nhifTop = 1700;
+        private final double nssfTierILimit = 7000;
+        private final double nssfTierIICap = 36000;
+        private final double nssfRate = 0.06;
+
+        private StatutoryRates() {
+        }
+
+        public double paye(double gross) {
+            int band = 0;
+            while (gross > payeUpTo[band]) {
+                band++;
+            }
+            return payeBase[band] + (gross - payeFrom[band]) * payeRate[band];
+        }
+
+        public double nhif(double gross) {
+            for (int i = 0; i < nhifBelow.length; i++) {
+                if (gross < nhifBelow[i]) {
+                    return nhifAmount[i];
+                }
+            }
+            return nhifTop;
+        }
+
+        public double nssf(double gross) {
+            double tierI = Math.min(gross, nssfTierILimit) * nssfRate;
+            double tierII = gross > nssfTierILimit ? Math.min(gross - nssfTierILimit, nssfTierIICap) * nssfRate : 0;
+            return tierI + tierII;
+        }
+    }
+
+    public static final StatutoryRates RATES = new StatutoryRates();
+
+    private static final class Detail {
+        private final long id;
+        private final double gross;
+        private final double otherDeductions;
+        private double paye;
+        private double nhif;
+        private double nssf;
+
+        private Detail(ResultSet rs) throws SQLException {
+            this.id = rs.getLong("id");
+            this.gross = rs.getDouble("basic_salary") + rs.getDouble("housing_allowance")
+                    + rs.getDouble("transport_allowance") + rs.getDouble("other_allowances")
+                    + rs.getDouble("overtime") + rs.getDouble("bonus");
+            this.otherDeductions = rs.getDouble("loan_deductions") + rs.getDouble("advance_deductions")
+                    + rs.getDouble("other_deductions");
+        }
+
+        private Detail compute(StatutoryRates rates) {
+            paye = rates.paye(gross);
+            nhif = rates.nhif(gross);
+            nssf = rates.nssf(gross);
+            return this;
+        }
+
+        private double totalDeductions() {
+            return paye + nhif + nssf + otherDeductions;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PayrollEngine(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Computes every detail of a draft run and marks it processed; returns the number of employees.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int calculate(long payrollRunId) {
+        long started = System.currentTimeMillis();
+        List<Detail> details = jdbcTemplate.query(DETAILS_SQL, (rs, i) -> new Detail(rs), payrollRunId)
+                .parallelStream()
+                .map(detail -> detail.compute(RATES))
+                .collect(Collectors.toList());
+        long computed = System.currentTimeMillis();
+
+        jdbcTemplate.batchUpdate(DETAIL_SQL, details, BATCH_SIZE, (ps, detail) -> {
+            ps.setDouble(1, detail.gross);
+            ps.setDouble(2, detail.paye);
+            ps.setDouble(3, detail.nhif);
+            ps.setDouble(4, detail.nssf);
+            ps.setDouble(5, detail.totalDeductions());
+            ps.setDouble(6, detail.gross - detail.totalDeductions());
+            ps.setLong(7, detail.id);
+        });
+        double gross = details.stream().mapToDouble(d -> d.gross).sum();
+        double deductions = details.stream().mapToDouble(Detail::totalDeductions).sum();
+        int updated = jdbcTemplate.update(TOTALS_SQL, gross, deductions, gross - deductions, payrollRunId);
+        if (updated == 0) {
+            throw new RuntimeException("Only draft payroll can be calculated");
+        }
+        log.info("Payroll run {}: computed {} employees in {} ms, written in {} ms", payrollRunId, details.size(),
+                computed - started, System.currentTimeMillis() - computed);
+        return details.size();
+    }
+}
@@ -5,12 +5,15 @@ import com.example.demo.accounting.repositories.EmployeeRepository;
 import com.example.demo.accounting.repositories.PayrollRunRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +23,23 @@ public class PayrollService {
     private final EmployeeRepository employeeRepo;
     private final PayrollRunRepository payrollRunRepo;
     private final AccountingService accountingService;
+    private final PayrollEngine payrollEngine;
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String CREATE_RUN_SQL =
+            "INSERT INTO payroll_runs (payroll_number, period_month, period_year, status, total_gross_salary, " +
+            "total_deductions, total_net_salary, created_at, created_by) VALUES (?, ?, ?, 'DRAFT', 0, 0, 0, ?, ?) RETURNING id";
+
+    private static final String CREATE_DETAILS_SQL =
+            "INSERT INTO payroll_details (payroll_run_id, employee_id, basic_salary, housing_allowance, " +
+            "transport_allowance, other_allowances, overtime, bonus, is_paid) " +
+            "SELECT ?, id, basic_salary, housing_allowance, transport_allowance, other_allowances, 0, 0, FALSE " +
+            "FROM employees WHERE status = 'ACTIVE' ORDER BY employee_code";
+
+    private static final String TOTALS_SQL =
+            "SELECT SUM(gross_salary) AS gross, SUM(net_salary) AS net, SUM(paye) AS paye, SUM(nhif) AS nhif, " +
+            "SUM(nssf) AS nssf, SUM(COALESCE(loan_deductions, 0) + COALESCE(advance_deductions, 0) + " +
+            "COALESCE(other_deductions, 0)) AS other FROM payroll_details WHERE payroll_run_id = ?";
 
     // ========== Employee Management ==========
 
@@ -80,56 +100,31 @@ public class PayrollService {
             throw new RuntimeException("Payroll already exists for " + month + "/" + year);
         }
 
-        PayrollRun payrollRun = PayrollRun.builder()
-                .payrollNumber(generatePayrollNumber(month, year))
-                .periodMonth(month)
-                .periodYear(year)
-                .status(PayrollRun.PayrollStatus.DRAFT)
-                .createdBy(createdBy)
-                .details(new ArrayList<>())
-                .build();
+        Long payrollRunId = jdbcTemplate.queryForObject(CREATE_RUN_SQL, Long.class,
+                generatePayrollNumber(month, year), month, year, Timestamp.valueOf(LocalDateTime.now()), createdBy);
 
-        // Add all active employees
-        List<Employee> activeEmployees = getActiveEmployees();
-        for (Employee employee : activeEmployees) {
-            PayrollDetail detail = PayrollDetail.builder()
-                    .payrollRun(payrollRun)
-                    .employee(employee)
-                    .basicSalary(employee.getBasicSalary())
-                    .housingAllowance(employee.getHousingAllowance())
-                    .transportAllowance(employee.getTransportAllowance())
-                    .otherAllowances(employee.getOtherAllowances())
-                    .overtime(0.0)
-                    .bonus(0.0)
-                    .isPaid(false)
-                    .build();
-
-            payrollRun.getDetails().add(detail);
-        }
+        // Add all active employees in one statement
+        int employees = jdbcTemplate.update(CREATE_DETAILS_SQL, payrollRunId);
 
-        log.info("Creating payroll run for {}/{} with {} employees", month, year, activeEmployees.size());
-        return payrollRunRepo.save(payrollRun);
+        log.info("Creating payroll run for {}/{} with {} employees", month, year, employees);
+        return findRun(payrollRunId);
     }
 
     @Transactional
     public PayrollRun calculatePayroll(Long payrollRunId) {
-        PayrollRun payrollRun = payrollRunRepo.findById(payrollRunId)
-                .orElseThrow(() -> new RuntimeException("Payroll run not found: " + payrollRunId));
-
-        if (payrollRun.getStatus() != PayrollRun.PayrollStatus.DRAFT) {
-            throw new RuntimeException("Only draft payroll can be calculated");
+        List<String> status = jdbcTemplate.queryForList("SELECT status FROM payroll_runs WHERE id = ?", String.class, payrollRunId);
+        if (status.isEmpty()) {
+            throw new RuntimeException("Payroll run not found: " + payrollRunId);
         }
-
-        // Calculate each employee's salary
-        for (PayrollDetail detail : payrollRun.getDetails()) {
-            calculateEmployeeSalary(detail);
+        if (!PayrollRun.PayrollStatus.DRAFT.name().equals(status.get(0))) {
+            throw new RuntimeException("Only draft payroll can be calculated");
         }
 
-        payrollRun.calculateTotals();
-        payrollRun.setStatus(PayrollRun.PayrollStatus.PROCESSED);
+        payrollEngine.calculate(payrollRunId);
 
+        PayrollRun payrollRun = findRun(payrollRunId);
         log.info("Payroll {} calculated. Total: {}", payrollRun.getPayrollNumber(), payrollRun.getTotalNetSalary());
-        return payrollRunRepo.save(payrollRun);
+        return payrollRun;
     }
 
     @Transactional
@@ -158,16 +153,15 @@ public class PayrollService {
             throw new RuntimeException("Only approved payroll can be paid");
         }
 
-        // Create journal entry for total salary payment
-        JournalEntry journalEntry = createPayrollJournalEntry(payrollRun, processedBy);
+        // One consolidated journal entry from the run's totals
+        Map<String, Object> totals = jdbcTemplate.queryForMap(TOTALS_SQL, payrollRunId);
+        JournalEntry journalEntry = createPayrollJournalEntry(payrollRun, totals, processedBy);
         JournalEntry posted = accountingService.createJournalEntry(journalEntry, processedBy);
         accountingService.postJournalEntry(posted.getId(), processedBy);
 
         // Mark all details as paid
-        for (PayrollDetail detail : payrollRun.getDetails()) {
-            detail.setIsPaid(true);
-            detail.setPaymentReference(posted.getJournalNumber());
-        }
+        jdbcTemplate.update("UPDATE payroll_details SET is_paid = TRUE, payment_reference = ? WHERE payroll_run_id = ?",
+                posted.getJournalNumber(), payrollRunId);
 
         payrollRun.setStatus(PayrollRun.PayrollStatus.PAID);
         payrollRun.setProcessedBy(processedBy);
@@ -184,78 +178,7 @@ public class PayrollService {
 
     // ========== Helper Methods ==========
 
-    private void calculateEmployeeSalary(PayrollDetail detail) {
-        // Calculate gross salary
-        detail.calculateSalary();
-
-        Double grossSalary = detail.getGrossSalary();
-
-        // Calculate deductions
-        detail.setPaye(calculatePAYE(grossSalary));
-        detail.setNhif(calculateNHIF(grossSalary));
-        detail.setNssf(calculateNSSF(grossSalary));
-
-        // Recalculate after deductions
-        detail.calculateSalary();
-    }
-
-    /**
-     * Calculate PAYE (Kenya tax rates - simplified)
-     */
-    private Double calculatePAYE(Double grossSalary) {
-        if (grossSalary <= 24000) {
-            return grossSalary * 0.10; // 10%
-        } else if (grossSalary <= 32333) {
-            return 2400 + ((grossSalary - 24000) * 0.25); // 25%
-        } else if (grossSalary <= 500000) {
-            return 4483 + ((grossSalary - 32333) * 0.30); // 30%
-        } else if (grossSalary <= 800000) {
-            return 144783 + ((grossSalary - 500000) * 0.325); // 32.5%
-        } else {
-            return 242283 + ((grossSalary - 800000) * 0.35); // 35%
-        }
-    }
-
-    /**
-     * Calculate NHIF (Kenya health insurance - 2024 rates)
-     */
-    private Double calculateNHIF(Double grossSalary) {
-        if (grossSalary < 6000) return 150.0;
-        if (grossSalary < 8000) return 300.0;
-        if (grossSalary < 12000) return 400.0;
-        if (grossSalary < 15000) return 500.0;
-        if (grossSalary < 20000) return 600.0;
-        if (grossSalary < 25000) return 750.0;
-        if (grossSalary < 30000) return 850.0;
-        if (grossSalary < 35000) return 900.0;
-        if (grossSalary < 40000) return 950.0;
-        if (grossSalary < 45000) return 1000.0;
-        if (grossSalary < 50000) return 1100.0;
-        if (grossSalary < 60000) return 1200.0;
-        if (grossSalary < 70000) return 1300.0;
-        if (grossSalary < 80000) return 1400.0;
-        if (grossSalary < 90000) return 1500.0;
-        if (grossSalary < 100000) return 1600.0;
-        return 1700.0;
-    }
-
-    /**
-     * Calculate NSSF (Kenya social security - 2024 rates)
-     */
-    private Double calculateNSSF(Double grossSalary) {
-        // Tier I: 6% of first KES 7,000
-        double tierI = Math.min(grossSalary, 7000) * 0.06;
-        
-        // Tier II: 6% of (salary - 7000), capped at KES 36,000
-        double tierII = 0;
-        if (grossSalary > 7000) {
-            tierII = Math.min(grossSalary - 7000, 36000) * 0.06;
-        }
-        
-        return tierI + tierII;
-    }
-
-    private JournalEntry createPayrollJournalEntry(PayrollRun payrollRun, String createdBy) {
+    private JournalEntry createPayrollJournalEntry(PayrollRun payrollRun, Map<String, Object> totals, String createdBy) {
         JournalEntry entry = JournalEntry.builder()
                 .transactionDate(java.time.LocalDate.now())
                 .description("Payroll Payment: " + payrollRun.getPeriodMonth() + "/" + payrollRun.getPeriodYear())
@@ -265,73 +188,48 @@ public class PayrollService {
                 .build();
 
         List<JournalEntryLine> lines = new ArrayList<>();
+        String period = payrollRun.getPeriodMonth() + "/" + payrollRun.getPeriodYear();
 
         // Debit: Salary Expense (total gross)
-        JournalEntryLine debitSalary = JournalEntryLine.builder()
-                .accountCode("5030") // Salary expense account
-                .type(JournalEntryLine.EntryType.DEBIT)
-                .amount(payrollRun.getTotalGrossSalary())
-                .description("Staff salaries for " + payrollRun.getPeriodMonth() + "/" + payrollRun.getPeriodYear())
-                .lineNumber(1)
-                .build();
-        lines.add(debitSalary);
-
+        lines.add(line("5030", JournalEntryLine.EntryType.DEBIT, total(totals, "gross"), "Staff salaries for " + period, lines.size() + 1));
         // Credit: Bank Account (net salary)
-        JournalEntryLine creditBank = JournalEntryLine.builder()
-                .accountCode("1020") // Bank account
-                .type(JournalEntryLine.EntryType.CREDIT)
-                .amount(payrollRun.getTotalNetSalary())
-                .description("Net salary payments")
-                .lineNumber(2)
-                .build();
-        lines.add(creditBank);
-
+        lines.add(line("1020", JournalEntryLine.EntryType.CREDIT, total(totals, "net"), "Net salary payments", lines.size() + 1));
         // Credit: Tax Payable (PAYE)
-        double totalPaye = payrollRun.getDetails().stream()
-                .mapToDouble(d -> d.getPaye() != null ? d.getPaye() : 0.0)
-                .sum();
-        
-        JournalEntryLine creditTax = JournalEntryLine.builder()
-                .accountCode("2030") // Tax payable
-                .type(JournalEntryLine.EntryType.CREDIT)
-                .amount(totalPaye)
-                .description("PAYE tax payable")
-                .lineNumber(3)
-                .build();
-        lines.add(creditTax);
-
+        lines.add(line("2030", JournalEntryLine.EntryType.CREDIT, total(totals, "paye"), "PAYE tax payable", lines.size() + 1));
         // Credit: NHIF Payable
-        double totalNhif = payrollRun.getDetails().stream()
-                .mapToDouble(d -> d.getNhif() != null ? d.getNhif() : 0.0)
-                .sum();
-        
-        JournalEntryLine creditNhif = JournalEntryLine.builder()
-                .accountCode("2040") // NHIF payable
-                .type(JournalEntryLine.EntryType.CREDIT)
-                .amount(totalNhif)
-                .description("NHIF deductions")
-                .lineNumber(4)
-                .build();
-        lines.add(creditNhif);
-
+        lines.add(line("2040", JournalEntryLine.EntryType.CREDIT, total(totals, "nhif"), "NHIF deductions", lines.size() + 1));
         // Credit: NSSF Payable
-        double totalNssf = payrollRun.getDetails().stream()
-                .mapToDouble(d -> d.getNssf() != null ? d.getNssf() : 0.0)
-                .sum();
-        
-        JournalEntryLine creditNssf = JournalEntryLine.builder()
-                .accountCode("2050") // NSSF payable
-                .type(JournalEntryLine.EntryType.CREDIT)
-                .amount(totalNssf)
-                .description("NSSF contributions")
-                .lineNumber(5)
-                .build();
-        lines.add(creditNssf);
+        lines.add(line("2050", JournalEntryLine.EntryType.CREDIT, total(totals, "nssf"), "NSSF contributions", lines.size() + 1));
+        // Credit: loan, advance and other deductions, without which the entry would not balance
+        double other = total(totals, "other");
+        if (other > 0) {
+            lines.add(line("2060", JournalEntryLine.EntryType.CREDIT, other, "Loan, advance and other deductions", lines.size() + 1));
+        }
 
         entry.setLines(lines);
         return entry;
     }
 
+    private JournalEntryLine line(String accountCode, JournalEntryLine.EntryType type, double amount, String description, int lineNumber) {
+        return JournalEntryLine.builder()
+                .accountCode(accountCode)
+                .type(type)
+                .amount(amount)
+                .description(description)
+                .lineNumber(lineNumber)
+                .build();
+    }
+
+    private double total(Map<String, Object> totals, String key) {
+        Object value = totals.get(key);
+        return value != null ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private PayrollRun findRun(Long payrollRunId) {
+        return payrollRunRepo.findById(payrollRunId)
+                .orElseThrow(() -> new RuntimeException("Payroll run not found: " + payrollRunId));
+    }
+
     private String generatePayrollNumber(Integer month, Integer year) {
         return String.format("PAY-%04d%02d-%d", year, month, System.currentTimeMillis() % 10000);
     }
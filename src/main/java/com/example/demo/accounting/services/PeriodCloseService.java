@@ -0,0 +1,222 @@
+package com.example.demo.accounting.services;
+
+import com.example.demo.config.DataSourceRoute;
+import com.example.demo.system.cache.ReferenceDataCache;
+import com.example.demo.system.services.JobCoordinator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Month-end close. Closing a month first marks it CLOSING, which stops postings dated in it, then
+ * writes its closing balances per account and branch with one set-based statement: the previous
+ * closed month's balances carried forward plus the month's posted movements. The month becomes
+ * CLOSED with the balances in the same transaction.
+ * <p>
+ * Only past months can be closed, so a posting dated in the current month needs no check at all.
+ * A back-dated posting is turned away or re-dated straight from the cached last closed month when
+ * that month already covers it; otherwise it takes a shared advisory lock and reads the periods
+ * table, and the close takes the same lock exclusively while flipping the status, so no such
+ * posting into the month can be in flight once it is marked. Back-dated postings are either
+ * rejected or re-dated to the first open day, per {@code ledger.closed-period.policy}.
+ */
+@Service
+@Log4j2
+public class PeriodCloseService {
+
+    public static final String UNASSIGNED_BRANCH = "UNASSIGNED";
+
+    private static final long POSTING_LOCK = 0x4C454447L; // "LEDG"
+
+    private static final String LAST_CLOSED_SQL =
+            "SELECT MAX(period) FROM accounting_periods WHERE status IN ('CLOSING', 'CLOSED')";
+
+    private static final String MARK_CLOSING_SQL =
+            "INSERT INTO accounting_periods (period, status, closing_started_at) VALUES (?, 'CLOSING', ?) " +
+            "ON CONFLICT (period) DO UPDATE SET closing_started_at = EXCLUDED.closing_started_at " +
+            "WHERE accounting_periods.status = 'CLOSING'";
+
+    private static final String CLOSE_SQL =
+            "INSERT INTO account_period_balances (account_code, branch_code, period, debit_total, credit_total, computed_at) " +
+            "SELECT COALESCE(m.account_code, o.account_code), COALESCE(m.branch_code, o.branch_code), ?, " +
+            "COALESCE(o.debit_total, 0) + COALESCE(m.debit, 0), COALESCE(o.credit_total, 0) + COALESCE(m.credit, 0), ? " +
+            "FROM (SELECT l.account_code, COALESCE(e.branch_code, '" + UNASSIGNED_BRANCH + "') AS branch_code, " +
+            "SUM(CASE WHEN l.type = 'DEBIT' THEN l.amount ELSE 0 END) AS debit, " +
+            "SUM(CASE WHEN l.type = 'CREDIT' THEN l.amount ELSE 0 END) AS credit " +
+            "FROM journal_entry_lines l JOIN journal_entries e ON e.id = l.journal_entry_id " +
+            "WHERE " + LedgerBalanceService.POSTED + " AND e.transaction_date >= ? AND e.transaction_date <= ? " +
+            "GROUP BY l.account_code, COALESCE(e.branch_code, '" + UNASSIGNED_BRANCH + "')) m " +
+            "FULL OUTER JOIN (SELECT account_code, branch_code, debit_total, credit_total " +
+            "FROM account_period_balances WHERE period = ?) o " +
+            "ON o.account_code = m.account_code AND o.branch_code = m.branch_code";
+
+    // a posting that saw its month as the current one may still be open when the month is closed
+    private static final String OPEN_SINCE_SQL =
+            "SELECT COUNT(*) FROM pg_stat_activity WHERE datname = current_database() AND pid <> pg_backend_pid() " +
+            "AND backend_type = 'client backend' AND xact_start < ?";
+
+    private static final String MARK_CLOSED_SQL =
+            "UPDATE accounting_periods SET status = 'CLOSED', closed_at = ?, closed_by = ?, balance_rows = ? " +
+            "WHERE period = ? AND status = 'CLOSING'";
+
+    private static final String LAST_CLOSED_KEY = "lastClosed";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobCoordinator jobCoordinator;
+    private final ReferenceDataCache referenceDataCache;
+    private final boolean rejectBackDated;
+
+    @Value("${ledger.period-close.drain-timeout-ms:30000}")
+    private long drainTimeoutMs = 30_000;
+
+    public PeriodCloseService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              JobCoordinator jobCoordinator, ReferenceDataCache referenceDataCache,
+                              @Value("${ledger.closed-period.policy:ADJUST}") String closedPeriodPolicy) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobCoordinator = jobCoordinator;
+        this.referenceDataCache = referenceDataCache;
+        this.rejectBackDated = "REJECT".equalsIgnoreCase(closedPeriodPolicy);
+    }
+
+    /**
+     * The date a posting dated {@code transactionDate} is booked on: the date itself while its month
+     * is open, otherwise the first day after the last closed month (or an exception under the
+     * REJECT policy). A back-dated posting into a month not known to be closed holds the shared
+     * posting lock until the caller's transaction ends.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public LocalDate postingDate(LocalDate transactionDate) {
+        YearMonth month = YearMonth.from(transactionDate);
+        if (!month.isBefore(YearMonth.now())) {
+            return transactionDate;
+        }
+        // closed months never reopen, so a cached close that covers the month is still true
+        YearMonth cached = lastClosed();
+        if (cached == null || month.isAfter(cached)) {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock_shared(?)", rs -> {}, POSTING_LOCK);
+            YearMonth lastClosed = loadLastClosed();
+            if (lastClosed == null || month.isAfter(lastClosed)) {
+                return transactionDate;
+            }
+            cached = lastClosed;
+        }
+        if (rejectBackDated) {
+            throw new RuntimeException("Accounting period " + month + " is closed");
+        }
+        // the cached close may be behind a later one; the first open day is checked like any other date
+        return postingDate(cached.plusMonths(1).atDay(1));
+    }
+
+    /**
+     * The most recent month that no longer accepts postings, or null when none has been closed.
+     * Served from the reference-data cache, which every close invalidates on all nodes.
+     */
+    public YearMonth lastClosed() {
+        return referenceDataCache.<String, YearMonth>cache(ReferenceDataCache.ACCOUNTING_PERIODS)
+                .get(LAST_CLOSED_KEY, key -> loadLastClosed())
+                .orElse(null);
+    }
+
+    private YearMonth loadLastClosed() {
+        String period = jdbcTemplate.queryForObject(LAST_CLOSED_SQL, String.class);
+        return period != null ? YearMonth.parse(period) : null;
+    }
+
+    /**
+     * Closes {@code period}, which must be over and follow the last closed month. A close that
+     * failed after marking the month CLOSING can simply be run again.
+     */
+    public Map<String, Object> close(YearMonth period, String closedBy) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        boolean ran = DataSourceRoute.call(DataSourceRoute.BATCH, () -> jobCoordinator.runExclusive("ledger-period-close",
+                () -> result.putAll(doClose(period, closedBy))));
+        if (!ran) {
+            throw new RuntimeException("A period close is already running");
+        }
+        return result;
+    }
+
+    private Map<String, Object> doClose(YearMonth period, String closedBy) {
+        long started = System.currentTimeMillis();
+        if (!period.isBefore(YearMonth.now())) {
+            throw new RuntimeException("Only past months can be closed: " + period);
+        }
+        String closed = jdbcTemplate.queryForObject(
+                "SELECT MAX(period) FROM accounting_periods WHERE status = 'CLOSED'", String.class);
+        YearMonth previous = closed != null ? YearMonth.parse(closed) : null;
+        if (previous != null && !period.equals(previous.plusMonths(1))) {
+            throw new RuntimeException("Next period to close is " + previous.plusMonths(1) + ", not " + period);
+        }
+        List<String> closing = jdbcTemplate.queryForList(
+                "SELECT period FROM accounting_periods WHERE status = 'CLOSING' AND period <> ?", String.class, period.toString());
+        if (!closing.isEmpty()) {
+            throw new RuntimeException("Period " + closing.get(0) + " is still being closed");
+        }
+
+        // stop postings into the month; waits for any already holding the shared lock
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> {}, POSTING_LOCK);
+            jdbcTemplate.update(MARK_CLOSING_SQL, period.toString(), Timestamp.valueOf(LocalDateTime.now()));
+            referenceDataCache.invalidate(ReferenceDataCache.ACCOUNTING_PERIODS);
+        });
+        awaitTransactionsStartedBefore(period.plusMonths(1).atDay(1).atStartOfDay());
+
+        // the first close has no balances to carry forward and takes the whole history
+        LocalDate from = previous != null ? period.atDay(1) : LocalDate.of(1900, 1, 1);
+        String previousKey = previous != null ? previous.toString() : "";
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM account_period_balances WHERE period = ?", period.toString());
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            int inserted = jdbcTemplate.update(CLOSE_SQL, period.toString(), now, Date.valueOf(from),
+                    Date.valueOf(period.atEndOfMonth()), previousKey);
+            if (jdbcTemplate.update(MARK_CLOSED_SQL, now, closedBy, inserted, period.toString()) == 0) {
+                throw new RuntimeException("Period " + period + " is not being closed");
+            }
+            jobCoordinator.fence();
+            return inserted;
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("period", period.toString());
+        result.put("status", "CLOSED");
+        result.put("balanceRows", rows);
+        result.put("elapsedMs", System.currentTimeMillis() - started);
+        log.info("Closed accounting period {}: {} account/branch balances in {} ms", period, rows, result.get("elapsedMs"));
+        return result;
+    }
+
+    /**
+     * Waits for transactions that began while the month was still the current one: their postings
+     * took the no-lock path and are dated in it.
+     */
+    private void awaitTransactionsStartedBefore(LocalDateTime monthEnd) {
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        while (jdbcTemplate.queryForObject(OPEN_SINCE_SQL, Integer.class, Timestamp.valueOf(monthEnd)) > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new RuntimeException("Transactions started before " + monthEnd + " are still running");
+            }
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted waiting for open transactions", e);
+            }
+        }
+    }
+}
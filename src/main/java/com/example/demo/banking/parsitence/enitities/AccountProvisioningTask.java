@@ -0,0 +1,35 @@
+package com.example.demo.banking.parsitence.enitities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Provisioning state of a member's standard bank accounts.
+ * PENDING until the accounts are created, IN_PROGRESS while a worker holds it, then COMPLETED
+ * or FAILED. Payments that arrive before the accounts exist are parked and released once the
+ * task completes.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "account_provisioning_tasks")
+public class AccountProvisioningTask {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "customer_id", nullable = false, unique = true)
+    private Long customerId;
+    @Column(nullable = false, length = 20)
+    private String status;
+    private Integer attempts = 0;
+    @Column(length = 500)
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
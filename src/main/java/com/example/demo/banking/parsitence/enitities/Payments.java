@@ -25,6 +25,8 @@ public class Payments  {
     private String amount;
     private String destinationAccount;
     private LocalDateTime paymentTime;
+    //failed releases of a payment parked while the member's accounts were provisioned
+    private Integer releaseAttempts;
     @ManyToOne
     @JoinColumn(name = "customer_id")
     private Customer customer;
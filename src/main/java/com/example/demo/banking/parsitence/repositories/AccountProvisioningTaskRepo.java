@@ -0,0 +1,38 @@
+package com.example.demo.banking.parsitence.repositories;
+
+import com.example.demo.banking.parsitence.enitities.AccountProvisioningTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface AccountProvisioningTaskRepo extends JpaRepository<AccountProvisioningTask,Long> {
+
+    Optional<AccountProvisioningTask> findByCustomerId(Long customerId);
+
+    List<AccountProvisioningTask> findByStatusInAndUpdatedAtBefore(Collection<String> statuses, LocalDateTime before);
+
+    /**
+     * Moves a task to IN_PROGRESS only if no live worker holds it; returns 1 when claimed. A task left
+     * IN_PROGRESS since before {@code stalledBefore} belongs to a worker that died and is taken over.
+     */
+    @Modifying
+    @Transactional
+    @Query("update AccountProvisioningTask t set t.status = 'IN_PROGRESS', t.attempts = t.attempts + 1, t.updatedAt = :now " +
+            "where t.customerId = :customerId and (t.status in ('PENDING', 'FAILED') " +
+            "or (t.status = 'IN_PROGRESS' and t.updatedAt < :stalledBefore))")
+    int claim(@Param("customerId") Long customerId, @Param("now") LocalDateTime now,
+              @Param("stalledBefore") LocalDateTime stalledBefore);
+
+    @Modifying
+    @Transactional
+    @Query("update AccountProvisioningTask t set t.status = 'PENDING', t.updatedAt = :now " +
+            "where t.customerId = :customerId and t.status = 'COMPLETED'")
+    int reopen(@Param("customerId") Long customerId, @Param("now") LocalDateTime now);
+}
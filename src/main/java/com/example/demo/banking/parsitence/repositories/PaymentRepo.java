@@ -3,8 +3,10 @@ package com.example.demo.banking.parsitence.repositories;
 import com.example.demo.banking.parsitence.enitities.Payments;
 import com.example.demo.customerManagement.parsistence.entities.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,4 +17,29 @@ public interface PaymentRepo extends JpaRepository<Payments, Long> {
     List<Payments> findAllByPaymentTimeBefore(@Param("date") LocalDateTime localDate1);
 
     List<Payments> findAllByCustomer(Customer client);
+
+    List<Payments> findAllByCustomerAndStatus(Customer client, String status);
+
+    List<Payments> findAllByStatusAndPaymentTimeBefore(String status, LocalDateTime before);
+
+    /**
+     * Moves a payment from {@code from} to {@code to} only if it is still in {@code from}; returns 1
+     * for the one caller that wins.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Payments p set p.status = :to where p.paymentId = :paymentId and p.status = :from")
+    int transition(@Param("paymentId") Long paymentId, @Param("from") String from, @Param("to") String to);
+
+    /**
+     * Counts a failed release of a parked payment. The payment moves to {@code failedStatus} once it
+     * reaches {@code maxAttempts}, so the sweep stops releasing it.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Payments p set p.releaseAttempts = coalesce(p.releaseAttempts, 0) + 1, " +
+            "p.status = case when coalesce(p.releaseAttempts, 0) + 1 >= :maxAttempts then :failedStatus else p.status end " +
+            "where p.paymentId = :paymentId")
+    int recordReleaseFailure(@Param("paymentId") Long paymentId, @Param("maxAttempts") int maxAttempts,
+                             @Param("failedStatus") String failedStatus);
 }
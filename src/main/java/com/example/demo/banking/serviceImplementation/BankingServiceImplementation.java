@@ -1,8 +1,10 @@
 package com.example.demo.banking.serviceImplementation;
 
+import com.example.demo.banking.parsitence.enitities.AccountProvisioningTask;
 import com.example.demo.banking.parsitence.enitities.BankAccounts;
 import com.example.demo.banking.parsitence.enitities.Payments;
 import com.example.demo.banking.parsitence.enitities.Transactions;
+import com.example.demo.banking.parsitence.repositories.AccountProvisioningTaskRepo;
 import com.example.demo.banking.parsitence.repositories.BankAccountRepo;
 import com.example.demo.banking.parsitence.repositories.PaymentRepo;
 import com.example.demo.banking.parsitence.repositories.PaymentTransactionRepo;
@@ -12,18 +14,26 @@ import com.example.demo.communication.services.CommunicationService;
 import com.example.demo.communication.services.InfoBidApiService;
 import com.example.demo.customerManagement.parsistence.entities.Customer;
 import com.example.demo.customerManagement.serviceImplimentations.CustomerService;
+import com.example.demo.events.appEvents.AccountProvisioningRequestedEvent;
+import com.example.demo.events.appEvents.AccountsProvisionedEvent;
 import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
 import com.example.demo.loanManagement.parsistence.entities.Products;
 import com.example.demo.loanManagement.parsistence.entities.SuspensePayments;
 import com.example.demo.loanManagement.services.LoanAccountService;
 import com.example.demo.loanManagement.services.PaymentService;
+import com.example.demo.system.services.JobCoordinator;
 import lombok.extern.log4j.Log4j2;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -34,6 +44,18 @@ import java.util.Optional;
 @Service
 @Log4j2
 public class BankingServiceImplementation implements BankingService {
+    private static final String AWAITING_ACCOUNTS = "AWAITING ACCOUNTS";
+    //claim marker held only inside the release transaction
+    private static final String RELEASING = "RELEASING";
+    private static final String RELEASE_FAILED = "RELEASE FAILED";
+    private static final int MAX_PROVISIONING_ATTEMPTS = 5;
+    private static final int MAX_RELEASE_ATTEMPTS = 5;
+    private static final int STALLED_AFTER_MINUTES = 5;
+    private static final String[][] STANDARD_ACCOUNTS = {
+            {"SAVINGS", "This is a savings account where one can use it to get a loan"},
+            {"SHARES", "This is a shares account"},
+            {"ALPHA", "This is a transactional bank account"}
+    };
 
     public final PaymentRepo paymentRepo;
     public  final CustomerService customerService;
@@ -44,6 +66,10 @@ public class BankingServiceImplementation implements BankingService {
     public final CommunicationService communicationService;
     public final emailRepo emailRepo;
     public final InfoBidApiService smsService;
+    private final AccountProvisioningTaskRepo provisioningTaskRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final JobCoordinator jobCoordinator;
 
     @Autowired
     public BankingServiceImplementation(
@@ -55,7 +81,11 @@ public class BankingServiceImplementation implements BankingService {
             PaymentTransactionRepo transactionsRepo, 
             CommunicationService communicationService, 
             com.example.demo.communication.parsitence.repositories.emailRepo emailRepo, 
-            InfoBidApiService smsService
+            InfoBidApiService smsService,
+            AccountProvisioningTaskRepo provisioningTaskRepo,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            JobCoordinator jobCoordinator
     ) {
         this.paymentRepo = paymentRepo;
         this.customerService = customerService;
@@ -66,6 +96,10 @@ public class BankingServiceImplementation implements BankingService {
         this.communicationService = communicationService;
         this.emailRepo = emailRepo;
         this.smsService = smsService;
+        this.provisioningTaskRepo = provisioningTaskRepo;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobCoordinator = jobCoordinator;
     }
     //saving a payment
    /*public ResponseModel savePayment(Payments payments){
@@ -90,12 +124,10 @@ public class BankingServiceImplementation implements BankingService {
     }
    //process payment
     @Async
-    public void processSinglePayment(Payments payment) throws InterruptedException {
-        //find customer
+    public void processSinglePayment(Payments payment) {
+        //find customer, resolving each candidate only when the previous one misses
         Optional<Customer> customerByDestinationAccount=customerService.findByPhone(payment.getDestinationAccount());
-        Optional<Customer> customerByPaymentAccount=customerService.findByPhone(payment.getAccountNumber());
         Customer workingAccountHolder;
-        Optional<LoanAccount> workingLoanAccounts=loanAccountService.findLoanAccountByLoanNumber(payment.getDestinationAccount());
         if (customerByDestinationAccount.isPresent()){
              //set working account holder
             workingAccountHolder=customerByDestinationAccount.get();
@@ -104,6 +136,7 @@ public class BankingServiceImplementation implements BankingService {
             this.handleSavings(workingAccountHolder,payment);
            }else {
             //find loan to repay
+            Optional<LoanAccount> workingLoanAccounts=loanAccountService.findLoanAccountByLoanNumber(payment.getDestinationAccount());
             if (workingLoanAccounts.isPresent()){
                 //repay loan
                 try {
@@ -116,6 +149,7 @@ public class BankingServiceImplementation implements BankingService {
                 }
 
             }else {
+                Optional<Customer> customerByPaymentAccount=customerService.findByPhone(payment.getAccountNumber());
                 if (customerByPaymentAccount.isPresent()){
                     //set working account holder
                     workingAccountHolder=customerByPaymentAccount.get();
@@ -150,51 +184,48 @@ public class BankingServiceImplementation implements BankingService {
 
     //handle saving request
     @Async
-    public void handleSavings(Customer customer,Payments payment) throws InterruptedException {
-
-
-        //check overlapping penalties
-
-
-        //get welfare balance
-        Double savingsAccountBalance=null;
-       Double workingAmount=Double.valueOf(payment.getAmount());
-       List<BankAccounts> bankAccounts=this.getBankAccountsByCustomer(customer).get();
-       log.info("bank accounts found {}",bankAccounts.size());
-        if (bankAccounts.size() > 0){
-            //variables initialisation
-            BankAccounts welfareAccount = null;
-            BankAccounts savingsAccount = null;
-            for (BankAccounts bankAccount:
-                 bankAccounts) {
-                //proposed working model
-                if (bankAccount.getAccountType().equals("ALPHA")){
-                    welfareAccount=bankAccount;
-                }
-                if (bankAccount.getAccountType().equals("SAVINGS")){
-                     savingsAccount=bankAccount;
-                }
+    public void handleSavings(Customer customer,Payments payment) {
+        List<BankAccounts> bankAccounts=this.getBankAccountsByCustomer(customer).orElse(List.of());
+        BankAccounts welfareAccount=findAccountByType(bankAccounts,"ALPHA");
+        BankAccounts savingsAccount=findAccountByType(bankAccounts,"SAVINGS");
+        log.info("bank accounts found {}",bankAccounts.size());
+        if (welfareAccount==null || savingsAccount==null){
+            //accounts not ready: park the payment and let provisioning release it
+            log.info("Accounts not ready for {}, parking payment {}",customer.getPhoneNumber(),payment.getOtherRef());
+            payment.setCustomer(customer);
+            payment.setStatus(AWAITING_ACCOUNTS);
+            this.paymentRepo.save(payment);
+            this.requestAccountProvisioning(customer);
+            return;
+        }
+        this.creditContribution(welfareAccount,savingsAccount,payment);
+        this.sendContributionSMS(customer,payment,savingsAccount);
+    }
 
-            }
-            //check and save welfare should return amount after welfare saving
-            Double transactionAmount=saveWelfareTransaction(welfareAccount,payment.getOtherRef(),workingAmount);
-            if (transactionAmount > 0.0) {
-                this.saveSavingsTransaction(savingsAccount,payment.getOtherRef(),transactionAmount);
-            }
-        }else {
-            log.info("No bank accounts found..");
-            this.createBankAccounts(customer);
-            Thread.sleep(9000);
-            this.handleSavings(customer,payment);
+    //credit welfare first, then savings, and mark the payment processed
+    private void creditContribution(BankAccounts welfareAccount,BankAccounts savingsAccount,Payments payment){
+        //check and save welfare should return amount after welfare saving
+        Double transactionAmount=saveWelfareTransaction(welfareAccount,payment.getOtherRef(),Double.valueOf(payment.getAmount()));
+        if (transactionAmount > 0.0) {
+            this.saveSavingsTransaction(savingsAccount,payment.getOtherRef(),transactionAmount);
         }
-        //send communication
-        log.info("sending transaction sms");
-        customerService.sendTransactionalSMS(customer.getPhoneNumber(),"Dear "+customer.getFirstName()+", "+customer.getExternalId()+" we have received your contribution of Ksh "+payment.getAmount()+" and Ref "+payment.getOtherRef()+" at "+payment.getPaymentTime()+" Your Nyanathi Saving account \n your balance is ksh "+getBankAccountsByCustomer(customer).get().get(2).getAccountBalance());
         payment.setStatus("PROCESSED AS CONTRIBUTION");
         log.info("saving payment");
-         this.paymentRepo.save(payment);
+        this.paymentRepo.save(payment);
+    }
+
+    private void sendContributionSMS(Customer customer,Payments payment,BankAccounts savingsAccount){
+        //send communication
+        log.info("sending transaction sms");
+        customerService.sendTransactionalSMS(customer.getPhoneNumber(),"Dear "+customer.getFirstName()+", "+customer.getExternalId()+" we have received your contribution of Ksh "+payment.getAmount()+" and Ref "+payment.getOtherRef()+" at "+payment.getPaymentTime()+" Your Nyanathi Saving account \n your balance is ksh "+savingsAccount.getAccountBalance());
     }
 
+    private BankAccounts findAccountByType(List<BankAccounts> accounts,String accountType){
+        return accounts.stream()
+                .filter(acc -> accountType.equalsIgnoreCase(acc.getAccountType()))
+                .findFirst()
+                .orElse(null);
+    }
 
     public Double saveWelfareTransaction(BankAccounts welfareAccount,String paymentRef,Double workingAmount){
         Double welfareAmount=this.getAmountByAccount(welfareAccount);
@@ -255,55 +286,153 @@ public class BankingServiceImplementation implements BankingService {
     //creating BankAccounts
     public List<BankAccounts> createBankAccounts(Customer customer){
         log.info("creating bank accounts for : {}",customer.getPhoneNumber());
-       //BankAccounts[] createdAccounts =new BankAccounts[3];
-        List<BankAccounts> list = new ArrayList<>();
-        //check existing bank accounts
-        Optional<List<BankAccounts>> bankAccounts=this.getBankAccountsByCustomer(customer);
-        if (!bankAccounts.get().isEmpty()){
-            list=bankAccounts.get();
-             log.info("Existing bank accounts ..{}",list);
+        List<BankAccounts> list = new ArrayList<>(this.getBankAccountsByCustomer(customer).orElse(List.of()));
+        if (!list.isEmpty()){
+            log.info("Existing bank accounts ..{}",list.size());
+        }
+        //create any missing standard account: "SAVINGS","SHARES","ALPHA"
+        for (int i = 0; i < STANDARD_ACCOUNTS.length; i++) {
+            String accountType=STANDARD_ACCOUNTS[i][0];
+            if (findAccountByType(list,accountType)!=null){
+                continue;
+            }
+            BankAccounts bankAccount=new BankAccounts();
+            bankAccount.setAccountBalance(0.0);
+            bankAccount.setBankAccount("20"+(i+1)+customer.getDocumentNumber()+"00");
+            bankAccount.setCreatedAt(LocalDateTime.now());
+            bankAccount.setCustomer(customer);
+            bankAccount.setAccountType(accountType);
+            bankAccount.setAccountDescription(STANDARD_ACCOUNTS[i][1]);
+            try {
+                list.add(this.saveBankAccount(bankAccount));
+            }catch (Exception e){
+                log.error("error saving Bank Account : {}",e.getMessage());
+            }
+        }
+        return list;
+    }
 
+    //account provisioning workflow
+    @Override
+    public void requestAccountProvisioning(Customer customer){
+        LocalDateTime now=LocalDateTime.now();
+        Optional<AccountProvisioningTask> existing=provisioningTaskRepo.findByCustomerId(customer.getId());
+        if (existing.isPresent()){
+            //a completed task is reopened when accounts are still missing (e.g. one was removed)
+            provisioningTaskRepo.reopen(customer.getId(),now);
         }else {
-            //create accounts "ALPHA","INVESTA","SHARES"
-            for (int i = 1; i < 4; i++) {
-                String accountType;
-                String accountDescription;
-                BankAccounts bankAccount=new BankAccounts();
-                bankAccount.setAccountBalance(0.0);
-                bankAccount.setBankAccount("20"+i+customer.getDocumentNumber()+"00");
-                bankAccount.setCreatedAt(LocalDateTime.now());
-                bankAccount.setCustomer(customer);
-                accountType="";
-                accountDescription="";
-
-                if (i==1){
-                    accountType="SAVINGS";
-                    accountDescription="This is a savings account where one can use it to get a loan";
-
-                }
-                   if (i==2) {
-                       accountType="SHARES";
-                       accountDescription="This is a shares account";
+            AccountProvisioningTask task=new AccountProvisioningTask();
+            task.setCustomerId(customer.getId());
+            task.setStatus("PENDING");
+            task.setAttempts(0);
+            task.setCreatedAt(now);
+            task.setUpdatedAt(now);
+            try {
+                provisioningTaskRepo.save(task);
+            }catch (DataIntegrityViolationException e){
+                log.info("Provisioning task already registered for customer {}",customer.getId());
+            }
+        }
+        eventPublisher.publishEvent(new AccountProvisioningRequestedEvent(this,customer.getId()));
+    }
 
-                   }
-                       if (i==3){
-                           accountType="ALPHA";
-                           accountDescription="This is a transactional bank account";
+    @Override
+    public void provisionAccounts(Long customerId){
+        LocalDateTime now=LocalDateTime.now();
+        if (provisioningTaskRepo.claim(customerId,now,now.minusMinutes(STALLED_AFTER_MINUTES))==0){
+            log.info("Provisioning for customer {} already running or done",customerId);
+            return;
+        }
+        AccountProvisioningTask task=provisioningTaskRepo.findByCustomerId(customerId).orElseThrow();
+        try {
+            Customer customer=customerService.findCustomerById(customerId)
+                    .orElseThrow(() -> new IllegalStateException("Customer not found: "+customerId));
+            this.createBankAccounts(customer);
+            if (task.getCompletedAt()==null){
+                this.processInitialDepositIfPresent(customer);
+            }
+            task.setStatus("COMPLETED");
+            task.setCompletedAt(LocalDateTime.now());
+            task.setLastError(null);
+        }catch (Exception e){
+            log.warn("Provisioning failed for customer {}: {}",customerId,e.getMessage());
+            task.setStatus("FAILED");
+            task.setLastError(e.getMessage());
+        }
+        task.setUpdatedAt(LocalDateTime.now());
+        provisioningTaskRepo.save(task);
+        if ("COMPLETED".equals(task.getStatus())){
+            eventPublisher.publishEvent(new AccountsProvisionedEvent(this,customerId));
+        }
+    }
 
-                       }
+    @Override
+    public void releaseParkedPayments(Long customerId){
+        Optional<Customer> customer=customerService.findCustomerById(customerId);
+        if (customer.isEmpty()){
+            return;
+        }
+        List<Payments> parked=paymentRepo.findAllByCustomerAndStatus(customer.get(),AWAITING_ACCOUNTS);
+        log.info("Releasing {} parked payments for customer {}",parked.size(),customerId);
+        for (Payments payment : parked) {
+            releaseParkedPayment(customer.get(),payment);
+        }
+    }
 
-                bankAccount.setAccountType(accountType);
-                bankAccount.setAccountDescription(accountDescription);
-                try {
-                    list.add(this.saveBankAccount(bankAccount));
-                }catch (Exception e){
-                    log.error("error saving Bank Account : {}",e.getMessage());
+    /**
+     * Claims and credits one parked payment in a single transaction. A concurrent release blocks on
+     * the claim and then finds the payment already processed; a failed release rolls back its
+     * credits with the claim, so the payment is parked again and the sweep retries it.
+     */
+    private void releaseParkedPayment(Customer customer,Payments payment){
+        BankAccounts savingsAccount;
+        try {
+            savingsAccount=transactionTemplate.execute(status -> {
+                if (paymentRepo.transition(payment.getPaymentId(),AWAITING_ACCOUNTS,RELEASING)!=1){
+                    return null;
+                }
+                List<BankAccounts> bankAccounts=this.getBankAccountsByCustomer(customer).orElse(List.of());
+                BankAccounts welfareAccount=findAccountByType(bankAccounts,"ALPHA");
+                BankAccounts savings=findAccountByType(bankAccounts,"SAVINGS");
+                if (welfareAccount==null || savings==null){
+                    throw new IllegalStateException("Accounts not ready for customer "+customer.getId());
                 }
+                this.creditContribution(welfareAccount,savings,payment);
+                return savings;
+            });
+        }catch (Exception e){
+            //nothing was credited; count the attempt and leave the payment parked for the sweep
+            paymentRepo.recordReleaseFailure(payment.getPaymentId(),MAX_RELEASE_ATTEMPTS,RELEASE_FAILED);
+            log.error("Error releasing parked payment {}: {}",payment.getOtherRef(),e.getMessage());
+            return;
+        }
+        if (savingsAccount==null){
+            log.info("Parked payment {} already released",payment.getOtherRef());
+            return;
+        }
+        this.sendContributionSMS(customer,payment,savingsAccount);
+    }
 
-            }
+    //retry failed or stalled provisioning and release payments parked around a completed run or a failed release
+    @Scheduled(fixedDelayString = "${banking.provisioning.sweep-ms:300000}")
+    public void sweepProvisioning(){
+        jobCoordinator.runExclusive("provisioning-sweep",this::sweep);
+    }
 
+    private void sweep(){
+        LocalDateTime cutoff=LocalDateTime.now().minusMinutes(STALLED_AFTER_MINUTES);
+        //IN_PROGRESS past the cutoff means the worker died after claiming; claim() takes it over
+        for (AccountProvisioningTask task : provisioningTaskRepo.findByStatusInAndUpdatedAtBefore(List.of("PENDING","FAILED","IN_PROGRESS"),cutoff)) {
+            if (task.getAttempts()!=null && task.getAttempts()>=MAX_PROVISIONING_ATTEMPTS){
+                continue;
+            }
+            eventPublisher.publishEvent(new AccountProvisioningRequestedEvent(this,task.getCustomerId()));
         }
-        return list;
+        paymentRepo.findAllByStatusAndPaymentTimeBefore(AWAITING_ACCOUNTS,cutoff).stream()
+                .filter(payment -> payment.getCustomer()!=null)
+                .map(payment -> payment.getCustomer().getId())
+                .distinct()
+                .forEach(customerId -> eventPublisher.publishEvent(new AccountsProvisionedEvent(this,customerId)));
     }
 
     //save bank account
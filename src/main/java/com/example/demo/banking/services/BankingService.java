@@ -21,5 +21,11 @@ public interface BankingService {
 
     void processInitialDepositIfPresent(Customer customer);
 
+    void requestAccountProvisioning(Customer customer);
+
+    void provisionAccounts(Long customerId);
+
+    void releaseParkedPayments(Long customerId);
+
     BankAccounts createAccountForProduct(Customer customer, Products product, String customDescription);
 }
@@ -2,6 +2,8 @@ package com.example.demo.branch.services;
 
 import com.example.demo.branch.entities.Branch;
 import com.example.demo.branch.repositories.BranchRepository;
+import com.example.demo.system.cache.ReferenceCache;
+import com.example.demo.system.cache.ReferenceDataCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -17,6 +19,7 @@ import java.util.Optional;
 public class BranchService {
 
     private final BranchRepository branchRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     /**
      * Get all branches
@@ -33,17 +36,17 @@ public class BranchService {
     }
 
     /**
-     * Get branch by ID
+     * Get branch by ID (cached copy)
      */
     public Optional<Branch> getBranchById(Long id) {
-        return branchRepository.findById(id);
+        return cache().get("id:" + id, k -> branchRepository.findById(id).orElse(null));
     }
 
     /**
-     * Get branch by code
+     * Get branch by code (cached copy)
      */
     public Optional<Branch> getBranchByCode(String branchCode) {
-        return branchRepository.findByBranchCode(branchCode);
+        return cache().get("code:" + branchCode, k -> branchRepository.findByBranchCode(branchCode).orElse(null));
     }
 
     /**
@@ -60,7 +63,9 @@ public class BranchService {
         branch.setCreatedAt(LocalDateTime.now());
         branch.setIsActive(true);
 
-        return branchRepository.save(branch);
+        Branch saved = branchRepository.save(branch);
+        referenceDataCache.invalidate(ReferenceDataCache.BRANCHES);
+        return saved;
     }
 
     /**
@@ -86,7 +91,9 @@ public class BranchService {
         existingBranch.setUpdatedBy(updatedBy);
         existingBranch.setUpdatedAt(LocalDateTime.now());
 
-        return branchRepository.save(existingBranch);
+        Branch saved = branchRepository.save(existingBranch);
+        referenceDataCache.invalidate(ReferenceDataCache.BRANCHES);
+        return saved;
     }
 
     /**
@@ -101,7 +108,9 @@ public class BranchService {
         branch.setUpdatedBy(updatedBy);
         branch.setUpdatedAt(LocalDateTime.now());
 
-        return branchRepository.save(branch);
+        Branch saved = branchRepository.save(branch);
+        referenceDataCache.invalidate(ReferenceDataCache.BRANCHES);
+        return saved;
     }
 
     /**
@@ -117,6 +126,7 @@ public class BranchService {
         branch.setUpdatedAt(LocalDateTime.now());
 
         branchRepository.save(branch);
+        referenceDataCache.invalidate(ReferenceDataCache.BRANCHES);
     }
 
     /**
@@ -141,4 +151,8 @@ public class BranchService {
             return getActiveBranches();
         }
     }
+
+    private ReferenceCache<String, Branch> cache() {
+        return referenceDataCache.entityCache(ReferenceDataCache.BRANCHES, Branch::new);
+    }
 }
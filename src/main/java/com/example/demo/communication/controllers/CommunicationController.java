@@ -6,6 +6,7 @@ import com.example.demo.communication.parsitence.models.Email;
 import com.example.demo.communication.parsitence.models.messageTemplates;
 import com.example.demo.communication.parsitence.models.ContactListUpload;
 import com.example.demo.communication.services.CommunicationService;
+import com.example.demo.communication.services.EmailDeliveryService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -14,6 +15,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/communication")
@@ -22,6 +24,12 @@ import java.util.List;
 public class CommunicationController {
     @Autowired
     CommunicationService communicationService;
+    @Autowired
+    EmailDeliveryService emailDeliveryService;
+    @GetMapping("/email/metrics")
+    public ResponseEntity<Map<String, Object>> getEmailMetrics(){
+        return new ResponseEntity<>(emailDeliveryService.getMetrics(), HttpStatus.OK);
+    }
     @PostMapping("/createTemplate")
     public ResponseEntity<messageTemplates> createTemplate(@RequestBody messageTemplates template){
         messageTemplates template1=communicationService.createTemplate(template);
@@ -2,6 +2,7 @@ package com.example.demo.communication.parsitence.models;
 
 import jakarta.persistence.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity
 public class Email {
@@ -11,9 +12,17 @@ public class Email {
     private Long id;
     private String messageType;
     private String recipient;
+    @Column(columnDefinition = "TEXT")
     private String message;
     private String status;
     private LocalDate Date;
+    // delivery queue fields, used for rows queued through EmailDeliveryService
+    private String subject;
+    private Integer attempts;
+    private LocalDateTime nextAttemptAt;
+    @Column(length = 500)
+    private String lastError;
+    private LocalDateTime sentAt;
 
     public Email() {
     }
@@ -87,6 +96,46 @@ public class Email {
         Date = date;
     }
 
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+
     @Override
     public String toString() {
         return "Email{" +
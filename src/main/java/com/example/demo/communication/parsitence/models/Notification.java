@@ -0,0 +1,24 @@
+package com.example.demo.communication.parsitence.models;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * One composed member notification. Built per request from a {@code NotificationTemplate} and never
+ * modified afterwards, so it can be handed to another thread without copying.
+ */
+@Getter
+@ToString
+public final class Notification {
+    private final String recipient;
+    private final String phoneNumber;
+    private final String messageType;
+    private final String message;
+
+    public Notification(String recipient, String phoneNumber, String messageType, String message) {
+        this.recipient = recipient;
+        this.phoneNumber = phoneNumber;
+        this.messageType = messageType;
+        this.message = message;
+    }
+}
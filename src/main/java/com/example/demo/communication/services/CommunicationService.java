@@ -21,8 +21,6 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import jakarta.mail.*;
-import jakarta.mail.internet.*;
 import java.io.IOException;
 import java.net.URI;
 import java.time.LocalDate;
@@ -37,14 +35,16 @@ public class CommunicationService {
     public final ContactBookRepo contactBookRepo;
     public final ContactListRepo contactListRepo;
     public final CustomerRepo customerRepo;
+    public final EmailDeliveryService emailDelivery;
 
-    public CommunicationService(com.example.demo.communication.parsitence.repositories.emailRepo emailRepo, TemplateRepo templateRepo, InfoBidApiService sms, ContactBookRepo contactBookRepo, ContactListRepo contactListRepo, CustomerRepo customerRepo) {
+    public CommunicationService(com.example.demo.communication.parsitence.repositories.emailRepo emailRepo, TemplateRepo templateRepo, InfoBidApiService sms, ContactBookRepo contactBookRepo, ContactListRepo contactListRepo, CustomerRepo customerRepo, EmailDeliveryService emailDelivery) {
         this.emailRepo = emailRepo;
         this.templateRepo = templateRepo;
         this.sms = sms;
         this.contactBookRepo = contactBookRepo;
         this.contactListRepo = contactListRepo;
         this.customerRepo = customerRepo;
+        this.emailDelivery = emailDelivery;
     }
     public void sendEmail(String[] data){
         String variable[] = new String[]{
@@ -64,66 +64,11 @@ public class CommunicationService {
  }
 
     //send email
+    // queued and delivered over pooled SMTP connections by EmailDeliveryService
     @Async
     public void theEmail(String[] variable){
-        log.info("saving email....");
-        //save Email
-        Email email= new Email();
-        email.setDate(LocalDate.now());
-        email.setMessage(variable[2]);
-        email.setRecipient(variable[0]);
-        email.setStatus("PROCESSED");
-        email.setMessageType("EMAIL");
-        emailRepo.save(email);
-
-        //send message
-        try {
-            log.info("sending email to "+email.getRecipient()+"..");
-
-            sendmail(variable);
-            log.info("email sent.");
-        } catch (MessagingException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-    //email auth
-    Properties props = new Properties();
-    Session session = Session.getInstance(props, new jakarta.mail.Authenticator() {
-        protected PasswordAuthentication getPasswordAuthentication() {
-            return new PasswordAuthentication("mungaistanley001@gmail.com", "rploampijtiyfbhz");
-        }
-    });
-    //email test
-    @Async
-    public void sendmail(String[] variables) throws AddressException, MessagingException, IOException {
-
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-
-        Message msg = new MimeMessage(session);
-        msg.setFrom(new InternetAddress("STAN", false));
-
-        msg.setRecipients(Message.RecipientType.TO, InternetAddress.parse(variables[0]));
-        msg.setSubject(variables[1]);
-        msg.setContent(variables[2], "text/html");
-        msg.setSentDate(new Date());
-
-        MimeBodyPart messageBodyPart = new MimeBodyPart();
-        messageBodyPart.setContent(variables[2], "text/html");
-
-        Multipart multipart = new MimeMultipart();
-        multipart.addBodyPart(messageBodyPart);
-        MimeBodyPart attachPart = new MimeBodyPart();
-
-        //attachPart.attachFile(customPath);
-        // multipart.addBodyPart(attachPart);
-        msg.setContent(multipart);
-
-      Transport.send(msg);
+        log.info("queueing email to {}..", variable[0]);
+        emailDelivery.enqueue(variable[0], variable[1], variable[2]);
     }
 
     @Async
@@ -154,22 +99,23 @@ public class CommunicationService {
 
     @Async
     public void sendCustomEmail(Email mail) {
-        String variable[] = new String[]{
-                mail.getRecipient(),mail.getMessageType(),mail.getMessage()
-        };
-
         try {
-           // theEmail(variable);
-            //changing email communication to whatsapp communication
             Customer customer=customerRepo.findByEmail(mail.getRecipient());
-            String requestParams="?instanceId=109266945127952&to="+customer.getPhoneNumber()+"&message="+mail.getMessage();
-            UriComponents components = UriComponentsBuilder.fromHttpUrl("http://192.168.43.63:30001/communication/sendWhatsAppMessage"+requestParams).pathSegment(null).build();
-            ResponseEntity responseEntity = postEntity(components, null, null, String.class);
+            deliver(new Notification(mail.getRecipient(),customer.getPhoneNumber(),mail.getMessageType(),mail.getMessage()));
         }catch (Exception e){
             log.warn("Error sending communication: {}",e.getMessage());
         }
+    }
 
-
+    //deliver a composed notification; email communication was changed to whatsapp communication
+    public void deliver(Notification notification) {
+        try {
+            String requestParams="?instanceId=109266945127952&to="+notification.getPhoneNumber()+"&message="+notification.getMessage();
+            UriComponents components = UriComponentsBuilder.fromHttpUrl("http://192.168.43.63:30001/communication/sendWhatsAppMessage"+requestParams).pathSegment(null).build();
+            postEntity(components, null, null, String.class);
+        }catch (Exception e){
+            log.warn("Error sending {} to {}: {}",notification.getMessageType(),notification.getPhoneNumber(),e.getMessage());
+        }
     }
 
     public List<Email> getOutbox() {
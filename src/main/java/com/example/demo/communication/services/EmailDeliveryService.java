@@ -0,0 +1,400 @@
+package com.example.demo.communication.services;
+
+import com.example.demo.communication.parsitence.models.Email;
+import com.example.demo.communication.parsitence.repositories.emailRepo;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound email queue. Messages are stored in the {@code email} table with status QUEUED and
+ * delivered by a fixed set of workers, each sending a run of messages over one pooled SMTP
+ * connection. Each poll claims work only for the workers that are idle and returns at once.
+ * Rows are claimed with {@code FOR UPDATE SKIP LOCKED} and a lease, so several nodes can drain
+ * the same queue and rows held by a crashed node are picked up again once the lease runs out.
+ * Sends to each SMTP host are rate-limited per node. Transient failures (4xx replies, dropped
+ * connections) are retried with exponential backoff; permanent ones (5xx replies, bad addresses)
+ * and messages out of attempts are marked FAILED.
+ */
+@Service
+@Log4j2
+public class EmailDeliveryService {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+
+    private static final String CLAIM_SQL =
+            "UPDATE email SET status = 'SENDING', next_attempt_at = ? " +
+            "WHERE id IN (SELECT id FROM email " +
+            "  WHERE message_type = 'EMAIL' AND status IN ('QUEUED', 'SENDING') AND next_attempt_at <= ? " +
+            "  ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, recipient, subject, message, COALESCE(attempts, 0) AS attempts";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO email (message_type, recipient, subject, message, status, date, attempts, next_attempt_at) " +
+            "VALUES ('EMAIL', ?, ?, ?, 'QUEUED', ?, 0, ?)";
+
+    private static final class QueuedEmail {
+        private final long id;
+        private final String recipient;
+        private final String subject;
+        private final String body;
+        private final int attempts;
+
+        private QueuedEmail(long id, String recipient, String subject, String body, int attempts) {
+            this.id = id;
+            this.recipient = recipient;
+            this.subject = subject;
+            this.body = body;
+            this.attempts = attempts;
+        }
+    }
+
+    /**
+     * Spaces sends to one host evenly at the configured rate.
+     */
+    private static final class SendRateLimiter {
+        private final long intervalNanos;
+        private long nextFree = System.nanoTime();
+
+        private SendRateLimiter(double perSecond) {
+            this.intervalNanos = perSecond > 0 ? (long) (1_000_000_000L / perSecond) : 0;
+        }
+
+        void acquire() throws InterruptedException {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, nextFree);
+                nextFree = slot + intervalNanos;
+                wait = slot - now;
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+
+    public final emailRepo emailRepo;
+    public final JdbcTemplate jdbcTemplate;
+    public final SmtpTransportPool transportPool;
+    private final ExecutorService workers;
+    private final Semaphore idleWorkers;
+    private int running;
+    private long busySince;
+    private final Map<String, SendRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+
+    @Value("${email.delivery.from:${spring.mail.username:}}")
+    private String from;
+
+    @Value("${email.delivery.messages-per-task:50}")
+    private int messagesPerTask;
+
+    @Value("${email.delivery.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${email.delivery.retry-base-seconds:30}")
+    private long retryBaseSeconds;
+
+    @Value("${email.delivery.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${email.delivery.rate-per-second:10}")
+    private double ratePerSecond;
+
+    public EmailDeliveryService(emailRepo emailRepo, JdbcTemplate jdbcTemplate, SmtpTransportPool transportPool,
+                                @Value("${email.delivery.workers:4}") int workerCount) {
+        this.emailRepo = emailRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transportPool = transportPool;
+        int count = Math.max(1, workerCount);
+        this.workers = Executors.newFixedThreadPool(count);
+        this.idleWorkers = new Semaphore(count);
+    }
+
+    /**
+     * Queues one HTML email for delivery.
+     */
+    public Email enqueue(String recipient, String subject, String html) {
+        Email email = new Email();
+        email.setMessageType("EMAIL");
+        email.setRecipient(recipient);
+        email.setSubject(subject);
+        email.setMessage(html);
+        email.setStatus(QUEUED);
+        email.setDate(LocalDate.now());
+        email.setAttempts(0);
+        email.setNextAttemptAt(LocalDateTime.now());
+        return emailRepo.save(email);
+    }
+
+    /**
+     * Queues many emails in JDBC batches, for statement and notice runs to the whole membership.
+     * Each element holds recipient, subject and HTML body.
+     */
+    public int enqueueAll(List<String[]> emails) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        java.sql.Date today = java.sql.Date.valueOf(LocalDate.now());
+        List<Object[]> rows = new ArrayList<>(emails.size());
+        for (String[] e : emails) {
+            rows.add(new Object[]{e[0], e[1], e[2], today, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        return rows.size();
+    }
+
+    /**
+     * Claims one batch sized to the idle workers, one task of {@code messagesPerTask} per idle
+     * worker, and hands it over without waiting. Busy workers keep their rows; nothing is claimed
+     * until a worker is free, so claimed rows never sit in a queue while their lease runs down.
+     */
+    @Scheduled(fixedDelayString = "${email.delivery.poll-ms:2000}")
+    public void dispatch() {
+        // only this method takes permits, so the idle count cannot shrink before they are acquired
+        int idle = idleWorkers.availablePermits();
+        if (idle == 0) {
+            return;
+        }
+        List<QueuedEmail> claimed = claim(idle * messagesPerTask);
+        for (int i = 0; i < claimed.size(); i += messagesPerTask) {
+            List<QueuedEmail> chunk = claimed.subList(i, Math.min(i + messagesPerTask, claimed.size()));
+            idleWorkers.acquireUninterruptibly();
+            taskStarted();
+            try {
+                workers.execute(() -> {
+                    try {
+                        deliver(chunk);
+                    } catch (RuntimeException e) {
+                        log.error("Email delivery task failed: {}", e.getMessage());
+                    } finally {
+                        taskFinished();
+                        idleWorkers.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // shutting down: the rows stay SENDING and are re-claimed when the lease expires
+                taskFinished();
+                idleWorkers.release();
+                return;
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        long n = sent.sum();
+        long busy = busyNanos.sum();
+        long opened = transportPool.getConnectionsOpened();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("queued", jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM email WHERE message_type = 'EMAIL' AND status IN ('QUEUED', 'SENDING')", Long.class));
+        result.put("sent", n);
+        result.put("retried", retried.sum());
+        result.put("failed", failed.sum());
+        result.put("connectionsOpened", opened);
+        result.put("messagesPerConnection", opened > 0 ? (double) n / opened : 0.0);
+        result.put("avgSendMs", n > 0 ? sendNanos.sum() / n / 1_000_000.0 : 0.0);
+        result.put("messagesPerSecond", busy > 0 ? n / (busy / 1_000_000_000.0) : 0.0);
+        return result;
+    }
+
+    private synchronized void taskStarted() {
+        if (running++ == 0) {
+            busySince = System.nanoTime();
+        }
+    }
+
+    /**
+     * Busy time counts while at least one task runs, so messagesPerSecond is over wall-clock time.
+     */
+    private synchronized void taskFinished() {
+        if (--running == 0) {
+            busyNanos.add(System.nanoTime() - busySince);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private List<QueuedEmail> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.query(CLAIM_SQL,
+                (rs, i) -> new QueuedEmail(rs.getLong("id"), rs.getString("recipient"), rs.getString("subject"),
+                        rs.getString("message"), rs.getInt("attempts")),
+                Timestamp.valueOf(now.plusSeconds(leaseSeconds)), Timestamp.valueOf(now), limit);
+    }
+
+    /**
+     * Sends one chunk over a single pooled connection and records every outcome in batches.
+     */
+    private void deliver(List<QueuedEmail> chunk) {
+        List<Object[]> sentRows = new ArrayList<>();
+        List<Object[]> retryRows = new ArrayList<>();
+        List<Object[]> failedRows = new ArrayList<>();
+        List<Object[]> requeueRows = new ArrayList<>();
+        SmtpTransportPool.PooledTransport pooled = null;
+        boolean broken = false;
+        int next = 0;
+        try {
+            pooled = transportPool.borrow(leaseSeconds * 1000 / 2);
+            if (pooled == null) {
+                return;
+            }
+            SendRateLimiter limiter = limiters.computeIfAbsent(String.valueOf(transportPool.getHost()),
+                    h -> new SendRateLimiter(ratePerSecond));
+            for (; next < chunk.size(); next++) {
+                QueuedEmail email = chunk.get(next);
+                limiter.acquire();
+                try {
+                    MimeMessage message = toMessage(email);
+                    long started = System.nanoTime();
+                    pooled.getTransport().sendMessage(message, message.getAllRecipients());
+                    sendNanos.add(System.nanoTime() - started);
+                    pooled.sent();
+                    sent.increment();
+                    sentRows.add(new Object[]{Timestamp.valueOf(LocalDateTime.now()), email.attempts + 1, email.id});
+                } catch (MessagingException e) {
+                    int code = returnCode(e);
+                    if (e instanceof AddressException || (e instanceof SendFailedException && code >= 500)) {
+                        fail(email, e, failedRows);
+                    } else {
+                        retry(email, e, retryRows, failedRows);
+                        if (!(e instanceof SendFailedException) || code == 421) {
+                            broken = true;
+                            next++;
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (MessagingException e) {
+            // could not open a connection: every message in the chunk uses up an attempt
+            log.warn("Could not connect to SMTP host {}: {}", transportPool.getHost(), e.getMessage());
+            for (; next < chunk.size(); next++) {
+                retry(chunk.get(next), e, retryRows, failedRows);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            transportPool.release(pooled, broken);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (; next < chunk.size(); next++) {
+                requeueRows.add(new Object[]{now, chunk.get(next).id});
+            }
+            record(sentRows, retryRows, failedRows, requeueRows);
+        }
+    }
+
+    private MimeMessage toMessage(QueuedEmail email) throws MessagingException {
+        MimeMessage message = new MimeMessage(transportPool.getSession());
+        if (from != null && !from.isBlank()) {
+            message.setFrom(new InternetAddress(from));
+        }
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email.recipient));
+        message.setSubject(email.subject != null ? email.subject : "", "UTF-8");
+        message.setContent(email.body != null ? email.body : "", "text/html; charset=UTF-8");
+        message.setSentDate(new Date());
+        message.saveChanges();
+        return message;
+    }
+
+    private void retry(QueuedEmail email, Exception e, List<Object[]> retryRows, List<Object[]> failedRows) {
+        int attempts = email.attempts + 1;
+        if (attempts >= maxAttempts) {
+            fail(email, e, failedRows);
+            return;
+        }
+        retried.increment();
+        long delay = Math.min(retryBaseSeconds << Math.min(attempts - 1, 10), 3600);
+        retryRows.add(new Object[]{attempts, Timestamp.valueOf(LocalDateTime.now().plusSeconds(delay)),
+                truncate(e.getMessage()), email.id});
+    }
+
+    private void fail(QueuedEmail email, Exception e, List<Object[]> failedRows) {
+        failed.increment();
+        log.warn("Email {} to {} failed permanently: {}", email.id, email.recipient, e.getMessage());
+        failedRows.add(new Object[]{email.attempts + 1, truncate(e.getMessage()), email.id});
+    }
+
+    private void record(List<Object[]> sentRows, List<Object[]> retryRows, List<Object[]> failedRows,
+                        List<Object[]> requeueRows) {
+        try {
+            if (!sentRows.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE email SET status = 'SENT', sent_at = ?, attempts = ?, last_error = NULL WHERE id = ?", sentRows);
+            }
+            if (!retryRows.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE email SET status = 'QUEUED', attempts = ?, next_attempt_at = ?, last_error = ? WHERE id = ?", retryRows);
+            }
+            if (!failedRows.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE email SET status = 'FAILED', attempts = ?, last_error = ? WHERE id = ?", failedRows);
+            }
+            if (!requeueRows.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE email SET status = 'QUEUED', next_attempt_at = ? WHERE id = ?", requeueRows);
+            }
+        } catch (Exception e) {
+            // rows stay SENDING and are re-claimed when the lease expires
+            log.error("Could not record email delivery outcomes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * SMTP reply code carried by the provider's exception (or a nested one), -1 when there is none.
+     * Read reflectively so the code does not depend on a particular Jakarta Mail implementation.
+     */
+    private static int returnCode(MessagingException e) {
+        Exception current = e;
+        while (current != null) {
+            try {
+                Object code = current.getClass().getMethod("getReturnCode").invoke(current);
+                if (code instanceof Integer value && value > 0) {
+                    return value;
+                }
+            } catch (ReflectiveOperationException ignored) {
+                // not an SMTP exception
+            }
+            current = current instanceof MessagingException m ? m.getNextException() : null;
+        }
+        return -1;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
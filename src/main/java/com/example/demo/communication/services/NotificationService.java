@@ -0,0 +1,32 @@
+package com.example.demo.communication.services;
+
+import com.example.demo.communication.parsitence.models.Notification;
+import com.example.demo.customerManagement.parsistence.entities.Customer;
+import com.example.demo.events.appEvents.NotificationRequestedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+/**
+ * Entry point for member notifications from business services. Composes an immutable
+ * {@link Notification} for this request and publishes it; delivery happens on the async executor
+ * after the caller's transaction commits (immediately when there is none), so the business flow
+ * never waits on the messaging gateway and a rolled-back operation sends nothing.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class NotificationService {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public void notify(Customer customer, NotificationTemplate template, Object... args) {
+        if (customer == null) {
+            return;
+        }
+        Notification notification = template.compose(customer, args);
+        log.debug("Queueing {} notification for customer {}", template, customer.getId());
+        eventPublisher.publishEvent(new NotificationRequestedEvent(this, notification));
+    }
+}
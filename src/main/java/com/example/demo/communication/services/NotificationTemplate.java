@@ -0,0 +1,88 @@
+package com.example.demo.communication.services;
+
+import com.example.demo.communication.parsitence.models.Notification;
+import com.example.demo.customerManagement.parsistence.entities.Customer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Member notification texts. Each template is split into literal segments and argument slots once,
+ * when the enum is loaded; composing a message only appends the pieces, with no parsing and no
+ * shared formatter state. Placeholders are {@code {0}}, {@code {1}}, ... as in MessageFormat.
+ */
+public enum NotificationTemplate {
+    LOAN_APPLICATION_RECEIVED("Loan Application",
+            "Hello {0}, your application of Ksh {1} has been received, please wait as we process your request"),
+    LOAN_APPLICATION_AUTHORISED("Loan Application",
+            "Hello {0}, your application of Ksh {1} has been approved, please wait for the disbursement"),
+    LOAN_APPLICATION_FAILED("Loan Application",
+            "Hello {0}, your application of Ksh {1} failed with the below error :: {2}"),
+    LOAN_DISBURSED("Disbursement",
+            "Hello {0}, we have disbursed Ksh {1} to your account"),
+    LOAN_APPROVED("Loan Approval",
+            "Hello {0}, your loan application for KES {1} has been APPROVED. {2}"),
+    LOAN_REJECTED("Loan Rejection",
+            "Hello {0}, we regret to inform you that your loan application for KES {1} has been REJECTED. Reason: {2}"),
+    LOAN_DUE_REMINDER("Reminder",
+            "Hello {0}, your loan of Ksh {1} will be due by {2}"),
+    LOAN_DEFAULTED("DEFAULT STATE",
+            "Hello {0}, you have been charged an additional penalty for delaying in payment, please make your payment to avoid more penalties"),
+    CHARGE_APPLIED("{1} Alert",
+            "Hello {0}, you have been charged an extra amount as {1}. Your balance is now Ksh {2}"),
+    PAYMENT_OVERPAID("Payment Confirmation",
+            "Thank you {0}, we have received your payment of Ksh {1}. You have overpaid by Ksh {2}"),
+    PAYMENT_RECEIVED("Payment Confirmation",
+            "Thank you {0}, we have received your payment of Ksh {1}. Your balance is Ksh {2}");
+
+    private final String[] typeSegments;
+    private final int[] typeSlots;
+    private final String[] segments;
+    private final int[] slots;
+
+    NotificationTemplate(String messageType, String text) {
+        List<String> typeParts = new ArrayList<>();
+        this.typeSlots = compile(messageType, typeParts);
+        this.typeSegments = typeParts.toArray(new String[0]);
+        List<String> parts = new ArrayList<>();
+        this.slots = compile(text, parts);
+        this.segments = parts.toArray(new String[0]);
+    }
+
+    /**
+     * Composes the notification for {@code customer}; argument 0 is always the member's first name,
+     * {@code args} fill the remaining slots in order.
+     */
+    public Notification compose(Customer customer, Object... args) {
+        Object[] values = new Object[args.length + 1];
+        values[0] = customer.getFirstName();
+        System.arraycopy(args, 0, values, 1, args.length);
+        return new Notification(customer.getEmail(), customer.getPhoneNumber(),
+                render(typeSegments, typeSlots, values), render(segments, slots, values));
+    }
+
+    private static String render(String[] segments, int[] slots, Object[] values) {
+        StringBuilder out = new StringBuilder(128);
+        for (int i = 0; i < slots.length; i++) {
+            out.append(segments[i]);
+            Object value = slots[i] < values.length ? values[slots[i]] : null;
+            out.append(value != null ? value : "");
+        }
+        return out.append(segments[slots.length]).toString();
+    }
+
+    // segments end up with one more entry than the returned slots
+    private static int[] compile(String text, List<String> segments) {
+        List<Integer> slots = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = text.indexOf('{', start)) >= 0) {
+            int close = text.indexOf('}', open);
+            segments.add(text.substring(start, open));
+            slots.add(Integer.parseInt(text.substring(open + 1, close)));
+            start = close + 1;
+        }
+        segments.add(text.substring(start));
+        return slots.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.demo.communication.services;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of connected, authenticated SMTP transports built from the {@code spring.mail.*} settings.
+ * A borrowed transport is used for many messages before it goes back to the pool, so the TCP
+ * connect, STARTTLS handshake and AUTH happen once per connection instead of once per email.
+ * Connections are recycled after a number of messages (providers cap messages per session) and
+ * after sitting idle long enough for the server to have dropped them.
+ */
+@Component
+@Log4j2
+public class SmtpTransportPool {
+
+    /**
+     * A pooled connection and how much it has been used.
+     */
+    public static final class PooledTransport {
+        private final Transport transport;
+        private int messages;
+        private long lastUsed;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        public Transport getTransport() {
+            return transport;
+        }
+
+        public void sent() {
+            messages++;
+            lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    private final MailProperties mailProperties;
+    private final Session session;
+    private final BlockingQueue<PooledTransport> idle = new LinkedBlockingQueue<>();
+    private final Semaphore permits;
+    private final LongAdder opened = new LongAdder();
+
+    @Value("${email.smtp.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${email.smtp.idle-timeout-seconds:60}")
+    private long idleTimeoutSeconds;
+
+    public SmtpTransportPool(MailProperties mailProperties, @Value("${email.smtp.pool-size:4}") int poolSize) {
+        this.mailProperties = mailProperties;
+        this.permits = new Semaphore(poolSize);
+        Properties props = new Properties();
+        props.putAll(mailProperties.getProperties());
+        props.put("mail.transport.protocol", mailProperties.getProtocol());
+        props.putIfAbsent("mail.smtp.connectiontimeout", "10000");
+        props.putIfAbsent("mail.smtp.timeout", "30000");
+        props.putIfAbsent("mail.smtp.writetimeout", "30000");
+        this.session = Session.getInstance(props);
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Host messages are relayed through; the delivery service rate-limits per host.
+     */
+    public String getHost() {
+        return mailProperties.getHost();
+    }
+
+    /**
+     * Takes a connected transport, opening one when none is idle. Waits up to {@code timeoutMs} for a
+     * free slot and returns null when there is none.
+     */
+    public PooledTransport borrow(long timeoutMs) throws MessagingException, InterruptedException {
+        if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            return null;
+        }
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.poll()) != null) {
+                if (isReusable(pooled)) {
+                    return pooled;
+                }
+                close(pooled);
+            }
+            return open();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a transport to the pool. A transport that failed at the connection level is closed.
+     */
+    public void release(PooledTransport pooled, boolean broken) {
+        if (pooled == null) {
+            return;
+        }
+        if (broken || !isReusable(pooled)) {
+            close(pooled);
+        } else {
+            idle.offer(pooled);
+        }
+        permits.release();
+    }
+
+    public long getConnectionsOpened() {
+        return opened.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        PooledTransport pooled;
+        while ((pooled = idle.poll()) != null) {
+            close(pooled);
+        }
+    }
+
+    private PooledTransport open() throws MessagingException {
+        Transport transport = session.getTransport();
+        Integer port = mailProperties.getPort();
+        transport.connect(mailProperties.getHost(), port != null ? port : -1,
+                mailProperties.getUsername(), mailProperties.getPassword());
+        opened.increment();
+        log.debug("Opened SMTP connection to {}", mailProperties.getHost());
+        return new PooledTransport(transport);
+    }
+
+    /**
+     * Judged on age and use only; probing with isConnected() would cost a NOOP round trip per borrow.
+     * A connection the server dropped anyway fails on send and is released as broken.
+     */
+    private boolean isReusable(PooledTransport pooled) {
+        return pooled.messages < maxMessagesPerConnection
+                && System.currentTimeMillis() - pooled.lastUsed < idleTimeoutSeconds * 1000;
+    }
+
+    private void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.repository.Repository;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Three Hikari pools behind one routing DataSource:
+ * <ul>
+ *   <li>oltp - API requests, callbacks and schedulers; sized by {@code spring.datasource.hikari.*}</li>
+ *   <li>reporting - read-only service transactions (report and dashboard services); points at the
+ *   replica when {@code datasource.reporting.url} is set</li>
+ *   <li>batch - chunked batch jobs that opt in through {@link DataSourceRoute#BATCH}</li>
+ * </ul>
+ * The router sits behind a {@link LazyConnectionDataSourceProxy}, so the physical connection is only
+ * taken once the transaction's read-only flag is known.
+ */
+@Configuration
+@Slf4j
+public class DataSourceConfig {
+
+    @Bean
+    public PoolMetrics poolMetrics() {
+        return new PoolMetrics();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource oltpDataSource(DataSourceProperties properties, PoolMetrics poolMetrics) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("oltp");
+        dataSource.setMetricsTrackerFactory(poolMetrics);
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource reportingDataSource(DataSourceProperties properties, PoolMetrics poolMetrics,
+                                                @Value("${datasource.reporting.url:}") String url,
+                                                @Value("${datasource.reporting.username:}") String username,
+                                                @Value("${datasource.reporting.password:}") String password,
+                                                @Value("${datasource.reporting.maximum-pool-size:8}") int maxPoolSize,
+                                                @Value("${datasource.reporting.connection-timeout:30000}") long connectionTimeout) {
+        boolean replica = StringUtils.hasText(url);
+        HikariDataSource dataSource = pool("reporting", properties, poolMetrics, maxPoolSize, connectionTimeout);
+        if (replica) {
+            dataSource.setJdbcUrl(url);
+            if (StringUtils.hasText(username)) {
+                dataSource.setUsername(username);
+                dataSource.setPassword(password);
+            }
+        }
+        dataSource.setReadOnly(true);
+        log.info("Reporting pool uses {}", replica ? "read replica " + url : "the primary database");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource batchDataSource(DataSourceProperties properties, PoolMetrics poolMetrics,
+                                            @Value("${datasource.batch.maximum-pool-size:6}") int maxPoolSize,
+                                            @Value("${datasource.batch.connection-timeout:60000}") long connectionTimeout) {
+        return pool("batch", properties, poolMetrics, maxPoolSize, connectionTimeout);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("oltpDataSource") HikariDataSource oltpDataSource,
+                                 @Qualifier("reportingDataSource") HikariDataSource reportingDataSource,
+                                 @Qualifier("batchDataSource") HikariDataSource batchDataSource) {
+        RoutingDataSource routing = new RoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                DataSourceRoute.OLTP, oltpDataSource,
+                DataSourceRoute.REPORTING, reportingDataSource,
+                DataSourceRoute.BATCH, batchDataSource));
+        routing.setDefaultTargetDataSource(oltpDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static HikariDataSource pool(String name, DataSourceProperties properties, PoolMetrics poolMetrics,
+                                         int maxPoolSize, long connectionTimeout) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(name);
+        dataSource.setMaximumPoolSize(maxPoolSize);
+        dataSource.setMinimumIdle(Math.min(2, maxPoolSize));
+        dataSource.setConnectionTimeout(connectionTimeout);
+        dataSource.setMetricsTrackerFactory(poolMetrics);
+        return dataSource;
+    }
+
+    /**
+     * An explicit route wins; otherwise read-only transactions declared by application services use
+     * the reporting pool. Spring Data opens its own read-only transaction around every repository
+     * read made outside a transaction; those stay on OLTP so ordinary request paths never read
+     * from a lagging replica.
+     */
+    static final class RoutingDataSource extends AbstractRoutingDataSource {
+        // transaction name -> declared by an application service (not a repository)
+        private final Map<String, Boolean> serviceTransactions = new ConcurrentHashMap<>();
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            DataSourceRoute route = DataSourceRoute.current();
+            if (route != null) {
+                return route;
+            }
+            if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                String name = TransactionSynchronizationManager.getCurrentTransactionName();
+                if (name != null && serviceTransactions.computeIfAbsent(name, RoutingDataSource::isServiceTransaction)) {
+                    return DataSourceRoute.REPORTING;
+                }
+            }
+            return DataSourceRoute.OLTP;
+        }
+
+        private static boolean isServiceTransaction(String name) {
+            int dot = name.lastIndexOf('.');
+            if (dot < 0 || name.startsWith("org.springframework.")) {
+                return false;
+            }
+            try {
+                Class<?> type = ClassUtils.forName(name.substring(0, dot), null);
+                return !Repository.class.isAssignableFrom(type);
+            } catch (ClassNotFoundException | LinkageError e) {
+                return false;
+            }
+        }
+    }
+}
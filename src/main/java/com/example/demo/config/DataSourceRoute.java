@@ -0,0 +1,44 @@
+package com.example.demo.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Connection pool a unit of work runs on. Read-only transactions go to {@link #REPORTING} on their own;
+ * batch work opts into {@link #BATCH} with {@link #call(DataSourceRoute, Supplier)} so long jobs cannot
+ * drain the pool that serves API requests and payment callbacks.
+ */
+public enum DataSourceRoute {
+    OLTP,
+    REPORTING,
+    BATCH;
+
+    private static final ThreadLocal<DataSourceRoute> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Route explicitly chosen for the current thread, or null.
+     */
+    public static DataSourceRoute current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T call(DataSourceRoute route, Supplier<T> work) {
+        DataSourceRoute previous = CURRENT.get();
+        CURRENT.set(route);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void run(DataSourceRoute route, Runnable work) {
+        call(route, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.config;
 
+import com.example.demo.system.services.IdGenerator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -18,10 +19,16 @@ public class DatabaseMigrationConfig {
     
     @Autowired
     private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdGenerator idGenerator;
     
     @EventListener(ApplicationReadyEvent.class)
     @Transactional
     public void migrateDatabase() {
+        ensureIndexes();
+        ensureSequences();
+        
         log.info("Starting database migration for loan_repayment_schedules table...");
         
         try {
@@ -65,6 +72,68 @@ public class DatabaseMigrationConfig {
         }
     }
     
+    /**
+     * Business reference sequences; each commits on its own, independent of this migration.
+     */
+    private void ensureSequences() {
+        try {
+            idGenerator.createSequences();
+        } catch (Exception e) {
+            log.warn("Could not create id sequences at startup, they will be created on first use: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Secondary indexes Hibernate does not derive from the entities.
+     */
+    private void ensureIndexes() {
+        createIndexIfNotExists("savings_transactions", "idx_savings_txn_account_date", "(savings_account_id, transaction_date)");
+        createIndexIfNotExists("savings_interest_accruals", "idx_sia_uncapitalized", "(savings_account_id, accrual_date) WHERE capitalized = FALSE");
+        createIndexIfNotExists("channel_account_view", "idx_cav_customer_kind", "(customer_id, account_kind)");
+        createIndexIfNotExists("loan_transactions", "idx_loan_txn_account", "(account_id)");
+        createIndexIfNotExists("loan_transactions", "idx_loan_txn_loan_ref", "(loan_ref)");
+        createIndexIfNotExists("loan_transactions", "idx_loan_txn_account_time", "(account_id, (COALESCE(transaction_time, transaction_date)), transaction_id)");
+        createIndexIfNotExists("loan_transactions", "idx_loan_txn_loan_ref_time", "(loan_ref, (COALESCE(transaction_time, transaction_date)), transaction_id)");
+        createIndexIfNotExists("transactions", "idx_bank_txn_account_time", "(bank_account_id, transaction_time, transaction_id)");
+        createIndexIfNotExists("email", "idx_email_delivery_queue", "(next_attempt_at, id) WHERE status IN ('QUEUED', 'SENDING')");
+        createIndexIfNotExists("journal_entries", "idx_journal_posted_date", "(transaction_date, id) WHERE status IN ('POSTED', 'APPROVED', 'REVERSED')");
+        createIndexIfNotExists("journal_entry_lines", "idx_journal_line_entry", "(journal_entry_id, account_code, type, amount)");
+        createIndexIfNotExists("journal_entries", "idx_journal_updated_at", "(updated_at)");
+        createIndexIfNotExists("loan_account", "idx_loan_account_updated_at", "(updated_at)");
+        createIndexIfNotExists("savings_accounts", "idx_savings_account_updated_at", "(updated_at)");
+        createIndexIfNotExists("savings_accounts", "idx_savings_accounts_customer", "(customer_id, id)");
+        createIndexIfNotExists("loan_account", "idx_loan_account_customer", "(customer_id)");
+        widenToText("email", "message");
+    }
+    
+    private void createIndexIfNotExists(String tableName, String indexName, String definition) {
+        if (!tableExists(tableName)) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute(String.format("CREATE INDEX IF NOT EXISTS %s ON %s %s", indexName, tableName, definition));
+        } catch (Exception e) {
+            log.warn("Could not create index {} on {}: {}", indexName, tableName, e.getMessage());
+        }
+    }
+    
+    /**
+     * Hibernate's update mode never alters an existing column's type.
+     */
+    private void widenToText(String tableName, String columnName) {
+        try {
+            String type = jdbcTemplate.query(
+                    "SELECT data_type FROM information_schema.columns WHERE table_name = ? AND column_name = ?",
+                    rs -> rs.next() ? rs.getString(1) : null, tableName, columnName);
+            if (type == null || "text".equals(type)) {
+                return;
+            }
+            jdbcTemplate.execute(String.format("ALTER TABLE %s ALTER COLUMN %s TYPE TEXT", tableName, columnName));
+        } catch (Exception e) {
+            log.warn("Could not widen {}.{} to TEXT: {}", tableName, columnName, e.getMessage());
+        }
+    }
+    
     private boolean tableExists(String tableName) {
         try {
             String sql = "SELECT EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = ?)";
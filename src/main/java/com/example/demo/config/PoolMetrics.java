@@ -0,0 +1,86 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-pool Hikari statistics: connection wait (acquire) time, hold time, timeouts and the live
+ * active/idle/pending counts. Cumulative since startup.
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private static final class Tracker implements IMetricsTracker {
+        private final PoolStats stats;
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAccumulator maxAcquireNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder usageMillis = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder created = new LongAdder();
+
+        private Tracker(PoolStats stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            created.increment();
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquired.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageMillis.add(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        private Map<String, Object> snapshot() {
+            long n = acquired.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("active", stats.getActiveConnections());
+            result.put("idle", stats.getIdleConnections());
+            result.put("total", stats.getTotalConnections());
+            result.put("max", stats.getMaxConnections());
+            result.put("pending", stats.getPendingThreads());
+            result.put("acquired", n);
+            result.put("avgWaitMs", n > 0 ? acquireNanos.sum() / n / 1_000_000.0 : 0.0);
+            result.put("maxWaitMs", maxAcquireNanos.get() / 1_000_000.0);
+            result.put("avgHoldMs", n > 0 ? (double) usageMillis.sum() / n : 0.0);
+            result.put("timeouts", timeouts.sum());
+            result.put("connectionsCreated", created.sum());
+            return result;
+        }
+    }
+
+    private final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        Tracker tracker = new Tracker(poolStats);
+        trackers.put(poolName, tracker);
+        return tracker;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        trackers.forEach((name, tracker) -> result.put(name, tracker.snapshot()));
+        return result;
+    }
+}
@@ -106,8 +106,7 @@ public class CustomerController {
     @PostMapping("/create")
     public ResponseEntity<Customer> createCustomer(@RequestBody Customer customer){
         Customer customer1=customerService.saveCustomer(customer);
-        bankingService.createBankAccounts(customer1);
-        bankingService.processInitialDepositIfPresent(customer1);
+        bankingService.requestAccountProvisioning(customer1);
         return new ResponseEntity<>(customer1, HttpStatus.CREATED);
     }
     //finding customers info
@@ -169,14 +168,18 @@ public class CustomerController {
         return new ResponseEntity<>(subscription,HttpStatus.OK);
     }
     @PostMapping("/loanApplication")
-    public ResponseEntity<LoanApplication> loanApplication(@RequestBody newApplication application){
-       LoanApplication loanApp = loanService.loanApplication(
-           application.getCustomerId(),
-           application.getPhoneNumberValue(),
-           application.getProductCode(),
-           application.getAmount()
-       );
-        return new ResponseEntity<>(loanApp, HttpStatus.OK);
+    public ResponseEntity<?> loanApplication(@RequestBody newApplication application){
+        try {
+            LoanApplication loanApp = loanService.loanApplication(
+                application.getCustomerId(),
+                application.getPhoneNumberValue(),
+                application.getProductCode(),
+                application.getAmount()
+            );
+            return new ResponseEntity<>(loanApp, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
     }
     @PostMapping("/whatsappComm")
     public ResponseEntity whatsappComm(@RequestBody WhatsAppMessage message){
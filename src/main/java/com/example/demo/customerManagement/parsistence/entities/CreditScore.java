@@ -0,0 +1,45 @@
+package com.example.demo.customerManagement.parsistence.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Precomputed member credit score, refreshed by the nightly scoring batch
+ * and whenever one of the member's loans changes state.
+ */
+@Entity
+@Table(name = "credit_score")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditScore {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private Long customerId;
+
+    @Column(nullable = false)
+    private Integer score;
+
+    private Integer ageScore;
+
+    private Integer defaultScore;
+
+    private Integer transactionScore;
+
+    private Integer totalAccounts;
+
+    private Integer defaultedAccounts;
+
+    @Column(nullable = false)
+    private LocalDateTime computedAt;
+}
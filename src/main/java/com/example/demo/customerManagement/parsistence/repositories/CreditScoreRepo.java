@@ -0,0 +1,13 @@
+package com.example.demo.customerManagement.parsistence.repositories;
+
+import com.example.demo.customerManagement.parsistence.entities.CreditScore;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CreditScoreRepo extends JpaRepository<CreditScore, Long> {
+
+    Optional<CreditScore> findByCustomerId(Long customerId);
+}
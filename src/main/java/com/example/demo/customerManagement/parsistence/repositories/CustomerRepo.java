@@ -31,6 +31,9 @@ public interface CustomerRepo extends JpaRepository<Customer, Long>, JpaSpecific
 
     Optional<Customer> findByExternalId(String customerId);
 
+    @Query("select c.branchCode from Customer c where c.id = :id")
+    Optional<String> findBranchCodeById(@Param("id") Long id);
+
     @Query("SELECT c FROM Customer c WHERE (:status IS NULL OR c.accountStatusFlag = :status) " +
             "AND (:query IS NULL OR " +
             "LOWER(CONCAT(COALESCE(c.firstName, ''), ' ', COALESCE(c.lastName, ''))) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
@@ -2,7 +2,11 @@ package com.example.demo.customerManagement.parsistence.repositories;
 
 import com.example.demo.customerManagement.parsistence.entities.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -26,4 +30,14 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     long countByIsActiveTrue();
     
     long countByCreatedAtAfter(LocalDateTime date);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Customer c SET c.failedPinAttempts = 0, c.lastLogin = :loginTime WHERE c.id = :id")
+    int recordSuccessfulLogin(@Param("id") Long id, @Param("loginTime") LocalDateTime loginTime);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Customer c SET c.failedPinAttempts = COALESCE(c.failedPinAttempts, 0) + 1 WHERE c.id = :id")
+    int incrementFailedPinAttempts(@Param("id") Long id);
 }
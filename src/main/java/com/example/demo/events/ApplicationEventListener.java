@@ -1,8 +1,15 @@
 package com.example.demo.events;
 
+import com.example.demo.communication.services.CommunicationService;
+import com.example.demo.events.appEvents.AccountProvisioningRequestedEvent;
+import com.example.demo.events.appEvents.AccountsProvisionedEvent;
 import com.example.demo.events.appEvents.CreateAccountEvent;
 import com.example.demo.events.appEvents.CreateRepaymentScheduleEvent;
 import com.example.demo.events.appEvents.LoanBookUploadEvent;
+import com.example.demo.events.appEvents.LoanStatusChangedEvent;
+import com.example.demo.events.appEvents.LoanDisbursementRequestedEvent;
+import com.example.demo.events.appEvents.MemberPositionChangedEvent;
+import com.example.demo.events.appEvents.NotificationRequestedEvent;
 import com.example.demo.events.appEvents.SubscriptionEvent;
 import com.example.demo.system.services.EventProcessor;
 import lombok.extern.log4j.Log4j2;
@@ -10,12 +17,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 @Service
 @Log4j2
 public class ApplicationEventListener {
     @Autowired
     EventProcessor eventProcessor;
+    @Autowired
+    CommunicationService communicationService;
     @EventListener
     @Async
     public void processLoanBookUpload(LoanBookUploadEvent event){
@@ -40,4 +50,42 @@ public class ApplicationEventListener {
         log.info("CreateAccountEvent Received ");
         eventProcessor.createLoanAccount(event.getUpload(),event.getCustomer());
     }
+    @TransactionalEventListener(fallbackExecution = true)
+    @Async
+    public void processLoanStatusChanged(LoanStatusChangedEvent event){
+        log.info("LoanStatusChangedEvent Received for account {}",event.getAccountId());
+        eventProcessor.refreshCreditScore(event.getCustomerId());
+        eventProcessor.refreshEligibility(event.getCustomerId());
+        eventProcessor.refreshChannelView(event.getCustomerId());
+    }
+    @TransactionalEventListener(fallbackExecution = true)
+    @Async
+    public void processMemberPositionChanged(MemberPositionChangedEvent event){
+        log.info("MemberPositionChangedEvent Received ({}) for customer {}",event.getReason(),event.getCustomerId());
+        eventProcessor.refreshEligibility(event.getCustomerId());
+        eventProcessor.refreshChannelView(event.getCustomerId());
+    }
+    @TransactionalEventListener(fallbackExecution = true)
+    @Async
+    public void processAccountProvisioningRequested(AccountProvisioningRequestedEvent event){
+        log.info("AccountProvisioningRequestedEvent Received for customer {}",event.getCustomerId());
+        eventProcessor.provisionAccounts(event.getCustomerId());
+    }
+    @EventListener
+    @Async
+    public void processAccountsProvisioned(AccountsProvisionedEvent event){
+        log.info("AccountsProvisionedEvent Received for customer {}",event.getCustomerId());
+        eventProcessor.releaseParkedPayments(event.getCustomerId());
+    }
+    @TransactionalEventListener(fallbackExecution = true)
+    @Async
+    public void processLoanDisbursementRequested(LoanDisbursementRequestedEvent event){
+        log.info("LoanDisbursementRequestedEvent Received for loan {}",event.getLoanNumber());
+        eventProcessor.disburseLoan(event);
+    }
+    @TransactionalEventListener(fallbackExecution = true)
+    @Async
+    public void processNotificationRequested(NotificationRequestedEvent event){
+        communicationService.deliver(event.getNotification());
+    }
 }
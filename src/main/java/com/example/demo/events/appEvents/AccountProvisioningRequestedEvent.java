@@ -0,0 +1,17 @@
+package com.example.demo.events.appEvents;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Fired when a member needs their standard bank accounts created.
+ */
+@Getter
+public class AccountProvisioningRequestedEvent extends ApplicationEvent {
+    private final Long customerId;
+
+    public AccountProvisioningRequestedEvent(Object source, Long customerId) {
+        super(source);
+        this.customerId = customerId;
+    }
+}
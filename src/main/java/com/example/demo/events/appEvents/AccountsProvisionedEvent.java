@@ -0,0 +1,17 @@
+package com.example.demo.events.appEvents;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Fired once a member's standard bank accounts exist, so payments parked for them can be applied.
+ */
+@Getter
+public class AccountsProvisionedEvent extends ApplicationEvent {
+    private final Long customerId;
+
+    public AccountsProvisionedEvent(Object source, Long customerId) {
+        super(source);
+        this.customerId = customerId;
+    }
+}
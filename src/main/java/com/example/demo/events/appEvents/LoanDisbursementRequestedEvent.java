@@ -0,0 +1,21 @@
+package com.example.demo.events.appEvents;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Fired when an authorised application, its loan account and its disbursement task have been
+ * committed. It only hurries the transfer along: the task row is the record, and the disbursement
+ * sweep picks it up if this event is lost.
+ */
+@Getter
+public class LoanDisbursementRequestedEvent extends ApplicationEvent {
+    private final Long taskId;
+    private final Long loanNumber;
+
+    public LoanDisbursementRequestedEvent(Object source, Long taskId, Long loanNumber) {
+        super(source);
+        this.taskId = taskId;
+        this.loanNumber = loanNumber;
+    }
+}
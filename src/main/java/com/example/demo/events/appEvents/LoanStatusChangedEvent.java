@@ -0,0 +1,18 @@
+package com.example.demo.events.appEvents;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+@Getter
+public class LoanStatusChangedEvent extends ApplicationEvent {
+    private final Long accountId;
+    private final String customerId;
+    private final String status;
+
+    public LoanStatusChangedEvent(Object source, Long accountId, String customerId, String status) {
+        super(source);
+        this.accountId = accountId;
+        this.customerId = customerId;
+        this.status = status;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.demo.events.appEvents;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Fired when a member's savings or loan balances move, so derived data such as
+ * eligibility snapshots can be refreshed for that member only.
+ */
+@Getter
+public class MemberPositionChangedEvent extends ApplicationEvent {
+    private final String customerId;
+    private final String reason;
+
+    public MemberPositionChangedEvent(Object source, String customerId, String reason) {
+        super(source);
+        this.customerId = customerId;
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.events.appEvents;
+
+import com.example.demo.communication.parsitence.models.Notification;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Carries a composed member notification to delivery once the publishing transaction commits.
+ */
+@Getter
+public class NotificationRequestedEvent extends ApplicationEvent {
+    private final Notification notification;
+
+    public NotificationRequestedEvent(Object source, Notification notification) {
+        super(source);
+        this.notification = notification;
+    }
+}
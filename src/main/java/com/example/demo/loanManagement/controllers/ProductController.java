@@ -6,17 +6,22 @@ import com.example.demo.loanManagement.parsistence.entities.Charges;
 import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
 import com.example.demo.loanManagement.parsistence.entities.Products;
 import com.example.demo.loanManagement.parsistence.models.productCreation;
+import com.example.demo.loanManagement.services.ChargeEngine;
 import com.example.demo.loanManagement.services.ChargeServiceImpl;
 import com.example.demo.loanManagement.services.LoanAccountService;
 import com.example.demo.loanManagement.services.ProductService;
 import com.example.demo.system.services.Bps;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -29,17 +34,20 @@ public class ProductController {
     public final ChargeServiceImpl chargeServiceImpl;
     public final LoanAccountService loanAccountService;
     public final Bps bps;
+    public final ChargeEngine chargeEngine;
 
     public ProductController(
             ProductService productService, 
             ChargeServiceImpl chargeServiceImpl, 
             @Qualifier("loanAccountService") LoanAccountService loanAccountService, 
-            Bps bps
+            Bps bps,
+            ChargeEngine chargeEngine
     ) {
         this.productService = productService;
         this.chargeServiceImpl = chargeServiceImpl;
         this.loanAccountService = loanAccountService;
         this.bps = bps;
+        this.chargeEngine = chargeEngine;
     }
 
     @PostMapping("/create")
@@ -73,6 +81,17 @@ public class ProductController {
         Optional<Charges> charges= chargeServiceImpl.getChargeByProductIdAndName(productId,ChargeType);
         return new ResponseEntity<>(charges,HttpStatus.OK);
     }
+    @GetMapping("/charges/preview")
+    public ResponseEntity<ChargeEngine.ChargeBreakdown> previewCharges(@RequestParam String productId,
+                                                                       @RequestParam ChargeEngine.ChargeEvent event,
+                                                                       @RequestParam BigDecimal amount){
+        return new ResponseEntity<>(chargeEngine.compute(productId,event,amount),HttpStatus.OK);
+    }
+    //replays periodic charges for a missed night; loans already charged for the period are skipped
+    @PostMapping("/charges/apply-periodic")
+    public ResponseEntity<Map<String,Integer>> applyPeriodicCharges(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf){
+        return new ResponseEntity<>(chargeEngine.applyPeriodic(asOf),HttpStatus.OK);
+    }
     @GetMapping("/allProducts")
     public ResponseEntity<List<Products>> getAllProducts(){
         List<Products> products=productService.findAllProducts();
@@ -87,14 +106,14 @@ public class ProductController {
     @GetMapping("/getProductByCode{code}")
     public ResponseEntity<Optional<Products>> getByCode(@PathVariable String code){
         log.info("Searching Product with code "+code);
-        Optional<Products> product=productService.productRepo.getByCode(code);
+        Optional<Products> product=productService.findByCode(code);
         log.info("Product found "+product);
         return new ResponseEntity<>(product,HttpStatus.OK);
     }
     @PutMapping("/update")
     public ResponseEntity<Products> updateProduct(@RequestBody Products product){
         log.info("Updating Product ...."+product);
-        Products product1=productService.productRepo.save(product);
+        Products product1=productService.save(product);
         return new ResponseEntity<>(product1,HttpStatus.OK);
     }
     
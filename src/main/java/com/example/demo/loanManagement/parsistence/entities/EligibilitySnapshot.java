@@ -0,0 +1,56 @@
+package com.example.demo.loanManagement.parsistence.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Precomputed loan eligibility per member and product subscription.
+ * Rebuilt in bulk overnight and refreshed per member on savings, loan and payment events.
+ */
+@Entity
+@Table(name = "eligibility_snapshot",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"customer_id", "product_code"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EligibilitySnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false)
+    private String customerId;
+
+    @Column(name = "product_code", nullable = false)
+    private String productCode;
+
+    private Long productId;
+
+    @Column(unique = true)
+    private Long subscriptionId;
+
+    private Boolean subscriptionActive;
+
+    private Integer minLimit;
+
+    private Integer maxLimit;
+
+    private Integer creditLimit;
+
+    private Integer activeLoanCount;
+
+    private String existingLoanStatus;
+
+    private BigDecimal outstandingBalance;
+
+    @Column(nullable = false)
+    private LocalDateTime refreshedAt;
+}
@@ -61,6 +61,13 @@ public class LoanAccount {
     
     public LoanAccount() {
     }
+
+    // report artifacts are keyed on the latest updated_at, so every change has to move it
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.updatedAt = LocalDateTime.now();
+    }
     
     // Getter and setter for term
     public Integer getTerm() {
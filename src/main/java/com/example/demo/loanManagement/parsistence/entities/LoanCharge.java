@@ -0,0 +1,42 @@
+package com.example.demo.loanManagement.parsistence.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One charge applied to one loan for one charging period. The unique key makes a batch run safe to
+ * repeat: a loan already charged for the period is skipped instead of charged twice.
+ */
+@Entity
+@Table(name = "loan_charges", uniqueConstraints = @UniqueConstraint(
+        name = "uk_loan_charges_account_charge_period", columnNames = {"loan_account_id", "charge_id", "period_key"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanCharge {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "loan_account_id", nullable = false)
+    private Long loanAccountId;
+
+    @Column(name = "charge_id", nullable = false)
+    private Long chargeId;
+
+    private String chargeName;
+
+    @Column(name = "period_key", nullable = false, length = 20)
+    private String periodKey;
+
+    @Column(precision = 15, scale = 2)
+    private BigDecimal amount;
+
+    private LocalDateTime appliedAt;
+}
@@ -0,0 +1,42 @@
+package com.example.demo.loanManagement.parsistence.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row for the funds transfer of an authorised loan, written in the same transaction as the
+ * application and loan account so a disbursement survives a restart or a lost event.
+ * PENDING until a worker claims it, IN_PROGRESS while the transfer runs, then COMPLETED. A transfer
+ * that fails or stalls once sent may already have paid out, so it moves to REVIEW and is never re-sent.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "loan_disbursement_tasks")
+public class LoanDisbursementTask {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "loan_account_id", nullable = false, unique = true)
+    private Long loanAccountId;
+    @Column(nullable = false)
+    private Long customerId;
+    private Long loanNumber;
+    private String customerMobileNumber;
+    private String destinationAccount;
+    private String amount;
+    private String accountBalance;
+    @Column(nullable = false, length = 20)
+    private String status;
+    private Integer attempts = 0;
+    @Column(length = 500)
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
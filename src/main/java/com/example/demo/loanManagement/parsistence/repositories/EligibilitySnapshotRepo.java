@@ -0,0 +1,15 @@
+package com.example.demo.loanManagement.parsistence.repositories;
+
+import com.example.demo.loanManagement.parsistence.entities.EligibilitySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EligibilitySnapshotRepo extends JpaRepository<EligibilitySnapshot, Long> {
+
+    Optional<EligibilitySnapshot> findBySubscriptionId(Long subscriptionId);
+
+    Optional<EligibilitySnapshot> findByCustomerIdAndProductId(String customerId, Long productId);
+}
@@ -0,0 +1,37 @@
+package com.example.demo.loanManagement.parsistence.repositories;
+
+import com.example.demo.loanManagement.parsistence.entities.LoanDisbursementTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LoanDisbursementTaskRepo extends JpaRepository<LoanDisbursementTask, Long> {
+
+    List<LoanDisbursementTask> findByStatusAndUpdatedAtBefore(String status, LocalDateTime before);
+
+    /**
+     * Moves a PENDING task to IN_PROGRESS; returns 1 for the one worker that claims it. Unlike account
+     * provisioning a stalled IN_PROGRESS task is never taken over, since its transfer may have gone out.
+     */
+    @Modifying
+    @Transactional
+    @Query("update LoanDisbursementTask t set t.status = 'IN_PROGRESS', t.attempts = t.attempts + 1, t.updatedAt = :now " +
+            "where t.id = :id and t.status = 'PENDING'")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Parks tasks left IN_PROGRESS since before {@code stalledBefore} for manual review.
+     */
+    @Modifying
+    @Transactional
+    @Query("update LoanDisbursementTask t set t.status = 'REVIEW', t.lastError = 'Stalled while in progress', t.updatedAt = :now " +
+            "where t.status = 'IN_PROGRESS' and t.updatedAt < :stalledBefore")
+    int parkStalled(@Param("stalledBefore") LocalDateTime stalledBefore, @Param("now") LocalDateTime now);
+}
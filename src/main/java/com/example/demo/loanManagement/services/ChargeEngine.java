@@ -0,0 +1,370 @@
+package com.example.demo.loanManagement.services;
+
+import com.example.demo.config.DataSourceRoute;
+import com.example.demo.loanManagement.parsistence.entities.Charges;
+import com.example.demo.loanManagement.parsistence.repositories.ChargesRepo;
+import com.example.demo.system.cache.ReferenceDataCache;
+import com.example.demo.system.services.Backbone;
+import com.example.demo.system.services.JobCoordinator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Computes and applies product charges from an in-memory rule table. All charges are compiled once
+ * into rules grouped by product and by the event they apply to, held in the reference-data cache,
+ * so charge writes through {@link ChargeServiceImpl} recompile the table on every node.
+ * <p>
+ * {@link #compute} returns every charge for a disbursement, repayment or penalty in one pass over
+ * the product's rules; excise rules are charged on the other fees of the same pass. Periodic
+ * charges (insurance, ledger fees) are applied to all running loans of a product with one
+ * statement per rule, and each rule posts a single journal entry for its total.
+ */
+@Service
+@Log4j2
+public class ChargeEngine {
+
+    public enum ChargeEvent {
+        DISBURSEMENT, REPAYMENT, PENALTY, PERIODIC
+    }
+
+    private static final String TABLE_KEY = "rules";
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    /**
+     * Charges the rule to every running loan of the product not yet charged for the period, moves
+     * the charge onto the loan balance and returns one row per loan charged.
+     */
+    private static final String APPLY_SQL =
+            "WITH applied AS (" +
+            "INSERT INTO loan_charges (loan_account_id, charge_id, charge_name, period_key, amount, applied_at) " +
+            "SELECT a.account_id, ?, ?, ?, CASE WHEN ? THEN CAST(? AS NUMERIC) " +
+            "ELSE ROUND(CAST(a.amount AS NUMERIC) * ? / 100, 2) END, ? " +
+            "FROM loan_account a JOIN loan_application ap ON ap.application_id = a.application_id " +
+            "JOIN products p ON p.code = ap.product_code " +
+            "WHERE p.id = ? AND a.status IN ('CURRENT', 'DEFAULT') " +
+            "ON CONFLICT (loan_account_id, charge_id, period_key) DO NOTHING " +
+            "RETURNING loan_account_id, amount) " +
+            "UPDATE loan_account a SET account_balance = COALESCE(a.account_balance, 0) + applied.amount, " +
+            "payable_amount = COALESCE(a.payable_amount, 0) + applied.amount " +
+            "FROM applied, loan_application ap " +
+            "WHERE a.account_id = applied.loan_account_id AND ap.application_id = a.application_id " +
+            "RETURNING a.account_id, a.customer_id, ap.customer_mobile_number, ap.loan_number, " +
+            "applied.amount AS charged, a.account_balance";
+
+    private static final String TRANSACTION_SQL =
+            "INSERT INTO loan_transactions (account_id, customer_id, amount, transaction_type, initial_balance, " +
+            "final_balance, account_number, loan_ref, other_ref, posted_by, transaction_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 'SYSTEM', ?)";
+
+    public static final class ChargeRule {
+        private final Long chargeId;
+        private final String name;
+        private final String productId;
+        private final ChargeEvent event;
+        private final boolean fixed;
+        private final BigDecimal rate;
+        // excise: charged on the other fees of the same pass, not on the base amount
+        private final boolean onFees;
+        private final String intervalUnit;
+        private final int interval;
+
+        private ChargeRule(Charges charge) {
+            String upper = charge.getName().toUpperCase(Locale.ROOT);
+            this.chargeId = charge.getId();
+            this.name = charge.getName();
+            this.productId = charge.getProductId();
+            this.fixed = Boolean.TRUE.equals(charge.getFixedRate());
+            this.rate = BigDecimal.valueOf(charge.getRate());
+            this.onFees = upper.contains("EXCISE");
+            this.interval = charge.getInterval() != null ? charge.getInterval() : 0;
+            this.intervalUnit = charge.getIntervalUnit() != null ? charge.getIntervalUnit().toUpperCase(Locale.ROOT) : "MONTH";
+            if (interval > 0) {
+                this.event = ChargeEvent.PERIODIC;
+            } else if (upper.contains("PENALTY") || upper.contains("LATE")) {
+                this.event = ChargeEvent.PENALTY;
+            } else if (upper.contains("REPAYMENT") || upper.contains("COLLECTION")) {
+                this.event = ChargeEvent.REPAYMENT;
+            } else {
+                this.event = ChargeEvent.DISBURSEMENT;
+            }
+        }
+
+        public Long getChargeId() {
+            return chargeId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ChargeEvent getEvent() {
+            return event;
+        }
+
+        public BigDecimal amountOn(BigDecimal base) {
+            if (fixed) {
+                return rate;
+            }
+            return base.multiply(rate).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+        }
+
+        /**
+         * Periodic rules are charged on the last day of each period, e.g. month-end for monthly insurance.
+         */
+        boolean dueOn(LocalDate date) {
+            return period(date) != period(date.plusDays(1));
+        }
+
+        String periodKey(LocalDate date) {
+            return intervalUnit.charAt(0) + String.valueOf(period(date));
+        }
+
+        private long period(LocalDate date) {
+            int every = Math.max(interval, 1);
+            if (intervalUnit.startsWith("DAY") || intervalUnit.startsWith("DAILY")) {
+                return date.toEpochDay() / every;
+            }
+            if (intervalUnit.startsWith("WEEK")) {
+                // epoch day 0 is a Thursday; shift so weeks start on Monday
+                return (date.toEpochDay() + 3) / 7 / every;
+            }
+            if (intervalUnit.startsWith("YEAR") || intervalUnit.startsWith("ANNUAL")) {
+                return date.getYear() / every;
+            }
+            return (date.getYear() * 12L + date.getMonthValue() - 1) / every;
+        }
+    }
+
+    public static final class ChargeLine {
+        private final Long chargeId;
+        private final String name;
+        private final BigDecimal amount;
+
+        private ChargeLine(Long chargeId, String name, BigDecimal amount) {
+            this.chargeId = chargeId;
+            this.name = name;
+            this.amount = amount;
+        }
+
+        public Long getChargeId() {
+            return chargeId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+    }
+
+    public static final class ChargeBreakdown {
+        private final List<ChargeLine> lines;
+        private final BigDecimal total;
+
+        private ChargeBreakdown(List<ChargeLine> lines, BigDecimal total) {
+            this.lines = lines;
+            this.total = total;
+        }
+
+        public List<ChargeLine> getLines() {
+            return lines;
+        }
+
+        public BigDecimal getTotal() {
+            return total;
+        }
+    }
+
+    private static final class RuleTable {
+        private final Map<String, Map<ChargeEvent, List<ChargeRule>>> byEvent = new HashMap<>();
+        private final Map<String, Map<String, ChargeRule>> byName = new HashMap<>();
+        private final List<ChargeRule> periodic = new ArrayList<>();
+        private int size;
+
+        private List<ChargeRule> rules(String productId, ChargeEvent event) {
+            return byEvent.getOrDefault(productId, Map.of()).getOrDefault(event, List.of());
+        }
+    }
+
+    private static final class AppliedCharge {
+        private final Long accountId;
+        private final String customerId;
+        private final String phoneNumber;
+        private final Long loanNumber;
+        private final BigDecimal amount;
+        private final double balance;
+
+        private AppliedCharge(Long accountId, String customerId, String phoneNumber, Long loanNumber,
+                              BigDecimal amount, double balance) {
+            this.accountId = accountId;
+            this.customerId = customerId;
+            this.phoneNumber = phoneNumber;
+            this.loanNumber = loanNumber;
+            this.amount = amount;
+            this.balance = balance;
+        }
+    }
+
+    private final ChargesRepo chargesRepo;
+    private final ReferenceDataCache referenceDataCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobCoordinator jobCoordinator;
+    private final LoanAccountingService loanAccountingService;
+    private final Backbone backbone;
+
+    public ChargeEngine(ChargesRepo chargesRepo, ReferenceDataCache referenceDataCache, JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager, JobCoordinator jobCoordinator,
+                        LoanAccountingService loanAccountingService, Backbone backbone) {
+        this.chargesRepo = chargesRepo;
+        this.referenceDataCache = referenceDataCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobCoordinator = jobCoordinator;
+        this.loanAccountingService = loanAccountingService;
+        this.backbone = backbone;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        rules();
+    }
+
+    /**
+     * Every charge of the product for the event, computed on {@code base} in one pass.
+     */
+    public ChargeBreakdown compute(String productId, ChargeEvent event, BigDecimal base) {
+        List<ChargeLine> lines = new ArrayList<>();
+        BigDecimal fees = BigDecimal.ZERO;
+        BigDecimal total = BigDecimal.ZERO;
+        for (ChargeRule rule : rules().rules(productId, event)) {
+            BigDecimal amount = rule.amountOn(rule.onFees ? fees : base);
+            if (amount.signum() <= 0) {
+                continue;
+            }
+            lines.add(new ChargeLine(rule.chargeId, rule.name, amount));
+            if (!rule.onFees) {
+                fees = fees.add(amount);
+            }
+            total = total.add(amount);
+        }
+        return new ChargeBreakdown(lines, total);
+    }
+
+    public Optional<ChargeRule> find(String productId, String name) {
+        return Optional.ofNullable(rules().byName.getOrDefault(productId, Map.of()).get(name));
+    }
+
+    @Scheduled(cron = "${charges.periodic.cron:0 30 23 * * *}")
+    public void runPeriodic() {
+        DataSourceRoute.run(DataSourceRoute.BATCH,
+                () -> jobCoordinator.runExclusive("loan-charges", () -> applyPeriodic(LocalDate.now())));
+    }
+
+    /**
+     * Applies every periodic rule whose period ends on {@code asOf} and returns the number of loans
+     * charged per rule. Each rule commits on its own with its journal entry; loans already charged
+     * for the period are skipped, so a failed or repeated night can be replayed for the same date.
+     */
+    public Map<String, Integer> applyPeriodic(LocalDate asOf) {
+        Map<String, Integer> charged = new LinkedHashMap<>();
+        for (ChargeRule rule : rules().periodic) {
+            if (!rule.dueOn(asOf)) {
+                continue;
+            }
+            String periodKey = rule.periodKey(asOf);
+            Integer loans = transactionTemplate.execute(status -> {
+                int count = applyRule(rule, periodKey);
+                jobCoordinator.fence();
+                return count;
+            });
+            charged.put(rule.name + "/" + rule.productId, loans);
+        }
+        return charged;
+    }
+
+    private int applyRule(ChargeRule rule, String periodKey) {
+        long productId;
+        try {
+            productId = Long.parseLong(rule.productId);
+        } catch (NumberFormatException e) {
+            log.warn("Skipping charge {} with non-numeric product id {}", rule.name, rule.productId);
+            return 0;
+        }
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        List<AppliedCharge> applied = jdbcTemplate.query(APPLY_SQL, (rs, i) -> new AppliedCharge(
+                        rs.getLong("account_id"), rs.getString("customer_id"), rs.getString("customer_mobile_number"),
+                        rs.getLong("loan_number"), rs.getBigDecimal("charged"), rs.getDouble("account_balance")),
+                rule.chargeId, rule.name, periodKey, rule.fixed, rule.rate, rule.rate, Timestamp.valueOf(now), productId);
+        if (applied.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(TRANSACTION_SQL, applied, applied.size(), (ps, charge) -> {
+            ps.setLong(1, charge.accountId);
+            ps.setString(2, charge.customerId);
+            ps.setFloat(3, charge.amount.floatValue());
+            ps.setString(4, rule.name);
+            ps.setString(5, String.valueOf((float) (charge.balance - charge.amount.doubleValue())));
+            ps.setString(6, String.valueOf((float) charge.balance));
+            ps.setString(7, charge.phoneNumber);
+            ps.setString(8, backbone.base64encode(String.valueOf(charge.loanNumber)).toUpperCase());
+            ps.setString(9, periodKey);
+            ps.setTimestamp(10, Timestamp.valueOf(now));
+        });
+        BigDecimal total = applied.stream().map(c -> c.amount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        loanAccountingService.postChargeBatch(rule.name, "CHG-" + rule.chargeId + "-" + periodKey,
+                total.doubleValue(), applied.size(), "SYSTEM");
+        log.info("Applied {} to {} loans of product {} for {}: {} in {} ms", rule.name, applied.size(),
+                rule.productId, periodKey, total, System.currentTimeMillis() - started);
+        return applied.size();
+    }
+
+    private RuleTable rules() {
+        return referenceDataCache.<String, RuleTable>cache(ReferenceDataCache.CHARGES)
+                .get(TABLE_KEY, key -> compile())
+                .orElseGet(this::compile);
+    }
+
+    private RuleTable compile() {
+        long started = System.currentTimeMillis();
+        RuleTable table = new RuleTable();
+        for (Charges charge : chargesRepo.findAll()) {
+            if (Boolean.FALSE.equals(charge.getActive()) || charge.getProductId() == null
+                    || charge.getName() == null || charge.getRate() == null) {
+                continue;
+            }
+            ChargeRule rule = new ChargeRule(charge);
+            table.byEvent.computeIfAbsent(rule.productId, p -> new EnumMap<>(ChargeEvent.class))
+                    .computeIfAbsent(rule.event, e -> new ArrayList<>())
+                    .add(rule);
+            table.byName.computeIfAbsent(rule.productId, p -> new HashMap<>()).put(rule.name, rule);
+            if (rule.event == ChargeEvent.PERIODIC) {
+                table.periodic.add(rule);
+            }
+            table.size++;
+        }
+        // excise last, so it sees every other fee of the pass
+        Comparator<ChargeRule> exciseLast = Comparator.comparing(rule -> rule.onFees);
+        table.byEvent.values().forEach(events -> events.values().forEach(rules -> rules.sort(exciseLast)));
+        log.info("Compiled {} charge rules for {} products in {} ms", table.size, table.byName.size(),
+                System.currentTimeMillis() - started);
+        return table;
+    }
+}
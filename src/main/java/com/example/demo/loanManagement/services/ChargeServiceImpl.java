@@ -2,6 +2,7 @@ package com.example.demo.loanManagement.services;
 
 import com.example.demo.loanManagement.parsistence.entities.Charges;
 import com.example.demo.loanManagement.parsistence.repositories.ChargesRepo;
+import com.example.demo.system.cache.ReferenceDataCache;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 
@@ -12,17 +13,24 @@ import java.util.Optional;
 @Log4j2
 public class ChargeServiceImpl implements ChargeService {
     public ChargesRepo chargesRepo;
+    public final ReferenceDataCache referenceDataCache;
 
-    public ChargeServiceImpl(ChargesRepo chargesRepo) {
+    public ChargeServiceImpl(ChargesRepo chargesRepo, ReferenceDataCache referenceDataCache) {
         this.chargesRepo = chargesRepo;
+        this.referenceDataCache = referenceDataCache;
     }
 
+    //every write recompiles the charge engine's rule table
     @Override
     public Charges createCharge(Charges charge){
-        return chargesRepo.save(charge);
+        Charges saved=chargesRepo.save(charge);
+        referenceDataCache.invalidate(ReferenceDataCache.CHARGES);
+        return saved;
     }
     public Charges updateCharge(Charges charge){
-        return chargesRepo.save(charge);
+        Charges saved=chargesRepo.save(charge);
+        referenceDataCache.invalidate(ReferenceDataCache.CHARGES);
+        return saved;
     }
 
     public List<Charges> getCharges(){
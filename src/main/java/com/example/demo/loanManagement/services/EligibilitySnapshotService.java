@@ -0,0 +1,147 @@
+package com.example.demo.loanManagement.services;
+
+import com.example.demo.loanManagement.parsistence.entities.EligibilitySnapshot;
+import com.example.demo.loanManagement.parsistence.repositories.EligibilitySnapshotRepo;
+import com.example.demo.system.services.JobCoordinator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Maintains {@code eligibility_snapshot}: one row per subscription holding the member's credit
+ * limit, product limits, subscription status and loan position, so application and channel
+ * eligibility checks become a single key lookup instead of a subscription, product, savings and
+ * loan-status query chain.
+ * The credit limit is the subscription's stored limit, so it matches what the member was told.
+ * <p>
+ * The snapshot is the only input to a decision. Every path that books a loan refreshes the
+ * member's rows in the same unit of work, so a loan booked moments earlier blocks the next
+ * application without waiting for the asynchronous refresh events.
+ */
+@Service
+@Log4j2
+public class EligibilitySnapshotService {
+
+    // the credit limit is the one stored on the subscription (SubscriptionService maintains it);
+    // the blocking loan status is that of the member's most recent loan not yet PAID, while the
+    // active count and outstanding balance cover ACTIVE loans only, as mobile eligibility always has
+    private static final String REFRESH_SQL =
+            "INSERT INTO eligibility_snapshot (customer_id, product_code, product_id, subscription_id, " +
+            "subscription_active, min_limit, max_limit, credit_limit, active_loan_count, existing_loan_status, " +
+            "outstanding_balance, refreshed_at) " +
+            "SELECT s.customer_id, s.product_code, p.id, s.id, COALESCE(s.status, FALSE), p.min_limit, p.max_limit, " +
+            "COALESCE(s.credit_limit, 0), COALESCE(l.active_loans, 0), l.loan_status, COALESCE(l.outstanding, 0), CURRENT_TIMESTAMP " +
+            "FROM subscriptions s " +
+            "JOIN products p ON p.code = s.product_code " +
+            "LEFT JOIN (SELECT customer_id, COUNT(*) FILTER (WHERE UPPER(status) = 'ACTIVE') AS active_loans, " +
+            "(ARRAY_AGG(status ORDER BY account_id DESC))[1] AS loan_status, " +
+            "SUM(account_balance) FILTER (WHERE UPPER(status) = 'ACTIVE') AS outstanding " +
+            "FROM loan_account WHERE status <> 'PAID' GROUP BY customer_id) l " +
+            "ON l.customer_id = s.customer_id " +
+            "%s" +
+            "ON CONFLICT (customer_id, product_code) DO UPDATE SET product_id = EXCLUDED.product_id, " +
+            "subscription_id = EXCLUDED.subscription_id, subscription_active = EXCLUDED.subscription_active, " +
+            "min_limit = EXCLUDED.min_limit, max_limit = EXCLUDED.max_limit, credit_limit = EXCLUDED.credit_limit, " +
+            "active_loan_count = EXCLUDED.active_loan_count, existing_loan_status = EXCLUDED.existing_loan_status, " +
+            "outstanding_balance = EXCLUDED.outstanding_balance, refreshed_at = EXCLUDED.refreshed_at";
+
+    private static final String OPEN_LOAN_SQL =
+            "SELECT status FROM loan_account WHERE customer_id = ? AND status <> 'PAID' ORDER BY account_id DESC LIMIT 1";
+
+    public final EligibilitySnapshotRepo snapshotRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final JobCoordinator jobCoordinator;
+
+    public EligibilitySnapshotService(EligibilitySnapshotRepo snapshotRepo, JdbcTemplate jdbcTemplate,
+                                      JobCoordinator jobCoordinator) {
+        this.snapshotRepo = snapshotRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobCoordinator = jobCoordinator;
+    }
+
+    /**
+     * Nightly rebuild of every subscription's snapshot in one set-based statement, on one node.
+     */
+    @Scheduled(cron = "${eligibility.snapshot.cron:0 0 2 * * *}")
+    public void refreshAll() {
+        jobCoordinator.runExclusiveInTransaction("eligibility-snapshot", () -> {
+            long started = System.currentTimeMillis();
+            int rows = jdbcTemplate.update(String.format(REFRESH_SQL, ""));
+            log.info("Refreshed {} eligibility snapshots in {} ms", rows, System.currentTimeMillis() - started);
+        });
+    }
+
+    /**
+     * Rebuilds the snapshots of a single member. Called directly when a loan is booked and from
+     * the savings, loan and payment events.
+     */
+    public void refreshCustomer(String customerId) {
+        int rows = jdbcTemplate.update(String.format(REFRESH_SQL, "WHERE s.customer_id = ? "), customerId);
+        log.info("Refreshed {} eligibility snapshots for customer {}", rows, customerId);
+    }
+
+    public Optional<EligibilitySnapshot> findBySubscription(Long subscriptionId, String customerId) {
+        Optional<EligibilitySnapshot> snapshot = snapshotRepo.findBySubscriptionId(subscriptionId);
+        if (snapshot.isEmpty() && customerId != null) {
+            refreshCustomer(customerId);
+            snapshot = snapshotRepo.findBySubscriptionId(subscriptionId);
+        }
+        return snapshot;
+    }
+
+    public Optional<EligibilitySnapshot> findByCustomerAndProduct(String customerId, Long productId) {
+        Optional<EligibilitySnapshot> snapshot = snapshotRepo.findByCustomerIdAndProductId(customerId, productId);
+        if (snapshot.isEmpty()) {
+            refreshCustomer(customerId);
+            snapshot = snapshotRepo.findByCustomerIdAndProductId(customerId, productId);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Status of the member's most recent loan that is not yet PAID, or an empty string when none is
+     * open. This is the rule the live product checks have always applied: any unpaid loan, whatever
+     * its status, blocks a new application. Only the fallback path queries it.
+     */
+    public String openLoanStatus(String customerId) {
+        List<String> statuses = jdbcTemplate.queryForList(OPEN_LOAN_SQL, String.class, customerId);
+        return statuses.isEmpty() || statuses.get(0) == null ? "" : statuses.get(0);
+    }
+
+    /**
+     * Same verdicts as the original product checks, decided from the snapshot alone. Returns an
+     * empty string when the amount is acceptable.
+     */
+    public String evaluate(EligibilitySnapshot snapshot, Integer amount) {
+        return evaluate(snapshot, BigDecimal.valueOf(amount));
+    }
+
+    /**
+     * As {@link #evaluate(EligibilitySnapshot, Integer)} for an amount with cents; limits are whole
+     * shillings, so 1500.50 is over a limit of 1500.
+     */
+    public String evaluate(EligibilitySnapshot snapshot, BigDecimal amount) {
+        if (exceeds(amount, snapshot.getMaxLimit())
+                || (snapshot.getMinLimit() != null && amount.compareTo(BigDecimal.valueOf(snapshot.getMinLimit())) < 0)) {
+            return "NOT IN PRODUCT LIMIT";
+        } else if (exceeds(amount, snapshot.getCreditLimit())) {
+            return "EXCEED LIMIT";
+        } else if (Boolean.FALSE.equals(snapshot.getSubscriptionActive())) {
+            return "INACTIVE SUBSCRIPTION";
+        }
+        String loanStatus = snapshot.getExistingLoanStatus();
+        if (loanStatus != null && !loanStatus.isEmpty()) {
+            return "EXISTING LOAN::" + loanStatus;
+        }
+        return "";
+    }
+
+    private static boolean exceeds(BigDecimal amount, Integer limit) {
+        return limit != null && amount.compareTo(BigDecimal.valueOf(limit)) > 0;
+    }
+}
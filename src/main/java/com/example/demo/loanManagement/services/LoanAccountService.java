@@ -1,14 +1,16 @@
 package com.example.demo.loanManagement.services;
 
 import com.example.demo.banking.parsitence.repositories.PaymentRepo;
-import com.example.demo.communication.parsitence.models.Email;
 import com.example.demo.customerManagement.parsistence.entities.Customer;
 import com.example.demo.loanManagement.dto.LoanAccountResponseDto;
 import com.example.demo.loanManagement.parsistence.entities.*;
 import com.example.demo.loanManagement.parsistence.models.*;
 import com.example.demo.loanManagement.parsistence.repositories.*;
 import com.example.demo.communication.services.CommunicationService;
+import com.example.demo.communication.services.NotificationService;
+import com.example.demo.communication.services.NotificationTemplate;
 import com.example.demo.customerManagement.serviceImplimentations.CustomerService;
+import com.example.demo.events.appEvents.LoanStatusChangedEvent;
 import com.example.demo.system.parsitence.models.Schedule.Schedule;
 import com.example.demo.customerManagement.parsistence.models.ClientInfo;
 import com.example.demo.system.parsitence.repositories.ScheduleRepo;
@@ -16,8 +18,11 @@ import com.example.demo.system.services.Backbone;
 import lombok.SneakyThrows;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -43,6 +48,12 @@ public class LoanAccountService {
 
     @Autowired
     CommunicationService communicationService;
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+    @Autowired
+    NotificationService notificationService;
+    @Autowired
+    ChargeEngine chargeEngine;
 
 
     public LoanAccountService(LoanAccountRepo loanAccountRepo, ApplicationRepo applicationRepo, ProductService productService, Backbone backbone, LoanStatesRepo loanStatesRepo, ChargeServiceImpl chargeServiceImpl, SuspensePaymentRepo suspensePaymentRepo, SubscriptionService subscriptionService, PaymentRepo paymentRepo, PaymentRequestRepo paymentRequestRepo, CustomerService customerService, ScheduleRepo scheduleRepo, TransactionsRepo transactionsRepo) {
@@ -61,7 +72,6 @@ public class LoanAccountService {
         this.transactionsRepo = transactionsRepo;
 
     }
- Email email=new Email();
     public LoanAccount save(LoanAccount loanAccount){
         return loanAccountRepo.saveAndFlush(loanAccount);
     }
@@ -105,6 +115,7 @@ public class LoanAccountService {
         loanStatesRepo.save(state);
         LoanAccount savedAccount=this.save(account);
         log.info("Account updated with : {}",savedAccount);
+        eventPublisher.publishEvent(new LoanStatusChangedEvent(this,savedAccount.getAccountId(),savedAccount.getCustomerId(),status));
         /*Thread.sleep(2000);
         this.updateLoanStatus(account);
 
@@ -137,11 +148,9 @@ public class LoanAccountService {
         save(account);
         //send a notification to client
         ClientInfo customer=customerService.findById(Long.valueOf(account.getCustomerId()));
-        email.setRecipient(customer.getClient().getEmail());
-        email.setMessageType("Reminder");
         updateStatus(accountId.toString(),"CURRENT");
-        email.setMessage("Hello "+customer.getClient().getFirstName()+" your loan of ksh "+account.getAccountBalance()+" Will be due by "+findById(Long.valueOf(accountId)).get().getDueDate());
-        communicationService.sendCustomEmail(email);
+        notificationService.notify(customer.getClient(),NotificationTemplate.LOAN_DUE_REMINDER,
+                account.getAccountBalance(),findById(Long.valueOf(accountId)).get().getDueDate());
         //schedules
         Schedule schedule=new Schedule();
         schedule.setScheduleTime(account.getDueDate());
@@ -219,10 +228,7 @@ public class LoanAccountService {
             log.info("DefaultAccount Found");
             response=Boolean.TRUE;
             ClientInfo customer=customerService.findById(Long.valueOf(account.getCustomerId()));
-            email.setRecipient(customer.getClient().getEmail());
-            email.setMessageType("DEFAULT STATE");
-            email.setMessage("Hello "+customer.getClient().getFirstName()+"You have been charged an additional penalty for delaying in payment, please make your payment to avoid more penalties");
-            communicationService.sendCustomEmail(email);
+            notificationService.notify(customer.getClient(),NotificationTemplate.LOAN_DEFAULTED);
             ChargeCalculator(account,"DEFAULT_PENALTY");
         }}else {
             response=Boolean.TRUE;
@@ -234,37 +240,28 @@ public class LoanAccountService {
         return suspensePaymentRepo.findByAccountNumberAndStatus(phone,"SUSPENSE");
     }
 
- //calculation of charges
+ //calculation of charges, from the charge engine's rule table
     public void ChargeCalculator(LoanAccount TransactionalAccount,String chargeType){
         log.info("Calculating charges");
         LoanApplication application=applicationRepo.findById(Long.valueOf(TransactionalAccount.getApplicationId())).get();
-        log.info("Loan application Found {}",application);
-        Charges charge= chargeServiceImpl.getChargeByProductIdAndName(productService.findByProductCode(application.getProductCode()).getId().toString(),chargeType).orElse(null);
-        log.info("Charge1 {}",charge);
-        double rate=0.002;
-        if (charge!=null)
-            rate=charge.getRate();
-         Float chargeRate=Float.valueOf((float) rate)/100;
+        String productId=productService.findByProductCode(application.getProductCode()).getId().toString();
+        BigDecimal loanAmount=BigDecimal.valueOf(TransactionalAccount.getAmount());
+        BigDecimal charged=chargeEngine.find(productId,chargeType)
+                .map(rule->rule.amountOn(loanAmount))
+                .orElseGet(()->loanAmount.multiply(BigDecimal.valueOf(0.002)).divide(BigDecimal.valueOf(100),2,RoundingMode.HALF_UP));
         Float accountBalance=TransactionalAccount.getAccountBalance();
-        Float loanAmount=TransactionalAccount.getAmount();
-        Float TransactionalAmount=loanAmount*chargeRate;
-         Float finalAmount=TransactionalAmount+accountBalance;
+         Float finalAmount=charged.floatValue()+accountBalance;
          TransactionalAccount.setAccountBalance(finalAmount);
          log.info("TransactionData {}",TransactionalAccount);
          //communication to client
-        Customer customer=customerService.findByPhone(applicationRepo.findById(TransactionalAccount.getApplicationId()).get().getCustomerMobileNumber()).get();
+        Customer customer=customerService.findByPhone(application.getCustomerMobileNumber()).get();
 
-        email.setRecipient(customer.getEmail());
-        email.setMessageType(chargeType+" Alert");
-        email.setRecipient(customer.getEmail());
-        email.setMessage("Hello "+customer.getFirstName()+"You have been charged an extra Amount as "+chargeType+" Your balance is now Ksh "+finalAmount);
-        communicationService.sendCustomEmail(email);
+        notificationService.notify(customer,NotificationTemplate.CHARGE_APPLIED,chargeType,finalAmount);
          //save transaction
         String[] transactionData=new String[]{
-                applicationRepo.findById(TransactionalAccount.getApplicationId()).get().getCustomerMobileNumber(),application.getLoanNumber().toString(),chargeType,
+                application.getCustomerMobileNumber(),application.getLoanNumber().toString(),chargeType,
                 accountBalance.toString(),finalAmount.toString(),"",""
         };
-        log.info(charge);
         backbone.saveTransaction(transactionData);
         //save loan account
         save(TransactionalAccount);
@@ -1,10 +1,9 @@
 package com.example.demo.loanManagement.services;
 
-import com.example.demo.accounting.entities.ChartOfAccounts;
 import com.example.demo.accounting.entities.JournalEntry;
 import com.example.demo.accounting.entities.JournalEntryLine;
-import com.example.demo.accounting.repositories.ChartOfAccountsRepo;
 import com.example.demo.accounting.services.AccountingService;
+import com.example.demo.customerManagement.parsistence.repositories.CustomerRepo;
 import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
 import com.example.demo.loanManagement.parsistence.entities.loanTransactions;
 import lombok.RequiredArgsConstructor;
@@ -27,7 +26,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class LoanAccountingService {
 
     private final AccountingService accountingService;
-    private final ChartOfAccountsRepo chartOfAccountsRepo;
+    private final CustomerRepo customerRepo;
 
     // Account Codes (must match Chart of Accounts)
     private static final String LOANS_RECEIVABLE_CODE = "1200";
@@ -35,6 +34,7 @@ public class LoanAccountingService {
     private static final String BANK_ACCOUNT_CODE = "1020";
     private static final String MPESA_ACCOUNT_CODE = "1030";
     private static final String INTEREST_INCOME_CODE = "4100";
+    private static final String FEE_INCOME_CODE = "4020";
     private static final String BAD_DEBT_EXPENSE_CODE = "5200";
 
     /**
@@ -55,6 +55,7 @@ public class LoanAccountingService {
             entry.setTransactionDate(LocalDate.now());
             entry.setDescription("Loan Disbursed - Loan #" + loanAccount.getAccountId() + " via " + disbursementMethod);
             entry.setReference("LOAN-DISB-" + loanAccount.getAccountId());
+            entry.setBranchCode(getBranchCode(loanAccount.getCustomerId()));
 
             List<JournalEntryLine> lines = new ArrayList<>();
             AtomicInteger lineNum = new AtomicInteger(1);
@@ -117,6 +118,7 @@ public class LoanAccountingService {
             entry.setTransactionDate(LocalDate.now());
             entry.setDescription("Loan Repayment - Receipt #" + transaction.getOtherRef());
             entry.setReference("LOAN-PMT-" + transaction.getTransactionId());
+            entry.setBranchCode(getBranchCode(transaction.getCustomerId()));
 
             List<JournalEntryLine> lines = new ArrayList<>();
             AtomicInteger lineNum = new AtomicInteger(1);
@@ -189,6 +191,7 @@ public class LoanAccountingService {
             entry.setTransactionDate(LocalDate.now());
             entry.setDescription("Loan Write-off - Loan #" + loanAccount.getAccountId() + " - " + reason);
             entry.setReference("LOAN-WO-" + loanAccount.getAccountId());
+            entry.setBranchCode(getBranchCode(loanAccount.getCustomerId()));
 
             List<JournalEntryLine> lines = new ArrayList<>();
             AtomicInteger lineNum = new AtomicInteger(1);
@@ -232,6 +235,56 @@ public class LoanAccountingService {
         }
     }
 
+    /**
+     * Post a batch of charges as one entry for the batch total; the per-loan amounts are in loan_charges
+     */
+    @Transactional
+    public JournalEntry postChargeBatch(String chargeName, String reference, Double total, int loans, String postedBy) {
+        JournalEntry entry = new JournalEntry();
+        entry.setJournalType(JournalEntry.JournalType.GENERAL);
+        entry.setTransactionDate(LocalDate.now());
+        entry.setDescription(chargeName + " charged to " + loans + " loans");
+        entry.setReference(reference);
+
+        List<JournalEntryLine> lines = new ArrayList<>();
+        lines.add(JournalEntryLine.builder()
+            .accountCode(LOANS_RECEIVABLE_CODE)
+            .accountName(getAccountName(LOANS_RECEIVABLE_CODE))
+            .type(JournalEntryLine.EntryType.DEBIT)
+            .amount(total)
+            .description(chargeName + " receivable")
+            .lineNumber(1)
+            .build());
+        lines.add(JournalEntryLine.builder()
+            .accountCode(FEE_INCOME_CODE)
+            .accountName(getAccountName(FEE_INCOME_CODE))
+            .type(JournalEntryLine.EntryType.CREDIT)
+            .amount(total)
+            .description(chargeName + " income")
+            .lineNumber(2)
+            .build());
+        entry.setLines(lines);
+
+        JournalEntry savedEntry = accountingService.createJournalEntry(entry, postedBy);
+        accountingService.postJournalEntry(savedEntry.getId(), postedBy);
+        log.info("Charge batch {} posted. Journal ID: {}", reference, savedEntry.getId());
+        return savedEntry;
+    }
+
+    /**
+     * Helper: Branch of the customer a loan posting belongs to, for per-branch closing balances
+     */
+    private String getBranchCode(String customerId) {
+        if (customerId == null || customerId.isBlank()) {
+            return null;
+        }
+        try {
+            return customerRepo.findBranchCodeById(Long.valueOf(customerId.trim())).orElse(null);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Helper: Get cash account code based on payment method
      */
@@ -258,8 +311,7 @@ public class LoanAccountingService {
      * Helper: Get account name from chart of accounts
      */
     private String getAccountName(String accountCode) {
-        return chartOfAccountsRepo.findByAccountCode(accountCode)
-            .map(ChartOfAccounts::getAccountName)
+        return accountingService.getAccountName(accountCode)
             .orElse("Account " + accountCode);
     }
 }
@@ -1,7 +1,7 @@
 package com.example.demo.loanManagement.services;
 
-import com.example.demo.communication.parsitence.models.Email;
-import com.example.demo.communication.services.CommunicationService;
+import com.example.demo.communication.services.NotificationService;
+import com.example.demo.communication.services.NotificationTemplate;
 import com.example.demo.customerManagement.parsistence.entities.Customer;
 import com.example.demo.customerManagement.serviceImplimentations.CustomerService;
 import com.example.demo.loanManagement.parsistence.entities.LoanApplication;
@@ -23,7 +23,7 @@ public class LoanApplicationApprovalService {
 
     private final ApplicationRepo applicationRepo;
     private final CustomerService customerService;
-    private final CommunicationService communicationService;
+    private final NotificationService notificationService;
     private final LoanAccountingService loanAccountingService;
 
     @Transactional
@@ -41,16 +41,11 @@ public class LoanApplicationApprovalService {
         application.setApplicationStatus("APPROVED");
         application = applicationRepo.save(application);
 
-        // Send approval notification
+        // Send approval notification once the approval commits
         try {
             Customer customer = customerService.findById(Long.valueOf(application.getCustomerId())).getClient();
-            Email email = new Email();
-            email.setRecipient(customer.getEmail());
-            email.setMessageType("Loan Approval");
-            email.setMessage("Hello " + customer.getFirstName() + ", your loan application for KES " + 
-                    application.getLoanAmount() + " has been APPROVED. " +
-                    (comments.isEmpty() ? "" : "Comments: " + comments));
-            communicationService.sendCustomEmail(email);
+            notificationService.notify(customer, NotificationTemplate.LOAN_APPROVED, application.getLoanAmount(),
+                    comments.isEmpty() ? "" : "Comments: " + comments);
         } catch (Exception e) {
             log.error("Failed to send approval notification", e);
         }
@@ -73,15 +68,10 @@ public class LoanApplicationApprovalService {
         application.setApplicationStatus("REJECTED");
         application = applicationRepo.save(application);
 
-        // Send rejection notification
+        // Send rejection notification once the rejection commits
         try {
             Customer customer = customerService.findById(Long.valueOf(application.getCustomerId())).getClient();
-            Email email = new Email();
-            email.setRecipient(customer.getEmail());
-            email.setMessageType("Loan Rejection");
-            email.setMessage("Hello " + customer.getFirstName() + ", we regret to inform you that your loan application for KES " + 
-                    application.getLoanAmount() + " has been REJECTED. Reason: " + reason);
-            communicationService.sendCustomEmail(email);
+            notificationService.notify(customer, NotificationTemplate.LOAN_REJECTED, application.getLoanAmount(), reason);
         } catch (Exception e) {
             log.error("Failed to send rejection notification", e);
         }
@@ -11,9 +11,9 @@ import com.example.demo.loanManagement.parsistence.entities.Products;
 import com.example.demo.loanManagement.parsistence.entities.Subscriptions;
 import com.example.demo.loanManagement.parsistence.repositories.ApplicationRepo;
 import com.example.demo.loanManagement.parsistence.repositories.LoanAccountRepo;
-import com.example.demo.loanManagement.parsistence.repositories.ProductRepo;
 import com.example.demo.loanManagement.parsistence.repositories.LoanRepaymentScheduleRepository;
 import com.example.demo.loanManagement.parsistence.repositories.SubscriptionRepo;
+import com.example.demo.system.services.IdGenerator;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvException;
 
@@ -41,12 +41,14 @@ public class LoanBookUploadService {
     
     private final LoanBookValidationService validationService;
     private final LoanAccountRepo loanAccountRepo;
-    private final ProductRepo productRepo;
+    private final ProductService productService;
     private final LoanCalculatorService loanCalculatorService;
     private final LoanRepaymentScheduleRepository repaymentScheduleRepo;
     private final ApplicationRepo applicationRepo;
     private final CustomerRepository customerRepository;
     private final SubscriptionRepo subscriptionRepo;
+    private final EligibilitySnapshotService eligibilitySnapshotService;
+    private final IdGenerator idGenerator;
     
     /**
      * Process uploaded loan book file (CSV or Excel)
@@ -164,6 +166,7 @@ public class LoanBookUploadService {
         
         // Create subscription for the customer with product
         createSubscriptionForLoan(loanDTO, saved);
+        eligibilitySnapshotService.refreshCustomer(saved.getCustomerId());
         
         // Generate and save repayment schedules
         generateRepaymentSchedules(saved, loanDTO);
@@ -182,7 +185,7 @@ public class LoanBookUploadService {
             Customer customer = getOrCreateCustomer(dto);
             
             // Get product to fetch limits
-            Products product = productRepo.getByCode(dto.getProductCode())
+            Products product = productService.findByCode(dto.getProductCode())
                 .orElseThrow(() -> new RuntimeException("Product not found: " + dto.getProductCode()));
             
             // Check if subscription already exists for this customer and product
@@ -233,7 +236,7 @@ public class LoanBookUploadService {
         log.debug("Generating repayment schedules for loan: {}", loanAccount.getLoanref());
         
         // Get product for interest strategy (use uploaded data for actual values)
-        Products product = productRepo.getByCode(dto.getProductCode())
+        Products product = productService.findByCode(dto.getProductCode())
             .orElseThrow(() -> new RuntimeException("Product not found: " + dto.getProductCode()));
         
         // Get product's interest strategy
@@ -774,7 +777,7 @@ public class LoanBookUploadService {
         if (dto.getLoanId() != null && !dto.getLoanId().trim().isEmpty()) {
             loan.setLoanref(dto.getLoanId().trim());
         } else {
-            loan.setLoanref("LN" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+            loan.setLoanref(idGenerator.nextLoanRef());
         }
         
         // Fetch actual customer entity to get the database ID
@@ -784,7 +787,7 @@ public class LoanBookUploadService {
         loan.setCustomerId(String.valueOf(customer.getId()));
         
         // Verify product exists
-        Products product = productRepo.getByCode(dto.getProductCode())
+        Products product = productService.findByCode(dto.getProductCode())
             .orElseThrow(() -> new RuntimeException("Product not found: " + dto.getProductCode()));
         
         // For uploaded loans, use actual tracked figures instead of recalculating
@@ -857,10 +860,7 @@ public class LoanBookUploadService {
     private LoanApplication createLoanApplication(LoanBookUploadDTO dto, Customer customer) {
         LoanApplication application = new LoanApplication();
         
-        // Generate unique loan number
-        long timestamp = System.currentTimeMillis();
-        int random = (int) (Math.random() * 90000) + 10000;
-        application.setLoanNumber(timestamp + random);
+        application.setLoanNumber(idGenerator.nextLoanNumber());
         
         // Set customer information using actual customer entity
         application.setCustomerId(String.valueOf(customer.getId()));
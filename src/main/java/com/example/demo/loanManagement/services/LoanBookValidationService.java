@@ -24,6 +24,7 @@ public class LoanBookValidationService {
     
     private final CustomerRepository customerRepository;
     private final ProductRepo productRepo;
+    private final ProductService productService;
     
     private static final Pattern PHONE_PATTERN = Pattern.compile("^(?:254|\\+254|0)?[17]\\d{8}$");
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
@@ -297,7 +298,7 @@ public class LoanBookValidationService {
      */
     private void validateProduct(LoanBookUploadDTO loan, List<String> errors, List<String> warnings) {
         try {
-            Optional<Products> optionalProduct = productRepo.getByCode(loan.getProductCode());
+            Optional<Products> optionalProduct = productService.findByCode(loan.getProductCode());
 
             if (optionalProduct.isEmpty()) {
                 optionalProduct = createProductFromLoanUpload(loan);
@@ -383,7 +384,7 @@ public class LoanBookValidationService {
                 product.setBranchCode(loan.getBranchCode());
             }
 
-            Products saved = productRepo.save(product);
+            Products saved = productService.save(product);
             return Optional.ofNullable(saved);
         } catch (Exception e) {
             log.error("Error creating product from loan upload: {}", e.getMessage());
@@ -11,6 +11,7 @@ import com.example.demo.loanManagement.parsistence.repositories.LoanRepaymentSch
 import com.example.demo.sms.SmsService;
 import com.example.demo.customerManagement.parsistence.repositories.CustomerRepository;
 import com.example.demo.payments.services.MpesaService;
+import com.example.demo.system.services.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -38,11 +39,14 @@ public class LoanDisbursementService {
     private final LoanApplicationRepository loanApplicationRepository;
     private final LoanAccountRepository loanAccountRepository;
     private final ProductsRepository productsRepository;
+    private final ProductService productService;
     private final LoanRepaymentScheduleRepository scheduleRepository;
     private final SmsService smsService;
     private final CustomerRepository customerRepository;
     private final MpesaService mpesaService;
     private final LoanAccountingService loanAccountingService;
+    private final EligibilitySnapshotService eligibilitySnapshotService;
+    private final IdGenerator idGenerator;
 
     /**
      * Process loan disbursement and create loan account with payment schedules
@@ -88,7 +92,7 @@ public class LoanDisbursementService {
                 throw new IllegalStateException("Loan application is missing both productId and productCode, cannot disburse");
             }
 
-            product = productsRepository.findByCode(productCode)
+            product = productService.findByCode(productCode)
                 .orElseThrow(() -> new RuntimeException("Loan product not found for code: " + productCode));
 
             // Persist resolved product id for future operations within the same transaction
@@ -227,18 +231,15 @@ public class LoanDisbursementService {
         loanAccount.setPrincipalAmount(BigDecimal.valueOf(principalAmount));
         loanAccount.setTotalAmount(BigDecimal.valueOf(totalAmount));
         loanAccount.setAmount((float) principalAmount);
-        loanAccount.setLoanReference(generateLoanReference(Long.valueOf(application.getCustomerId())));
-        loanAccount.setLoanref(generateLoanReference(Long.valueOf(application.getCustomerId())));
+        String loanRef = idGenerator.nextLoanRef();
+        loanAccount.setLoanReference(loanRef);
+        loanAccount.setLoanref(loanRef);
         loanAccount.setTotalOutstanding(BigDecimal.valueOf(totalAmount));
         loanAccount.setPayableAmount((float) totalAmount);
         loanAccount.setOutstandingPrincipal(BigDecimal.valueOf(principalAmount));
         loanAccount.setOutstandingInterest(BigDecimal.valueOf(totalInterest));
         loanAccount.setTerm(term);
         
-        // Generate loan reference
-        String loanRef = generateLoanReference(Long.valueOf(application.getCustomerId()));
-        loanAccount.setLoanReference(loanRef);
-        
         // Status and dates
         loanAccount.setStatus("ACTIVE");
         loanAccount.setDisbursementDate(LocalDate.now());
@@ -251,7 +252,9 @@ public class LoanDisbursementService {
         loanAccount.setCreatedAt(LocalDateTime.now());
         loanAccount.setUpdatedAt(LocalDateTime.now());
         
-        return loanAccountRepository.save(loanAccount);
+        LoanAccount saved = loanAccountRepository.save(loanAccount);
+        eligibilitySnapshotService.refreshCustomer(saved.getCustomerId());
+        return saved;
     }
 
     /**
@@ -394,14 +397,6 @@ public class LoanDisbursementService {
         };
     }
 
-    /**
-     * Generate unique loan reference
-     */
-    private String generateLoanReference(Long customerId) {
-        String timestamp = String.valueOf(System.currentTimeMillis()).substring(8);
-        return String.format("LN%d%s", customerId, timestamp);
-    }
-
     /**
      * Get customer phone number from customer repository
      */
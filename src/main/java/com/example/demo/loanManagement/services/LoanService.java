@@ -1,6 +1,5 @@
 package com.example.demo.loanManagement.services;
 
-import com.example.demo.communication.parsitence.models.Email;
 import com.example.demo.customerManagement.parsistence.entities.Customer;
 import com.example.demo.enums.Statuses;
 import com.example.demo.loanManagement.parsistence.entities.*;
@@ -8,17 +7,28 @@ import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
 import com.example.demo.loanManagement.parsistence.models.*;
 import com.example.demo.loanManagement.parsistence.repositories.ApplicationRepo;
 import com.example.demo.loanManagement.parsistence.repositories.LoanAccountRepo;
+import com.example.demo.loanManagement.parsistence.repositories.LoanDisbursementTaskRepo;
 import com.example.demo.loanManagement.parsistence.repositories.TransactionsRepo;
 import com.example.demo.communication.services.CommunicationService;
+import com.example.demo.communication.services.NotificationService;
+import com.example.demo.communication.services.NotificationTemplate;
 import com.example.demo.customerManagement.serviceImplimentations.CustomerService;
+import com.example.demo.events.appEvents.LoanDisbursementRequestedEvent;
 import com.example.demo.banking.services.Dispatcher;
 import com.example.demo.system.services.InternalChecks;
 import com.example.demo.system.services.Backbone;
+import com.example.demo.system.services.IdGenerator;
+import com.example.demo.system.services.JobCoordinator;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
@@ -28,6 +38,9 @@ import java.util.*;
 @Service
 @Log4j2
 public class LoanService {
+    private static final String DISBURSEMENT_PENDING = "PENDING";
+    private static final int DISBURSEMENT_GRACE_MINUTES = 1;
+    private static final int DISBURSEMENT_STALLED_AFTER_MINUTES = 15;
     public final ApplicationRepo applicationRepo;
     public final TransactionsRepo transactionsRepo;
     public final SubscriptionService subscriptionService;
@@ -38,8 +51,15 @@ public class LoanService {
    public final LoanAccountRepo loanAccountRepo;
    public final Dispatcher dispatcher;
    public final Backbone backbone;
-
-    public LoanService(ApplicationRepo applicationRepo, TransactionsRepo transactionsRepo, SubscriptionService subscriptionService, CustomerService customerService, ProductService productService, CommunicationService communicationService, InternalChecks internalChecks, LoanAccountRepo loanAccountRepo, Dispatcher dispatcher, Backbone backbone) {
+   public final EligibilitySnapshotService eligibilitySnapshotService;
+   public final NotificationService notificationService;
+   public final IdGenerator idGenerator;
+   public final ApplicationEventPublisher eventPublisher;
+   public final LoanDisbursementTaskRepo disbursementTaskRepo;
+   public final JobCoordinator jobCoordinator;
+   private final TransactionTemplate transactionTemplate;
+
+    public LoanService(ApplicationRepo applicationRepo, TransactionsRepo transactionsRepo, SubscriptionService subscriptionService, CustomerService customerService, ProductService productService, CommunicationService communicationService, InternalChecks internalChecks, LoanAccountRepo loanAccountRepo, Dispatcher dispatcher, Backbone backbone, EligibilitySnapshotService eligibilitySnapshotService, NotificationService notificationService, IdGenerator idGenerator, ApplicationEventPublisher eventPublisher, LoanDisbursementTaskRepo disbursementTaskRepo, JobCoordinator jobCoordinator, PlatformTransactionManager transactionManager) {
         this.applicationRepo = applicationRepo;
         this.transactionsRepo = transactionsRepo;
         this.subscriptionService = subscriptionService;
@@ -50,13 +70,26 @@ public class LoanService {
         this.loanAccountRepo = loanAccountRepo;
         this.dispatcher = dispatcher;
         this.backbone = backbone;
+        this.eligibilitySnapshotService = eligibilitySnapshotService;
+        this.notificationService = notificationService;
+        this.idGenerator = idGenerator;
+        this.eventPublisher = eventPublisher;
+        this.disbursementTaskRepo = disbursementTaskRepo;
+        this.jobCoordinator = jobCoordinator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     public String base64encode(String plainText){
         byte[] bytes = plainText.getBytes(StandardCharsets.UTF_8);
         String base36 = new BigInteger(1, bytes).toString(36);
         return  base36;
     }
-    Email email=new Email();
+    /**
+     * Applies for a loan in four steps: resolve and validate the request, evaluate the product checks
+     * once, then persist the application, interest transaction and loan account in one short
+     * transaction. The disbursement is recorded as a task in that same transaction and started by an
+     * event after commit, so the caller does not wait on the gateway or the funds transfer, and the
+     * sweep still disburses it if the event is lost.
+     */
     public LoanApplication loanApplication(Long customerId, String phoneNumber, String productCode, String amount){
         //get customer details - try by ID first, then by phone
         Customer customer;
@@ -71,17 +104,25 @@ public class LoanService {
         } else {
             throw new RuntimeException("Either customerId or phoneNumber must be provided");
         }
-        
-        email.setRecipient(customer.getEmail());
-        email.setMessageType("Loan Application");
-        
+
         //get subscriptions
         log.info("Fetching subscription for customer {} and product {}", customer.getId(), productCode);
         Subscriptions subscription = subscriptionService.findCustomerIdandproductCode(customer.getId().toString(), productCode)
             .orElseThrow(() -> new RuntimeException("Subscription not found for customer " + customer.getId() + " and product " + productCode));
 
+        //parsed once; shillings with at most two decimals
+        BigDecimal principal;
+        try {
+            principal = new BigDecimal(amount.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid loan amount: " + amount);
+        }
+        if (principal.signum() <= 0 || principal.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("Invalid loan amount: " + amount);
+        }
+        String loanAmount = principal.toPlainString();
+
         LoanApplication loanApplication=new LoanApplication();
-        //save loan application
         loanApplication.setApplicationTime(LocalDateTime.now());
         
         // Handle null credit limit and term with fallback to 0
@@ -89,73 +130,119 @@ public class LoanService {
         Integer term = subscription.getTerm() != null ? subscription.getTerm() : 0;
         
         loanApplication.setCreditLimit(creditLimit.toString());
-        loanApplication.setCustomerId(customer.getId().toString());
-        loanApplication.setLoanAmount(amount);
+        loanApplication.setLoanAmount(loanAmount);
         loanApplication.setProductCode(subscription.getProductCode());
         loanApplication.setLoanTerm(term.toString());
         loanApplication.setCustomerIdNumber(customer.getDocumentNumber());
-
-        Long loanNumber=Long.valueOf(new Date().getTime());
-        log.warn(loanNumber);
-                //Long.valueOf(new Random().nextInt()+customer.getDocumentNumber());
-        loanApplication.setApplicationStatus("NEW");
-        loanApplication.setLoanNumber(loanNumber);
+        loanApplication.setLoanNumber(idGenerator.nextLoanNumber());
         loanApplication.setCustomerMobileNumber(phoneNumber);
         loanApplication.setCustomerId(customer.getId().toString());
         loanApplication.setDestinationAccount(customer.getPhoneNumber());
         loanApplication.setDisbursementType("MPESA");
         loanApplication.setLoanInterest(subscription.getInterestRate().toString());
-        //all checks
-        String[] data=new String[]{
-              subscription.getId().toString(),amount,customer.getId().toString()
-        };
-        email.setMessage("Hello "+customer.getFirstName()+" your application of Ksh "+loanApplication.getLoanAmount()+"have bee received please wait as we process your request");
-        communicationService.sendCustomEmail(email);
-        if (internalChecks.Productchecks(data).isBlank()){
+
+        //all checks, evaluated once
+        String decision=internalChecks.Productchecks(new String[]{
+              subscription.getId().toString(),loanAmount,customer.getId().toString()
+        });
+
+        return transactionTemplate.execute(status -> {
+            notificationService.notify(customer, NotificationTemplate.LOAN_APPLICATION_RECEIVED, loanAmount);
+            if (!decision.isBlank()) {
+                log.warn("Application {} referred for manual approval: {}", loanApplication.getLoanNumber(), decision);
+                loanApplication.setApplicationStatus("NEW"); // Set to NEW for manual approval instead of error
+                LoanApplication saved = applicationRepo.save(loanApplication);
+                notificationService.notify(customer, NotificationTemplate.LOAN_APPLICATION_FAILED, loanAmount, decision);
+                return saved;
+            }
             loanApplication.setApplicationStatus("AUTHORISED");
-            log.info("saving loan application....");
             LoanApplication application=applicationRepo.save(loanApplication);
             //interest application
-            loanTransactions transaction=interestCalculator(loanApplication);
+            loanTransactions transaction=interestCalculator(application);
+            float finalBalance=Float.parseFloat(transaction.getFinalBalance());
             //create loan account
             LoanAccount loanAccount=new LoanAccount();
             loanAccount.setApplicationId(application.getApplicationId());
-            loanAccount.setAmount(Float.valueOf(application.getLoanAmount()));
-            loanAccount.setPayableAmount(Float.valueOf(transaction.getFinalBalance()));
-            loanAccount.setAccountBalance(Float.valueOf(transaction.getFinalBalance()));
+            loanAccount.setAmount(principal.floatValue());
+            loanAccount.setPayableAmount(finalBalance);
+            loanAccount.setAccountBalance(finalBalance);
             loanAccount.setCustomerId(customer.getId().toString());
             loanAccount.setStatus("INIT");
-            loanAccount.setLoanref(base64encode(loanApplication.getLoanNumber().toString()).toUpperCase());
-            LoanAccount loanAccount1= loanAccountRepo.save(loanAccount);
-            //dispatch funds
-            String[] disbursmentData=new String[]{
-               loanApplication.getCustomerMobileNumber(),loanApplication.getDestinationAccount(),loanAccount1.getAccountId().toString(),loanApplication.getLoanAmount()
-             };
-            email.setMessage("Hello "+customer.getFirstName()+" your application of Ksh "+loanApplication.getLoanAmount()+"have been Approved please wait for find disbursement");
-            communicationService.sendCustomEmail(email);
-            Disbursements disbursementData=dispatcher.Disburse(disbursmentData);
-            if(disbursementData.getStatus().equals("PROCESSED")){
-                email.setMessageType("Disbursement");
-                email.setMessage("Hello "+customer.getFirstName()+" We have disbursed Ksh "+loanApplication.getLoanAmount()+" To your account");
-                communicationService.sendCustomEmail(email);
+            loanAccount.setLoanref(idGenerator.nextLoanRef());
+            LoanAccount savedAccount=loanAccountRepo.save(loanAccount);
+            //the open loan must block the next application before this one's events are processed
+            eligibilitySnapshotService.refreshCustomer(savedAccount.getCustomerId());
+            notificationService.notify(customer, NotificationTemplate.LOAN_APPLICATION_AUTHORISED, loanAmount);
+            LocalDateTime now=LocalDateTime.now();
+            LoanDisbursementTask task=new LoanDisbursementTask();
+            task.setLoanAccountId(savedAccount.getAccountId());
+            task.setCustomerId(customer.getId());
+            task.setLoanNumber(application.getLoanNumber());
+            task.setCustomerMobileNumber(application.getCustomerMobileNumber());
+            task.setDestinationAccount(application.getDestinationAccount());
+            task.setAmount(loanAmount);
+            task.setAccountBalance(String.valueOf(finalBalance));
+            task.setStatus(DISBURSEMENT_PENDING);
+            task.setCreatedAt(now);
+            task.setUpdatedAt(now);
+            LoanDisbursementTask savedTask=disbursementTaskRepo.save(task);
+            eventPublisher.publishEvent(new LoanDisbursementRequestedEvent(this, savedTask.getId(), application.getLoanNumber()));
+            return application;
+        });
+    }
+
+    /**
+     * Sends the funds for a committed disbursement task and records the disbursement transaction.
+     * Runs from the after-commit event and from the sweep; only the caller that claims the task sends.
+     */
+    public void disburse(Long taskId){
+        if (disbursementTaskRepo.claim(taskId, LocalDateTime.now())==0){
+            log.info("Disbursement task {} already claimed", taskId);
+            return;
+        }
+        LoanDisbursementTask task=disbursementTaskRepo.findById(taskId).orElseThrow();
+        try {
+            Disbursements disbursementData=dispatcher.Disburse(new String[]{
+                    task.getCustomerMobileNumber(),task.getDestinationAccount(),task.getLoanAccountId().toString(),task.getAmount()
+            });
+            if("PROCESSED".equals(disbursementData.getStatus())){
+                customerService.findCustomerById(task.getCustomerId()).ifPresent(customer ->
+                        notificationService.notify(customer, NotificationTemplate.LOAN_DISBURSED, task.getAmount()));
             }
             //save transaction
-            String[] transactionData=new String[]{
-                    application.getCustomerMobileNumber(),application.getLoanNumber().toString(),"Disbursement",disbursementData.getAmount(),loanAccount.getAccountBalance().toString(),disbursementData.getOtherRef(),disbursementData.getResponse(),application.getCustomerId()
-            };
-            backbone.saveTransaction(transactionData);
-
-        }else {
-            String errorMessage =internalChecks.Productchecks(data);
-            loanApplication.setApplicationStatus("NEW"); // Set to NEW for manual approval instead of error
-         log.warn(errorMessage);
-            applicationRepo.save(loanApplication);
-            email.setMessage("Hello "+customer.getFirstName()+" your application of Ksh "+loanApplication.getLoanAmount()+" Failed withe the below error :: "+errorMessage);
-            communicationService.sendCustomEmail(email);
+            backbone.saveTransaction(new String[]{
+                    task.getCustomerMobileNumber(),task.getLoanNumber().toString(),"Disbursement",disbursementData.getAmount(),
+                    task.getAccountBalance(),disbursementData.getOtherRef(),disbursementData.getResponse(),task.getCustomerId().toString()
+            });
+            task.setStatus("COMPLETED");
+            task.setCompletedAt(LocalDateTime.now());
+            task.setLastError(null);
+        } catch (Exception e) {
+            //the transfer may already have gone out, so the task is reviewed instead of re-sent
+            log.error("Disbursement task {} for loan {} failed, left for review: {}", taskId, task.getLoanNumber(), e.getMessage());
+            task.setStatus("REVIEW");
+            task.setLastError(e.getMessage());
         }
-        //update application status
+        task.setUpdatedAt(LocalDateTime.now());
+        disbursementTaskRepo.save(task);
+    }
+
+    //disburse tasks whose event was lost (restart, full executor) and park stalled transfers for review
+    @Scheduled(fixedDelayString = "${loans.disbursement.sweep-ms:60000}")
+    public void sweepDisbursements(){
+        jobCoordinator.runExclusive("disbursement-sweep", this::sweep);
+    }
 
-        return loanApplication;
+    private void sweep(){
+        LocalDateTime now=LocalDateTime.now();
+        int stalled=disbursementTaskRepo.parkStalled(now.minusMinutes(DISBURSEMENT_STALLED_AFTER_MINUTES), now);
+        if (stalled>0){
+            log.warn("{} disbursement tasks stalled in progress, left for review", stalled);
+        }
+        //the grace period leaves freshly committed tasks to their own event
+        for (LoanDisbursementTask task : disbursementTaskRepo.findByStatusAndUpdatedAtBefore(DISBURSEMENT_PENDING, now.minusMinutes(DISBURSEMENT_GRACE_MINUTES))) {
+            disburse(task.getId());
+        }
     }
    public ResponseEntity newApplication(newApplication application){
        log.info("fetching customer");
@@ -165,8 +252,6 @@ public class LoanService {
            Optional<Subscriptions> subscription1=subscriptionService.findCustomerIdandproductCode(customer.getId().toString(),application.getProductCode());
             if (subscription1.isPresent()){
                 Subscriptions subscription=subscription1.get();
-                email.setRecipient(customer.getEmail());
-                email.setMessageType("Loan Application");
                 LoanApplication loanApplication=new LoanApplication();
                 loanApplication.setApplicationTime(LocalDateTime.now());
                 loanApplication.setCreditLimit(subscription.getCreditLimit().toString());
@@ -175,8 +260,7 @@ public class LoanService {
                 loanApplication.setProductCode(subscription.getProductCode());
                 loanApplication.setLoanTerm(subscription.getTerm().toString());
                 loanApplication.setCustomerIdNumber(customer.getDocumentNumber());
-                Long loanNumber=Long.valueOf(new Date().getTime());
-                log.warn(loanNumber);
+                Long loanNumber=idGenerator.nextLoanNumber();
                 loanApplication.setApplicationStatus("NEW");
                 loanApplication.setInstallments(application.getInstallments());
                 loanApplication.setLoanNumber(loanNumber);
@@ -188,8 +272,7 @@ public class LoanService {
                 String[] data=new String[]{
                         subscription.getId().toString(),application.getAmount(),customer.getId().toString()
                 };
-                email.setMessage("Hello "+customer.getFirstName()+" your application of Ksh "+loanApplication.getLoanAmount()+"have bee received please wait as we process your request");
-                communicationService.sendCustomEmail(email);
+                notificationService.notify(customer, NotificationTemplate.LOAN_APPLICATION_RECEIVED, loanApplication.getLoanAmount());
 
                 if (internalChecks.Productchecks(data).isBlank()){
                     loanApplication.setApplicationStatus("AUTHORISED");
@@ -205,14 +288,14 @@ public class LoanService {
                     loanAccount.setAccountBalance(Float.valueOf(transaction.getFinalBalance()));
                     loanAccount.setCustomerId(customer.getId().toString());
                     loanAccount.setStatus("INIT");
-                    loanAccount.setLoanref(base64encode(loanApplication.getLoanNumber().toString()).toUpperCase());
+                    loanAccount.setLoanref(idGenerator.nextLoanRef());
                     LoanAccount loanAccount1= loanAccountRepo.save(loanAccount);
+                    eligibilitySnapshotService.refreshCustomer(loanAccount1.getCustomerId());
                     //dispatch funds
                     String[] disbursmentData=new String[]{
                             loanApplication.getCustomerMobileNumber(),loanApplication.getDestinationAccount(),loanAccount1.getAccountId().toString(),loanApplication.getLoanAmount()
                     };
-                    email.setMessage("Hello "+customer.getFirstName()+" your application of Ksh "+loanApplication.getLoanAmount()+"have been Approved please wait for find disbursement");
-                    communicationService.sendCustomEmail(email);
+                    notificationService.notify(customer, NotificationTemplate.LOAN_APPLICATION_AUTHORISED, loanApplication.getLoanAmount());
                    /* Disbursements disbursementData=dispatcher.Disburse(disbursmentData);
                     if(disbursementData.getStatus()=="PROCESSED"){
                         email.setMessageType("Disbursement");
@@ -235,12 +318,8 @@ public class LoanService {
 
     public loanTransactions interestCalculator(LoanApplication loan){
         log.info("calculating interest....");
-        Float interestRate=Float.valueOf(loan.getLoanInterest())/100;
-        Float interest=interestRate*Float.valueOf(loan.getLoanAmount());
-        Float finalBal=Float.valueOf(loan.getLoanAmount())+interest;
-        Customer customer=customerService.findById(Long.valueOf(loan.getCustomerId())).getClient();
-        log.info(customer);
-           log.info(loan);
+        float amount=Float.parseFloat(loan.getLoanAmount());
+        Float finalBal=amount+Float.parseFloat(loan.getLoanInterest())/100*amount;
         String[] transactionData=new String[]{
               loan.getCustomerMobileNumber(),loan.getLoanNumber().toString(),"Interest",loan.getLoanAmount(),finalBal.toString(),"","",loan.getCustomerId()
         };
@@ -359,9 +438,11 @@ public class LoanService {
 
     public LoanAccount loadAccount(LoanBookUpload upload,Customer customer) {
         LoanApplication loanApplication= new LoanApplication(upload,customer);
+        loanApplication.setLoanNumber(idGenerator.nextLoanNumber());
         loanApplication=applicationRepo.save(loanApplication);
         LoanAccount loanAccount =new LoanAccount(upload,loanApplication,customer);
         loanAccount=loanAccountRepo.save(loanAccount);
+        eligibilitySnapshotService.refreshCustomer(loanAccount.getCustomerId());
         return  loanAccount;
     }
     
@@ -413,11 +494,12 @@ public class LoanService {
         loanAccount.setDueDate(dueDate);
         
         // Generate loan reference
-        loanAccount.setLoanref(base64encode(application.getLoanNumber().toString()).toUpperCase());
+        loanAccount.setLoanref(idGenerator.nextLoanRef());
         loanAccount.setOtherRef("Application: " + application.getApplicationId());
         
         // Save loan account
         LoanAccount savedAccount = loanAccountRepo.save(loanAccount);
+        eligibilitySnapshotService.refreshCustomer(savedAccount.getCustomerId());
         
         // Generate repayment schedule
         try {
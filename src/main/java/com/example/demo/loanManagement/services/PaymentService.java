@@ -2,8 +2,10 @@ package com.example.demo.loanManagement.services;
 
 import com.example.demo.banking.parsitence.repositories.PaymentRepo;
 import com.example.demo.banking.services.Dispatcher;
+import com.example.demo.communication.services.NotificationTemplate;
 import com.example.demo.customerManagement.parsistence.entities.Customer;
 import com.example.demo.customerManagement.serviceImplimentations.CustomerService;
+import com.example.demo.events.appEvents.MemberPositionChangedEvent;
 import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
 import com.example.demo.loanManagement.parsistence.entities.PaymentRequest;
 import com.example.demo.banking.parsitence.enitities.Payments;
@@ -29,7 +31,6 @@ private Dispatcher dispatcher;
         super(loanAccountRepo, applicationRepo, productService, backbone, loanStatesRepo, chargeServiceImpl, suspensePaymentRepo, subscriptionService, paymentRepo, paymentRequestRepo, customerService, scheduleRepo, transactionsRepo);
     }
 
-public String paymentRef="";
     public void paymentRequest(String phoneNumber, String productCode, String amount) {
         //save request
         PaymentRequest request = new PaymentRequest();
@@ -44,7 +45,6 @@ public String paymentRef="";
 
     @Async
     public void processLoanPayment(Payments paymentRes){
-        paymentRef=paymentRes.getOtherRef();
             //find customer
             Optional<Customer> leadCustomer = customerService.findByPhone(paymentRes.getAccountNumber());
             if (leadCustomer.isPresent()) {
@@ -74,7 +74,7 @@ public String paymentRef="";
                 }
                 if (!accountNumber.isBlank()){
                 //offset amount from loan account
-                    this.PayLoan(accountNumber, paymentRes.getAmount(),paymentRes.getAccountNumber());
+                    this.PayLoan(accountNumber, paymentRes.getAmount(),paymentRes.getAccountNumber(),paymentRes.getOtherRef());
 
                 }else {
                      SuspensePayments suspensePayment = new SuspensePayments();
@@ -107,11 +107,9 @@ public String paymentRef="";
     }
 
 public void saveSuspensePayment(SuspensePayments payment){suspensePaymentRepo.save(payment);}
-    public void PayLoan(String accountNumber, String amount,String phoneNumber) {
+    public void PayLoan(String accountNumber, String amount,String phoneNumber,String paymentRef) {
         Customer customer=customerService.findByPhone(phoneNumber).get();
         log.info("Processing payment");
-        email.setRecipient(customer.getEmail());
-        email.setMessageType("Payment Confirmation");
         //find loanAccount
        Optional<LoanAccount> transactionalAccount=findById(Long.valueOf(accountNumber));
        LoanAccount loanAccount=transactionalAccount.get();
@@ -122,7 +120,6 @@ public void saveSuspensePayment(SuspensePayments payment){suspensePaymentRepo.sa
        if (Float.valueOf(amount)>accountBalance){
            paidAmount=accountBalance;
            suspenseAmount=Float.valueOf(amount)-accountBalance;
-           email.setMessage("Thank you "+customer.getFirstName()+"  We have have Received your payment of Ksh "+amount+" You have over Paid by Ksh "+suspenseAmount);
            //update loan status
            this.updateStatus(loanAccount.getAccountId().toString(),"PAID");
        }else  {
@@ -134,12 +131,12 @@ public void saveSuspensePayment(SuspensePayments payment){suspensePaymentRepo.sa
        if (finalAmount.equals(Float.valueOf(0))){
           //update loan status
            this.updateStatus(loanAccount.getAccountId().toString(),"PAID");
-           email.setMessage("Thank you "+customer.getFirstName()+"  We have have Received your payment of Ksh "+amount+" Your balance is Ksh 0");
+       }
+       if (suspenseAmount>0){
+           notificationService.notify(customer,NotificationTemplate.PAYMENT_OVERPAID,amount,suspenseAmount);
        }else {
-           email.setMessage("Thank you "+customer.getFirstName()+"  We have have Received your payment of Ksh "+amount+" Your balance is Ksh"+finalAmount);
-
+           notificationService.notify(customer,NotificationTemplate.PAYMENT_RECEIVED,amount,finalAmount);
        }
-        communicationService.sendCustomEmail(email);
         //save loan account
       save(loanAccount);
         //saving transactions
@@ -148,6 +145,7 @@ public void saveSuspensePayment(SuspensePayments payment){suspensePaymentRepo.sa
                 accountBalance.toString(),finalAmount.toString(),paymentRef,""
         };
         backbone.saveTransaction(transactionData);
+        eventPublisher.publishEvent(new MemberPositionChangedEvent(this,loanAccount.getCustomerId(),"REPAYMENT"));
        if (suspenseAmount>0){
            SuspensePayments payments=new SuspensePayments();
            payments.setPaymentTime(LocalDateTime.now());
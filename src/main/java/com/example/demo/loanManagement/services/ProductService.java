@@ -2,6 +2,8 @@ package com.example.demo.loanManagement.services;
 
 import com.example.demo.loanManagement.parsistence.entities.Products;
 import com.example.demo.loanManagement.parsistence.repositories.ProductRepo;
+import com.example.demo.system.cache.ReferenceCache;
+import com.example.demo.system.cache.ReferenceDataCache;
 import org.springframework.stereotype.Service;
 import lombok.extern.log4j.Log4j2;
 
@@ -13,9 +15,11 @@ import java.util.Optional;
 public class ProductService {
 
    public ProductRepo productRepo;
+   public final ReferenceDataCache referenceDataCache;
 
-    public ProductService(ProductRepo productRepo) {
+    public ProductService(ProductRepo productRepo, ReferenceDataCache referenceDataCache) {
         this.productRepo = productRepo;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public Products saveProduct(Products product){
@@ -28,11 +32,20 @@ public class ProductService {
            return product;
        }else {
            log.info("product with code created");
-           return productRepo.save(product);
+           return save(product);
        }
 
     }
 
+    /**
+     * Saves a product and drops the cached product lookups on every node.
+     */
+    public Products save(Products product) {
+        Products saved = productRepo.save(product);
+        referenceDataCache.invalidate(ReferenceDataCache.PRODUCTS);
+        return saved;
+    }
+
     public List<Products> findAllProducts() {
         log.info("Fetching all products...");
         return productRepo.findAll();
@@ -43,10 +56,14 @@ public class ProductService {
     }
 
     public Products findByProductCode(String productCode) {
-        return productRepo.findByCode(productCode);
+        return findByCode(productCode).orElse(null);
     }
 
+    /**
+     * Product by code, served from the reference-data cache as a detached copy.
+     */
     public Optional<Products> findByCode(String productCode) {
-        return Optional.ofNullable(productRepo.findByCode(productCode));
+        ReferenceCache<String, Products> cache = referenceDataCache.entityCache(ReferenceDataCache.PRODUCTS, Products::new);
+        return cache.get(productCode, productRepo::findByCode);
     }
 }
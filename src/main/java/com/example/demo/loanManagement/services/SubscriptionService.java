@@ -1,11 +1,13 @@
 package com.example.demo.loanManagement.services;
 
 import com.example.demo.customerManagement.parsistence.entities.Customer;
+import com.example.demo.events.appEvents.MemberPositionChangedEvent;
 import com.example.demo.loanManagement.parsistence.entities.Products;
 import com.example.demo.loanManagement.parsistence.entities.Subscriptions;
 import com.example.demo.customerManagement.parsistence.repositories.CustomerRepo;
 import com.example.demo.loanManagement.parsistence.repositories.SubscriptionRepo;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -20,11 +22,13 @@ public class SubscriptionService {
     public final ProductService products;
     public final CustomerRepo customers;
     public final SubscriptionRepo subscriptionsRepo;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public SubscriptionService(ProductService products, CustomerRepo customers, SubscriptionRepo subscriptionsRepo) {
+    public SubscriptionService(ProductService products, CustomerRepo customers, SubscriptionRepo subscriptionsRepo, ApplicationEventPublisher eventPublisher) {
         this.products = products;
         this.customers = customers;
         this.subscriptionsRepo = subscriptionsRepo;
+        this.eventPublisher = eventPublisher;
     }
 
 
@@ -69,6 +73,7 @@ public class SubscriptionService {
                 log.info("subscribing " + customer.get().getFirstName() + "to " + product.get().getName());
                 subscriptionsRepo.save(subscription);
                 log.info("Subscription created");
+                eventPublisher.publishEvent(new MemberPositionChangedEvent(this, subscription.getCustomerId(), "SUBSCRIPTION"));
             }
         }else {
             log.warn("No product found with phone "+productId);
@@ -111,7 +116,9 @@ public class SubscriptionService {
         subscription.setCreditLimitCalculationRule(calculationRule);
         subscription.setUpdatedAt(LocalDate.now());
         
-        return subscriptionsRepo.save(subscription);
+        Subscriptions saved = subscriptionsRepo.save(subscription);
+        eventPublisher.publishEvent(new MemberPositionChangedEvent(this, saved.getCustomerId(), "CREDIT_LIMIT"));
+        return saved;
     }
 
     /**
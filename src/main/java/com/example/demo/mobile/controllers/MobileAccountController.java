@@ -2,14 +2,13 @@ package com.example.demo.mobile.controllers;
 
 import com.example.demo.mobile.dto.*;
 import com.example.demo.mobile.services.MobileAccountService;
+import com.example.demo.reports.models.StatementPage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -47,16 +46,22 @@ public class MobileAccountController {
 
     @GetMapping("/{accountId}/statement")
     @Operation(summary = "Get account statement", description = "Get transaction statement for account")
-    public ResponseEntity<Page<TransactionDto>> getStatement(
+    public ResponseEntity<StatementPage> getStatement(
             @PathVariable String accountId,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
-            @AuthenticationPrincipal String memberId,
-            Pageable pageable) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal String memberId) {
         log.info("Fetching statement for account: {}", accountId);
-        Page<TransactionDto> statement = accountService.getAccountStatement(
-                accountId, memberId, startDate, endDate, pageable);
-        return ResponseEntity.ok(statement);
+        try {
+            StatementPage statement = accountService.getAccountStatement(
+                    accountId, memberId, startDate, endDate, cursor, size);
+            return ResponseEntity.ok(statement);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected statement request for account {}: {}", accountId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{accountId}/mini-statement")
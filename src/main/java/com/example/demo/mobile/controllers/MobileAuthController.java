@@ -2,6 +2,8 @@ package com.example.demo.mobile.controllers;
 
 import com.example.demo.mobile.dto.*;
 import com.example.demo.mobile.services.MobileAuthService;
+import com.example.demo.mobile.services.OtpService;
+import com.example.demo.security.LoginThrottle;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -10,6 +12,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/mobile/auth")
 @RequiredArgsConstructor
@@ -18,6 +22,8 @@ import org.springframework.web.bind.annotation.*;
 public class MobileAuthController {
 
     private final MobileAuthService authService;
+    private final OtpService otpService;
+    private final LoginThrottle loginThrottle;
 
     @PostMapping("/login")
     @Operation(summary = "Mobile user login", description = "Authenticate mobile user with phone and PIN")
@@ -84,4 +90,16 @@ public class MobileAuthController {
         authService.logout(token);
         return ResponseEntity.ok(new ApiResponse(true, "Logged out successfully"));
     }
+
+    @GetMapping("/otp/metrics")
+    @Operation(summary = "OTP metrics", description = "OTP issue rate, throttled requests, verification outcomes and lockouts since startup")
+    public ResponseEntity<Map<String, Object>> otpMetrics() {
+        return ResponseEntity.ok(otpService.getMetrics());
+    }
+
+    @GetMapping("/login/metrics")
+    @Operation(summary = "Login metrics", description = "Staff and mobile login attempts, throttled attempts, outcomes and average handling time since startup")
+    public ResponseEntity<Map<String, Object>> loginMetrics() {
+        return ResponseEntity.ok(loginThrottle.snapshot());
+    }
 }
@@ -0,0 +1,58 @@
+package com.example.demo.mobile.persistence.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Channel read model: one row per member account (savings or loan) holding the current balance
+ * and the most recent transactions as a JSON array, so USSD and mobile balance and
+ * mini-statement requests are a single indexed read.
+ */
+@Entity
+@Table(name = "channel_account_view",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"account_kind", "account_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChannelAccountView {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "account_kind", nullable = false, length = 20)
+    private String accountKind; // SAVINGS, LOAN
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(length = 50)
+    private String accountNumber;
+
+    @Column(length = 100)
+    private String accountName;
+
+    @Column(length = 20)
+    private String status;
+
+    @Column(precision = 15, scale = 2)
+    private BigDecimal balance;
+
+    @Column(precision = 15, scale = 2)
+    private BigDecimal availableBalance;
+
+    private LocalDateTime lastTransactionAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String recentTransactions;
+
+    private LocalDateTime refreshedAt;
+}
@@ -0,0 +1,18 @@
+package com.example.demo.mobile.persistence.repositories;
+
+import com.example.demo.mobile.persistence.entities.ChannelAccountView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChannelAccountViewRepository extends JpaRepository<ChannelAccountView, Long> {
+
+    List<ChannelAccountView> findByCustomerIdOrderByAccountKindAscAccountIdAsc(Long customerId);
+
+    List<ChannelAccountView> findByCustomerIdAndAccountKind(Long customerId, String accountKind);
+
+    Optional<ChannelAccountView> findByAccountKindAndAccountId(String accountKind, Long accountId);
+}
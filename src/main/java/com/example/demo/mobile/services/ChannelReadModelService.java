@@ -0,0 +1,291 @@
+package com.example.demo.mobile.services;
+
+import com.example.demo.mobile.dto.TransactionDto;
+import com.example.demo.mobile.persistence.entities.ChannelAccountView;
+import com.example.demo.mobile.persistence.repositories.ChannelAccountViewRepository;
+import com.example.demo.savingsManagement.persistence.entities.SavingsTransaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.example.demo.system.services.JobCoordinator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Maintains {@code channel_account_view}, the per-member read model behind USSD and mobile
+ * balance and mini-statement requests.
+ * Each savings posting is applied to its row inside the posting transaction by the savings ledger,
+ * loan rows are refreshed on repayment and loan status events. Reads never write. A nightly
+ * rebuild and a periodic consistency check against the source balances repair anything those
+ * paths missed.
+ */
+@Service
+@Slf4j
+public class ChannelReadModelService {
+
+    public static final String SAVINGS = "SAVINGS";
+    public static final String LOAN = "LOAN";
+
+    private static final String UPSERT_HEAD =
+            "INSERT INTO channel_account_view (customer_id, account_kind, account_id, account_number, account_name, status, " +
+            "balance, available_balance, last_transaction_at, recent_transactions, refreshed_at) ";
+
+    private static final String UPSERT_TAIL =
+            " ON CONFLICT (account_kind, account_id) DO UPDATE SET customer_id = EXCLUDED.customer_id, " +
+            "account_number = EXCLUDED.account_number, account_name = EXCLUDED.account_name, status = EXCLUDED.status, " +
+            "balance = EXCLUDED.balance, available_balance = EXCLUDED.available_balance, " +
+            "last_transaction_at = EXCLUDED.last_transaction_at, recent_transactions = EXCLUDED.recent_transactions, " +
+            "refreshed_at = EXCLUDED.refreshed_at";
+
+    /**
+     * Builds view rows from the source tables. %1$d is the number of recent transactions kept,
+     * %2$s an optional extra AND condition.
+     */
+    private static final String SAVINGS_SELECT =
+            "SELECT a.customer_id AS customer_id, 'SAVINGS' AS account_kind, a.id AS account_id, " +
+            "a.account_number AS account_number, COALESCE(a.product_name, a.account_type) AS account_name, a.status AS status, " +
+            "a.balance AS balance, a.available_balance AS available_balance, " +
+            "COALESCE(r.last_at, a.last_transaction_date) AS last_transaction_at, COALESCE(r.items, '[]') AS recent_transactions, " +
+            "CURRENT_TIMESTAMP AS refreshed_at " +
+            "FROM savings_accounts a " +
+            "LEFT JOIN LATERAL (SELECT MAX(x.\"transactionDate\") AS last_at, " +
+            "CAST(json_agg(x ORDER BY x.\"transactionDate\" DESC, x.seq DESC) AS TEXT) AS items FROM (" +
+            "SELECT t.id AS seq, CAST(t.id AS TEXT) AS \"transactionId\", t.transaction_date AS \"transactionDate\", " +
+            "t.transaction_type AS \"transactionType\", t.description AS \"description\", t.amount AS \"amount\", " +
+            "CASE WHEN t.transaction_type IN ('WITHDRAWAL', 'FEE_DEBIT', 'TRANSFER_OUT') THEN 'DR' ELSE 'CR' END AS \"debitCredit\", " +
+            "t.balance_before AS \"balanceBefore\", t.balance_after AS \"balanceAfter\", t.transaction_ref AS \"reference\", " +
+            "t.status AS \"status\", t.payment_method AS \"channel\" " +
+            "FROM savings_transactions t WHERE t.savings_account_id = a.id AND t.status = 'COMPLETED' " +
+            "ORDER BY t.transaction_date DESC, t.id DESC LIMIT %1$d) x) r ON TRUE " +
+            "WHERE TRUE %2$s";
+
+    private static final String LOAN_SELECT =
+            "SELECT CAST(la.customer_id AS BIGINT) AS customer_id, 'LOAN' AS account_kind, la.account_id AS account_id, " +
+            "la.loanref AS account_number, COALESCE(p.name, 'Loan') AS account_name, la.status AS status, " +
+            "CAST(COALESCE(la.account_balance, 0) AS NUMERIC(15,2)) AS balance, " +
+            "CAST(COALESCE(la.account_balance, 0) AS NUMERIC(15,2)) AS available_balance, " +
+            "r.last_at AS last_transaction_at, COALESCE(r.items, '[]') AS recent_transactions, CURRENT_TIMESTAMP AS refreshed_at " +
+            "FROM loan_account la LEFT JOIN products p ON p.id = la.product_id " +
+            "LEFT JOIN LATERAL (SELECT MAX(x.\"transactionDate\") AS last_at, " +
+            "CAST(json_agg(x ORDER BY x.\"transactionDate\" DESC, x.seq DESC) AS TEXT) AS items FROM (" +
+            "SELECT t.transaction_id AS seq, CAST(t.transaction_id AS TEXT) AS \"transactionId\", " +
+            "COALESCE(t.transaction_time, t.transaction_date) AS \"transactionDate\", t.transaction_type AS \"transactionType\", " +
+            "t.other_responses AS \"description\", CAST(t.amount AS NUMERIC(15,2)) AS \"amount\", " +
+            "CASE WHEN t.transaction_type IN ('PAYMENT', 'REPAYMENT') THEN 'CR' ELSE 'DR' END AS \"debitCredit\", " +
+            "CASE WHEN t.initial_balance ~ '^-?[0-9]+(\\.[0-9]+)?$' THEN CAST(t.initial_balance AS NUMERIC(15,2)) END AS \"balanceBefore\", " +
+            "CASE WHEN t.final_balance ~ '^-?[0-9]+(\\.[0-9]+)?$' THEN CAST(t.final_balance AS NUMERIC(15,2)) END AS \"balanceAfter\", " +
+            "t.other_ref AS \"reference\", 'COMPLETED' AS \"status\", t.payment_mode AS \"channel\" " +
+            "FROM loan_transactions t WHERE t.account_id = la.account_id OR t.loan_ref = la.loanref " +
+            "ORDER BY 3 DESC, 1 DESC LIMIT %1$d) x) r ON TRUE " +
+            "WHERE la.customer_id ~ '^[0-9]+$' %2$s";
+
+    private static final String SAVINGS_SQL = UPSERT_HEAD + SAVINGS_SELECT + UPSERT_TAIL;
+
+    private static final String LOAN_SQL = UPSERT_HEAD + LOAN_SELECT + UPSERT_TAIL;
+
+    /**
+     * Applies one posting to an existing savings row: balance and status are copied from the
+     * account row the posting just updated, and the posting is put in front of the kept recent
+     * transactions, dropping the oldest beyond the limit. Touches no ledger history.
+     */
+    private static final String APPLY_POSTING_SQL =
+            "UPDATE channel_account_view v SET balance = a.balance, available_balance = a.available_balance, " +
+            "status = a.status, last_transaction_at = ?, refreshed_at = CURRENT_TIMESTAMP, " +
+            "recent_transactions = (SELECT CAST(jsonb_agg(x.item ORDER BY x.n) AS TEXT) FROM jsonb_array_elements(" +
+            "CAST(? AS JSONB) || CAST(COALESCE(v.recent_transactions, '[]') AS JSONB)) WITH ORDINALITY AS x(item, n) " +
+            "WHERE x.n <= ?) " +
+            "FROM savings_accounts a WHERE a.id = v.account_id AND v.account_kind = 'SAVINGS' AND v.account_id = ?";
+
+    /**
+     * View rows whose balance or status no longer match the source account, or whose account is gone,
+     * plus source accounts that have no view row yet.
+     */
+    private static final String DRIFT_SQL =
+            "SELECT v.account_kind AS kind, v.account_id AS account_id FROM channel_account_view v " +
+            "LEFT JOIN savings_accounts a ON v.account_kind = 'SAVINGS' AND a.id = v.account_id " +
+            "LEFT JOIN loan_account la ON v.account_kind = 'LOAN' AND la.account_id = v.account_id " +
+            "WHERE (v.account_kind = 'SAVINGS' AND (a.id IS NULL OR a.balance <> v.balance OR a.status IS DISTINCT FROM v.status)) " +
+            "OR (v.account_kind = 'LOAN' AND (la.account_id IS NULL " +
+            "OR CAST(COALESCE(la.account_balance, 0) AS NUMERIC(15,2)) <> v.balance OR la.status IS DISTINCT FROM v.status)) " +
+            "UNION ALL SELECT 'SAVINGS', a.id FROM savings_accounts a WHERE NOT EXISTS " +
+            "(SELECT 1 FROM channel_account_view v WHERE v.account_kind = 'SAVINGS' AND v.account_id = a.id) " +
+            "UNION ALL SELECT 'LOAN', la.account_id FROM loan_account la WHERE la.customer_id ~ '^[0-9]+$' AND NOT EXISTS " +
+            "(SELECT 1 FROM channel_account_view v WHERE v.account_kind = 'LOAN' AND v.account_id = la.account_id)";
+
+    private static final TypeReference<List<TransactionDto>> TRANSACTIONS = new TypeReference<>() {};
+
+    private static final Set<String> DEBIT_TYPES = Set.of("WITHDRAWAL", "FEE_DEBIT", "TRANSFER_OUT");
+
+    private static final RowMapper<ChannelAccountView> VIEW_ROW = new BeanPropertyRowMapper<>(ChannelAccountView.class);
+
+    private final ChannelAccountViewRepository viewRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final JobCoordinator jobCoordinator;
+
+    @Value("${channel.read-model.recent-count:10}")
+    private int recentCount;
+
+    public ChannelReadModelService(ChannelAccountViewRepository viewRepository, JdbcTemplate jdbcTemplate,
+                                   ObjectMapper objectMapper, JobCoordinator jobCoordinator) {
+        this.viewRepository = viewRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.jobCoordinator = jobCoordinator;
+    }
+
+    /**
+     * Applies a ledger posting to its account's row; called in the posting transaction, after the
+     * balance update. An account without a row yet gets it built from the source tables once.
+     */
+    public void applySavingsPosting(SavingsTransaction posting) {
+        TransactionDto item = TransactionDto.builder()
+                .transactionId(String.valueOf(posting.getId()))
+                .transactionDate(posting.getTransactionDate().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .transactionType(posting.getTransactionType())
+                .description(posting.getDescription())
+                .amount(posting.getAmount())
+                .debitCredit(DEBIT_TYPES.contains(posting.getTransactionType()) ? "DR" : "CR")
+                .balanceBefore(posting.getBalanceBefore())
+                .balanceAfter(posting.getBalanceAfter())
+                .reference(posting.getTransactionRef())
+                .status(posting.getStatus())
+                .channel(posting.getPaymentMethod())
+                .build();
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(List.of(item));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize posting " + posting.getId(), e);
+        }
+        int updated = jdbcTemplate.update(APPLY_POSTING_SQL, Timestamp.valueOf(posting.getTransactionDate()), json,
+                recentCount, posting.getSavingsAccountId());
+        if (updated == 0) {
+            refreshSavingsAccount(posting.getSavingsAccountId());
+        }
+    }
+
+    /**
+     * Rebuilds one savings account's row from the account and its ledger.
+     */
+    public void refreshSavingsAccount(Long accountId) {
+        jdbcTemplate.update(String.format(SAVINGS_SQL, recentCount, "AND a.id = ?"), accountId);
+    }
+
+    public void refreshLoanAccount(Long accountId) {
+        jdbcTemplate.update(String.format(LOAN_SQL, recentCount, "AND la.account_id = ?"), accountId);
+    }
+
+    /**
+     * Refreshes every savings and loan row of one member.
+     */
+    public void refreshCustomer(Long customerId) {
+        jdbcTemplate.update(String.format(SAVINGS_SQL, recentCount, "AND a.customer_id = ?"), customerId);
+        jdbcTemplate.update(String.format(LOAN_SQL, recentCount, "AND la.customer_id = ?"), String.valueOf(customerId));
+    }
+
+    /**
+     * Fallback full rebuild of the read model, on one node.
+     */
+    @Scheduled(cron = "${channel.read-model.rebuild-cron:0 0 3 * * *}")
+    public void rebuildAll() {
+        jobCoordinator.runExclusiveInTransaction("channel-read-model-rebuild", this::rebuild);
+    }
+
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        int savings = jdbcTemplate.update(String.format(SAVINGS_SQL, recentCount, ""));
+        int loans = jdbcTemplate.update(String.format(LOAN_SQL, recentCount, ""));
+        int removed = jdbcTemplate.update("DELETE FROM channel_account_view v WHERE " +
+                "(v.account_kind = 'SAVINGS' AND NOT EXISTS (SELECT 1 FROM savings_accounts a WHERE a.id = v.account_id)) OR " +
+                "(v.account_kind = 'LOAN' AND NOT EXISTS (SELECT 1 FROM loan_account la WHERE la.account_id = v.account_id))");
+        log.info("Rebuilt channel read model: {} savings, {} loan rows, {} removed in {} ms",
+                savings, loans, removed, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Finds rows that drifted from their source account and repairs them. Returns the number repaired,
+     * or 0 when another node is running the check.
+     */
+    @Scheduled(fixedDelayString = "${channel.read-model.check-ms:900000}")
+    public int checkConsistency() {
+        int[] repaired = {0};
+        jobCoordinator.runExclusive("channel-read-model-check", () -> repaired[0] = repairDrift());
+        return repaired[0];
+    }
+
+    private int repairDrift() {
+        List<Map<String, Object>> drifted = jdbcTemplate.queryForList(DRIFT_SQL);
+        for (Map<String, Object> row : drifted) {
+            String kind = (String) row.get("kind");
+            Long accountId = ((Number) row.get("account_id")).longValue();
+            log.warn("Channel read model drift on {} account {}, repairing", kind, accountId);
+            int updated = jdbcTemplate.update(String.format(SAVINGS.equals(kind) ? SAVINGS_SQL : LOAN_SQL, recentCount,
+                    SAVINGS.equals(kind) ? "AND a.id = ?" : "AND la.account_id = ?"), accountId);
+            if (updated == 0) {
+                jdbcTemplate.update("DELETE FROM channel_account_view WHERE account_kind = ? AND account_id = ?", kind, accountId);
+            }
+        }
+        return drifted.size();
+    }
+
+    public List<ChannelAccountView> getMemberAccounts(Long customerId) {
+        return viewRepository.findByCustomerIdOrderByAccountKindAscAccountIdAsc(customerId);
+    }
+
+    /**
+     * Reads a member's rows of one kind. A member whose rows are not built yet is read straight
+     * from the source tables; reads never write, the consistency check adds the missing rows.
+     */
+    public List<ChannelAccountView> getMemberAccounts(Long customerId, String accountKind) {
+        List<ChannelAccountView> accounts = viewRepository.findByCustomerIdAndAccountKind(customerId, accountKind);
+        if (accounts.isEmpty()) {
+            accounts = SAVINGS.equals(accountKind)
+                    ? jdbcTemplate.query(String.format(SAVINGS_SELECT, recentCount, "AND a.customer_id = ?"), VIEW_ROW, customerId)
+                    : jdbcTemplate.query(String.format(LOAN_SELECT, recentCount, "AND la.customer_id = ?"), VIEW_ROW,
+                            String.valueOf(customerId));
+        }
+        return accounts;
+    }
+
+    /**
+     * Reads an account's row, or builds it from the source tables without storing it when the
+     * account has none yet.
+     */
+    public Optional<ChannelAccountView> getAccount(String accountKind, Long accountId) {
+        Optional<ChannelAccountView> view = viewRepository.findByAccountKindAndAccountId(accountKind, accountId);
+        if (view.isEmpty()) {
+            view = jdbcTemplate.query(String.format(SAVINGS.equals(accountKind) ? SAVINGS_SELECT : LOAN_SELECT, recentCount,
+                    SAVINGS.equals(accountKind) ? "AND a.id = ?" : "AND la.account_id = ?"), VIEW_ROW, accountId)
+                    .stream().findFirst();
+        }
+        return view;
+    }
+
+    public List<TransactionDto> recentTransactions(ChannelAccountView view, int limit) {
+        if (view.getRecentTransactions() == null || view.getRecentTransactions().isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            List<TransactionDto> transactions = objectMapper.readValue(view.getRecentTransactions(), TRANSACTIONS);
+            return transactions.size() > limit ? transactions.subList(0, limit) : transactions;
+        } catch (Exception e) {
+            log.warn("Unreadable recent transactions on {} account {}: {}", view.getAccountKind(), view.getAccountId(), e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+}
@@ -1,23 +1,26 @@
 package com.example.demo.mobile.services;
 
+import com.example.demo.config.DataSourceRoute;
 import com.example.demo.customerManagement.parsistence.entities.Customer;
 import com.example.demo.customerManagement.parsistence.repositories.CustomerRepository;
 import com.example.demo.mobile.dto.*;
+import com.example.demo.mobile.persistence.entities.ChannelAccountView;
+import com.example.demo.reports.models.StatementPage;
+import com.example.demo.reports.services.StatementQueryService;
 import com.example.demo.savingsManagement.persistence.entities.SavingsAccount;
 import com.example.demo.savingsManagement.persistence.repositories.SavingsAccountRepository;
+import com.example.demo.savingsManagement.services.SavingsLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -29,6 +32,9 @@ public class MobileAccountService {
 
     private final SavingsAccountRepository savingsAccountRepository;
     private final CustomerRepository customerRepository;
+    private final SavingsLedgerService ledgerService;
+    private final ChannelReadModelService channelReadModelService;
+    private final StatementQueryService statementQueryService;
 
     public List<AccountSummaryDto> getMemberAccounts(String memberId) {
         log.info("Fetching accounts for member: {}", memberId);
@@ -43,29 +49,23 @@ public class MobileAccountService {
     public BalanceDto getAccountBalance(String accountId, String memberId) {
         log.info("Fetching balance for account: {}", accountId);
         
-        SavingsAccount account = savingsAccountRepository.findById(Long.valueOf(accountId))
-                .orElseThrow(() -> new RuntimeException("Account not found"));
-        
-        // Verify ownership
-        if (!account.getCustomerId().equals(Long.valueOf(memberId))) {
-            throw new RuntimeException("Unauthorized access to account");
-        }
+        ChannelAccountView account = getOwnedView(accountId, memberId, "Unauthorized access to account");
         
         return BalanceDto.builder()
-                .accountId(account.getId().toString())
+                .accountId(account.getAccountId().toString())
                 .accountNumber(account.getAccountNumber())
-                .accountType(account.getAccountType())
+                .accountType(account.getAccountName())
                 .currentBalance(account.getBalance())
-                .availableBalance(account.getBalance())
+                .availableBalance(account.getAvailableBalance())
                 .pendingDebits(BigDecimal.ZERO)
                 .pendingCredits(BigDecimal.ZERO)
                 .currency("KES")
-                .asOfDate(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .asOfDate(account.getRefreshedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
                 .build();
     }
 
-    public Page<TransactionDto> getAccountStatement(String accountId, String memberId, 
-                                                    String startDate, String endDate, Pageable pageable) {
+    public StatementPage getAccountStatement(String accountId, String memberId,
+                                             String startDate, String endDate, String cursor, int size) {
         log.info("Fetching statement for account: {}", accountId);
         
         SavingsAccount account = savingsAccountRepository.findById(Long.valueOf(accountId))
@@ -75,26 +75,40 @@ public class MobileAccountService {
             throw new RuntimeException("Unauthorized access");
         }
         
-        List<TransactionDto> transactions = generateMockTransactions(accountId);
-        
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), transactions.size());
-        
-        return new PageImpl<>(transactions.subList(start, end), pageable, transactions.size());
+        // a member checks the statement right after a deposit; a lagging replica would not show it yet
+        return DataSourceRoute.call(DataSourceRoute.OLTP, () -> statementQueryService.getStatement(
+                StatementQueryService.SAVINGS, account.getId(), parseDate(startDate), parseDate(endDate), cursor, size));
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date == null || date.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + date);
+        }
     }
 
     public List<TransactionDto> getMiniStatement(String accountId, String memberId) {
         log.info("Fetching mini statement for account: {}", accountId);
         
-        SavingsAccount account = savingsAccountRepository.findById(Long.valueOf(accountId))
+        ChannelAccountView account = getOwnedView(accountId, memberId, "Unauthorized access");
+        return channelReadModelService.recentTransactions(account, 5);
+    }
+
+    /**
+     * Reads the savings account's channel view row and checks it belongs to the member.
+     */
+    private ChannelAccountView getOwnedView(String accountId, String memberId, String unauthorizedMessage) {
+        ChannelAccountView account = channelReadModelService
+                .getAccount(ChannelReadModelService.SAVINGS, Long.valueOf(accountId))
                 .orElseThrow(() -> new RuntimeException("Account not found"));
-        
         if (!account.getCustomerId().equals(Long.valueOf(memberId))) {
-            throw new RuntimeException("Unauthorized access");
+            throw new RuntimeException(unauthorizedMessage);
         }
-        
-        List<TransactionDto> transactions = generateMockTransactions(accountId);
-        return transactions.stream().limit(5).collect(Collectors.toList());
+        return account;
     }
 
     @Transactional
@@ -115,11 +129,10 @@ public class MobileAccountService {
             throw new RuntimeException("Unauthorized access");
         }
         
-        BigDecimal newBalance = account.getBalance().add(request.getAmount());
-        account.setBalance(newBalance);
-        savingsAccountRepository.save(account);
-        
         String transactionRef = "DEP" + System.currentTimeMillis();
+        BigDecimal newBalance = ledgerService.credit(account.getId(), request.getAmount());
+        ledgerService.record(account.getId(), "DEPOSIT", request.getAmount(), newBalance,
+                "MOBILE", transactionRef, "Mobile deposit", memberId);
         
         log.info("Deposit successful. New balance: {}", newBalance);
         
@@ -153,15 +166,10 @@ public class MobileAccountService {
             throw new RuntimeException("Unauthorized access");
         }
         
-        if (account.getBalance().compareTo(request.getAmount()) < 0) {
-            throw new RuntimeException("Insufficient balance");
-        }
-        
-        BigDecimal newBalance = account.getBalance().subtract(request.getAmount());
-        account.setBalance(newBalance);
-        savingsAccountRepository.save(account);
-        
         String transactionRef = "WDR" + System.currentTimeMillis();
+        BigDecimal newBalance = ledgerService.debit(account.getId(), request.getAmount());
+        ledgerService.record(account.getId(), "WITHDRAWAL", request.getAmount(), newBalance,
+                "MOBILE", transactionRef, "Mobile withdrawal", memberId);
         
         log.info("Withdrawal successful. New balance: {}", newBalance);
         
@@ -196,22 +204,32 @@ public class MobileAccountService {
             throw new RuntimeException("Unauthorized access to source account");
         }
         
-        if (fromAccount.getBalance().compareTo(request.getAmount()) < 0) {
-            throw new RuntimeException("Insufficient balance");
-        }
-        
         SavingsAccount toAccount = savingsAccountRepository.findById(Long.valueOf(request.getToAccountId()))
                 .orElseThrow(() -> new RuntimeException("Destination account not found"));
         
-        fromAccount.setBalance(fromAccount.getBalance().subtract(request.getAmount()));
-        toAccount.setBalance(toAccount.getBalance().add(request.getAmount()));
-        
-        savingsAccountRepository.save(fromAccount);
-        savingsAccountRepository.save(toAccount);
+        if (fromAccount.getId().equals(toAccount.getId())) {
+            throw new RuntimeException("Cannot transfer to the same account");
+        }
         
         String transactionRef = "TRF" + System.currentTimeMillis();
+        BigDecimal amount = request.getAmount();
+        
+        // Post to the lower account id first so opposing transfers lock rows in the same order
+        BigDecimal newBalance;
+        BigDecimal toBalance;
+        if (fromAccount.getId() < toAccount.getId()) {
+            newBalance = ledgerService.debit(fromAccount.getId(), amount);
+            toBalance = ledgerService.credit(toAccount.getId(), amount);
+        } else {
+            toBalance = ledgerService.credit(toAccount.getId(), amount);
+            newBalance = ledgerService.debit(fromAccount.getId(), amount);
+        }
+        ledgerService.record(fromAccount.getId(), "TRANSFER_OUT", amount, newBalance,
+                "MOBILE", transactionRef, "Transfer to " + toAccount.getAccountNumber(), memberId);
+        ledgerService.record(toAccount.getId(), "TRANSFER_IN", amount, toBalance,
+                "MOBILE", transactionRef, "Transfer from " + fromAccount.getAccountNumber(), memberId);
         
-        log.info("Transfer successful. New balance: {}", fromAccount.getBalance());
+        log.info("Transfer successful. New balance: {}", newBalance);
         
         return TransactionResponseDto.builder()
                 .success(true)
@@ -219,7 +237,7 @@ public class MobileAccountService {
                 .transactionRef(transactionRef)
                 .message("Transfer successful")
                 .amount(request.getAmount())
-                .newBalance(fromAccount.getBalance())
+                .newBalance(newBalance)
                 .transactionDate(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
                 .receiptNumber(transactionRef)
                 .build();
@@ -239,32 +257,6 @@ public class MobileAccountService {
                 .build();
     }
 
-    private List<TransactionDto> generateMockTransactions(String accountId) {
-        List<TransactionDto> transactions = new ArrayList<>();
-        BigDecimal balance = BigDecimal.valueOf(45000);
-        
-        for (int i = 0; i < 10; i++) {
-            BigDecimal amount = BigDecimal.valueOf((i + 1) * 1000);
-            balance = balance.add(amount);
-            
-            transactions.add(TransactionDto.builder()
-                    .transactionId(UUID.randomUUID().toString())
-                    .transactionDate(LocalDateTime.now().minusDays(i).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
-                    .transactionType(i % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL")
-                    .description("Transaction " + (i + 1))
-                    .amount(amount)
-                    .debitCredit(i % 2 == 0 ? "CR" : "DR")
-                    .balanceBefore(balance.subtract(amount))
-                    .balanceAfter(balance)
-                    .reference("TXN" + System.currentTimeMillis() + i)
-                    .status("COMPLETED")
-                    .channel("MOBILE")
-                    .build());
-        }
-        
-        return transactions;
-    }
-
     private boolean verifyPin(String pin, String hashedPin) {
         if (hashedPin == null) return false;
         return BCrypt.checkpw(pin, hashedPin);
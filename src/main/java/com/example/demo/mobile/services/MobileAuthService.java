@@ -3,7 +3,10 @@ package com.example.demo.mobile.services;
 import com.example.demo.customerManagement.parsistence.entities.Customer;
 import com.example.demo.customerManagement.parsistence.repositories.CustomerRepository;
 import com.example.demo.mobile.dto.*;
+import com.example.demo.security.ClientIp;
 import com.example.demo.security.JwtTokenProvider;
+import com.example.demo.security.LoginThrottle;
+import com.example.demo.userManagements.serviceImplementation.LoginHistoryRecorder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.bcrypt.BCrypt;
@@ -21,30 +24,66 @@ public class MobileAuthService {
     private final CustomerRepository customerRepository;
     private final JwtTokenProvider jwtTokenProvider;
     private final OtpService otpService;
+    private final LoginThrottle loginThrottle;
+    private final LoginHistoryRecorder loginHistoryRecorder;
 
-    @Transactional
+    private static final String MOBILE = "mobile";
+    private static final int MAX_PIN_ATTEMPTS = 3;
+
+    /**
+     * Throttled PIN login. Abusive attempts are rejected before the lookup and bcrypt check, a
+     * successful login is a single targeted update, and history is written in batches later.
+     */
     public AuthResponse login(LoginRequest request) {
         log.info("Processing login for phone: {}", request.getPhoneNumber());
+        long started = System.nanoTime();
+        try {
+            return doLogin(request);
+        } finally {
+            loginThrottle.recordLatency(started);
+        }
+    }
+
+    private AuthResponse doLogin(LoginRequest request) {
+        String phone = request.getPhoneNumber();
+        String ip = ClientIp.resolve();
+        if (loginThrottle.isBlocked(MOBILE, phone, ip)) {
+            loginHistoryRecorder.record(phone, "THROTTLED", ip);
+            throw new RuntimeException("Too many login attempts. Please try again later.");
+        }
         
         // Find customer by phone
-        Customer customer = customerRepository.findByPhoneNumber(request.getPhoneNumber())
-                .orElseThrow(() -> new RuntimeException("Invalid phone number or PIN"));
+        Customer customer = customerRepository.findByPhoneNumber(phone).orElse(null);
+        if (customer == null) {
+            loginThrottle.recordFailure(MOBILE, phone, ip);
+            loginHistoryRecorder.record(phone, "FAILED", ip);
+            throw new RuntimeException("Invalid phone number or PIN");
+        }
+        int failedAttempts = customer.getFailedPinAttempts() != null ? customer.getFailedPinAttempts() : 0;
+        if (failedAttempts >= MAX_PIN_ATTEMPTS) {
+            loginHistoryRecorder.record(phone, "LOCKED", ip);
+            throw new RuntimeException("Account locked due to multiple failed attempts");
+        }
         
         // Verify PIN
         if (!verifyPin(request.getPin(), customer.getPinHash())) {
-            customer.setFailedPinAttempts(customer.getFailedPinAttempts() + 1);
-            customerRepository.save(customer);
+            customerRepository.incrementFailedPinAttempts(customer.getId());
+            loginThrottle.recordFailure(MOBILE, phone, ip);
+            loginHistoryRecorder.record(phone, "FAILED", ip);
             
-            if (customer.getFailedPinAttempts() >= 3) {
+            if (failedAttempts + 1 >= MAX_PIN_ATTEMPTS) {
                 throw new RuntimeException("Account locked due to multiple failed attempts");
             }
             throw new RuntimeException("Invalid phone number or PIN");
         }
         
-        // Reset failed attempts on successful login
+        // Reset failed attempts and stamp the login in one write
+        LocalDateTime now = LocalDateTime.now();
+        customerRepository.recordSuccessfulLogin(customer.getId(), now);
         customer.setFailedPinAttempts(0);
-        customer.setLastLogin(LocalDateTime.now());
-        customerRepository.save(customer);
+        customer.setLastLogin(now);
+        loginThrottle.recordSuccess(MOBILE, phone);
+        loginHistoryRecorder.record(phone, "SUCCESS", ip);
         
         // Generate tokens
         String accessToken = jwtTokenProvider.generateAccessToken(customer.getId().toString());
@@ -109,14 +148,15 @@ public class MobileAuthService {
     public void verifyOtp(OtpVerificationRequest request) {
         log.info("Verifying OTP for phone: {}", request.getPhoneNumber());
         
-        boolean verified = otpService.verifyOtp(request.getPhoneNumber(), request.getOtp());
+        String purpose = request.getVerificationType() != null ? request.getVerificationType() : "REGISTRATION";
+        boolean verified = otpService.verifyOtp(request.getPhoneNumber(), purpose, request.getOtp());
         
         if (!verified) {
             throw new RuntimeException("Invalid or expired OTP");
         }
         
         // Update customer status if registration verification
-        if ("REGISTRATION".equals(request.getVerificationType())) {
+        if ("REGISTRATION".equals(purpose)) {
             Customer customer = customerRepository.findByPhoneNumber(request.getPhoneNumber())
                     .orElseThrow(() -> new RuntimeException("Customer not found"));
             customer.setStatus("ACTIVE");
@@ -140,7 +180,7 @@ public class MobileAuthService {
         log.info("Resetting PIN for: {}", request.getPhoneNumber());
         
         // Verify OTP
-        boolean verified = otpService.verifyOtp(request.getPhoneNumber(), request.getOtp());
+        boolean verified = otpService.verifyOtp(request.getPhoneNumber(), "PIN_RESET", request.getOtp());
         if (!verified) {
             throw new RuntimeException("Invalid or expired OTP");
         }
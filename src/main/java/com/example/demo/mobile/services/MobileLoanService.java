@@ -2,13 +2,16 @@ package com.example.demo.mobile.services;
 
 import com.example.demo.customerManagement.parsistence.entities.Customer;
 import com.example.demo.customerManagement.parsistence.repositories.CustomerRepository;
+import com.example.demo.loanManagement.parsistence.entities.EligibilitySnapshot;
 import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
 import com.example.demo.loanManagement.parsistence.entities.LoanApplication;
 import com.example.demo.loanManagement.parsistence.entities.Products;
 import com.example.demo.loanManagement.parsistence.repositories.ApplicationRepo;
 import com.example.demo.loanManagement.parsistence.repositories.LoanAccountRepo;
 import com.example.demo.loanManagement.parsistence.repositories.ProductRepo;
+import com.example.demo.loanManagement.services.EligibilitySnapshotService;
 import com.example.demo.mobile.dto.*;
+import com.example.demo.system.services.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.bcrypt.BCrypt;
@@ -21,6 +24,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -29,10 +33,20 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MobileLoanService {
 
+    private static final List<String> LOAN_REQUIREMENTS = Arrays.asList(
+            "Active SACCO membership",
+            "Minimum 6 months membership",
+            "Regular savings contributions",
+            "Good repayment history",
+            "Valid identification"
+    );
+
     private final LoanAccountRepo loanAccountRepo;
     private final ApplicationRepo applicationRepo;
     private final ProductRepo productRepo;
     private final CustomerRepository customerRepository;
+    private final EligibilitySnapshotService eligibilitySnapshotService;
+    private final IdGenerator idGenerator;
 
     public List<LoanSummaryDto> getMemberLoans(String memberId) {
         log.info("Fetching loans for member: {}", memberId);
@@ -86,6 +100,12 @@ public class MobileLoanService {
     public EligibilityResponseDto checkLoanEligibility(String memberId, String productId) {
         log.info("Checking loan eligibility for member: {}, product: {}", memberId, productId);
         
+        Optional<EligibilitySnapshot> snapshot = eligibilitySnapshotService
+                .findByCustomerAndProduct(memberId, Long.valueOf(productId));
+        if (snapshot.isPresent()) {
+            return toEligibilityResponse(snapshot.get());
+        }
+        
         Customer customer = customerRepository.findById(Long.valueOf(memberId))
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
         
@@ -124,20 +144,56 @@ public class MobileLoanService {
         BigDecimal maxLoanAmount = BigDecimal.valueOf(product.getMaxLimit());
         BigDecimal recommendedAmount = maxLoanAmount.multiply(BigDecimal.valueOf(0.7));
         
-        List<String> requirements = Arrays.asList(
-                "Active SACCO membership",
-                "Minimum 6 months membership",
-                "Regular savings contributions",
-                "Good repayment history",
-                "Valid identification"
-        );
+        return EligibilityResponseDto.builder()
+                .eligible(eligible)
+                .maxLoanAmount(maxLoanAmount)
+                .recommendedAmount(recommendedAmount)
+                .reason(reason)
+                .requirements(LOAN_REQUIREMENTS)
+                .missingRequirements(missingRequirements)
+                .existingLoanBalance(existingBalance)
+                .creditScore(eligible ? 750 : 650)
+                .build();
+    }
+
+    private EligibilityResponseDto toEligibilityResponse(EligibilitySnapshot snapshot) {
+        boolean eligible = true;
+        List<String> missingRequirements = new ArrayList<>();
+        String reason = "Eligible for loan";
+        BigDecimal existingBalance = snapshot.getOutstandingBalance() != null
+                ? snapshot.getOutstandingBalance() : BigDecimal.ZERO;
+        
+        if (Boolean.FALSE.equals(snapshot.getSubscriptionActive())) {
+            eligible = false;
+            reason = "Product subscription is inactive";
+            missingRequirements.add("Reactivate your product subscription");
+        }
+        
+        if (snapshot.getActiveLoanCount() >= 3) {
+            eligible = false;
+            reason = "Maximum number of active loans reached (3)";
+            missingRequirements.add("Clear at least one existing loan");
+        }
+        
+        if (existingBalance.compareTo(BigDecimal.valueOf(500000)) > 0) {
+            eligible = false;
+            reason = "Outstanding loan balance too high";
+            missingRequirements.add("Reduce existing loan balance below KES 500,000");
+        }
+        
+        int limit = snapshot.getCreditLimit() != null ? snapshot.getCreditLimit() : 0;
+        if (snapshot.getMaxLimit() != null) {
+            limit = Math.min(limit, snapshot.getMaxLimit());
+        }
+        BigDecimal maxLoanAmount = BigDecimal.valueOf(limit);
+        BigDecimal recommendedAmount = maxLoanAmount.multiply(BigDecimal.valueOf(0.7));
         
         return EligibilityResponseDto.builder()
                 .eligible(eligible)
                 .maxLoanAmount(maxLoanAmount)
                 .recommendedAmount(recommendedAmount)
                 .reason(reason)
-                .requirements(requirements)
+                .requirements(LOAN_REQUIREMENTS)
                 .missingRequirements(missingRequirements)
                 .existingLoanBalance(existingBalance)
                 .creditScore(eligible ? 750 : 650)
@@ -173,7 +229,7 @@ public class MobileLoanService {
         application.setLoanInterest(product.getInterest().toString());
         application.setApplicationStatus("NEW");
         application.setApplicationTime(LocalDateTime.now());
-        application.setLoanNumber(System.currentTimeMillis());
+        application.setLoanNumber(idGenerator.nextLoanNumber());
         application.setDestinationAccount(customer.getPhoneNumber());
         application.setDisbursementType("MPESA");
         application.setCreditLimit("0");
@@ -295,7 +351,7 @@ public class MobileLoanService {
         application.setLoanAmount(request.getTopUpAmount().toString());
         application.setApplicationStatus("NEW");
         application.setApplicationTime(LocalDateTime.now());
-        application.setLoanNumber(System.currentTimeMillis());
+        application.setLoanNumber(idGenerator.nextLoanNumber());
         application.setDestinationAccount(customer.getPhoneNumber());
         application.setDisbursementType("MPESA");
         
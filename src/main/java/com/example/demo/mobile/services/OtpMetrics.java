@@ -0,0 +1,85 @@
+package com.example.demo.mobile.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process OTP counters: codes issued (with a one-minute issue rate), requests rejected by the
+ * issue and verify limits, verification outcomes and lockouts. Cumulative since startup.
+ */
+@Component
+public class OtpMetrics {
+
+    private static final int WINDOW_SECONDS = 60;
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder issueThrottled = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder verifyFailed = new LongAdder();
+    private final LongAdder verifyThrottled = new LongAdder();
+    private final LongAdder lockouts = new LongAdder();
+    private final LongAdder lockedRejections = new LongAdder();
+
+    // per-second issue counts for the last minute, indexed by epoch second modulo the window
+    private final AtomicLongArray issueSeconds = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray issueCounts = new AtomicLongArray(WINDOW_SECONDS);
+
+    public void issued() {
+        issued.increment();
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % WINDOW_SECONDS);
+        long stamp = issueSeconds.get(slot);
+        if (stamp != second && issueSeconds.compareAndSet(slot, stamp, second)) {
+            issueCounts.set(slot, 0);
+        }
+        issueCounts.incrementAndGet(slot);
+    }
+
+    public void issueThrottled() {
+        issueThrottled.increment();
+    }
+
+    public void verified() {
+        verified.increment();
+    }
+
+    public void verifyFailed() {
+        verifyFailed.increment();
+    }
+
+    public void verifyThrottled() {
+        verifyThrottled.increment();
+    }
+
+    public void lockout() {
+        lockouts.increment();
+    }
+
+    public void lockedRejection() {
+        lockedRejections.increment();
+    }
+
+    public Map<String, Object> snapshot() {
+        long now = System.currentTimeMillis() / 1000;
+        long lastMinute = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (now - issueSeconds.get(i) < WINDOW_SECONDS) {
+                lastMinute += issueCounts.get(i);
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("issued", issued.sum());
+        result.put("issuedLastMinute", lastMinute);
+        result.put("issueThrottled", issueThrottled.sum());
+        result.put("verified", verified.sum());
+        result.put("verifyFailed", verifyFailed.sum());
+        result.put("verifyThrottled", verifyThrottled.sum());
+        result.put("lockouts", lockouts.sum());
+        result.put("lockedRejections", lockedRejections.sum());
+        return result;
+    }
+}
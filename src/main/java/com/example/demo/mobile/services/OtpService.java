@@ -1,61 +1,204 @@
 package com.example.demo.mobile.services;
 
-import lombok.RequiredArgsConstructor;
+import com.example.demo.security.ClientIp;
+import com.example.demo.sms.SmsService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
-import java.util.Random;
-import java.util.concurrent.TimeUnit;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
+/**
+ * One-time passwords for registration and PIN reset.
+ * Each phone and purpose has a single Redis hash {@code otp:<purpose>:<phone>} holding a digest of
+ * the code and the failed attempt count; verification checks and consumes it atomically in a Lua
+ * script. Issue and verify requests are limited per phone and per client IP with sliding windows.
+ * Only a code that was checked and failed counts towards the lockout: a phone that exhausts its
+ * attempts on one code is locked out for a while, a throttled request is just refused.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class OtpService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
     private static final String OTP_PREFIX = "otp:";
-    private static final int OTP_EXPIRY_MINUTES = 5;
+    private static final String LOCK_PREFIX = "otp:lock:";
+    private static final String LIMIT_PREFIX = "otp:rl:";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Replaces the code for the key and resets its attempt count.
+     * KEYS[1] code key; ARGV[1] digest, ARGV[2] ttl ms.
+     */
+    private static final DefaultRedisScript<Long> ISSUE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('HSET', KEYS[1], 'c', ARGV[1], 'a', 0) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    /**
+     * Verify-and-consume. Returns 1 on match (key deleted), 0 on mismatch, -1 when there is no code,
+     * -2 when the mismatch used up the last attempt (key deleted).
+     * KEYS[1] code key; ARGV[1] digest, ARGV[2] max attempts.
+     */
+    private static final DefaultRedisScript<Long> VERIFY_SCRIPT = new DefaultRedisScript<>(
+            "local stored = redis.call('HGET', KEYS[1], 'c') " +
+            "if not stored then return -1 end " +
+            "if stored == ARGV[1] then redis.call('DEL', KEYS[1]) return 1 end " +
+            "local attempts = redis.call('HINCRBY', KEYS[1], 'a', 1) " +
+            "if attempts >= tonumber(ARGV[2]) then redis.call('DEL', KEYS[1]) return -2 end " +
+            "return 0", Long.class);
+
+    /**
+     * Sliding-window limiter over several sorted sets at once. Returns 0 when the request is admitted
+     * (and recorded in every window), otherwise the 1-based index of the first full window.
+     * KEYS window keys; ARGV[1] now ms, ARGV[2] window ms, ARGV[3] request id, ARGV[4..] limit per key.
+     */
+    private static final DefaultRedisScript<Long> LIMIT_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) " +
+            "local window = tonumber(ARGV[2]) " +
+            "for i, key in ipairs(KEYS) do " +
+            "  redis.call('ZREMRANGEBYSCORE', key, 0, now - window) " +
+            "  if redis.call('ZCARD', key) >= tonumber(ARGV[3 + i]) then return i end " +
+            "end " +
+            "for _, key in ipairs(KEYS) do " +
+            "  redis.call('ZADD', key, now, ARGV[3]) " +
+            "  redis.call('PEXPIRE', key, window) " +
+            "end " +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final SmsService smsService;
+    private final OtpMetrics metrics;
+
+    @Value("${otp.expiry-minutes:5}")
+    private long expiryMinutes;
+
+    @Value("${otp.max-verify-attempts:5}")
+    private int maxVerifyAttempts;
+
+    @Value("${otp.lockout-minutes:30}")
+    private long lockoutMinutes;
+
+    @Value("${otp.limit.window-minutes:15}")
+    private long limitWindowMinutes;
+
+    @Value("${otp.limit.issue-per-phone:3}")
+    private int issuePerPhone;
+
+    @Value("${otp.limit.issue-per-ip:20}")
+    private int issuePerIp;
+
+    @Value("${otp.limit.verify-per-phone:10}")
+    private int verifyPerPhone;
+
+    @Value("${otp.limit.verify-per-ip:50}")
+    private int verifyPerIp;
+
+    public OtpService(StringRedisTemplate redisTemplate, SmsService smsService, OtpMetrics metrics) {
+        this.redisTemplate = redisTemplate;
+        this.smsService = smsService;
+        this.metrics = metrics;
+    }
 
     public void generateAndSendOtp(String phoneNumber, String type) {
-        String otp = generateOTP();
-        String key = OTP_PREFIX + phoneNumber + ":" + type;
-        
-        // Store OTP in Redis
-        redisTemplate.opsForValue().set(key, otp, OTP_EXPIRY_MINUTES, TimeUnit.MINUTES);
-        
-        // Send SMS (implementation depends on SMS provider)
-        sendOtpSms(phoneNumber, otp);
-        
-        log.info("OTP generated and sent to: {}", phoneNumber);
-    }
-
-    public boolean verifyOtp(String phoneNumber, String otp) {
-        String key = OTP_PREFIX + phoneNumber + ":*";
-        
-        // In production, search for the specific type
-        String storedOtp = (String) redisTemplate.opsForValue().get(OTP_PREFIX + phoneNumber + ":REGISTRATION");
-        if (storedOtp == null) {
-            storedOtp = (String) redisTemplate.opsForValue().get(OTP_PREFIX + phoneNumber + ":PIN_RESET");
+        rejectIfLocked(phoneNumber);
+        if (!admit("issue", phoneNumber, issuePerPhone, issuePerIp)) {
+            metrics.issueThrottled();
+            log.warn("OTP issue throttled for {}", phoneNumber);
+            throw new RuntimeException("Too many OTP requests. Please try again later.");
+        }
+
+        String otp = String.format("%06d", RANDOM.nextInt(1_000_000));
+        redisTemplate.execute(ISSUE_SCRIPT, List.of(otpKey(phoneNumber, type)),
+                digest(phoneNumber, otp), String.valueOf(expiryMinutes * 60_000));
+        metrics.issued();
+
+        smsService.sendSmsTest(phoneNumber, "Your verification code is " + otp + ". It expires in "
+                + expiryMinutes + " minutes. Do not share it with anyone.");
+        log.info("OTP ({}) generated and sent to: {}", type, phoneNumber);
+    }
+
+    /**
+     * Checks {@code otp} against the code issued to the phone for {@code type} and consumes it on match.
+     */
+    public boolean verifyOtp(String phoneNumber, String type, String otp) {
+        rejectIfLocked(phoneNumber);
+        if (!admit("verify", phoneNumber, verifyPerPhone, verifyPerIp)) {
+            metrics.verifyThrottled();
+            throw new RuntimeException("Too many verification attempts. Please try again later.");
         }
-        
-        if (storedOtp != null && storedOtp.equals(otp)) {
-            // Delete OTP after successful verification
-            redisTemplate.delete(key);
+
+        Long result = redisTemplate.execute(VERIFY_SCRIPT, List.of(otpKey(phoneNumber, type)),
+                digest(phoneNumber, otp), String.valueOf(maxVerifyAttempts));
+        if (result != null && result == 1L) {
+            metrics.verified();
             return true;
         }
-        
+        metrics.verifyFailed();
+        if (result != null && result == -2L) {
+            lock(phoneNumber);
+        }
         return false;
     }
 
-    private String generateOTP() {
-        Random random = new Random();
-        return String.format("%06d", random.nextInt(999999));
+    public Map<String, Object> getMetrics() {
+        return metrics.snapshot();
+    }
+
+    private void rejectIfLocked(String phoneNumber) {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(LOCK_PREFIX + phoneNumber))) {
+            metrics.lockedRejection();
+            throw new RuntimeException("Too many failed attempts. Please try again later.");
+        }
+    }
+
+    private void lock(String phoneNumber) {
+        redisTemplate.opsForValue().set(LOCK_PREFIX + phoneNumber, "1", Duration.ofMinutes(lockoutMinutes));
+        metrics.lockout();
+        log.warn("OTP locked out for {} for {} minutes", phoneNumber, lockoutMinutes);
+    }
+
+    private boolean admit(String action, String phoneNumber, int perPhone, int perIp) {
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(limitWindowMinutes * 60_000));
+        args.add(UUID.randomUUID().toString());
+        keys.add(LIMIT_PREFIX + action + ":phone:" + phoneNumber);
+        args.add(String.valueOf(perPhone));
+        String ip = ClientIp.resolve();
+        if (ip != null) {
+            keys.add(LIMIT_PREFIX + action + ":ip:" + ip);
+            args.add(String.valueOf(perIp));
+        }
+        Long result = redisTemplate.execute(LIMIT_SCRIPT, keys, args.toArray());
+        return result != null && result == 0L;
+    }
+
+    private static String otpKey(String phoneNumber, String type) {
+        return OTP_PREFIX + type + ":" + phoneNumber;
     }
 
-    private void sendOtpSms(String phoneNumber, String otp) {
-        // Integration with SMS provider (Africa's Talking, Twilio, etc.)
-        log.info("Sending OTP {} to {}", otp, phoneNumber);
-        // smsService.send(phoneNumber, "Your OTP is: " + otp);
+    /**
+     * Only a digest of the code is stored, salted with the phone number.
+     */
+    private static String digest(String phoneNumber, String otp) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest((phoneNumber + ":" + otp).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
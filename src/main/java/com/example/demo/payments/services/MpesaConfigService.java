@@ -3,6 +3,8 @@ package com.example.demo.payments.services;
 import com.example.demo.payments.dto.*;
 import com.example.demo.payments.entities.MpesaConfig;
 import com.example.demo.payments.repositories.MpesaConfigRepository;
+import com.example.demo.system.cache.ReferenceCache;
+import com.example.demo.system.cache.ReferenceDataCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
@@ -22,6 +24,7 @@ public class MpesaConfigService {
     
     private final MpesaConfigRepository configRepository;
     private final RestTemplate restTemplate;
+    private final ReferenceDataCache referenceDataCache;
     
     /**
      * Get all M-PESA configurations
@@ -45,22 +48,23 @@ public class MpesaConfigService {
      * Get default configuration
      */
     public MpesaConfig getDefaultConfiguration() {
-        return configRepository.findByDefaultConfigTrue()
+        return cache().get("default", k -> configRepository.findByDefaultConfigTrue().orElse(null))
             .orElseThrow(() -> new RuntimeException("No default M-PESA configuration found"));
     }
 
     /**
      * Resolve an active configuration based on optional identifiers.
      * Falls back to the default configuration when none is provided or selected config is inactive.
+     * Served from the reference-data cache; each caller gets its own detached copy.
      */
     public MpesaConfig getActiveConfiguration(Long configId, String providerCode) {
         MpesaConfig config = null;
 
         if (configId != null) {
-            config = configRepository.findById(configId)
+            config = cache().get("id:" + configId, k -> configRepository.findById(configId).orElse(null))
                 .orElseThrow(() -> new RuntimeException("M-PESA configuration not found with ID: " + configId));
         } else if (StringUtils.hasText(providerCode)) {
-            config = configRepository.findByConfigName(providerCode)
+            config = cache().get("code:" + providerCode, k -> configRepository.findByConfigName(providerCode).orElse(null))
                 .orElseThrow(() -> new RuntimeException("M-PESA configuration not found with code: " + providerCode));
         } else {
             config = getDefaultConfiguration();
@@ -77,6 +81,20 @@ public class MpesaConfigService {
 
         return config;
     }
+
+    /**
+     * Stores the C2B URLs accepted by Daraja on the configuration.
+     */
+    @Transactional
+    public void recordRegisteredUrls(Long id, String validationUrl, String confirmationUrl) {
+        configRepository.findById(id).ifPresent(config -> {
+            config.setValidationUrl(validationUrl);
+            config.setConfirmationUrl(confirmationUrl);
+            config.setPaybillCallbackUrl(confirmationUrl);
+            configRepository.save(config);
+            referenceDataCache.invalidate(ReferenceDataCache.MPESA_CONFIG);
+        });
+    }
     
     /**
      * Create new configuration
@@ -102,6 +120,7 @@ public class MpesaConfigService {
         
         config = configRepository.save(config);
         log.info("M-PESA configuration created with ID: {}", config.getId());
+        referenceDataCache.invalidate(ReferenceDataCache.MPESA_CONFIG);
         
         return MpesaConfigDTO.fromEntity(config, true);
     }
@@ -126,6 +145,7 @@ public class MpesaConfigService {
         
         config = configRepository.save(config);
         log.info("M-PESA configuration updated: {}", id);
+        referenceDataCache.invalidate(ReferenceDataCache.MPESA_CONFIG);
         
         return MpesaConfigDTO.fromEntity(config, true);
     }
@@ -146,6 +166,7 @@ public class MpesaConfigService {
         
         configRepository.delete(config);
         log.info("M-PESA configuration deleted: {}", id);
+        referenceDataCache.invalidate(ReferenceDataCache.MPESA_CONFIG);
     }
     
     /**
@@ -158,6 +179,7 @@ public class MpesaConfigService {
         
         config.setActive(!config.getActive());
         config = configRepository.save(config);
+        referenceDataCache.invalidate(ReferenceDataCache.MPESA_CONFIG);
         
         return MpesaConfigDTO.fromEntity(config, true);
     }
@@ -173,6 +195,7 @@ public class MpesaConfigService {
         unsetAllDefaults();
         config.setDefaultConfig(true);
         config = configRepository.save(config);
+        referenceDataCache.invalidate(ReferenceDataCache.MPESA_CONFIG);
         
         return MpesaConfigDTO.fromEntity(config, true);
     }
@@ -429,6 +452,10 @@ public class MpesaConfigService {
         config.setDescription(dto.getDescription());
     }
     
+    private ReferenceCache<String, MpesaConfig> cache() {
+        return referenceDataCache.entityCache(ReferenceDataCache.MPESA_CONFIG, MpesaConfig::new);
+    }
+
     private void unsetAllDefaults() {
         List<MpesaConfig> defaults = configRepository.findAll().stream()
             .filter(c -> Boolean.TRUE.equals(c.getDefaultConfig()))
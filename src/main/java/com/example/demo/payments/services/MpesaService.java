@@ -905,10 +905,7 @@ public class MpesaService {
                     log.info("Response: {}", responseDescription != null ? responseDescription : responseBody);
                     
                     // Update configuration with registered URLs
-                    config.setValidationUrl(validationUrl);
-                    config.setConfirmationUrl(confirmationUrl);
-                    config.setPaybillCallbackUrl(confirmationUrl);
-                    // Configuration will be saved automatically after this method returns
+                    mpesaConfigService.recordRegisteredUrls(config.getId(), validationUrl, confirmationUrl);
                     log.info("Configuration updated with registered URLs");
                     
                     return true;
@@ -22,8 +22,9 @@ public class FinancialReportsController {
     @GetMapping("/balance-sheet")
     @Operation(summary = "Generate Balance Sheet")
     public ResponseEntity<Map<String, Object>> getBalanceSheet(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOfDate) {
-        Map<String, Object> balanceSheet = financialReportsService.generateBalanceSheet(asOfDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOfDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate compareDate) {
+        Map<String, Object> balanceSheet = financialReportsService.generateBalanceSheet(asOfDate, compareDate);
         return ResponseEntity.ok(balanceSheet);
     }
 
@@ -31,8 +32,11 @@ public class FinancialReportsController {
     @Operation(summary = "Generate Profit & Loss Statement")
     public ResponseEntity<Map<String, Object>> getProfitLoss(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        Map<String, Object> profitLoss = financialReportsService.generateProfitLossStatement(startDate, endDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate compareStartDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate compareEndDate) {
+        Map<String, Object> profitLoss = financialReportsService.generateProfitLossStatement(
+                startDate, endDate, compareStartDate, compareEndDate);
         return ResponseEntity.ok(profitLoss);
     }
 
@@ -0,0 +1,93 @@
+package com.example.demo.reports.controllers;
+
+import com.example.demo.reports.models.MemberStatement;
+import com.example.demo.reports.services.MemberStatementService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/member-statements")
+@RequiredArgsConstructor
+@Tag(name = "Member Statements", description = "PDF member statements, on demand and for the whole membership at year end")
+public class MemberStatementsController {
+
+    private final MemberStatementService memberStatementService;
+
+    @GetMapping("/{customerId}")
+    @Operation(summary = "Stream a member's PDF statement; defaults to the year to date")
+    public ResponseEntity<StreamingResponseBody> statement(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        LocalDate to = endDate != null ? endDate : LocalDate.now();
+        LocalDate from = startDate != null ? startDate : to.withDayOfYear(1);
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<MemberStatement> statement = memberStatementService.load(customerId, from, to);
+        if (statement.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String fileName = "statement-" + customerId + "-" + from + "-" + to + ".pdf";
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(out -> memberStatementService.write(statement.get(), out));
+    }
+
+    @PostMapping("/runs/{year}")
+    @Operation(summary = "Generate year-end statements for every member")
+    public ResponseEntity<Map<String, Object>> startRun(@PathVariable int year, Authentication authentication) {
+        try {
+            MemberStatementService.StatementRun run = memberStatementService.startRun(year,
+                    authentication != null ? authentication.getName() : "system");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(run.describe());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/runs/{runId}")
+    @Operation(summary = "Progress and throughput of a year-end run")
+    public ResponseEntity<Map<String, Object>> run(@PathVariable String runId) {
+        return memberStatementService.getRun(runId)
+                .map(run -> ResponseEntity.ok(run.describe()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/years/{year}/{customerId}")
+    @Operation(summary = "Download a member's statement from a year-end run")
+    public ResponseEntity<Resource> yearEnd(@PathVariable int year, @PathVariable Long customerId) {
+        return memberStatementService.artifact(year, customerId)
+                .map(file -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_PDF)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                .filename("statement-" + customerId + "-" + year + ".pdf").build().toString())
+                        .<Resource>body(new FileSystemResource(file)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/metrics")
+    @Operation(summary = "Render times and renderer pool usage")
+    public ResponseEntity<Map<String, Object>> metrics() {
+        return ResponseEntity.ok(memberStatementService.snapshot());
+    }
+}
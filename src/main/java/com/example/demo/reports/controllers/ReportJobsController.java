@@ -0,0 +1,100 @@
+package com.example.demo.reports.controllers;
+
+import com.example.demo.reports.models.ReportType;
+import com.example.demo.reports.services.ReportJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/report-jobs")
+@RequiredArgsConstructor
+@Tag(name = "Report Jobs", description = "Queued report generation with cached, streamed downloads")
+public class ReportJobsController {
+
+    private final ReportJobService reportJobService;
+
+    @PostMapping("/{type}")
+    @Operation(summary = "Submit a report job; parameters are ISO dates, e.g. startDate and endDate")
+    public ResponseEntity<Map<String, Object>> submit(
+            @PathVariable ReportType type,
+            @RequestParam Map<String, String> parameters) {
+        try {
+            return accepted(reportJobService.submit(type, parameters));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "Report queue is full, try again shortly"));
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get report job status")
+    public ResponseEntity<Map<String, Object>> status(@PathVariable String jobId) {
+        return reportJobService.get(jobId)
+                .map(job -> ResponseEntity.ok(job.describe()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{jobId}/download")
+    @Operation(summary = "Download a finished report")
+    public ResponseEntity<Resource> download(@PathVariable String jobId) {
+        return reportJobService.get(jobId)
+                .map(ReportJobsController::artifact)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/types")
+    @Operation(summary = "Report types that can be generated as jobs")
+    public ResponseEntity<Set<ReportType>> types() {
+        return ResponseEntity.ok(reportJobService.supportedTypes());
+    }
+
+    @GetMapping("/metrics")
+    @Operation(summary = "Render times, cache hit rate and queue depth")
+    public ResponseEntity<Map<String, Object>> metrics() {
+        return ResponseEntity.ok(reportJobService.snapshot());
+    }
+
+    /**
+     * 202 with the job, its status and download links, and a Location header pointing at the status.
+     */
+    static ResponseEntity<Map<String, Object>> accepted(ReportJobService.ReportJob job) {
+        String statusUrl = "/api/report-jobs/" + job.getId();
+        Map<String, Object> body = new LinkedHashMap<>(job.describe());
+        body.put("statusUrl", statusUrl);
+        body.put("downloadUrl", statusUrl + "/download");
+        return ResponseEntity.accepted().location(URI.create(statusUrl)).body(body);
+    }
+
+    /**
+     * Streams a ready artifact from disk; 409 while it is still rendering, 410 once it has expired.
+     */
+    static ResponseEntity<Resource> artifact(ReportJobService.ReportJob job) {
+        if (job.getStatus() != ReportJobService.JobStatus.READY) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (!Files.exists(job.getFile())) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(job.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(job.getFileName()).build().toString())
+                .body(new FileSystemResource(job.getFile()));
+    }
+}
@@ -3,20 +3,21 @@ package com.example.demo.reports.controllers;
 import com.example.demo.reports.models.LoanPortfolioReport;
 import com.example.demo.reports.models.ReportType;
 import com.example.demo.reports.models.SASRAReport;
-import com.example.demo.reports.services.ExcelExportService;
+import com.example.demo.reports.models.StatementPage;
 import com.example.demo.reports.services.ReportGenerationService;
+import com.example.demo.reports.services.ReportJobService;
+import com.example.demo.reports.services.StatementQueryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.IOException;
 import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/api/reports")
@@ -25,7 +26,8 @@ import java.time.LocalDate;
 public class ReportsController {
 
     private final ReportGenerationService reportGenerationService;
-    private final ExcelExportService excelExportService;
+    private final ReportJobService reportJobService;
+    private final StatementQueryService statementQueryService;
 
     @GetMapping("/loan-portfolio")
     public ResponseEntity<LoanPortfolioReport> getLoanPortfolioReport(
@@ -38,17 +40,10 @@ public class ReportsController {
 
     @GetMapping("/loan-portfolio/export")
     @Operation(summary = "Export loan portfolio report to Excel")
-    public ResponseEntity<byte[]> exportLoanPortfolioReport(
+    public ResponseEntity<?> exportLoanPortfolioReport(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) throws IOException {
-        LoanPortfolioReport report = reportGenerationService.generateLoanPortfolioReport(startDate, endDate);
-        byte[] excelData = excelExportService.exportLoanPortfolioToExcel(report, startDate, endDate);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", "loan-portfolio-report.xlsx");
-
-        return new ResponseEntity<>(excelData, headers, HttpStatus.OK);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return export(ReportType.LOAN_PORTFOLIO, Map.of("startDate", startDate.toString(), "endDate", endDate.toString()));
     }
 
     @GetMapping("/sasra")
@@ -61,17 +56,9 @@ public class ReportsController {
 
     @GetMapping("/sasra/export")
     @Operation(summary = "Export SASRA report to Excel")
-    public ResponseEntity<byte[]> exportSASRAReport(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate reportDate) throws IOException {
-        SASRAReport report = reportGenerationService.generateSASRAReport(reportDate);
-        byte[] excelData = excelExportService.exportSASRAReportToExcel(report);
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", 
-                "sasra-report-" + reportDate.toString() + ".xlsx");
-        
-        return new ResponseEntity<>(excelData, headers, HttpStatus.OK);
+    public ResponseEntity<?> exportSASRAReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate reportDate) {
+        return export(ReportType.SASRA_MONTHLY_RETURNS, Map.of("reportDate", reportDate.toString()));
     }
 
     @GetMapping("/sasra/sg3")
@@ -98,9 +85,37 @@ public class ReportsController {
         return ResponseEntity.ok(report.getCapitalAdequacy());
     }
 
+    @GetMapping("/statements/{accountKind}/{accountId}")
+    @Operation(summary = "Get an account statement page (SAVINGS, LOAN or PAYMENT), newest first")
+    public ResponseEntity<StatementPage> getStatement(
+            @PathVariable String accountKind,
+            @PathVariable Long accountId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(statementQueryService.getStatement(accountKind, accountId, startDate, endDate, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/types")
     @Operation(summary = "Get all available report types")
     public ResponseEntity<ReportType[]> getReportTypes() {
         return ResponseEntity.ok(ReportType.values());
     }
+
+    /**
+     * Queues the workbook on the report job queue and answers 202 at once with the job to poll and
+     * download under /api/report-jobs, so no request thread waits for a render.
+     */
+    private ResponseEntity<?> export(ReportType type, Map<String, String> parameters) {
+        try {
+            return ReportJobsController.accepted(reportJobService.submit(type, parameters));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "Report queue is full, try again shortly"));
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package com.example.demo.reports.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A member's statement for a period: every savings account with its postings and running balance,
+ * and a summary of the member's loans. Loan balances and statuses are the current ones, read at
+ * {@code loansAsOf}, not reconstructed for the end of the period.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberStatement {
+    private Long customerId;
+    private String memberName;
+    private String phoneNumber;
+    private String branchCode;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private List<Account> accounts = new ArrayList<>();
+    private List<Loan> loans = new ArrayList<>();
+    private LocalDateTime loansAsOf;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Account {
+        private Long accountId;
+        private String accountNumber;
+        private String productName;
+        private BigDecimal openingBalance;
+        private BigDecimal closingBalance;
+        private List<Line> lines = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private LocalDateTime date;
+        private String reference;
+        private String type;
+        private String description;
+        private BigDecimal amount; // signed: negative for withdrawals, fees and transfers out
+        private BigDecimal balance;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Loan {
+        private String loanReference;
+        private BigDecimal amount;
+        private BigDecimal balance;
+        private String status;
+        private LocalDateTime startDate;
+        private LocalDateTime dueDate;
+    }
+}
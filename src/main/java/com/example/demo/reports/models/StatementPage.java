@@ -0,0 +1,26 @@
+package com.example.demo.reports.models;
+
+import com.example.demo.mobile.dto.TransactionDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One keyset page of an account statement, newest first. Pass {@code nextCursor} back to get the
+ * following (older) page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementPage {
+    private String accountKind;
+    private Long accountId;
+    private BigDecimal openingBalance; // balance before the oldest row on this page
+    private BigDecimal closingBalance; // balance after the newest row on this page
+    private List<TransactionDto> transactions;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,76 @@
+package com.example.demo.reports.models;
+
+import com.example.demo.accounting.entities.ChartOfAccounts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Layout of a financial statement over chart-of-accounts categories, parsed from a definition such
+ * as {@code Current Assets:CURRENT_ASSET|Non-current Assets:FIXED_ASSET,INTANGIBLE_ASSET}. Every
+ * account lands in the first section listing its category; categories no section lists are left out.
+ */
+public class StatementTemplate {
+
+    public static final class Section {
+        private final String label;
+        private final Set<ChartOfAccounts.AccountCategory> categories;
+
+        private Section(String label, Set<ChartOfAccounts.AccountCategory> categories) {
+            this.label = label;
+            this.categories = categories;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public boolean contains(ChartOfAccounts.AccountCategory category) {
+            return categories.contains(category);
+        }
+    }
+
+    private final String name;
+    private final List<Section> sections;
+
+    private StatementTemplate(String name, List<Section> sections) {
+        this.name = name;
+        this.sections = Collections.unmodifiableList(sections);
+    }
+
+    public static StatementTemplate parse(String name, String definition) {
+        List<Section> sections = new ArrayList<>();
+        for (String part : definition.split("\\|")) {
+            int colon = part.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Invalid section in " + name + " template: " + part);
+            }
+            Set<ChartOfAccounts.AccountCategory> categories = EnumSet.noneOf(ChartOfAccounts.AccountCategory.class);
+            for (String category : part.substring(colon + 1).split(",")) {
+                categories.add(ChartOfAccounts.AccountCategory.valueOf(category.trim()));
+            }
+            sections.add(new Section(part.substring(0, colon).trim(), categories));
+        }
+        return new StatementTemplate(name, sections);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Section> getSections() {
+        return sections;
+    }
+
+    public Section sectionOf(ChartOfAccounts.AccountCategory category) {
+        for (Section section : sections) {
+            if (section.contains(category)) {
+                return section;
+            }
+        }
+        return null;
+    }
+}
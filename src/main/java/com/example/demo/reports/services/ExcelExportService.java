@@ -7,8 +7,8 @@ import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
@@ -16,7 +16,10 @@ import java.time.format.DateTimeFormatter;
 @Slf4j
 public class ExcelExportService {
 
-    public byte[] exportLoanPortfolioToExcel(LoanPortfolioReport report, LocalDate startDate, LocalDate endDate) throws IOException {
+    /**
+     * Writes the loan portfolio workbook straight to {@code out}, without an in-memory copy.
+     */
+    public void writeLoanPortfolio(LoanPortfolioReport report, LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
         Workbook workbook = new XSSFWorkbook();
         
         // Summary Sheet
@@ -31,14 +34,14 @@ public class ExcelExportService {
         Sheet agingSheet = workbook.createSheet("Aging Analysis");
         createAgingAnalysis(agingSheet, report, workbook);
         
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
+        workbook.write(out);
         workbook.close();
-        
-        return outputStream.toByteArray();
     }
 
-    public byte[] exportSASRAReportToExcel(SASRAReport report) throws IOException {
+    /**
+     * Writes the SASRA workbook straight to {@code out}, without an in-memory copy.
+     */
+    public void writeSASRAReport(SASRAReport report, OutputStream out) throws IOException {
         Workbook workbook = new XSSFWorkbook();
         
         // SG3 - Loan Classification
@@ -57,11 +60,8 @@ public class ExcelExportService {
         Sheet prudentialSheet = workbook.createSheet("Prudential Returns");
         createPrudentialReturnsSheet(prudentialSheet, report.getPrudentialReturns(), workbook);
         
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
+        workbook.write(out);
         workbook.close();
-        
-        return outputStream.toByteArray();
     }
 
     private void createLoanPortfolioSummary(Sheet sheet, LoanPortfolioReport report, 
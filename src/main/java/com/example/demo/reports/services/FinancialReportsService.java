@@ -1,189 +1,185 @@
 package com.example.demo.reports.services;
 
 import com.example.demo.accounting.entities.ChartOfAccounts;
-import com.example.demo.accounting.entities.JournalEntry;
-import com.example.demo.accounting.entities.JournalEntryLine;
 import com.example.demo.accounting.repositories.ChartOfAccountsRepo;
-import com.example.demo.accounting.repositories.GeneralLedgerRepository;
-import com.example.demo.accounting.repositories.JournalEntryRepo;
-import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
-import com.example.demo.loanManagement.parsistence.repositories.LoanAccountRepo;
-import com.example.demo.savingsManagement.persistence.repositories.SavingsAccountRepository;
+import com.example.demo.accounting.services.LedgerBalanceService;
+import com.example.demo.accounting.services.LedgerBalanceService.Totals;
+import com.example.demo.reports.models.StatementTemplate;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.*;
 
+/**
+ * Financial statements computed from ledger aggregates. Each statement is one or two
+ * {@link LedgerBalanceService} queries grouped by account, laid out by a {@link StatementTemplate}
+ * over the chart of accounts categories. Balances and comparative figures start from the closing
+ * balances of the last closed period, so only the open months are read from journal lines.
+ */
 @Service
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 @Slf4j
 public class FinancialReportsService {
 
-    private final LoanAccountRepo loanAccountRepo;
-    private final SavingsAccountRepository savingsAccountRepo;
+    static final String BALANCE_SHEET =
+            "Current Assets:CURRENT_ASSET|Non-current Assets:FIXED_ASSET,INTANGIBLE_ASSET,OTHER_ASSET|" +
+            "Current Liabilities:CURRENT_LIABILITY|Long Term Liabilities:LONG_TERM_LIABILITY,OTHER_LIABILITY|" +
+            "Equity:CAPITAL,RETAINED_EARNINGS,DRAWINGS";
+
+    static final String INCOME_STATEMENT =
+            "Operating Revenue:OPERATING_REVENUE|Other Income:NON_OPERATING_REVENUE|" +
+            "Operating Expenses:OPERATING_EXPENSE|Administrative Expenses:ADMINISTRATIVE_EXPENSE|" +
+            "Finance Costs:FINANCIAL_EXPENSE|Other Expenses:OTHER_EXPENSE";
+
+    static final String CASH_FLOW =
+            "Operating Activities:OPERATING_REVENUE,NON_OPERATING_REVENUE,OPERATING_EXPENSE,ADMINISTRATIVE_EXPENSE," +
+            "FINANCIAL_EXPENSE,OTHER_EXPENSE,CURRENT_ASSET,CURRENT_LIABILITY|" +
+            "Investing Activities:FIXED_ASSET,INTANGIBLE_ASSET,OTHER_ASSET|" +
+            "Financing Activities:LONG_TERM_LIABILITY,OTHER_LIABILITY,CAPITAL,RETAINED_EARNINGS,DRAWINGS";
+
+    private final LedgerBalanceService ledgerBalanceService;
     private final ChartOfAccountsRepo chartOfAccountsRepo;
-    private final GeneralLedgerRepository ledgerRepo;
-    private final JournalEntryRepo journalEntryRepo;
+
+    @Value("${statements.template.balance-sheet:" + BALANCE_SHEET + "}")
+    private String balanceSheetDefinition;
+
+    @Value("${statements.template.income-statement:" + INCOME_STATEMENT + "}")
+    private String incomeStatementDefinition;
+
+    @Value("${statements.template.cash-flow:" + CASH_FLOW + "}")
+    private String cashFlowDefinition;
+
+    @Value("${statements.cash-accounts:1010,1020}")
+    private String cashAccounts;
+
+    private StatementTemplate balanceSheetTemplate;
+    private StatementTemplate incomeStatementTemplate;
+    private StatementTemplate cashFlowTemplate;
+    private Set<String> cashAccountCodes;
+
+    private static final class Account {
+        private final String code;
+        private final String name;
+        private final ChartOfAccounts.AccountType type;
+        private final ChartOfAccounts.AccountCategory category;
+
+        private Account(String code, String name, ChartOfAccounts.AccountType type, ChartOfAccounts.AccountCategory category) {
+            this.code = code;
+            this.name = name;
+            this.type = type;
+            this.category = category;
+        }
+
+        private boolean debitNormal() {
+            return type == ChartOfAccounts.AccountType.ASSET || type == ChartOfAccounts.AccountType.EXPENSE;
+        }
+
+        private double amount(Totals totals) {
+            return debitNormal() ? totals.debit() - totals.credit() : totals.credit() - totals.debit();
+        }
+    }
+
+    @PostConstruct
+    void parseTemplates() {
+        balanceSheetTemplate = StatementTemplate.parse("balance-sheet", balanceSheetDefinition);
+        incomeStatementTemplate = StatementTemplate.parse("income-statement", incomeStatementDefinition);
+        cashFlowTemplate = StatementTemplate.parse("cash-flow", cashFlowDefinition);
+        cashAccountCodes = new HashSet<>();
+        for (String code : cashAccounts.split(",")) {
+            cashAccountCodes.add(code.trim());
+        }
+    }
 
     public Map<String, Object> generateBalanceSheet(LocalDate asOfDate) {
-        log.info("Generating Balance Sheet as of {}", asOfDate);
-        
-        Map<String, Object> balanceSheet = new HashMap<>();
+        return generateBalanceSheet(asOfDate, null);
+    }
+
+    public Map<String, Object> generateBalanceSheet(LocalDate asOfDate, LocalDate compareDate) {
+        long started = System.currentTimeMillis();
+        Map<String, Account> chart = chart();
+        Map<String, Totals> current = ledgerBalanceService.balancesAsOf(asOfDate);
+        Map<String, Totals> prior = compareDate != null ? ledgerBalanceService.balancesAsOf(compareDate) : null;
+
+        Map<String, Object> balanceSheet = new LinkedHashMap<>();
         balanceSheet.put("reportDate", asOfDate);
+        balanceSheet.put("comparativeDate", compareDate);
         balanceSheet.put("reportType", "Balance Sheet");
-        
-        // ASSETS
-        Map<String, Object> assets = new HashMap<>();
-        
-        // Current Assets
-        Map<String, BigDecimal> currentAssets = new HashMap<>();
-        currentAssets.put("Cash and Bank", BigDecimal.valueOf(2500000));
-        currentAssets.put("Petty Cash", BigDecimal.valueOf(50000));
-        
-        BigDecimal loansReceivable = loanAccountRepo.findAll().stream()
-                .map(loan -> BigDecimal.valueOf(loan.getAccountBalance()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        currentAssets.put("Loans Receivable", loansReceivable);
-        currentAssets.put("Interest Receivable", loansReceivable.multiply(BigDecimal.valueOf(0.05)));
-        
-        BigDecimal totalCurrentAssets = currentAssets.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Fixed Assets
-        Map<String, BigDecimal> fixedAssets = new HashMap<>();
-        fixedAssets.put("Office Equipment", BigDecimal.valueOf(500000));
-        fixedAssets.put("Furniture and Fittings", BigDecimal.valueOf(300000));
-        fixedAssets.put("Computer Equipment", BigDecimal.valueOf(200000));
-        fixedAssets.put("Less: Accumulated Depreciation", BigDecimal.valueOf(-150000));
-        
-        BigDecimal totalFixedAssets = fixedAssets.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal totalAssets = totalCurrentAssets.add(totalFixedAssets);
-        
-        assets.put("currentAssets", currentAssets);
-        assets.put("totalCurrentAssets", totalCurrentAssets);
-        assets.put("fixedAssets", fixedAssets);
-        assets.put("totalFixedAssets", totalFixedAssets);
-        assets.put("totalAssets", totalAssets);
-        
-        // LIABILITIES
-        Map<String, Object> liabilities = new HashMap<>();
-        
-        // Current Liabilities
-        Map<String, BigDecimal> currentLiabilities = new HashMap<>();
-        
-        BigDecimal memberDeposits = savingsAccountRepo.getTotalSavingsBalance();
-        currentLiabilities.put("Member Savings Deposits", memberDeposits != null ? memberDeposits : BigDecimal.ZERO);
-        currentLiabilities.put("Accounts Payable", BigDecimal.valueOf(150000));
-        currentLiabilities.put("Accrued Expenses", BigDecimal.valueOf(75000));
-        currentLiabilities.put("Income Tax Payable", BigDecimal.valueOf(100000));
-        
-        BigDecimal totalCurrentLiabilities = currentLiabilities.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Long Term Liabilities
-        Map<String, BigDecimal> longTermLiabilities = new HashMap<>();
-        longTermLiabilities.put("Long Term Loans", BigDecimal.valueOf(1000000));
-        
-        BigDecimal totalLongTermLiabilities = longTermLiabilities.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal totalLiabilities = totalCurrentLiabilities.add(totalLongTermLiabilities);
-        
-        liabilities.put("currentLiabilities", currentLiabilities);
-        liabilities.put("totalCurrentLiabilities", totalCurrentLiabilities);
-        liabilities.put("longTermLiabilities", longTermLiabilities);
-        liabilities.put("totalLongTermLiabilities", totalLongTermLiabilities);
-        liabilities.put("totalLiabilities", totalLiabilities);
-        
-        // EQUITY
-        Map<String, BigDecimal> equity = new HashMap<>();
-        equity.put("Share Capital", BigDecimal.valueOf(5000000));
-        equity.put("Retained Earnings", BigDecimal.valueOf(2000000));
-        
-        BigDecimal currentYearProfit = totalAssets.subtract(totalLiabilities)
-                .subtract(BigDecimal.valueOf(7000000));
-        equity.put("Current Year Profit", currentYearProfit);
-        
-        BigDecimal totalEquity = equity.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        Map<String, Object> equitySection = new HashMap<>();
-        equitySection.put("items", equity);
-        equitySection.put("totalEquity", totalEquity);
-        
-        // Total Liabilities and Equity
-        BigDecimal totalLiabilitiesAndEquity = totalLiabilities.add(totalEquity);
-        
+
+        Map<String, Object> assets = part(balanceSheetTemplate, ChartOfAccounts.AccountType.ASSET, chart, current, prior);
+        Map<String, Object> liabilities = part(balanceSheetTemplate, ChartOfAccounts.AccountType.LIABILITY, chart, current, prior);
+        Map<String, Object> equity = part(balanceSheetTemplate, ChartOfAccounts.AccountType.EQUITY, chart, current, prior);
+
+        // revenue and expense balances not yet closed to retained earnings
+        BigDecimal unclosedProfit = netProfit(chart, current);
+        equity.put("unclosedProfit", unclosedProfit);
+        BigDecimal totalEquity = ((BigDecimal) equity.get("total")).add(unclosedProfit);
+        equity.put("totalEquity", totalEquity);
+        if (prior != null) {
+            equity.put("comparativeTotalEquity", ((BigDecimal) equity.get("comparativeTotal")).add(netProfit(chart, prior)));
+        }
+
+        BigDecimal totalAssets = (BigDecimal) assets.get("total");
+        BigDecimal totalLiabilitiesAndEquity = ((BigDecimal) liabilities.get("total")).add(totalEquity);
+
         balanceSheet.put("assets", assets);
         balanceSheet.put("liabilities", liabilities);
-        balanceSheet.put("equity", equitySection);
+        balanceSheet.put("equity", equity);
+        balanceSheet.put("totalAssets", totalAssets);
         balanceSheet.put("totalLiabilitiesAndEquity", totalLiabilitiesAndEquity);
         balanceSheet.put("balanced", totalAssets.compareTo(totalLiabilitiesAndEquity) == 0);
-        
+
+        log.info("Balance Sheet as of {} generated in {} ms", asOfDate, System.currentTimeMillis() - started);
         return balanceSheet;
     }
 
     public Map<String, Object> generateProfitLossStatement(LocalDate startDate, LocalDate endDate) {
-        log.info("Generating P&L Statement from {} to {}", startDate, endDate);
-        
-        Map<String, Object> profitLoss = new HashMap<>();
+        return generateProfitLossStatement(startDate, endDate, null, null);
+    }
+
+    public Map<String, Object> generateProfitLossStatement(LocalDate startDate, LocalDate endDate,
+                                                           LocalDate compareStartDate, LocalDate compareEndDate) {
+        long started = System.currentTimeMillis();
+        Map<String, Account> chart = chart();
+        Map<String, Totals> current = ledgerBalanceService.movements(startDate, endDate);
+        Map<String, Totals> prior = compareStartDate != null && compareEndDate != null
+                ? ledgerBalanceService.movements(compareStartDate, compareEndDate) : null;
+
+        Map<String, Object> profitLoss = new LinkedHashMap<>();
         profitLoss.put("startDate", startDate);
         profitLoss.put("endDate", endDate);
+        profitLoss.put("comparativeStartDate", compareStartDate);
+        profitLoss.put("comparativeEndDate", compareEndDate);
         profitLoss.put("reportType", "Profit & Loss Statement");
-        
-        // REVENUE
-        Map<String, BigDecimal> revenue = new HashMap<>();
-        
-        List<LoanAccount> loans = loanAccountRepo.findAll();
-        BigDecimal interestIncome = loans.stream()
-                .map(loan -> BigDecimal.valueOf(loan.getPayableAmount() - loan.getAmount()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        revenue.put("Interest Income on Loans", interestIncome);
-        revenue.put("Service Charges", BigDecimal.valueOf(250000));
-        revenue.put("Processing Fees", BigDecimal.valueOf(150000));
-        revenue.put("Other Income", BigDecimal.valueOf(50000));
-        
-        BigDecimal totalRevenue = revenue.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // EXPENSES
-        Map<String, BigDecimal> expenses = new HashMap<>();
-        expenses.put("Staff Salaries", BigDecimal.valueOf(800000));
-        expenses.put("Rent and Utilities", BigDecimal.valueOf(150000));
-        expenses.put("Office Supplies", BigDecimal.valueOf(50000));
-        expenses.put("Communication Costs", BigDecimal.valueOf(30000));
-        expenses.put("Marketing and Advertising", BigDecimal.valueOf(75000));
-        expenses.put("Bank Charges", BigDecimal.valueOf(25000));
-        expenses.put("Loan Loss Provisions", BigDecimal.valueOf(200000));
-        expenses.put("Depreciation", BigDecimal.valueOf(50000));
-        expenses.put("Insurance", BigDecimal.valueOf(40000));
-        expenses.put("Professional Fees", BigDecimal.valueOf(60000));
-        expenses.put("Repairs and Maintenance", BigDecimal.valueOf(35000));
-        expenses.put("Training and Development", BigDecimal.valueOf(45000));
-        
-        BigDecimal totalExpenses = expenses.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // NET PROFIT
-        BigDecimal netProfit = totalRevenue.subtract(totalExpenses);
+
+        Map<String, Object> revenue = part(incomeStatementTemplate, ChartOfAccounts.AccountType.REVENUE, chart, current, prior);
+        Map<String, Object> expenses = part(incomeStatementTemplate, ChartOfAccounts.AccountType.EXPENSE, chart, current, prior);
+
+        BigDecimal totalRevenue = (BigDecimal) revenue.get("total");
+        BigDecimal netProfit = totalRevenue.subtract((BigDecimal) expenses.get("total"));
         BigDecimal profitMargin = totalRevenue.compareTo(BigDecimal.ZERO) > 0
                 ? netProfit.divide(totalRevenue, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100))
                 : BigDecimal.ZERO;
-        
+
         profitLoss.put("revenue", revenue);
         profitLoss.put("totalRevenue", totalRevenue);
         profitLoss.put("expenses", expenses);
-        profitLoss.put("totalExpenses", totalExpenses);
+        profitLoss.put("totalExpenses", expenses.get("total"));
         profitLoss.put("netProfit", netProfit);
         profitLoss.put("profitMargin", profitMargin);
-        
+        if (prior != null) {
+            profitLoss.put("comparativeNetProfit", ((BigDecimal) revenue.get("comparativeTotal"))
+                    .subtract((BigDecimal) expenses.get("comparativeTotal")));
+        }
+
+        log.info("P&L Statement from {} to {} generated in {} ms", startDate, endDate, System.currentTimeMillis() - started);
         return profitLoss;
     }
 
@@ -193,117 +189,101 @@ public class FinancialReportsService {
     }
 
     public Map<String, Object> generateTrialBalance(LocalDate asOfDate) {
-        log.info("Generating Trial Balance as of {}", asOfDate);
-        
-        Map<String, Object> trialBalance = new HashMap<>();
+        long started = System.currentTimeMillis();
+        Map<String, Account> chart = chart();
+        Map<String, Totals> balances = ledgerBalanceService.balancesAsOf(asOfDate);
+
+        List<Map<String, Object>> accounts = new ArrayList<>();
+        BigDecimal totalDebits = BigDecimal.ZERO;
+        BigDecimal totalCredits = BigDecimal.ZERO;
+        for (String code : new TreeSet<>(balances.keySet())) {
+            Totals totals = balances.get(code);
+            BigDecimal net = money(totals.debit() - totals.credit());
+            if (net.signum() == 0) {
+                continue;
+            }
+            BigDecimal debit = net.signum() > 0 ? net : BigDecimal.ZERO;
+            BigDecimal credit = net.signum() < 0 ? net.negate() : BigDecimal.ZERO;
+            accounts.add(createAccount(code, account(chart, code).name, debit, credit));
+            totalDebits = totalDebits.add(debit);
+            totalCredits = totalCredits.add(credit);
+        }
+
+        Map<String, Object> trialBalance = new LinkedHashMap<>();
         trialBalance.put("reportDate", asOfDate);
         trialBalance.put("reportType", "Trial Balance");
-        
-        List<Map<String, Object>> accounts = new ArrayList<>();
-        
-        // Assets (Debit balances)
-        accounts.add(createAccount("1000", "Cash and Bank", BigDecimal.valueOf(2500000), BigDecimal.ZERO));
-        accounts.add(createAccount("1010", "Petty Cash", BigDecimal.valueOf(50000), BigDecimal.ZERO));
-        
-        BigDecimal loansReceivable = loanAccountRepo.findAll().stream()
-                .map(loan -> BigDecimal.valueOf(loan.getAccountBalance()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        accounts.add(createAccount("1100", "Loans Receivable", loansReceivable, BigDecimal.ZERO));
-        accounts.add(createAccount("1110", "Interest Receivable", loansReceivable.multiply(BigDecimal.valueOf(0.05)), BigDecimal.ZERO));
-        accounts.add(createAccount("1500", "Office Equipment", BigDecimal.valueOf(500000), BigDecimal.ZERO));
-        accounts.add(createAccount("1510", "Furniture and Fittings", BigDecimal.valueOf(300000), BigDecimal.ZERO));
-        accounts.add(createAccount("1520", "Computer Equipment", BigDecimal.valueOf(200000), BigDecimal.ZERO));
-        
-        // Liabilities (Credit balances)
-        BigDecimal memberDeposits = savingsAccountRepo.getTotalSavingsBalance();
-        accounts.add(createAccount("2000", "Member Savings Deposits", BigDecimal.ZERO, memberDeposits));
-        accounts.add(createAccount("2100", "Accounts Payable", BigDecimal.ZERO, BigDecimal.valueOf(150000)));
-        accounts.add(createAccount("2110", "Accrued Expenses", BigDecimal.ZERO, BigDecimal.valueOf(75000)));
-        accounts.add(createAccount("2200", "Long Term Loans", BigDecimal.ZERO, BigDecimal.valueOf(1000000)));
-        
-        // Equity (Credit balances)
-        accounts.add(createAccount("3000", "Share Capital", BigDecimal.ZERO, BigDecimal.valueOf(5000000)));
-        accounts.add(createAccount("3100", "Retained Earnings", BigDecimal.ZERO, BigDecimal.valueOf(2000000)));
-        
-        // Calculate totals
-        BigDecimal totalDebits = accounts.stream()
-                .map(acc -> (BigDecimal) acc.get("debit"))
-                .filter(debit -> debit != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal totalCredits = accounts.stream()
-                .map(acc -> (BigDecimal) acc.get("credit"))
-                .filter(credit -> credit != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
         trialBalance.put("accounts", accounts);
         trialBalance.put("totalDebits", totalDebits);
         trialBalance.put("totalCredits", totalCredits);
         trialBalance.put("balanced", totalDebits.compareTo(totalCredits) == 0);
         trialBalance.put("difference", totalDebits.subtract(totalCredits));
-        
+
+        log.info("Trial Balance as of {} generated in {} ms", asOfDate, System.currentTimeMillis() - started);
         return trialBalance;
     }
 
+    /**
+     * Indirect method: every non-cash account's movement in the period is a cash effect of the
+     * opposite sign, and revenue and expense accounts are collapsed into the period's net profit.
+     */
     public Map<String, Object> generateCashFlowStatement(LocalDate startDate, LocalDate endDate) {
-        log.info("Generating Cash Flow Statement from {} to {}", startDate, endDate);
-        
-        Map<String, Object> cashFlow = new HashMap<>();
+        long started = System.currentTimeMillis();
+        Map<String, Account> chart = chart();
+        Map<String, Totals> movements = ledgerBalanceService.movements(startDate, endDate);
+
+        Map<String, Map<String, BigDecimal>> sections = new LinkedHashMap<>();
+        for (StatementTemplate.Section section : cashFlowTemplate.getSections()) {
+            sections.put(section.getLabel(), new LinkedHashMap<>());
+        }
+        for (String code : new TreeSet<>(movements.keySet())) {
+            if (cashAccountCodes.contains(code)) {
+                continue;
+            }
+            Account account = account(chart, code);
+            StatementTemplate.Section section = cashFlowTemplate.sectionOf(account.category);
+            if (section == null) {
+                continue;
+            }
+            Totals totals = movements.get(code);
+            BigDecimal effect = money(totals.credit() - totals.debit());
+            String line = account.type == ChartOfAccounts.AccountType.REVENUE || account.type == ChartOfAccounts.AccountType.EXPENSE
+                    ? "Net Profit" : account.code + " " + account.name;
+            sections.get(section.getLabel()).merge(line, effect, BigDecimal::add);
+        }
+
+        Map<String, Object> cashFlow = new LinkedHashMap<>();
         cashFlow.put("startDate", startDate);
         cashFlow.put("endDate", endDate);
         cashFlow.put("reportType", "Cash Flow Statement");
-        
-        // Operating Activities
-        Map<String, BigDecimal> operatingActivities = new HashMap<>();
-        operatingActivities.put("Cash from Interest", BigDecimal.valueOf(1500000));
-        operatingActivities.put("Cash from Fees", BigDecimal.valueOf(400000));
-        operatingActivities.put("Salaries Paid", BigDecimal.valueOf(-800000));
-        operatingActivities.put("Operating Expenses Paid", BigDecimal.valueOf(-500000));
-        
-        BigDecimal netCashFromOperating = operatingActivities.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Investing Activities
-        Map<String, BigDecimal> investingActivities = new HashMap<>();
-        investingActivities.put("Loans Disbursed", BigDecimal.valueOf(-3000000));
-        investingActivities.put("Loan Repayments Received", BigDecimal.valueOf(2500000));
-        investingActivities.put("Purchase of Equipment", BigDecimal.valueOf(-200000));
-        
-        BigDecimal netCashFromInvesting = investingActivities.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Financing Activities
-        Map<String, BigDecimal> financingActivities = new HashMap<>();
-        financingActivities.put("Member Deposits Received", BigDecimal.valueOf(1500000));
-        financingActivities.put("Member Withdrawals", BigDecimal.valueOf(-800000));
-        financingActivities.put("Share Capital Contributions", BigDecimal.valueOf(500000));
-        
-        BigDecimal netCashFromFinancing = financingActivities.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Net Change in Cash
-        BigDecimal netCashChange = netCashFromOperating
-                .add(netCashFromInvesting)
-                .add(netCashFromFinancing);
-        
-        BigDecimal openingCash = BigDecimal.valueOf(1950000);
-        BigDecimal closingCash = openingCash.add(netCashChange);
-        
-        cashFlow.put("operatingActivities", operatingActivities);
-        cashFlow.put("netCashFromOperating", netCashFromOperating);
-        cashFlow.put("investingActivities", investingActivities);
-        cashFlow.put("netCashFromInvesting", netCashFromInvesting);
-        cashFlow.put("financingActivities", financingActivities);
-        cashFlow.put("netCashFromFinancing", netCashFromFinancing);
+
+        BigDecimal netCashChange = BigDecimal.ZERO;
+        List<Map<String, Object>> activities = new ArrayList<>();
+        for (Map.Entry<String, Map<String, BigDecimal>> section : sections.entrySet()) {
+            section.getValue().values().removeIf(amount -> amount.signum() == 0);
+            BigDecimal total = section.getValue().values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+            Map<String, Object> activity = new LinkedHashMap<>();
+            activity.put("label", section.getKey());
+            activity.put("lines", section.getValue());
+            activity.put("total", total);
+            activities.add(activity);
+            netCashChange = netCashChange.add(total);
+        }
+
+        BigDecimal openingCash = cash(ledgerBalanceService.balancesAsOf(startDate.minusDays(1)));
+        BigDecimal closingCash = cash(ledgerBalanceService.balancesAsOf(endDate));
+
+        cashFlow.put("activities", activities);
         cashFlow.put("netCashChange", netCashChange);
         cashFlow.put("openingCash", openingCash);
         cashFlow.put("closingCash", closingCash);
-        
+        cashFlow.put("unreconciled", closingCash.subtract(openingCash).subtract(netCashChange));
+
+        log.info("Cash Flow Statement from {} to {} generated in {} ms", startDate, endDate, System.currentTimeMillis() - started);
         return cashFlow;
     }
 
     private Map<String, Object> createAccount(String code, String name, BigDecimal debit, BigDecimal credit) {
-        Map<String, Object> account = new HashMap<>();
+        Map<String, Object> account = new LinkedHashMap<>();
         account.put("code", code);
         account.put("name", name);
         account.put("debit", debit);
@@ -312,58 +292,122 @@ public class FinancialReportsService {
     }
 
     /**
-     * Get account balance from Chart of Accounts
+     * The template's sections holding accounts of one type, with a line per account and totals.
      */
-    private BigDecimal getAccountBalance(String accountCode, LocalDate asOfDate) {
-        try {
-            Double balance = ledgerRepo.getAccountBalance(accountCode, asOfDate);
-            return balance != null ? BigDecimal.valueOf(balance) : BigDecimal.ZERO;
-        } catch (Exception e) {
-            log.warn("Error getting balance for account {}: {}", accountCode, e.getMessage());
-            return BigDecimal.ZERO;
+    private Map<String, Object> part(StatementTemplate template, ChartOfAccounts.AccountType type, Map<String, Account> chart,
+                                     Map<String, Totals> current, Map<String, Totals> prior) {
+        Set<String> codes = new TreeSet<>(current.keySet());
+        if (prior != null) {
+            codes.addAll(prior.keySet());
+        }
+
+        List<Map<String, Object>> sections = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal comparativeTotal = BigDecimal.ZERO;
+        for (StatementTemplate.Section section : template.getSections()) {
+            List<Map<String, Object>> lines = new ArrayList<>();
+            BigDecimal sectionTotal = BigDecimal.ZERO;
+            BigDecimal sectionComparative = BigDecimal.ZERO;
+            for (String code : codes) {
+                Account account = account(chart, code);
+                if (account.type != type || template.sectionOf(account.category) != section) {
+                    continue;
+                }
+                BigDecimal amount = money(account.amount(current.getOrDefault(code, Totals.ZERO)));
+                BigDecimal comparative = prior != null ? money(account.amount(prior.getOrDefault(code, Totals.ZERO))) : BigDecimal.ZERO;
+                if (amount.signum() == 0 && comparative.signum() == 0) {
+                    continue;
+                }
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("code", code);
+                line.put("name", account.name);
+                line.put("amount", amount);
+                if (prior != null) {
+                    line.put("comparative", comparative);
+                }
+                lines.add(line);
+                sectionTotal = sectionTotal.add(amount);
+                sectionComparative = sectionComparative.add(comparative);
+            }
+            if (lines.isEmpty()) {
+                continue;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("label", section.getLabel());
+            entry.put("lines", lines);
+            entry.put("total", sectionTotal);
+            if (prior != null) {
+                entry.put("comparativeTotal", sectionComparative);
+            }
+            sections.add(entry);
+            total = total.add(sectionTotal);
+            comparativeTotal = comparativeTotal.add(sectionComparative);
+        }
+
+        Map<String, Object> part = new LinkedHashMap<>();
+        part.put("sections", sections);
+        part.put("total", total);
+        if (prior != null) {
+            part.put("comparativeTotal", comparativeTotal);
         }
+        return part;
     }
 
-    /**
-     * Get sum of balances for account range (e.g., all accounts starting with "5" for expenses)
-     */
-    private BigDecimal getAccountRangeBalance(String prefix, LocalDate asOfDate) {
-        List<ChartOfAccounts> accounts = chartOfAccountsRepo.findAll();
-        return accounts.stream()
-                .filter(account -> account.getAccountCode().startsWith(prefix))
-                .map(account -> getAccountBalance(account.getAccountCode(), asOfDate))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private BigDecimal netProfit(Map<String, Account> chart, Map<String, Totals> balances) {
+        double profit = 0.0;
+        for (Map.Entry<String, Totals> balance : balances.entrySet()) {
+            Account account = account(chart, balance.getKey());
+            if (account.type == ChartOfAccounts.AccountType.REVENUE || account.type == ChartOfAccounts.AccountType.EXPENSE) {
+                profit += balance.getValue().credit() - balance.getValue().debit();
+            }
+        }
+        return money(profit);
     }
 
-    /**
-     * Get revenue for period from journal entries
-     */
-    private BigDecimal getRevenueForPeriod(LocalDate startDate, LocalDate endDate) {
-        List<JournalEntry> entries = journalEntryRepo.findByTransactionDateBetween(startDate, endDate);
-        
-        return entries.stream()
-                .filter(entry -> entry.getStatus() == JournalEntry.JournalStatus.POSTED || 
-                               entry.getStatus() == JournalEntry.JournalStatus.APPROVED)
-                .flatMap(entry -> entry.getLines().stream())
-                .filter(line -> line.getAccountCode().startsWith("4") && // Revenue accounts
-                              line.getType() == JournalEntryLine.EntryType.CREDIT)
-                .map(line -> BigDecimal.valueOf(line.getAmount()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private BigDecimal cash(Map<String, Totals> balances) {
+        double cash = 0.0;
+        for (String code : cashAccountCodes) {
+            Totals totals = balances.getOrDefault(code, Totals.ZERO);
+            cash += totals.debit() - totals.credit();
+        }
+        return money(cash);
+    }
+
+    private Map<String, Account> chart() {
+        Map<String, Account> chart = new HashMap<>();
+        for (ChartOfAccounts account : chartOfAccountsRepo.findAll()) {
+            chart.put(account.getAccountCode(), new Account(account.getAccountCode(), account.getAccountName(),
+                    account.getAccountType(), account.getAccountCategory()));
+        }
+        return chart;
     }
 
     /**
-     * Get expenses for period from journal entries
+     * The chart's account, or one classified by the leading digit of its code when the ledger
+     * holds a code the chart does not have yet.
      */
-    private BigDecimal getExpensesForPeriod(LocalDate startDate, LocalDate endDate) {
-        List<JournalEntry> entries = journalEntryRepo.findByTransactionDateBetween(startDate, endDate);
-        
-        return entries.stream()
-                .filter(entry -> entry.getStatus() == JournalEntry.JournalStatus.POSTED || 
-                               entry.getStatus() == JournalEntry.JournalStatus.APPROVED)
-                .flatMap(entry -> entry.getLines().stream())
-                .filter(line -> line.getAccountCode().startsWith("5") && // Expense accounts
-                              line.getType() == JournalEntryLine.EntryType.DEBIT)
-                .map(line -> BigDecimal.valueOf(line.getAmount()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private Account account(Map<String, Account> chart, String code) {
+        Account account = chart.get(code);
+        if (account != null) {
+            return account;
+        }
+        return chart.computeIfAbsent(code, c -> {
+            switch (c.isEmpty() ? ' ' : c.charAt(0)) {
+                case '1':
+                    return new Account(c, "Account " + c, ChartOfAccounts.AccountType.ASSET, ChartOfAccounts.AccountCategory.CURRENT_ASSET);
+                case '2':
+                    return new Account(c, "Account " + c, ChartOfAccounts.AccountType.LIABILITY, ChartOfAccounts.AccountCategory.CURRENT_LIABILITY);
+                case '3':
+                    return new Account(c, "Account " + c, ChartOfAccounts.AccountType.EQUITY, ChartOfAccounts.AccountCategory.CAPITAL);
+                case '4':
+                    return new Account(c, "Account " + c, ChartOfAccounts.AccountType.REVENUE, ChartOfAccounts.AccountCategory.OPERATING_REVENUE);
+                default:
+                    return new Account(c, "Account " + c, ChartOfAccounts.AccountType.EXPENSE, ChartOfAccounts.AccountCategory.OPERATING_EXPENSE);
+            }
+        });
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
     }
 }
@@ -0,0 +1,475 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.config.DataSourceRoute;
+import com.example.demo.reports.models.MemberStatement;
+import com.example.demo.system.services.JobCoordinator;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Member statements, one on demand or the whole membership at year end.
+ * <p>
+ * Statements are assembled from a single query ordered by member, account and posting, read through
+ * a server-side cursor ({@code member-statements.fetch-size} rows at a time), so a member's
+ * statement is complete as soon as the next member's first row arrives and no more than one member
+ * is ever assembled at once. A year-end run hands each finished member to a bounded pool of
+ * renderers writing {@code <dir>/<year>/<member>.pdf}; when the pool's queue is full the reading
+ * thread renders the member itself, which throttles the read to the rendering speed and keeps
+ * memory bounded by the pool size rather than the membership.
+ */
+@Service
+@Slf4j
+public class MemberStatementService {
+
+    public enum RunStatus { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private static final String JOB_NAME = "member-statements";
+
+    private static final String DELTA = StatementQueryService.SAVINGS_DELTA;
+
+    // postings since the start and since the end of the period, to take the balances back from today's
+    private static final String MOVED_SQL =
+            "SELECT t.savings_account_id, SUM(" + DELTA + ") AS since_start, " +
+            "SUM(CASE WHEN t.transaction_date >= ? THEN " + DELTA + " ELSE 0 END) AS since_end " +
+            "FROM savings_transactions t WHERE t.transaction_date >= ? ";
+
+    private static final String MEMBERS_SQL =
+            "SELECT c.id AS customer_id, CONCAT_WS(' ', c.first_name, c.middle_name, c.last_name) AS member_name, " +
+            "c.phone_number, c.branch_code, a.id AS account_id, a.account_number, a.product_name, " +
+            "a.balance - COALESCE(m.since_start, 0) AS opening_balance, a.balance - COALESCE(m.since_end, 0) AS closing_balance, " +
+            "t.id AS txn_id, t.transaction_date, t.transaction_ref, t.transaction_type, t.description, " + DELTA + " AS delta " +
+            "FROM customer c " +
+            "LEFT JOIN savings_accounts a ON a.customer_id = c.id " +
+            "AND (a.opened_date IS NULL OR a.opened_date < ?) AND (a.closed_date IS NULL OR a.closed_date >= ?) " +
+            "LEFT JOIN moved m ON m.savings_account_id = a.id " +
+            "LEFT JOIN savings_transactions t ON t.savings_account_id = a.id AND t.status = 'COMPLETED' " +
+            "AND t.transaction_date >= ? AND t.transaction_date < ? " +
+            "WHERE (a.id IS NOT NULL OR EXISTS (SELECT 1 FROM loan_account l WHERE l.customer_id = CAST(c.id AS VARCHAR))) ";
+
+    private static final String ORDER_BY = "ORDER BY c.id, a.id, t.transaction_date, t.id";
+
+    private static final String STATEMENT_SQL =
+            "WITH moved AS (" + MOVED_SQL + "GROUP BY t.savings_account_id) " + MEMBERS_SQL + ORDER_BY;
+
+    // one member: only that member's accounts are summed, not every posting since the period start
+    private static final String MEMBER_STATEMENT_SQL =
+            "WITH moved AS (" + MOVED_SQL + "AND t.savings_account_id IN (SELECT id FROM savings_accounts WHERE customer_id = ?) " +
+            "GROUP BY t.savings_account_id) " + MEMBERS_SQL + "AND c.id = ? " + ORDER_BY;
+
+    // loans taken before the period end, with today's balance and status: loan postings do not
+    // carry the account reliably enough to rebuild a period-end balance, so the statement labels them
+    private static final String LOANS_SQL =
+            "SELECT loanref, amount, account_balance, status, start_date, due_date FROM loan_account " +
+            "WHERE customer_id = ? AND (start_date IS NULL OR start_date < ?) ORDER BY start_date";
+
+    /**
+     * One year-end run over the whole membership.
+     */
+    public static final class StatementRun {
+        private final String id = UUID.randomUUID().toString();
+        private final int year;
+        private final String requestedBy;
+        private final Instant submittedAt = Instant.now();
+        private final LongAdder members = new LongAdder();
+        private final LongAdder documents = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAccumulator peakHeapBytes = new LongAccumulator(Math::max, 0);
+        private volatile RunStatus status = RunStatus.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private StatementRun(int year, String requestedBy) {
+            this.year = year;
+            this.requestedBy = requestedBy;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Map<String, Object> describe() {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            double seconds = startedAt != null ? Duration.between(startedAt, end).toMillis() / 1000.0 : 0.0;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("runId", id);
+            result.put("year", year);
+            result.put("requestedBy", requestedBy);
+            result.put("status", status);
+            result.put("submittedAt", submittedAt);
+            result.put("startedAt", startedAt);
+            result.put("finishedAt", finishedAt);
+            result.put("members", members.sum());
+            result.put("documents", documents.sum());
+            result.put("failures", failures.sum());
+            result.put("pages", pages.sum());
+            result.put("megabytes", bytes.sum() / 1_048_576.0);
+            result.put("elapsedSeconds", seconds);
+            result.put("documentsPerSecond", seconds > 0 ? documents.sum() / seconds : 0.0);
+            result.put("peakHeapMb", peakHeapBytes.get() / 1_048_576);
+            if (error != null) {
+                result.put("error", error);
+            }
+            return result;
+        }
+    }
+
+    private static final class RenderStats {
+        private final LongAdder documents = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder renderNanos = new LongAdder();
+        private final LongAccumulator maxRenderNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+            documents.increment();
+            renderNanos.add(nanos);
+            maxRenderNanos.accumulate(nanos);
+        }
+
+        private Map<String, Object> snapshot() {
+            long n = documents.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("documents", n);
+            result.put("failures", failures.sum());
+            result.put("avgRenderMs", n > 0 ? renderNanos.sum() / n / 1_000_000.0 : 0.0);
+            result.put("maxRenderMs", maxRenderNanos.get() / 1_000_000.0);
+            return result;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final JobCoordinator jobCoordinator;
+    private final StatementPdfRenderer renderer;
+    private final Path directory;
+    private final ThreadPoolExecutor renderers;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor();
+    private final AtomicReference<StatementRun> activeRun = new AtomicReference<>();
+    private final Map<String, StatementRun> runs = new ConcurrentHashMap<>();
+    private final RenderStats onDemand = new RenderStats();
+    private final RenderStats bulk = new RenderStats();
+
+    public MemberStatementService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  JobCoordinator jobCoordinator, StatementPdfRenderer renderer,
+                                  @Value("${member-statements.workers:4}") int workerCount,
+                                  @Value("${member-statements.queue-capacity:64}") int queueCapacity,
+                                  @Value("${member-statements.fetch-size:1000}") int fetchSize,
+                                  @Value("${member-statements.dir:${java.io.tmpdir}/member-statements}") String directory) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        // the Postgres driver only streams with a fetch size inside a transaction
+        this.cursorJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.cursorJdbcTemplate.setFetchSize(fetchSize);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.jobCoordinator = jobCoordinator;
+        this.renderer = renderer;
+        this.directory = Files.createDirectories(Paths.get(directory));
+        int threads = Math.max(1, workerCount);
+        this.renderers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * A member's statement for {@code from} to {@code to}, or empty when the member has no savings
+     * account or loan.
+     */
+    public Optional<MemberStatement> load(Long customerId, LocalDate from, LocalDate to) {
+        List<MemberStatement> found = new ArrayList<>(1);
+        DataSourceRoute.run(DataSourceRoute.REPORTING, () -> {
+            readTransaction.executeWithoutResult(status -> stream(from, to, customerId, found::add));
+            found.forEach(statement -> attachLoans(statement, to));
+        });
+        return found.stream().findFirst();
+    }
+
+    /**
+     * Renders a loaded statement onto {@code out} as it is laid out.
+     */
+    public void write(MemberStatement statement, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        try {
+            renderer.render(statement, out);
+            onDemand.record(System.nanoTime() - started);
+        } catch (IOException | RuntimeException e) {
+            onDemand.failures.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts the year-end run for {@code year} in the background. Throws
+     * {@link IllegalStateException} while another run is in progress on this node.
+     */
+    public StatementRun startRun(int year, String requestedBy) {
+        if (!Year.of(year).isBefore(Year.now())) {
+            throw new IllegalArgumentException("Only past years can be run: " + year);
+        }
+        StatementRun run = new StatementRun(year, requestedBy);
+        if (!activeRun.compareAndSet(null, run)) {
+            throw new IllegalStateException("Statement run " + activeRun.get().id + " is still in progress");
+        }
+        runs.put(run.id, run);
+        runner.execute(() -> execute(run));
+        return run;
+    }
+
+    public Optional<StatementRun> getRun(String runId) {
+        return Optional.ofNullable(runs.get(runId));
+    }
+
+    /**
+     * The statement a year-end run wrote for the member, if any.
+     */
+    public Optional<Path> artifact(int year, Long customerId) {
+        Path file = directory.resolve(String.valueOf(year)).resolve(customerId + ".pdf");
+        return Files.exists(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("workers", renderers.getMaximumPoolSize());
+        result.put("active", renderers.getActiveCount());
+        result.put("queued", renderers.getQueue().size());
+        result.put("onDemand", onDemand.snapshot());
+        result.put("bulk", bulk.snapshot());
+        StatementRun run = activeRun.get();
+        if (run != null) {
+            result.put("activeRun", run.describe());
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        renderers.shutdownNow();
+    }
+
+    private void execute(StatementRun run) {
+        try {
+            boolean ran = jobCoordinator.runExclusive(JOB_NAME, () -> generate(run));
+            if (!ran) {
+                finish(run, RunStatus.FAILED, "Member statements are being generated on another node");
+            } else {
+                finish(run, run.failures.sum() == 0 ? RunStatus.COMPLETED : RunStatus.FAILED,
+                        run.failures.sum() == 0 ? null : run.failures.sum() + " statements could not be rendered");
+            }
+        } catch (Exception e) {
+            log.error("Member statement run {} for {} failed", run.id, run.year, e);
+            finish(run, RunStatus.FAILED, e.getMessage());
+        } finally {
+            activeRun.set(null);
+        }
+    }
+
+    private void generate(StatementRun run) {
+        run.startedAt = Instant.now();
+        run.status = RunStatus.RUNNING;
+        Path target;
+        try {
+            target = Files.createDirectories(directory.resolve(String.valueOf(run.year)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LocalDate from = LocalDate.of(run.year, 1, 1);
+        LocalDate to = LocalDate.of(run.year, 12, 31);
+        Phaser inFlight = new Phaser(1);
+        try {
+            DataSourceRoute.run(DataSourceRoute.BATCH, () -> readTransaction.executeWithoutResult(status ->
+                    stream(from, to, null, statement -> {
+                        run.members.increment();
+                        inFlight.register();
+                        try {
+                            renderers.execute(() -> {
+                                try {
+                                    renderToFile(run, statement, to, target);
+                                } finally {
+                                    inFlight.arriveAndDeregister();
+                                }
+                            });
+                        } catch (RejectedExecutionException e) {
+                            inFlight.arriveAndDeregister();
+                            throw e;
+                        }
+                    })));
+        } finally {
+            try {
+                // interruptible: a shut-down pool drops queued statements without running them
+                inFlight.awaitAdvanceInterruptibly(inFlight.arrive());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Map<String, Object> summary = run.describe();
+        log.info("Member statements for {}: {} documents, {} failures in {} s ({} docs/s, peak heap {} MB)", run.year,
+                summary.get("documents"), summary.get("failures"), summary.get("elapsedSeconds"),
+                summary.get("documentsPerSecond"), summary.get("peakHeapMb"));
+    }
+
+    private void renderToFile(StatementRun run, MemberStatement statement, LocalDate to, Path target) {
+        long started = System.nanoTime();
+        Path file = target.resolve(statement.getCustomerId() + ".pdf");
+        Path part = target.resolve(statement.getCustomerId() + ".pdf.part");
+        try {
+            DataSourceRoute.run(DataSourceRoute.BATCH, () -> attachLoans(statement, to));
+            int pages;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+                pages = renderer.render(statement, out);
+            }
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            bulk.record(System.nanoTime() - started);
+            run.documents.increment();
+            run.pages.add(pages);
+            run.bytes.add(Files.size(file));
+            Runtime runtime = Runtime.getRuntime();
+            run.peakHeapBytes.accumulate(runtime.totalMemory() - runtime.freeMemory());
+        } catch (Exception e) {
+            bulk.failures.increment();
+            run.failures.increment();
+            log.warn("Statement for member {} ({}) could not be rendered: {}", statement.getCustomerId(), run.year, e.getMessage());
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException ignored) {
+                // overwritten by the next run
+            }
+        }
+    }
+
+    private void finish(StatementRun run, RunStatus status, String error) {
+        run.error = error;
+        run.finishedAt = Instant.now();
+        run.status = status;
+    }
+
+    /**
+     * Streams the statements of every member, or of one when {@code customerId} is given, to
+     * {@code sink} in member order. Must run inside a transaction for the cursor to stream.
+     */
+    private void stream(LocalDate from, LocalDate to, Long customerId, Consumer<MemberStatement> sink) {
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+        Assembler assembler = new Assembler(from, to, sink);
+        if (customerId == null) {
+            cursorJdbcTemplate.query(STATEMENT_SQL, assembler, end, start, end, start, start, end);
+        } else {
+            cursorJdbcTemplate.query(MEMBER_STATEMENT_SQL, assembler,
+                    end, start, customerId, end, start, start, end, customerId);
+        }
+        assembler.finish();
+    }
+
+    private void attachLoans(MemberStatement statement, LocalDate to) {
+        statement.setLoans(jdbcTemplate.query(LOANS_SQL, (rs, rowNum) -> new MemberStatement.Loan(
+                rs.getString("loanref"),
+                rs.getBigDecimal("amount"),
+                rs.getBigDecimal("account_balance"),
+                rs.getString("status"),
+                toLocalDateTime(rs.getTimestamp("start_date")),
+                toLocalDateTime(rs.getTimestamp("due_date"))),
+                String.valueOf(statement.getCustomerId()), Timestamp.valueOf(to.plusDays(1).atStartOfDay())));
+        statement.setLoansAsOf(LocalDateTime.now());
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * Builds statements from rows ordered by member, account and posting, handing each one on as
+     * soon as the next member starts.
+     */
+    private static final class Assembler implements RowCallbackHandler {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final Consumer<MemberStatement> sink;
+        private MemberStatement statement;
+        private MemberStatement.Account account;
+        private BigDecimal balance;
+
+        private Assembler(LocalDate from, LocalDate to, Consumer<MemberStatement> sink) {
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long customerId = rs.getLong("customer_id");
+            if (statement == null || statement.getCustomerId() != customerId) {
+                finish();
+                statement = new MemberStatement();
+                statement.setCustomerId(customerId);
+                statement.setMemberName(rs.getString("member_name"));
+                statement.setPhoneNumber(rs.getString("phone_number"));
+                statement.setBranchCode(rs.getString("branch_code"));
+                statement.setFromDate(from);
+                statement.setToDate(to);
+                account = null;
+            }
+            long accountId = rs.getLong("account_id");
+            if (rs.wasNull()) {
+                return;
+            }
+            if (account == null || account.getAccountId() != accountId) {
+                BigDecimal opening = nz(rs.getBigDecimal("opening_balance"));
+                account = new MemberStatement.Account(accountId, rs.getString("account_number"), rs.getString("product_name"),
+                        opening, nz(rs.getBigDecimal("closing_balance")), new ArrayList<>());
+                statement.getAccounts().add(account);
+                balance = opening;
+            }
+            rs.getLong("txn_id");
+            if (rs.wasNull()) {
+                return;
+            }
+            BigDecimal delta = nz(rs.getBigDecimal("delta"));
+            balance = balance.add(delta);
+            account.getLines().add(new MemberStatement.Line(toLocalDateTime(rs.getTimestamp("transaction_date")),
+                    rs.getString("transaction_ref"), rs.getString("transaction_type"), rs.getString("description"),
+                    delta, balance));
+        }
+
+        private void finish() {
+            if (statement != null) {
+                sink.accept(statement);
+                statement = null;
+            }
+        }
+
+        private static BigDecimal nz(BigDecimal value) {
+            return value != null ? value : BigDecimal.ZERO;
+        }
+    }
+}
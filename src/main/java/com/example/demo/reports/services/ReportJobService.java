@@ -0,0 +1,430 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.reports.models.ReportType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Report jobs. A submitted report is rendered by a small bounded pool into a file under
+ * {@code reports.jobs.dir} and downloaded from there as a stream, so request threads never build
+ * workbooks and a full queue is refused instead of piling up.
+ * <p>
+ * The artifact file is named after a hash of the report type, its parameters and a data watermark:
+ * the highest transaction id and the latest {@code updated_at} of the tables the report reads, each
+ * an index lookup, so submitting costs the same however large the book grows. Reports that age loans
+ * against the current date also carry that date in the key, so they are rendered afresh each day.
+ * An identical request made before the data changes finds the file and is served without rendering;
+ * one made while the same report is still rendering joins that job. An artifact expires
+ * {@code reports.jobs.artifact-ttl-minutes} after it was rendered, however often it is reused.
+ * <p>
+ * Jobs, their ids and the in-flight renders are held per node: a job id is only known to the node
+ * that accepted it, so polling and downloads by id need sticky routing. Pointing
+ * {@code reports.jobs.dir} at a volume shared by all nodes lets any node reuse the others' artifacts,
+ * but two nodes may still render the same report once each.
+ */
+@Service
+@Slf4j
+public class ReportJobService {
+
+    public enum JobStatus { QUEUED, RUNNING, READY, FAILED }
+
+    // each part is a single index lookup: new transactions, new accounts and the latest account change
+    private static final String LOAN_WATERMARK =
+            "(SELECT COALESCE(MAX(transaction_id), 0) FROM loan_transactions) || ':' || " +
+            "(SELECT COALESCE(MAX(account_id), 0) || ':' || COALESCE(MAX(updated_at)::text, '') FROM loan_account)";
+
+    private static final String SAVINGS_WATERMARK =
+            "(SELECT COALESCE(MAX(id), 0) FROM savings_transactions) || ':' || " +
+            "(SELECT COALESCE(MAX(id), 0) || ':' || COALESCE(MAX(updated_at)::text, '') FROM savings_accounts)";
+
+    private static final String LEDGER_WATERMARK =
+            "(SELECT COALESCE(MAX(id), 0) FROM journal_entries) || ':' || " +
+            "(SELECT COALESCE(MAX(updated_at)::text, '') FROM journal_entries) || ':' || " +
+            "(SELECT COALESCE(MAX(updated_at)::text, '') FROM chart_of_accounts) || ':' || " +
+            "(SELECT COALESCE(MAX(closed_at)::text, '') FROM accounting_periods)";
+
+    @FunctionalInterface
+    private interface Renderer {
+        void render(Map<String, LocalDate> params, OutputStream out) throws IOException;
+    }
+
+    private static final class ReportSpec {
+        private final String extension;
+        private final String contentType;
+        private final String watermarkSql;
+        private final List<String> required;
+        private final List<String> optional;
+        private final boolean datedToday;
+        private final Renderer renderer;
+
+        private ReportSpec(String extension, String contentType, String watermark, List<String> required,
+                           List<String> optional, boolean datedToday, Renderer renderer) {
+            this.extension = extension;
+            this.contentType = contentType;
+            this.watermarkSql = "SELECT " + watermark;
+            this.required = required;
+            this.optional = optional;
+            this.datedToday = datedToday;
+            this.renderer = renderer;
+        }
+    }
+
+    /**
+     * One submitted report. Jobs for the same artifact share an instance.
+     */
+    public static final class ReportJob {
+        private final String id;
+        private final ReportType type;
+        private final Map<String, LocalDate> params;
+        private final String cacheKey;
+        private final Path file;
+        private final String contentType;
+        private final Instant submittedAt = Instant.now();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile JobStatus status;
+        private volatile boolean cached;
+        private volatile Instant finishedAt;
+        private volatile long renderMs;
+        private volatile String error;
+
+        private ReportJob(ReportType type, Map<String, LocalDate> params, String cacheKey, Path file, String contentType) {
+            this.id = UUID.randomUUID().toString();
+            this.type = type;
+            this.params = params;
+            this.cacheKey = cacheKey;
+            this.file = file;
+            this.contentType = contentType;
+            this.status = JobStatus.QUEUED;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public JobStatus getStatus() {
+            return status;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getFileName() {
+            StringBuilder name = new StringBuilder(type.name().toLowerCase().replace('_', '-'));
+            params.values().forEach(date -> name.append('-').append(date));
+            return name.append(file.getFileName().toString().substring(cacheKey.length())).toString();
+        }
+
+        public Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("jobId", id);
+            result.put("reportType", type);
+            result.put("parameters", params);
+            result.put("status", status);
+            result.put("cached", cached);
+            result.put("submittedAt", submittedAt);
+            result.put("finishedAt", finishedAt);
+            result.put("renderMs", renderMs);
+            if (error != null) {
+                result.put("error", error);
+            }
+            return result;
+        }
+    }
+
+    private static final class RenderStats {
+        private final LongAdder renders = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder renderNanos = new LongAdder();
+        private final LongAccumulator maxRenderNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        private Map<String, Object> snapshot() {
+            long n = renders.sum();
+            long requests = hits.sum() + misses.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("renders", n);
+            result.put("failures", failures.sum());
+            result.put("avgRenderMs", n > 0 ? renderNanos.sum() / n / 1_000_000.0 : 0.0);
+            result.put("maxRenderMs", maxRenderNanos.get() / 1_000_000.0);
+            result.put("cacheHits", hits.sum());
+            result.put("cacheMisses", misses.sum());
+            result.put("cacheHitRate", requests > 0 ? (double) hits.sum() / requests : 0.0);
+            return result;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<ReportType, ReportSpec> specs = new EnumMap<>(ReportType.class);
+    private final Map<ReportType, RenderStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ReportJob> rendering = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final ThreadPoolExecutor workers;
+    private final Path directory;
+    private final Duration artifactTtl;
+
+    public ReportJobService(JdbcTemplate jdbcTemplate, ReportGenerationService reportGenerationService,
+                            ExcelExportService excelExportService, FinancialReportsService financialReportsService,
+                            ObjectMapper objectMapper,
+                            @Value("${reports.jobs.workers:2}") int workerCount,
+                            @Value("${reports.jobs.queue-capacity:50}") int queueCapacity,
+                            @Value("${reports.jobs.dir:${java.io.tmpdir}/reports}") String directory,
+                            @Value("${reports.jobs.artifact-ttl-minutes:1440}") long artifactTtlMinutes) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = Files.createDirectories(Paths.get(directory));
+        this.artifactTtl = Duration.ofMinutes(artifactTtlMinutes);
+        int threads = Math.max(1, workerCount);
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), new ThreadPoolExecutor.AbortPolicy());
+
+        String xlsx = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        String json = "application/json";
+        specs.put(ReportType.LOAN_PORTFOLIO, new ReportSpec(".xlsx", xlsx, LOAN_WATERMARK,
+                List.of("startDate", "endDate"), List.of(), true, (p, out) -> excelExportService.writeLoanPortfolio(
+                reportGenerationService.generateLoanPortfolioReport(p.get("startDate"), p.get("endDate")),
+                p.get("startDate"), p.get("endDate"), out)));
+        specs.put(ReportType.SASRA_MONTHLY_RETURNS, new ReportSpec(".xlsx", xlsx,
+                LOAN_WATERMARK + " || ':' || " + SAVINGS_WATERMARK, List.of("reportDate"), List.of(), true,
+                (p, out) -> excelExportService.writeSASRAReport(reportGenerationService.generateSASRAReport(p.get("reportDate")), out)));
+        specs.put(ReportType.BALANCE_SHEET, new ReportSpec(".json", json, LEDGER_WATERMARK,
+                List.of("asOfDate"), List.of("compareDate"), false, (p, out) -> objectMapper.writeValue(out,
+                financialReportsService.generateBalanceSheet(p.get("asOfDate"), p.get("compareDate")))));
+        specs.put(ReportType.INCOME_STATEMENT, new ReportSpec(".json", json, LEDGER_WATERMARK,
+                List.of("startDate", "endDate"), List.of("compareStartDate", "compareEndDate"), false, (p, out) -> objectMapper.writeValue(out,
+                financialReportsService.generateProfitLossStatement(p.get("startDate"), p.get("endDate"),
+                        p.get("compareStartDate"), p.get("compareEndDate")))));
+        specs.put(ReportType.TRIAL_BALANCE, new ReportSpec(".json", json, LEDGER_WATERMARK,
+                List.of("asOfDate"), List.of(), false, (p, out) -> objectMapper.writeValue(out,
+                financialReportsService.generateTrialBalance(p.get("asOfDate")))));
+        specs.put(ReportType.CASH_FLOW, new ReportSpec(".json", json, LEDGER_WATERMARK,
+                List.of("startDate", "endDate"), List.of(), false, (p, out) -> objectMapper.writeValue(out,
+                financialReportsService.generateCashFlowStatement(p.get("startDate"), p.get("endDate")))));
+    }
+
+    public Set<ReportType> supportedTypes() {
+        return specs.keySet();
+    }
+
+    /**
+     * Queues a report, or returns a job already holding (or rendering) the same artifact. Throws
+     * {@link RejectedExecutionException} when the queue is full.
+     */
+    public ReportJob submit(ReportType type, Map<String, String> parameters) {
+        ReportSpec spec = specs.get(type);
+        if (spec == null) {
+            throw new IllegalArgumentException("Report type cannot be generated as a job: " + type);
+        }
+        Map<String, LocalDate> params = parse(spec, parameters);
+        String watermark = jdbcTemplate.queryForObject(spec.watermarkSql, String.class);
+        String cacheKey = cacheKey(type, params, watermark, spec.datedToday ? LocalDate.now() : null);
+        Path file = directory.resolve(cacheKey + spec.extension);
+        RenderStats typeStats = stats.computeIfAbsent(type, t -> new RenderStats());
+
+        ReportJob job = new ReportJob(type, params, cacheKey, file, spec.contentType);
+        if (isFresh(file, Instant.now().minus(artifactTtl))) {
+            typeStats.hits.increment();
+            job.cached = true;
+            finish(job, JobStatus.READY, null);
+            jobs.put(job.id, job);
+            return job;
+        }
+        ReportJob running = rendering.putIfAbsent(cacheKey, job);
+        if (running != null) {
+            typeStats.hits.increment();
+            return running;
+        }
+        typeStats.misses.increment();
+        jobs.put(job.id, job);
+        try {
+            workers.execute(() -> render(job, spec, typeStats));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            rendering.remove(cacheKey);
+            jobs.remove(job.id);
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ReportJob> get(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Waits up to {@code timeout} for the job to finish; returns its status either way.
+     */
+    public JobStatus await(ReportJob job, Duration timeout) {
+        try {
+            job.done.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // status tells the caller
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return job.status;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("workers", workers.getMaximumPoolSize());
+        result.put("active", workers.getActiveCount());
+        result.put("queued", workers.getQueue().size());
+        result.put("rejected", rejected.sum());
+        Map<String, Object> reports = new TreeMap<>();
+        stats.forEach((type, typeStats) -> reports.put(type.name(), typeStats.snapshot()));
+        result.put("reports", reports);
+        return result;
+    }
+
+    /**
+     * Forgets old jobs and deletes artifacts past their time to live.
+     */
+    @Scheduled(fixedDelayString = "${reports.jobs.cleanup-ms:600000}")
+    public void cleanup() {
+        Instant cutoff = Instant.now().minus(artifactTtl);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> isOlderThan(file, cutoff)).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete report artifact {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not list report artifacts in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void render(ReportJob job, ReportSpec spec, RenderStats typeStats) {
+        job.status = JobStatus.RUNNING;
+        long started = System.nanoTime();
+        Path part = job.file.resolveSibling(job.file.getFileName() + "." + job.id + ".part");
+        try {
+            try (OutputStream out = Files.newOutputStream(part)) {
+                spec.renderer.render(job.params, out);
+            }
+            Files.move(part, job.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            long elapsed = System.nanoTime() - started;
+            typeStats.renders.increment();
+            typeStats.renderNanos.add(elapsed);
+            typeStats.maxRenderNanos.accumulate(elapsed);
+            job.renderMs = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            finish(job, JobStatus.READY, null);
+            log.info("Rendered {} {} in {} ms", job.type, job.params, job.renderMs);
+        } catch (Exception e) {
+            typeStats.failures.increment();
+            log.error("Report job {} ({}) failed", job.id, job.type, e);
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException ignored) {
+                // cleanup() removes it later
+            }
+            finish(job, JobStatus.FAILED, e.getMessage());
+        } finally {
+            rendering.remove(job.cacheKey, job);
+        }
+    }
+
+    private void finish(ReportJob job, JobStatus status, String error) {
+        job.error = error;
+        job.finishedAt = Instant.now();
+        job.status = status;
+        job.done.complete(null);
+    }
+
+    private Map<String, LocalDate> parse(ReportSpec spec, Map<String, String> parameters) {
+        Map<String, LocalDate> params = new TreeMap<>();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            if (!spec.required.contains(parameter.getKey()) && !spec.optional.contains(parameter.getKey())) {
+                throw new IllegalArgumentException("Unknown parameter: " + parameter.getKey());
+            }
+            if (parameter.getValue() == null || parameter.getValue().isBlank()) {
+                continue;
+            }
+            try {
+                params.put(parameter.getKey(), LocalDate.parse(parameter.getValue()));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid date for " + parameter.getKey() + ": " + parameter.getValue());
+            }
+        }
+        for (String name : spec.required) {
+            if (!params.containsKey(name)) {
+                throw new IllegalArgumentException("Missing parameter: " + name);
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Key of the artifact for a report over the given data; {@code asOf} is the day a date-dependent
+     * report is aged against, or null.
+     */
+    static String cacheKey(ReportType type, Map<String, LocalDate> params, String watermark, LocalDate asOf) {
+        return hash(type + "|" + params + "|" + watermark + (asOf != null ? "|" + asOf : ""));
+    }
+
+    /**
+     * True if the artifact exists and was rendered after {@code cutoff}. Reuse does not extend its
+     * time to live, so a hit never serves a file older than the TTL.
+     */
+    private static boolean isFresh(Path file, Instant cutoff) {
+        try {
+            return !Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isOlderThan(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
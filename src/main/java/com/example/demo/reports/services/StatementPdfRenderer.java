@@ -0,0 +1,260 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.reports.models.MemberStatement;
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Chunk;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.ColumnText;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfPageEventHelper;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.PdfWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Renders member statements as PDF straight onto the caller's stream. The writer emits each page
+ * as soon as it is laid out and transaction tables are added in slices, so only the current page is
+ * ever held, however long the statement.
+ * <p>
+ * Everything that does not depend on the member is built once: the base fonts and font styles,
+ * and the decoded logo, which each document copies without re-reading the image data. Within a
+ * document the letterhead is drawn once into a template that every page references.
+ */
+@Service
+@Slf4j
+public class StatementPdfRenderer {
+
+    private static final int ROWS_PER_SLICE = 50;
+    private static final float LETTERHEAD_HEIGHT = 54f;
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd MMM yyyy", Locale.ENGLISH);
+
+    private final String organizationName;
+    private final Image logo;
+    private final Font titleFont;
+    private final Font headingFont;
+    private final Font bodyFont;
+    private final Font boldFont;
+    private final Font smallFont;
+
+    public StatementPdfRenderer(@Value("${spring.application.name:SACCO}") String organizationName,
+                                @Value("${member-statements.logo:}") String logoLocation) throws IOException, DocumentException {
+        this.organizationName = organizationName;
+        BaseFont regular = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        BaseFont bold = BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        this.titleFont = new Font(bold, 14);
+        this.headingFont = new Font(bold, 10);
+        this.bodyFont = new Font(regular, 8);
+        this.boldFont = new Font(bold, 8);
+        this.smallFont = new Font(regular, 7, Font.NORMAL, BaseColor.GRAY);
+        this.logo = loadLogo(logoLocation);
+    }
+
+    /**
+     * Writes the statement to {@code out} and returns its page count. The stream is left open.
+     */
+    public int render(MemberStatement statement, OutputStream out) throws IOException {
+        Document document = new Document(PageSize.A4, 36, 36, 36 + LETTERHEAD_HEIGHT, 40);
+        try {
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
+            writer.setPageEvent(new Letterhead(statement));
+            document.addTitle("Statement " + statement.getCustomerId());
+            document.open();
+
+            document.add(new Paragraph("Member Statement", titleFont));
+            document.add(new Paragraph(statement.getMemberName() + "  |  Member No. " + statement.getCustomerId()
+                    + (statement.getPhoneNumber() != null ? "  |  " + statement.getPhoneNumber() : ""), bodyFont));
+            document.add(new Paragraph("Period: " + DATE.format(statement.getFromDate()) + " to "
+                    + DATE.format(statement.getToDate()), bodyFont));
+
+            for (MemberStatement.Account account : statement.getAccounts()) {
+                addAccount(document, account);
+            }
+            if (!statement.getLoans().isEmpty()) {
+                addLoans(document, statement);
+            }
+            if (statement.getAccounts().isEmpty() && statement.getLoans().isEmpty()) {
+                document.add(new Paragraph("No accounts in this period.", bodyFont));
+            }
+            int pages = writer.getPageNumber();
+            document.close();
+            return pages;
+        } catch (DocumentException e) {
+            throw new IOException("Could not render statement for member " + statement.getCustomerId(), e);
+        } finally {
+            if (document.isOpen()) {
+                document.close();
+            }
+        }
+    }
+
+    private void addAccount(Document document, MemberStatement.Account account) throws DocumentException {
+        Paragraph heading = new Paragraph(account.getProductName() != null
+                ? account.getProductName() + " - " + account.getAccountNumber() : account.getAccountNumber(), headingFont);
+        heading.setSpacingBefore(14f);
+        heading.setSpacingAfter(4f);
+        document.add(heading);
+
+        PdfPTable table = new PdfPTable(new float[]{14, 18, 36, 16, 16});
+        table.setWidthPercentage(100);
+        table.setHeaderRows(1);
+        // rows are flushed to the page every slice instead of the whole table being laid out at the end
+        table.setComplete(false);
+        for (String title : new String[]{"Date", "Reference", "Description", "Amount", "Balance"}) {
+            PdfPCell cell = cell(title, boldFont, title.equals("Amount") || title.equals("Balance"));
+            cell.setBackgroundColor(BaseColor.LIGHT_GRAY);
+            table.addCell(cell);
+        }
+        table.addCell(cell("", bodyFont, false));
+        table.addCell(cell("", bodyFont, false));
+        table.addCell(cell("Opening balance", boldFont, false));
+        table.addCell(cell("", bodyFont, false));
+        table.addCell(cell(money(account.getOpeningBalance()), boldFont, true));
+
+        int rows = 0;
+        for (MemberStatement.Line line : account.getLines()) {
+            table.addCell(cell(line.getDate() != null ? DATE.format(line.getDate()) : "", bodyFont, false));
+            table.addCell(cell(line.getReference(), bodyFont, false));
+            table.addCell(cell(line.getDescription() != null ? line.getDescription() : line.getType(), bodyFont, false));
+            table.addCell(cell(money(line.getAmount()), bodyFont, true));
+            table.addCell(cell(money(line.getBalance()), bodyFont, true));
+            if (++rows % ROWS_PER_SLICE == 0) {
+                document.add(table);
+            }
+        }
+
+        table.addCell(cell("", bodyFont, false));
+        table.addCell(cell("", bodyFont, false));
+        table.addCell(cell("Closing balance", boldFont, false));
+        table.addCell(cell("", bodyFont, false));
+        table.addCell(cell(money(account.getClosingBalance()), boldFont, true));
+        table.setComplete(true);
+        document.add(table);
+    }
+
+    private void addLoans(Document document, MemberStatement statement) throws DocumentException {
+        // balances and statuses are today's, so the section says so rather than passing them off as the period end's
+        Paragraph heading = new Paragraph(statement.getLoansAsOf() != null
+                ? "Loans - current position as at " + DATE.format(statement.getLoansAsOf()) : "Loans - current position", headingFont);
+        heading.setSpacingBefore(14f);
+        document.add(heading);
+        Paragraph note = new Paragraph("Loan balances and statuses are as at the date shown, not at the end of the statement period.", smallFont);
+        note.setSpacingAfter(4f);
+        document.add(note);
+
+        PdfPTable table = new PdfPTable(new float[]{22, 16, 16, 16, 15, 15});
+        table.setWidthPercentage(100);
+        table.setHeaderRows(1);
+        for (String title : new String[]{"Loan", "Amount", "Current balance", "Current status", "Start", "Due"}) {
+            PdfPCell cell = cell(title, boldFont, title.equals("Amount") || title.equals("Current balance"));
+            cell.setBackgroundColor(BaseColor.LIGHT_GRAY);
+            table.addCell(cell);
+        }
+        for (MemberStatement.Loan loan : statement.getLoans()) {
+            table.addCell(cell(loan.getLoanReference(), bodyFont, false));
+            table.addCell(cell(money(loan.getAmount()), bodyFont, true));
+            table.addCell(cell(money(loan.getBalance()), bodyFont, true));
+            table.addCell(cell(loan.getStatus(), bodyFont, false));
+            table.addCell(cell(loan.getStartDate() != null ? DATE.format(loan.getStartDate()) : "", bodyFont, false));
+            table.addCell(cell(loan.getDueDate() != null ? DATE.format(loan.getDueDate()) : "", bodyFont, false));
+        }
+        document.add(table);
+    }
+
+    private static PdfPCell cell(String text, Font font, boolean numeric) {
+        PdfPCell cell = new PdfPCell(new Phrase(text != null ? text : "", font));
+        cell.setBorder(Rectangle.BOTTOM);
+        cell.setBorderColor(BaseColor.LIGHT_GRAY);
+        cell.setPadding(3f);
+        if (numeric) {
+            cell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        }
+        return cell;
+    }
+
+    private static String money(BigDecimal amount) {
+        return amount != null ? String.format(Locale.US, "%,.2f", amount) : "";
+    }
+
+    private static Image loadLogo(String location) {
+        if (location == null || location.isBlank()) {
+            return null;
+        }
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            return Image.getInstance(in.readAllBytes());
+        } catch (Exception e) {
+            log.warn("Statement logo {} could not be loaded, statements will have none: {}", location, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Draws the letterhead template and the page footer on every page of one document.
+     */
+    private final class Letterhead extends PdfPageEventHelper {
+        private final MemberStatement statement;
+        private PdfTemplate template;
+
+        private Letterhead(MemberStatement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public void onOpenDocument(PdfWriter writer, Document document) {
+            float width = document.getPageSize().getWidth() - document.leftMargin() - document.rightMargin();
+            template = writer.getDirectContent().createTemplate(width, LETTERHEAD_HEIGHT);
+            float textX = 0;
+            if (logo != null) {
+                try {
+                    // shares the decoded image data; only the per-document reference is new
+                    Image image = Image.getInstance(logo);
+                    image.scaleToFit(LETTERHEAD_HEIGHT * 2, LETTERHEAD_HEIGHT - 10);
+                    template.addImage(image, image.getScaledWidth(), 0, 0, image.getScaledHeight(), 0, 6);
+                    textX = image.getScaledWidth() + 10;
+                } catch (DocumentException e) {
+                    log.warn("Could not place statement logo: {}", e.getMessage());
+                }
+            }
+            ColumnText.showTextAligned(template, Element.ALIGN_LEFT, new Phrase(organizationName, titleFont), textX, 30, 0);
+            ColumnText.showTextAligned(template, Element.ALIGN_LEFT, new Phrase("Member Statement", smallFont), textX, 16, 0);
+            template.setLineWidth(0.5f);
+            template.setGrayStroke(0.6f);
+            template.moveTo(0, 2);
+            template.lineTo(width, 2);
+            template.stroke();
+        }
+
+        @Override
+        public void onEndPage(PdfWriter writer, Document document) {
+            PdfContentByte canvas = writer.getDirectContent();
+            canvas.addTemplate(template, document.leftMargin(), document.getPageSize().getHeight() - 30 - LETTERHEAD_HEIGHT);
+            ColumnText.showTextAligned(canvas, Element.ALIGN_LEFT,
+                    new Phrase(new Chunk("Member No. " + statement.getCustomerId(), smallFont)), document.leftMargin(), 24, 0);
+            ColumnText.showTextAligned(canvas, Element.ALIGN_RIGHT, new Phrase("Page " + writer.getPageNumber(), smallFont),
+                    document.getPageSize().getWidth() - document.rightMargin(), 24, 0);
+        }
+    }
+}
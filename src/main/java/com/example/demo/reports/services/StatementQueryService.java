@@ -0,0 +1,342 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.mobile.dto.TransactionDto;
+import com.example.demo.reports.models.StatementPage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset-paginated statements over savings, loan and bank (payment) transactions.
+ * Pages seek on the account and timestamp indexes instead of using OFFSET, date filters are
+ * applied in SQL, and the running balance is computed with a window function anchored on the
+ * balance carried in the cursor, so the cost of a page depends only on the page size.
+ * Cursors are signed and bound to the account and date range they were issued for, so the
+ * balance they carry cannot be altered by the client.
+ * The first page anchors on the account's current balance, or with an end date on the balance
+ * stored on the last posting before it. Postings without a timestamp cannot be placed in the
+ * seek order and are left out.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+@Slf4j
+public class StatementQueryService {
+
+    public static final String SAVINGS = "SAVINGS";
+    public static final String LOAN = "LOAN";
+    public static final String PAYMENT = "PAYMENT";
+
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final String NUMERIC = "'^-?[0-9]+(\\.[0-9]+)?$'";
+
+    // signed effect of a savings posting on the account balance
+    static final String SAVINGS_DELTA = "CASE WHEN t.status <> 'COMPLETED' THEN 0 " +
+            "WHEN t.transaction_type IN ('WITHDRAWAL', 'FEE_DEBIT', 'TRANSFER_OUT') THEN -t.amount ELSE t.amount END";
+
+    private static final Source SAVINGS_SOURCE = new Source(SAVINGS,
+            "SELECT balance, id AS k1 FROM savings_accounts WHERE id = ?",
+            "savings_transactions t", "t.transaction_date", "t.id",
+            new String[]{"t.savings_account_id = ?"},
+            "CASE WHEN t.status = 'COMPLETED' THEN t.balance_after END",
+            SAVINGS_DELTA,
+            "t.transaction_type AS type, t.description AS description, t.amount AS amount, " +
+                    "CASE WHEN t.transaction_type IN ('WITHDRAWAL', 'FEE_DEBIT', 'TRANSFER_OUT') THEN 'DR' ELSE 'CR' END AS dc, " +
+                    "t.transaction_ref AS reference, t.status AS status, t.payment_method AS channel");
+
+    /**
+     * Loan postings are keyed by loan reference (repayments) or by account id (uploads); both
+     * branches seek on their own index and are merged.
+     */
+    private static final Source LOAN_SOURCE = new Source(LOAN,
+            "SELECT CAST(COALESCE(account_balance, 0) AS NUMERIC(15,2)) AS balance, loanref AS k1, account_id AS k2 " +
+                    "FROM loan_account WHERE account_id = ?",
+            "loan_transactions t", "COALESCE(t.transaction_time, t.transaction_date)", "t.transaction_id",
+            new String[]{"t.loan_ref = ?", "t.account_id = ?"},
+            "CASE WHEN t.final_balance ~ " + NUMERIC + " THEN CAST(t.final_balance AS NUMERIC(15,2)) END",
+            "CASE WHEN t.initial_balance ~ " + NUMERIC + " AND t.final_balance ~ " + NUMERIC +
+                    " THEN CAST(t.final_balance AS NUMERIC(15,2)) - CAST(t.initial_balance AS NUMERIC(15,2)) " +
+                    "WHEN t.transaction_type IN ('PAYMENT', 'REPAYMENT') THEN -CAST(t.amount AS NUMERIC(15,2)) " +
+                    "ELSE CAST(t.amount AS NUMERIC(15,2)) END",
+            "t.transaction_type AS type, t.other_responses AS description, CAST(t.amount AS NUMERIC(15,2)) AS amount, " +
+                    "CASE WHEN t.transaction_type IN ('PAYMENT', 'REPAYMENT') THEN 'CR' ELSE 'DR' END AS dc, " +
+                    "t.other_ref AS reference, 'COMPLETED' AS status, t.payment_mode AS channel");
+
+    private static final Source PAYMENT_SOURCE = new Source(PAYMENT,
+            "SELECT CAST(COALESCE(account_balance, 0) AS NUMERIC(15,2)) AS balance, id AS k1 FROM bank_accounts WHERE id = ?",
+            "transactions t", "t.transaction_time", "t.transaction_id",
+            new String[]{"t.bank_account_id = ?"},
+            "CAST(t.closing_balance AS NUMERIC(15,2))",
+            "CAST(COALESCE(t.closing_balance - t.opening_balance, t.amount) AS NUMERIC(15,2))",
+            "t.transaction_type AS type, t.transaction_type AS description, CAST(t.amount AS NUMERIC(15,2)) AS amount, " +
+                    "CASE WHEN COALESCE(t.closing_balance - t.opening_balance, t.amount) < 0 THEN 'DR' ELSE 'CR' END AS dc, " +
+                    "t.other_ref AS reference, 'COMPLETED' AS status, 'BANK' AS channel");
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${statement.cursor-secret:${jwt.secret}}")
+    private String cursorSecret;
+
+    /**
+     * Returns the page of {@code accountKind} account {@code accountId} that follows {@code cursor}
+     * (the newest page when null), limited to postings dated between the optional dates inclusive.
+     * A cursor that was not issued by this service for the same account and range is rejected
+     * with an {@link IllegalArgumentException}.
+     */
+    public StatementPage getStatement(String accountKind, Long accountId, LocalDate startDate, LocalDate endDate,
+                                      String cursor, int size) {
+        Source source = source(accountKind);
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<Map<String, Object>> account = jdbcTemplate.queryForList(source.accountSql, accountId);
+        if (account.isEmpty()) {
+            throw new RuntimeException("Account not found");
+        }
+        Map<String, Object> row = account.get(0);
+        Object[] keys = source.keys.length == 1 ? new Object[]{row.get("k1")} : new Object[]{row.get("k1"), row.get("k2")};
+        LocalDateTime from = startDate != null ? startDate.atStartOfDay() : null;
+        LocalDateTime to = endDate != null ? endDate.plusDays(1).atStartOfDay() : null;
+
+        String scope = source.name + "|" + accountId + "|" + startDate + "|" + endDate;
+        Cursor after = cursor != null && !cursor.isBlank() ? decode(cursor, scope) : null;
+        BigDecimal anchor = after != null ? after.balance : openingAnchor(source, keys, (BigDecimal) row.get("balance"), to);
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder union = new StringBuilder();
+        for (int i = 0; i < source.keys.length; i++) {
+            if (i > 0) {
+                union.append(" UNION ");
+            }
+            union.append('(').append(branch(source, i, from, to, after)).append(')');
+            params.add(keys[i]);
+            addRange(params, from, to);
+            if (after != null) {
+                params.add(Timestamp.valueOf(after.timestamp));
+                params.add(after.id);
+            }
+            params.add(limit + 1);
+        }
+        params.add(limit + 1);
+        params.add(anchor);
+
+        String sql = "WITH page AS (" + union + " ORDER BY ts DESC, id DESC LIMIT ?) " +
+                "SELECT id, ts, type, description, amount, dc, effect, reference, status, channel, " +
+                "CAST(? AS NUMERIC) - COALESCE(SUM(effect) OVER (ORDER BY ts DESC, id DESC " +
+                "ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0) AS balance_after " +
+                "FROM page ORDER BY ts DESC, id DESC";
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, params.toArray());
+
+        boolean hasMore = rows.size() > limit;
+        List<TransactionDto> transactions = new ArrayList<>();
+        Cursor next = null;
+        BigDecimal opening = anchor;
+        for (Map<String, Object> r : rows.subList(0, Math.min(limit, rows.size()))) {
+            BigDecimal balanceAfter = (BigDecimal) r.get("balance_after");
+            BigDecimal balanceBefore = balanceAfter.subtract((BigDecimal) r.get("effect"));
+            LocalDateTime ts = ((Timestamp) r.get("ts")).toLocalDateTime();
+            transactions.add(TransactionDto.builder()
+                    .transactionId(String.valueOf(r.get("id")))
+                    .transactionDate(ts.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                    .transactionType((String) r.get("type"))
+                    .description((String) r.get("description"))
+                    .amount((BigDecimal) r.get("amount"))
+                    .debitCredit((String) r.get("dc"))
+                    .balanceBefore(balanceBefore)
+                    .balanceAfter(balanceAfter)
+                    .reference((String) r.get("reference"))
+                    .status((String) r.get("status"))
+                    .channel((String) r.get("channel"))
+                    .build());
+            opening = balanceBefore;
+            next = new Cursor(ts, ((Number) r.get("id")).longValue(), balanceBefore);
+        }
+        return new StatementPage(accountKind, accountId, opening, anchor, transactions,
+                hasMore && next != null ? encode(next, scope) : null, hasMore);
+    }
+
+    private static Source source(String accountKind) {
+        if (SAVINGS.equalsIgnoreCase(accountKind)) {
+            return SAVINGS_SOURCE;
+        }
+        if (LOAN.equalsIgnoreCase(accountKind)) {
+            return LOAN_SOURCE;
+        }
+        if (PAYMENT.equalsIgnoreCase(accountKind)) {
+            return PAYMENT_SOURCE;
+        }
+        throw new IllegalArgumentException("Unknown statement account kind: " + accountKind);
+    }
+
+    private static String branch(Source source, int key, LocalDateTime from, LocalDateTime to, Cursor after) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(source.id).append(" AS id, ")
+                .append(source.ts).append(" AS ts, ").append(source.columns).append(", ")
+                .append(source.effect).append(" AS effect FROM ").append(source.table)
+                .append(" WHERE ").append(source.keys[key])
+                .append(" AND ").append(source.ts).append(" IS NOT NULL");
+        appendRange(sql, source, from, to);
+        if (after != null) {
+            sql.append(" AND (").append(source.ts).append(", ").append(source.id).append(") < (?, ?)");
+        }
+        return sql.append(" ORDER BY ts DESC, id DESC LIMIT ?").toString();
+    }
+
+    /**
+     * Balance at the end of the range. That is the balance stored on the newest posting before the
+     * end, found with one seek per key; when that posting carries no usable balance, or the
+     * account has no posting before the end, it is the current balance less everything posted
+     * on or after the end.
+     */
+    private BigDecimal openingAnchor(Source source, Object[] keys, BigDecimal balance, LocalDateTime to) {
+        BigDecimal current = balance != null ? balance : BigDecimal.ZERO;
+        if (to == null) {
+            return current;
+        }
+        List<Object> params = new ArrayList<>();
+        StringBuilder union = new StringBuilder();
+        for (int i = 0; i < source.keys.length; i++) {
+            if (i > 0) {
+                union.append(" UNION ALL ");
+            }
+            union.append("(SELECT ").append(source.id).append(" AS id, ").append(source.ts).append(" AS ts, ")
+                    .append(source.stored).append(" AS stored FROM ").append(source.table)
+                    .append(" WHERE ").append(source.keys[i]).append(" AND ").append(source.ts).append(" < ?")
+                    .append(" ORDER BY ts DESC, id DESC LIMIT 1)");
+            params.add(keys[i]);
+            params.add(Timestamp.valueOf(to));
+        }
+        List<BigDecimal> stored = jdbcTemplate.queryForList("SELECT stored FROM (" + union + ") x ORDER BY ts DESC, id DESC LIMIT 1",
+                BigDecimal.class, params.toArray());
+        if (!stored.isEmpty() && stored.get(0) != null) {
+            return stored.get(0);
+        }
+
+        params.clear();
+        union.setLength(0);
+        for (int i = 0; i < source.keys.length; i++) {
+            if (i > 0) {
+                union.append(" UNION ");
+            }
+            union.append("SELECT ").append(source.id).append(" AS id, ").append(source.effect).append(" AS effect FROM ")
+                    .append(source.table).append(" WHERE ").append(source.keys[i])
+                    .append(" AND ").append(source.ts).append(" >= ?");
+            params.add(keys[i]);
+            params.add(Timestamp.valueOf(to));
+        }
+        BigDecimal later = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(effect), 0) FROM (" + union + ") x",
+                BigDecimal.class, params.toArray());
+        return current.subtract(later != null ? later : BigDecimal.ZERO);
+    }
+
+    /**
+     * Cursor text followed by its signature over the cursor and the statement scope.
+     */
+    private String encode(Cursor cursor, String scope) {
+        String raw = cursor.timestamp + "|" + cursor.id + "|" + cursor.balance.toPlainString();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(raw.getBytes(StandardCharsets.UTF_8)) + "." + encoder.encodeToString(sign(raw, scope));
+    }
+
+    private Cursor decode(String cursor, String scope) {
+        Cursor decoded;
+        try {
+            String[] token = cursor.split("\\.");
+            String raw = new String(Base64.getUrlDecoder().decode(token[0]), StandardCharsets.UTF_8);
+            if (token.length != 2 || !MessageDigest.isEqual(Base64.getUrlDecoder().decode(token[1]), sign(raw, scope))) {
+                throw new IllegalArgumentException("signature mismatch");
+            }
+            String[] parts = raw.split("\\|");
+            decoded = new Cursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]), new BigDecimal(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid statement cursor");
+        }
+        return decoded;
+    }
+
+    private byte[] sign(String raw, String scope) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(cursorSecret.getBytes(StandardCharsets.UTF_8), HMAC));
+            return mac.doFinal((scope + "|" + raw).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign statement cursor", e);
+        }
+    }
+
+    private static void appendRange(StringBuilder sql, Source source, LocalDateTime from, LocalDateTime to) {
+        if (from != null) {
+            sql.append(" AND ").append(source.ts).append(" >= ?");
+        }
+        if (to != null) {
+            sql.append(" AND ").append(source.ts).append(" < ?");
+        }
+    }
+
+    private static void addRange(List<Object> params, LocalDateTime from, LocalDateTime to) {
+        if (from != null) {
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            params.add(Timestamp.valueOf(to));
+        }
+    }
+
+    private static final class Source {
+        private final String name;
+        private final String accountSql;
+        private final String table;
+        private final String ts;
+        private final String id;
+        private final String[] keys;
+        private final String stored;
+        private final String effect;
+        private final String columns;
+
+        private Source(String name, String accountSql, String table, String ts, String id, String[] keys, String stored,
+                       String effect, String columns) {
+            this.name = name;
+            this.accountSql = accountSql;
+            this.table = table;
+            this.ts = ts;
+            this.id = id;
+            this.keys = keys;
+            this.stored = stored;
+            this.effect = effect;
+            this.columns = columns;
+        }
+    }
+
+    /**
+     * Seek position (timestamp and id of the last row returned) plus the balance before that row,
+     * which anchors the next page's running balance.
+     */
+    private static final class Cursor {
+        private final LocalDateTime timestamp;
+        private final long id;
+        private final BigDecimal balance;
+
+        private Cursor(LocalDateTime timestamp, long id, BigDecimal balance) {
+            this.timestamp = timestamp;
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+}
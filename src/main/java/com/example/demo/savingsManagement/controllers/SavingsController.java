@@ -1,13 +1,18 @@
 package com.example.demo.savingsManagement.controllers;
 
 import com.example.demo.savingsManagement.persistence.entities.SavingsAccount;
+import com.example.demo.savingsManagement.persistence.entities.SavingsInterestTier;
 import com.example.demo.savingsManagement.persistence.entities.SavingsProduct;
 import com.example.demo.savingsManagement.persistence.entities.SavingsTransaction;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsInterestTierRepository;
 import com.example.demo.savingsManagement.services.SavingsAccountService;
+import com.example.demo.savingsManagement.services.SavingsInterestService;
+import com.example.demo.savingsManagement.services.SavingsLedgerService;
 import com.example.demo.savingsManagement.services.SavingsProductService;
 import com.example.demo.payments.services.UniversalPaymentService;
 import com.example.demo.payments.dto.UniversalPaymentRequest;
 import com.example.demo.payments.dto.UniversalPaymentResponse;
+import com.example.demo.system.services.ChunkedBatchRunner;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.Data;
@@ -15,12 +20,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/savings")
@@ -32,6 +40,9 @@ public class SavingsController {
     private final SavingsAccountService savingsAccountService;
     private final SavingsProductService savingsProductService;
     private final UniversalPaymentService universalPaymentService;
+    private final SavingsInterestService savingsInterestService;
+    private final SavingsLedgerService savingsLedgerService;
+    private final SavingsInterestTierRepository interestTierRepository;
 
     // ============ SAVINGS ACCOUNTS ============
     
@@ -245,6 +256,52 @@ public class SavingsController {
         return ResponseEntity.ok(product);
     }
 
+    // ============ INTEREST ============
+    
+    @GetMapping("/products/{productCode}/interest-tiers")
+    @Operation(summary = "Get interest rate tiers for a savings product")
+    public ResponseEntity<List<SavingsInterestTier>> getInterestTiers(@PathVariable String productCode) {
+        return ResponseEntity.ok(interestTierRepository.findByProductCodeOrderByMinBalance(productCode));
+    }
+
+    @PostMapping("/products/{productCode}/interest-tiers")
+    @Operation(summary = "Add an interest rate tier to a savings product")
+    public ResponseEntity<SavingsInterestTier> addInterestTier(
+            @PathVariable String productCode,
+            @RequestBody SavingsInterestTier tier) {
+        tier.setProductCode(productCode);
+        return new ResponseEntity<>(interestTierRepository.save(tier), HttpStatus.CREATED);
+    }
+
+    @PostMapping("/interest/accrue")
+    @Operation(summary = "Accrue savings interest for a date (resumes an interrupted run)")
+    public ResponseEntity<ChunkedBatchRunner.ChunkResult> accrueInterest(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(savingsInterestService.accrue(date));
+    }
+
+    @PostMapping("/interest/capitalize")
+    @Operation(summary = "Capitalize accrued savings interest due on a date")
+    public ResponseEntity<ChunkedBatchRunner.ChunkResult> capitalizeInterest(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(savingsInterestService.capitalize(date));
+    }
+
+    // ============ LEDGER ============
+
+    @PostMapping("/ledger/checkpoint")
+    @Operation(summary = "Record balance checkpoints for a date")
+    public ResponseEntity<Integer> checkpointBalances(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(savingsLedgerService.checkpoint(date));
+    }
+
+    @GetMapping("/ledger/reconcile")
+    @Operation(summary = "List accounts whose balance does not match checkpoint plus ledger")
+    public ResponseEntity<List<Map<String, Object>>> reconcileLedger() {
+        return ResponseEntity.ok(savingsLedgerService.reconcile());
+    }
+
     // ============ STATISTICS ============
     
     @GetMapping("/statistics")
@@ -0,0 +1,42 @@
+package com.example.demo.savingsManagement.persistence.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Balance of a savings account as at a given ledger position. Reconciliation replays the
+ * ledger rows after {@code lastTransactionId} on top of this balance.
+ */
+@Entity
+@Table(name = "savings_balance_checkpoints",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"savings_account_id", "checkpoint_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SavingsBalanceCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "savings_account_id", nullable = false)
+    private Long savingsAccountId;
+
+    @Column(name = "checkpoint_date", nullable = false)
+    private LocalDate checkpointDate;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal balance;
+
+    @Column(nullable = false)
+    private Long lastTransactionId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,54 @@
+package com.example.demo.savingsManagement.persistence.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One day of interest accrued on a savings account, held until it is capitalized.
+ * A carried-forward row holds the fraction of a cent left over when a capitalization credited
+ * whole cents; it is dated on that capitalization and picked up by the next one.
+ */
+@Entity
+@Table(name = "savings_interest_accruals",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"savings_account_id", "accrual_date", "carried_forward"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SavingsInterestAccrual {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "savings_account_id", nullable = false)
+    private Long savingsAccountId;
+
+    @Column(name = "accrual_date", nullable = false)
+    private LocalDate accrualDate;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal balance;
+
+    @Column(nullable = false, precision = 5, scale = 2)
+    private BigDecimal interestRate;
+
+    @Column(nullable = false, precision = 15, scale = 4)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private Boolean capitalized = false;
+
+    @Column(name = "carried_forward", nullable = false)
+    private Boolean carriedForward = false;
+
+    private LocalDate capitalizedOn;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,43 @@
+package com.example.demo.savingsManagement.persistence.entities;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance band with its own annual interest rate for a savings product.
+ * Products without tiers accrue at {@link SavingsProduct#getInterestRate()}.
+ */
+@Entity
+@Table(name = "savings_interest_tiers")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SavingsInterestTier {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Product code is required")
+    @Column(nullable = false, length = 50)
+    private String productCode;
+
+    @NotNull
+    @DecimalMin(value = "0.0", inclusive = true)
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal minBalance = BigDecimal.ZERO;
+
+    @Column(precision = 15, scale = 2)
+    private BigDecimal maxBalance; // exclusive, null for the top band
+
+    @NotNull
+    @DecimalMin(value = "0.0", inclusive = true)
+    @Column(nullable = false, precision = 5, scale = 2)
+    private BigDecimal interestRate = BigDecimal.ZERO;
+}
@@ -4,6 +4,7 @@ import com.example.demo.savingsManagement.persistence.entities.SavingsAccount;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -43,4 +44,10 @@ public interface SavingsAccountRepository extends JpaRepository<SavingsAccount,
     
     @Query("SELECT s FROM SavingsAccount s WHERE s.balance < s.minimumBalance AND s.status = 'ACTIVE'")
     List<SavingsAccount> findAccountsBelowMinimumBalance();
+    
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE SavingsAccount s SET s.status = :status, s.closedDate = COALESCE(:closedDate, s.closedDate), " +
+           "s.updatedAt = :now WHERE s.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") String status,
+                     @Param("closedDate") LocalDateTime closedDate, @Param("now") LocalDateTime now);
 }
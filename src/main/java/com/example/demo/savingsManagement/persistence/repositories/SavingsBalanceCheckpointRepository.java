@@ -0,0 +1,13 @@
+package com.example.demo.savingsManagement.persistence.repositories;
+
+import com.example.demo.savingsManagement.persistence.entities.SavingsBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SavingsBalanceCheckpointRepository extends JpaRepository<SavingsBalanceCheckpoint, Long> {
+
+    Optional<SavingsBalanceCheckpoint> findFirstBySavingsAccountIdOrderByCheckpointDateDesc(Long savingsAccountId);
+}
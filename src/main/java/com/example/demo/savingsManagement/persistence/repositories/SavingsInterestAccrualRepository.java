@@ -0,0 +1,19 @@
+package com.example.demo.savingsManagement.persistence.repositories;
+
+import com.example.demo.savingsManagement.persistence.entities.SavingsInterestAccrual;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface SavingsInterestAccrualRepository extends JpaRepository<SavingsInterestAccrual, Long> {
+
+    List<SavingsInterestAccrual> findBySavingsAccountIdAndCapitalizedFalseOrderByAccrualDate(Long savingsAccountId);
+
+    @Query("SELECT COALESCE(SUM(a.amount), 0) FROM SavingsInterestAccrual a WHERE a.savingsAccountId = :accountId AND a.capitalized = false")
+    BigDecimal sumUncapitalized(@Param("accountId") Long accountId);
+}
@@ -0,0 +1,13 @@
+package com.example.demo.savingsManagement.persistence.repositories;
+
+import com.example.demo.savingsManagement.persistence.entities.SavingsInterestTier;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SavingsInterestTierRepository extends JpaRepository<SavingsInterestTier, Long> {
+
+    List<SavingsInterestTier> findByProductCodeOrderByMinBalance(String productCode);
+}
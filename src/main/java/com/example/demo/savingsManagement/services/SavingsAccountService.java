@@ -1,14 +1,17 @@
 package com.example.demo.savingsManagement.services;
 
 import com.example.demo.banking.parsitence.enitities.BankAccounts;
+import com.example.demo.events.appEvents.MemberPositionChangedEvent;
 import com.example.demo.savingsManagement.persistence.entities.SavingsAccount;
 import com.example.demo.savingsManagement.persistence.entities.SavingsProduct;
 import com.example.demo.savingsManagement.persistence.entities.SavingsTransaction;
 import com.example.demo.savingsManagement.persistence.repositories.SavingsAccountRepository;
 import com.example.demo.savingsManagement.persistence.repositories.SavingsProductRepository;
 import com.example.demo.savingsManagement.persistence.repositories.SavingsTransactionRepository;
+import com.example.demo.system.services.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -18,7 +21,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +30,9 @@ public class SavingsAccountService {
     private final SavingsAccountRepository savingsAccountRepository;
     private final SavingsTransactionRepository transactionRepository;
     private final SavingsProductRepository productRepository;
+    private final SavingsLedgerService ledgerService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdGenerator idGenerator;
 
     @Transactional
     public SavingsAccount createSavingsAccount(SavingsAccount account) {
@@ -60,32 +65,12 @@ public class SavingsAccountService {
         SavingsAccount account = savingsAccountRepository.findById(accountId)
                 .orElseThrow(() -> new RuntimeException("Savings account not found: " + accountId));
         
-        if (!"ACTIVE".equals(account.getStatus())) {
-            throw new RuntimeException("Account is not active. Status: " + account.getStatus());
-        }
-        
-        BigDecimal balanceBefore = account.getBalance();
-        BigDecimal newBalance = balanceBefore.add(amount);
-        
-        account.setBalance(newBalance);
-        account.setAvailableBalance(newBalance);
-        account.setLastTransactionDate(LocalDateTime.now());
-        savingsAccountRepository.save(account);
-        
-        SavingsTransaction transaction = new SavingsTransaction();
-        transaction.setSavingsAccountId(accountId);
-        transaction.setTransactionRef(generateTransactionRef());
-        transaction.setTransactionType("DEPOSIT");
-        transaction.setAmount(amount);
-        transaction.setBalanceBefore(balanceBefore);
-        transaction.setBalanceAfter(newBalance);
-        transaction.setPaymentMethod(paymentMethod);
-        transaction.setPaymentReference(paymentReference);
-        transaction.setDescription(description);
-        transaction.setPostedBy(postedBy);
-        transaction.setStatus("COMPLETED");
+        BigDecimal newBalance = ledgerService.credit(accountId, amount);
+        SavingsTransaction transaction = ledgerService.record(accountId, "DEPOSIT", amount, newBalance,
+                paymentMethod, paymentReference, description, postedBy);
         
-        return transactionRepository.save(transaction);
+        eventPublisher.publishEvent(new MemberPositionChangedEvent(this, String.valueOf(account.getCustomerId()), transaction.getTransactionType()));
+        return transaction;
     }
 
     @Transactional
@@ -103,7 +88,7 @@ public class SavingsAccountService {
         // Create pending transaction record (does not update account balance yet)
         SavingsTransaction transaction = new SavingsTransaction();
         transaction.setSavingsAccountId(accountId);
-        transaction.setTransactionRef(generateTransactionRef());
+        transaction.setTransactionRef(idGenerator.nextReceiptNumber());
         transaction.setTransactionType("DEPOSIT");
         transaction.setAmount(amount);
         transaction.setBalanceBefore(account.getBalance());
@@ -136,7 +121,8 @@ public class SavingsAccountService {
             throw new RuntimeException("Withdrawals not allowed for this product");
         }
         
-        // Check withdrawal limits
+        // Lock the account before counting, so two withdrawals cannot both pass the monthly limit
+        ledgerService.lock(accountId);
         if (product.getMaxWithdrawalsPerMonth() != null) {
             LocalDateTime startOfMonth = YearMonth.now().atDay(1).atStartOfDay();
             Integer withdrawalsThisMonth = transactionRepository.countWithdrawalsSince(accountId, startOfMonth);
@@ -145,32 +131,18 @@ public class SavingsAccountService {
             }
         }
         
-        BigDecimal balanceBefore = account.getBalance();
-        BigDecimal totalDeduction = amount.add(product.getWithdrawalFee());
-        BigDecimal newBalance = balanceBefore.subtract(totalDeduction);
+        BigDecimal fee = product.getWithdrawalFee() != null ? product.getWithdrawalFee() : BigDecimal.ZERO;
+        BigDecimal newBalance = ledgerService.debit(accountId, amount.add(fee));
         
-        if (newBalance.compareTo(account.getMinimumBalance()) < 0) {
-            throw new RuntimeException("Insufficient balance. Minimum balance requirement: " + account.getMinimumBalance());
+        SavingsTransaction transaction = ledgerService.record(accountId, "WITHDRAWAL", amount, newBalance.add(fee),
+                paymentMethod, null, description, postedBy);
+        if (fee.signum() > 0) {
+            ledgerService.record(accountId, "FEE_DEBIT", fee, newBalance,
+                    paymentMethod, transaction.getTransactionRef(), "Withdrawal fee", postedBy);
         }
         
-        account.setBalance(newBalance);
-        account.setAvailableBalance(newBalance);
-        account.setLastTransactionDate(LocalDateTime.now());
-        savingsAccountRepository.save(account);
-        
-        SavingsTransaction transaction = new SavingsTransaction();
-        transaction.setSavingsAccountId(accountId);
-        transaction.setTransactionRef(generateTransactionRef());
-        transaction.setTransactionType("WITHDRAWAL");
-        transaction.setAmount(amount);
-        transaction.setBalanceBefore(balanceBefore);
-        transaction.setBalanceAfter(newBalance);
-        transaction.setPaymentMethod(paymentMethod);
-        transaction.setDescription(description);
-        transaction.setPostedBy(postedBy);
-        transaction.setStatus("COMPLETED");
-        
-        return transactionRepository.save(transaction);
+        eventPublisher.publishEvent(new MemberPositionChangedEvent(this, String.valueOf(account.getCustomerId()), transaction.getTransactionType()));
+        return transaction;
     }
 
     public SavingsAccount getAccountById(Long accountId) {
@@ -196,21 +168,19 @@ public class SavingsAccountService {
 
     @Transactional
     public SavingsAccount updateAccountStatus(Long accountId, String status) {
-        SavingsAccount account = getAccountById(accountId);
-        account.setStatus(status);
-        if ("CLOSED".equals(status)) {
-            account.setClosedDate(LocalDateTime.now());
+        // Only the status columns are written, so a balance posted meanwhile is not overwritten
+        LocalDateTime now = LocalDateTime.now();
+        int updated = savingsAccountRepository.updateStatus(accountId, status, "CLOSED".equals(status) ? now : null, now);
+        if (updated == 0) {
+            throw new RuntimeException("Savings account not found: " + accountId);
         }
-        return savingsAccountRepository.save(account);
+        return getAccountById(accountId);
     }
 
     private String generateAccountNumber() {
         return "SAV" + System.currentTimeMillis();
     }
 
-    private String generateTransactionRef() {
-        return "TXN" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
 
     public BigDecimal getTotalSavingsBalance() {
         BigDecimal total = savingsAccountRepository.getTotalSavingsBalance();
@@ -0,0 +1,229 @@
+package com.example.demo.savingsManagement.services;
+
+import com.example.demo.accounting.entities.JournalEntry;
+import com.example.demo.accounting.entities.JournalEntryLine;
+import com.example.demo.accounting.repositories.JournalEntryRepo;
+import com.example.demo.accounting.services.AccountingService;
+import com.example.demo.system.services.ChunkedBatchRunner;
+import com.example.demo.system.services.ChunkedBatchRunner.ChunkResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Savings interest engine.
+ * Accrues one day of interest per active account from its end-of-day balance, using the
+ * product's balance tiers when configured, and capitalizes the open accruals into the account
+ * balance at each product's posting frequency with a single consolidated GL journal per run.
+ * Both steps run as partitioned, chunked set-based SQL through {@link ChunkedBatchRunner},
+ * so they can be restarted for the same date without double counting.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SavingsInterestService {
+
+    public static final String ACCRUAL_JOB = "SAVINGS_INTEREST_ACCRUAL";
+    public static final String CAPITALIZATION_JOB = "SAVINGS_INTEREST_CAPITALIZATION";
+
+    private static final String INTEREST_EXPENSE_CODE = "5010";
+    private static final String MEMBER_SAVINGS_CODE = "2020";
+
+    /**
+     * End-of-day balance comes from the ledger; accounts without ledger history use the stored balance.
+     * The rate is the highest tier whose band contains the balance, else the product rate.
+     */
+    private static final String ACCRUE_SQL =
+            "WITH ins AS (" +
+            "INSERT INTO savings_interest_accruals (savings_account_id, accrual_date, balance, interest_rate, amount, capitalized, " +
+            "carried_forward, created_at) " +
+            "SELECT b.id, ?, b.eod_balance, r.rate, ROUND(b.eod_balance * r.rate / 36500, 4), FALSE, FALSE, CURRENT_TIMESTAMP " +
+            "FROM (SELECT a.id, a.product_code, COALESCE((SELECT t.balance_after FROM savings_transactions t " +
+            "WHERE t.savings_account_id = a.id AND t.status = 'COMPLETED' AND t.transaction_date < ? " +
+            "ORDER BY t.transaction_date DESC, t.id DESC LIMIT 1), a.balance) AS eod_balance " +
+            "FROM savings_accounts a WHERE a.status = 'ACTIVE' AND a.id > ? AND a.id <= ?) b " +
+            "JOIN savings_products p ON p.code = b.product_code " +
+            "CROSS JOIN LATERAL (SELECT COALESCE((SELECT t.interest_rate FROM savings_interest_tiers t " +
+            "WHERE t.product_code = b.product_code AND b.eod_balance >= t.min_balance " +
+            "AND (t.max_balance IS NULL OR b.eod_balance < t.max_balance) ORDER BY t.min_balance DESC LIMIT 1), " +
+            "p.interest_rate, 0) AS rate) r " +
+            "WHERE b.eod_balance > 0 AND r.rate > 0 " +
+            "ON CONFLICT (savings_account_id, accrual_date, carried_forward) DO NOTHING RETURNING amount) " +
+            "SELECT COUNT(*) AS n, COALESCE(SUM(amount), 0) AS total FROM ins";
+
+    /**
+     * Marks the open accruals before the capitalization date as capitalized and credits their sum
+     * in whole cents to the account, with one INTEREST_CREDIT ledger row per account. The fraction
+     * of a cent left over, or the whole sum when it is under a cent, is carried forward as a new
+     * open accrual dated on the capitalization, so no accrued interest is dropped.
+     */
+    private static final String CAPITALIZE_SQL =
+            "WITH cap AS (" +
+            "UPDATE savings_interest_accruals x SET capitalized = TRUE, capitalized_on = ? " +
+            "FROM savings_accounts a JOIN savings_products p ON p.code = a.product_code " +
+            "WHERE x.savings_account_id = a.id AND x.capitalized = FALSE AND x.accrual_date < ? " +
+            "AND p.interest_posting_frequency IN (%s) AND a.id > ? AND a.id <= ? " +
+            "RETURNING x.savings_account_id, x.amount), " +
+            "tot AS (SELECT savings_account_id, SUM(amount) AS accrued, TRUNC(SUM(amount), 2) AS interest " +
+            "FROM cap GROUP BY savings_account_id), " +
+            "carry AS (INSERT INTO savings_interest_accruals (savings_account_id, accrual_date, balance, interest_rate, " +
+            "amount, capitalized, carried_forward, created_at) " +
+            "SELECT savings_account_id, ?, 0, 0, accrued - interest, FALSE, TRUE, CURRENT_TIMESTAMP " +
+            "FROM tot WHERE accrued > interest), " +
+            "upd AS (UPDATE savings_accounts a SET balance = a.balance + tot.interest, " +
+            "available_balance = a.available_balance + tot.interest, last_transaction_date = ? " +
+            "FROM tot WHERE a.id = tot.savings_account_id AND tot.interest > 0 " +
+            "RETURNING a.id, a.balance, tot.interest), " +
+            "ins AS (INSERT INTO savings_transactions (savings_account_id, transaction_ref, transaction_type, amount, " +
+            "balance_before, balance_after, payment_method, description, transaction_date, value_date, posted_by, status, created_at) " +
+            "SELECT id, ? || id, 'INTEREST_CREDIT', interest, balance - interest, balance, 'INTERNAL', ?, ?, ?, 'SYSTEM', 'COMPLETED', ? " +
+            "FROM upd RETURNING amount) " +
+            "SELECT COUNT(*) AS n, COALESCE(SUM(amount), 0) AS total FROM ins";
+
+    private final ChunkedBatchRunner batchRunner;
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountingService accountingService;
+    private final JournalEntryRepo journalEntryRepo;
+
+    @Value("${savings.interest.partitions:4}")
+    private int partitions;
+
+    @Value("${savings.interest.chunk-size:10000}")
+    private int chunkSize;
+
+    /**
+     * Daily run: accrue yesterday's interest, then capitalize if today opens a posting period.
+     * Both run on the batch runner's threads; the scheduler thread only starts them.
+     */
+    @Scheduled(cron = "${savings.interest.cron:0 15 0 * * *}")
+    public void runDaily() {
+        LocalDate today = LocalDate.now();
+        accrueAsync(today.minusDays(1))
+                .thenCompose(accrued -> dueFrequencies(today).isEmpty()
+                        ? CompletableFuture.completedFuture(accrued)
+                        : capitalizeAsync(today))
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        log.error("Daily savings interest run for {} failed: {}", today, error.getMessage(), error);
+                    }
+                });
+    }
+
+    public ChunkResult accrue(LocalDate accrualDate) {
+        return join(ACCRUAL_JOB, accrualDate, accrueAsync(accrualDate));
+    }
+
+    public CompletableFuture<ChunkResult> accrueAsync(LocalDate accrualDate) {
+        log.info("Accruing savings interest for {}", accrualDate);
+        Date date = Date.valueOf(accrualDate);
+        Timestamp endOfDay = Timestamp.valueOf(accrualDate.plusDays(1).atStartOfDay());
+        return batchRunner.runAsync(ACCRUAL_JOB, accrualDate.toString(), "savings_accounts", partitions, chunkSize,
+                (from, to) -> ChunkResult.of(jdbcTemplate.queryForMap(ACCRUE_SQL, date, endOfDay, from, to)));
+    }
+
+    /**
+     * Capitalizes accruals dated before {@code capitalizationDate} for every product whose
+     * posting frequency falls due on that date, then posts one journal for the run.
+     */
+    public ChunkResult capitalize(LocalDate capitalizationDate) {
+        return join(CAPITALIZATION_JOB, capitalizationDate, capitalizeAsync(capitalizationDate));
+    }
+
+    public CompletableFuture<ChunkResult> capitalizeAsync(LocalDate capitalizationDate) {
+        List<String> frequencies = dueFrequencies(capitalizationDate);
+        if (frequencies.isEmpty()) {
+            log.info("No savings interest posting frequency due on {}", capitalizationDate);
+            return CompletableFuture.completedFuture(new ChunkResult(0, BigDecimal.ZERO));
+        }
+        log.info("Capitalizing savings interest on {} for {}", capitalizationDate, frequencies);
+
+        String sql = String.format(CAPITALIZE_SQL, String.join(", ", frequencies.stream().map(f -> "'" + f + "'").toList()));
+        Date date = Date.valueOf(capitalizationDate);
+        Timestamp postedAt = Timestamp.valueOf(capitalizationDate.atStartOfDay());
+        String refPrefix = "INT-" + capitalizationDate.toString().replace("-", "") + "-";
+        String description = "Interest capitalized for period ending " + capitalizationDate.minusDays(1);
+
+        return batchRunner.runAsync(CAPITALIZATION_JOB, capitalizationDate.toString(), "savings_accounts",
+                        partitions, chunkSize,
+                        (from, to) -> ChunkResult.of(jdbcTemplate.queryForMap(sql, date, date, from, to, date, postedAt,
+                                refPrefix, description, postedAt, postedAt, Timestamp.valueOf(LocalDateTime.now()))))
+                .thenApply(result -> {
+                    postCapitalizationJournal(capitalizationDate, result.getAmount());
+                    return result;
+                });
+    }
+
+    private static ChunkResult join(String job, LocalDate date, CompletableFuture<ChunkResult> run) {
+        try {
+            return run.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Batch " + job + " " + date + " failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private void postCapitalizationJournal(LocalDate capitalizationDate, BigDecimal total) {
+        String journalNumber = "SI-" + capitalizationDate.toString().replace("-", "");
+        if (total.signum() <= 0 || journalEntryRepo.existsByJournalNumber(journalNumber)) {
+            return;
+        }
+        double amount = total.setScale(2, RoundingMode.HALF_UP).doubleValue();
+
+        JournalEntry entry = new JournalEntry();
+        entry.setJournalNumber(journalNumber);
+        entry.setJournalType(JournalEntry.JournalType.GENERAL);
+        entry.setTransactionDate(capitalizationDate);
+        entry.setDescription("Savings interest capitalized on " + capitalizationDate);
+        entry.setReference(journalNumber);
+
+        List<JournalEntryLine> lines = new ArrayList<>();
+        lines.add(JournalEntryLine.builder()
+                .accountCode(INTEREST_EXPENSE_CODE)
+                .type(JournalEntryLine.EntryType.DEBIT)
+                .amount(amount)
+                .description("Interest on member savings")
+                .lineNumber(1)
+                .build());
+        lines.add(JournalEntryLine.builder()
+                .accountCode(MEMBER_SAVINGS_CODE)
+                .type(JournalEntryLine.EntryType.CREDIT)
+                .amount(amount)
+                .description("Interest credited to member savings")
+                .lineNumber(2)
+                .build());
+        entry.setLines(lines);
+
+        JournalEntry saved = accountingService.createJournalEntry(entry, "SYSTEM");
+        accountingService.postJournalEntry(saved.getId(), "SYSTEM");
+        log.info("Posted savings interest journal {} for {}", journalNumber, amount);
+    }
+
+    private List<String> dueFrequencies(LocalDate date) {
+        List<String> due = new ArrayList<>();
+        if (date.getDayOfMonth() != 1) {
+            return due;
+        }
+        due.add("MONTHLY");
+        if ((date.getMonthValue() - 1) % 3 == 0) {
+            due.add("QUARTERLY");
+        }
+        if (date.getMonthValue() == 1) {
+            due.add("ANNUALLY");
+        }
+        return due;
+    }
+}
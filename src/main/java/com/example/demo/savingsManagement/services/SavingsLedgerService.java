@@ -0,0 +1,237 @@
+package com.example.demo.savingsManagement.services;
+
+import com.example.demo.mobile.services.ChannelReadModelService;
+import com.example.demo.savingsManagement.persistence.entities.SavingsAccount;
+import com.example.demo.savingsManagement.persistence.entities.SavingsTransaction;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsAccountRepository;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsTransactionRepository;
+import com.example.demo.system.services.ChunkedBatchRunner;
+import com.example.demo.system.services.ChunkedBatchRunner.ChunkResult;
+import com.example.demo.system.services.JobCoordinator;
+import com.example.demo.system.services.IdGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The only path through which savings balances move.
+ * Each posting is a single conditional UPDATE on the account row: it takes the row lock, so
+ * postings to one account are serialized by the database, and a debit only succeeds when the
+ * balance stays at or above the account minimum. The new balance comes back from the same
+ * statement and is written to the append-only {@code savings_transactions} ledger in the
+ * caller's transaction, so a balance change and its ledger row commit or roll back together.
+ * A daily checkpoint records every balance with its ledger position, and reconciliation checks
+ * that checkpoint plus later ledger movements still equals the stored balance.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SavingsLedgerService {
+
+    public static final String CHECKPOINT_JOB = "SAVINGS_BALANCE_CHECKPOINT";
+
+    private static final Set<String> DEBIT_TYPES = Set.of("WITHDRAWAL", "FEE_DEBIT", "TRANSFER_OUT");
+
+    private static final String LOCK_SQL = "SELECT id FROM savings_accounts WHERE id = ? FOR UPDATE";
+
+    private static final String SHARE_LOCK_SQL = "SELECT id FROM savings_accounts WHERE id > ? AND id <= ? FOR SHARE";
+
+    private static final String CREDIT_SQL =
+            "UPDATE savings_accounts SET balance = balance + ?, available_balance = available_balance + ?, " +
+            "last_transaction_date = ?, updated_at = ? WHERE id = ? AND status = 'ACTIVE' RETURNING balance";
+
+    private static final String DEBIT_SQL =
+            "UPDATE savings_accounts SET balance = balance - ?, available_balance = available_balance - ?, " +
+            "last_transaction_date = ?, updated_at = ? " +
+            "WHERE id = ? AND status = 'ACTIVE' AND balance - ? >= COALESCE(minimum_balance, 0) RETURNING balance";
+
+    /**
+     * Runs after the chunk's accounts are share-locked: no posting is in flight on them, so the
+     * balance and the highest ledger id describe the same committed state whatever order the
+     * ledger ids of other transactions were handed out in.
+     */
+    private static final String CHECKPOINT_SQL =
+            "INSERT INTO savings_balance_checkpoints (savings_account_id, checkpoint_date, balance, last_transaction_id, created_at) " +
+            "SELECT a.id, ?, a.balance, COALESCE((SELECT MAX(t.id) FROM savings_transactions t " +
+            "WHERE t.savings_account_id = a.id), 0), CURRENT_TIMESTAMP FROM savings_accounts a " +
+            "WHERE a.id > ? AND a.id <= ? " +
+            "ON CONFLICT (savings_account_id, checkpoint_date) DO NOTHING";
+
+    private static final String RECONCILE_SQL =
+            "SELECT a.id AS account_id, a.balance AS balance, c.checkpoint_date AS checkpoint_date, " +
+            "c.balance + COALESCE(SUM(CASE " +
+            "WHEN t.transaction_type IN ('DEPOSIT', 'INTEREST_CREDIT', 'TRANSFER_IN') THEN t.amount " +
+            "WHEN t.transaction_type IN ('WITHDRAWAL', 'FEE_DEBIT', 'TRANSFER_OUT') THEN -t.amount " +
+            "ELSE 0 END), 0) AS expected " +
+            "FROM savings_accounts a " +
+            "JOIN LATERAL (SELECT balance, checkpoint_date, last_transaction_id FROM savings_balance_checkpoints " +
+            "WHERE savings_account_id = a.id ORDER BY checkpoint_date DESC LIMIT 1) c ON TRUE " +
+            "LEFT JOIN savings_transactions t ON t.savings_account_id = a.id AND t.id > c.last_transaction_id " +
+            "AND t.status = 'COMPLETED' " +
+            "GROUP BY a.id, a.balance, c.checkpoint_date, c.balance " +
+            "HAVING a.balance <> c.balance + COALESCE(SUM(CASE " +
+            "WHEN t.transaction_type IN ('DEPOSIT', 'INTEREST_CREDIT', 'TRANSFER_IN') THEN t.amount " +
+            "WHEN t.transaction_type IN ('WITHDRAWAL', 'FEE_DEBIT', 'TRANSFER_OUT') THEN -t.amount " +
+            "ELSE 0 END), 0)";
+
+    private final SavingsAccountRepository savingsAccountRepository;
+    private final SavingsTransactionRepository transactionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChunkedBatchRunner batchRunner;
+    private final ChannelReadModelService channelReadModelService;
+    private final JobCoordinator jobCoordinator;
+    private final IdGenerator idGenerator;
+
+    @Value("${savings.checkpoint.chunk-size:1000}")
+    private int checkpointChunkSize;
+
+    /**
+     * Takes the account's row lock for the rest of the caller's transaction. Checks that read
+     * other rows, such as the monthly withdrawal count, then see every posting committed before.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lock(Long accountId) {
+        if (jdbcTemplate.queryForList(LOCK_SQL, Long.class, accountId).isEmpty()) {
+            throw new RuntimeException("Savings account not found: " + accountId);
+        }
+    }
+
+    /**
+     * Adds {@code amount} to an active account and returns the new balance.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public BigDecimal credit(Long accountId, BigDecimal amount) {
+        requirePositive(amount);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<BigDecimal> balance = jdbcTemplate.queryForList(CREDIT_SQL, BigDecimal.class,
+                amount, amount, now, now, accountId);
+        if (balance.isEmpty()) {
+            throw rejected(accountId);
+        }
+        return balance.get(0);
+    }
+
+    /**
+     * Takes {@code amount} from an active account if the balance stays at or above the account
+     * minimum, and returns the new balance.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public BigDecimal debit(Long accountId, BigDecimal amount) {
+        requirePositive(amount);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<BigDecimal> balance = jdbcTemplate.queryForList(DEBIT_SQL, BigDecimal.class,
+                amount, amount, now, now, accountId, amount);
+        if (balance.isEmpty()) {
+            throw rejected(accountId);
+        }
+        return balance.get(0);
+    }
+
+    /**
+     * Appends a completed ledger row for a posting that has already been applied to the balance,
+     * and applies it to the account's channel read model row in the same transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public SavingsTransaction record(Long accountId, String type, BigDecimal amount, BigDecimal balanceAfter,
+                                     String paymentMethod, String paymentReference, String description, String postedBy) {
+        SavingsTransaction transaction = new SavingsTransaction();
+        transaction.setSavingsAccountId(accountId);
+        transaction.setTransactionRef(idGenerator.nextReceiptNumber());
+        transaction.setTransactionType(type);
+        transaction.setAmount(amount);
+        transaction.setBalanceBefore(DEBIT_TYPES.contains(type) ? balanceAfter.add(amount) : balanceAfter.subtract(amount));
+        transaction.setBalanceAfter(balanceAfter);
+        transaction.setPaymentMethod(paymentMethod);
+        transaction.setPaymentReference(paymentReference);
+        transaction.setDescription(description);
+        transaction.setPostedBy(postedBy);
+        transaction.setStatus("COMPLETED");
+        SavingsTransaction saved = transactionRepository.save(transaction);
+        channelReadModelService.applySavingsPosting(saved);
+        return saved;
+    }
+
+    /**
+     * Daily balance checkpoint followed by reconciliation against the ledger. The checkpoint runs
+     * on the batch runner's threads, its chunks fenced under per-partition leases; reconciliation
+     * then runs on one node under its own lease.
+     */
+    @Scheduled(cron = "${savings.checkpoint.cron:0 55 23 * * *}")
+    public void runDaily() {
+        LocalDate today = LocalDate.now();
+        checkpointAsync(today).whenComplete((result, error) -> {
+            if (error != null) {
+                log.error("Savings balance checkpoint for {} failed: {}", today, error.getMessage(), error);
+                return;
+            }
+            jobCoordinator.runExclusive("savings-reconcile", this::reconcile);
+        });
+    }
+
+    public long checkpoint(LocalDate checkpointDate) {
+        try {
+            return checkpointAsync(checkpointDate).join().getCount();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Batch " + CHECKPOINT_JOB + " " + checkpointDate + " failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Checkpoints every balance in chunks of accounts. Each chunk share-locks its accounts first,
+     * which waits for postings in flight on them and holds new ones back until the chunk commits.
+     */
+    public CompletableFuture<ChunkResult> checkpointAsync(LocalDate checkpointDate) {
+        Date date = Date.valueOf(checkpointDate);
+        return batchRunner.runAsync(CHECKPOINT_JOB, checkpointDate.toString(), "savings_accounts", 1,
+                checkpointChunkSize, (from, to) -> {
+                    jdbcTemplate.queryForList(SHARE_LOCK_SQL, Long.class, from, to);
+                    return new ChunkResult(jdbcTemplate.update(CHECKPOINT_SQL, date, from, to), BigDecimal.ZERO);
+                });
+    }
+
+    /**
+     * Returns the accounts whose balance differs from their last checkpoint plus later ledger movements.
+     */
+    public List<Map<String, Object>> reconcile() {
+        List<Map<String, Object>> breaks = jdbcTemplate.queryForList(RECONCILE_SQL);
+        if (breaks.isEmpty()) {
+            log.info("Savings ledger reconciled with no breaks");
+        } else {
+            breaks.forEach(row -> log.warn("Savings ledger break on account {}: balance {}, expected {} since checkpoint {}",
+                    row.get("account_id"), row.get("balance"), row.get("expected"), row.get("checkpoint_date")));
+        }
+        return breaks;
+    }
+
+    private RuntimeException rejected(Long accountId) {
+        SavingsAccount account = savingsAccountRepository.findById(accountId)
+                .orElseThrow(() -> new RuntimeException("Savings account not found: " + accountId));
+        if (!"ACTIVE".equals(account.getStatus())) {
+            return new RuntimeException("Account is not active. Status: " + account.getStatus());
+        }
+        return new RuntimeException("Insufficient balance. Minimum balance requirement: " + account.getMinimumBalance());
+    }
+
+    private void requirePositive(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Posting amount must be positive");
+        }
+    }
+}
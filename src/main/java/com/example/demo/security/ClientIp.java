@@ -0,0 +1,27 @@
+package com.example.demo.security;
+
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Client address of the current HTTP request.
+ * Forwarding headers are never read here: with {@code server.forward-headers-strategy=native} the
+ * container replaces the remote address with the X-Forwarded-For client only when the connection
+ * comes from a proxy listed in {@code server.tomcat.remoteip.internal-proxies}, so a client that
+ * connects directly cannot choose the address the login throttle keys on.
+ */
+public final class ClientIp {
+
+    private ClientIp() {
+    }
+
+    /**
+     * Remote address of the current request, already resolved through trusted proxies; null outside a request.
+     */
+    public static String resolve() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        return attributes.getRequest().getRemoteAddr();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Failed-login throttle shared by staff and mobile logins.
+ * Failures are kept per account and per client IP in Redis sliding windows; once either window is
+ * full, attempts are rejected before the user lookup and bcrypt check, so credential stuffing costs
+ * one Redis round trip per attempt instead of a bcrypt hash. A successful login clears the account
+ * window. If Redis is unavailable the throttle fails open.
+ */
+@Component
+@Slf4j
+public class LoginThrottle {
+
+    private static final String PREFIX = "login:fail:";
+
+    /**
+     * Returns 1 when any window is full. KEYS windows; ARGV[1] now ms, ARGV[2] window ms, ARGV[3..] limit per key.
+     */
+    private static final DefaultRedisScript<Long> CHECK_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) " +
+            "for i, key in ipairs(KEYS) do " +
+            "  redis.call('ZREMRANGEBYSCORE', key, 0, now - tonumber(ARGV[2])) " +
+            "  if redis.call('ZCARD', key) >= tonumber(ARGV[2 + i]) then return 1 end " +
+            "end " +
+            "return 0", Long.class);
+
+    /**
+     * Adds a failure to every window. KEYS windows; ARGV[1] now ms, ARGV[2] window ms, ARGV[3] failure id.
+     */
+    private static final DefaultRedisScript<Long> FAIL_SCRIPT = new DefaultRedisScript<>(
+            "for _, key in ipairs(KEYS) do " +
+            "  redis.call('ZADD', key, ARGV[1], ARGV[3]) " +
+            "  redis.call('PEXPIRE', key, ARGV[2]) " +
+            "end " +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder loginNanos = new LongAdder();
+
+    @Value("${login.throttle.window-minutes:15}")
+    private long windowMinutes;
+
+    @Value("${login.throttle.account-failures:5}")
+    private int accountFailures;
+
+    @Value("${login.throttle.ip-failures:30}")
+    private int ipFailures;
+
+    public LoginThrottle(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * True when the account or the client IP has too many recent failures.
+     */
+    public boolean isBlocked(String channel, String account, String ip) {
+        attempts.increment();
+        List<String> keys = keys(channel, account, ip);
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(windowMinutes * 60_000));
+        args.add(String.valueOf(accountFailures));
+        if (keys.size() > 1) {
+            args.add(String.valueOf(ipFailures));
+        }
+        try {
+            Long result = redisTemplate.execute(CHECK_SCRIPT, keys, args.toArray());
+            if (result != null && result == 1L) {
+                throttled.increment();
+                log.warn("Login throttled for {} account {} from {}", channel, account, ip);
+                return true;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Login throttle unavailable, allowing attempt: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    public void recordFailure(String channel, String account, String ip) {
+        failures.increment();
+        try {
+            redisTemplate.execute(FAIL_SCRIPT, keys(channel, account, ip),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(windowMinutes * 60_000),
+                    UUID.randomUUID().toString());
+        } catch (DataAccessException e) {
+            log.warn("Could not record login failure: {}", e.getMessage());
+        }
+    }
+
+    public void recordSuccess(String channel, String account) {
+        successes.increment();
+        try {
+            redisTemplate.delete(PREFIX + channel + ":acct:" + account);
+        } catch (DataAccessException e) {
+            log.warn("Could not clear login failures: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the handling time of one login attempt, for the throughput figures in {@link #snapshot()}.
+     */
+    public void recordLatency(long startedNanos) {
+        loginNanos.add(System.nanoTime() - startedNanos);
+    }
+
+    public Map<String, Object> snapshot() {
+        long n = attempts.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("attempts", n);
+        result.put("throttled", throttled.sum());
+        result.put("failures", failures.sum());
+        result.put("successes", successes.sum());
+        result.put("avgMs", n > 0 ? loginNanos.sum() / n / 1_000_000.0 : 0.0);
+        return result;
+    }
+
+    private static List<String> keys(String channel, String account, String ip) {
+        List<String> keys = new ArrayList<>();
+        keys.add(PREFIX + channel + ":acct:" + account);
+        if (ip != null) {
+            keys.add(PREFIX + "ip:" + ip);
+        }
+        return keys;
+    }
+}
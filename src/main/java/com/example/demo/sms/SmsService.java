@@ -8,6 +8,7 @@ import com.example.demo.sms.dto.SmsTestRequest;
 import com.example.demo.sms.dto.SmsTestResponse;
 import com.example.demo.sms.entities.SmsConfig;
 import com.example.demo.sms.repositories.SmsConfigRepository;
+import com.example.demo.system.cache.ReferenceDataCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.ParameterizedTypeReference;
@@ -30,6 +31,7 @@ public class SmsService {
     private final RestTemplate restTemplate;
     private final SmsConfigRepository smsConfigRepository;
     private final emailRepo emailRepo;
+    private final ReferenceDataCache referenceDataCache;
 
     private static final String DEFAULT_TEXTSMS_BASE_URL = "https://sms.textsms.co.ke";
 
@@ -635,11 +637,13 @@ public class SmsService {
     }
 
     private SmsConfig resolveActiveConfig() {
-        return smsConfigRepository.findByActiveTrueAndDefaultConfigTrue()
-            .orElseGet(() -> smsConfigRepository.findAll().stream()
-                .filter(SmsConfig::getActive)
-                .findFirst()
-                .orElse(null));
+        return referenceDataCache.<String, SmsConfig>entityCache(ReferenceDataCache.SMS_CONFIG, SmsConfig::new)
+            .get("active", k -> smsConfigRepository.findByActiveTrueAndDefaultConfigTrue()
+                .orElseGet(() -> smsConfigRepository.findAll().stream()
+                    .filter(SmsConfig::getActive)
+                    .findFirst()
+                    .orElse(null)))
+            .orElse(null);
     }
 
     private boolean isSmsEnabled() {
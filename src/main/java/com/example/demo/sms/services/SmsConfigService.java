@@ -3,6 +3,7 @@ package com.example.demo.sms.services;
 import com.example.demo.sms.dto.SmsConfigDTO;
 import com.example.demo.sms.entities.SmsConfig;
 import com.example.demo.sms.repositories.SmsConfigRepository;
+import com.example.demo.system.cache.ReferenceDataCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -17,6 +18,7 @@ import java.util.Optional;
 public class SmsConfigService {
 
     private final SmsConfigRepository smsConfigRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     public List<SmsConfigDTO> getAllConfigurations(boolean maskSensitive) {
         return smsConfigRepository.findAll().stream()
@@ -62,6 +64,7 @@ public class SmsConfigService {
 
         SmsConfig saved = smsConfigRepository.save(config);
         log.info("SMS configuration created with ID {}", saved.getId());
+        referenceDataCache.invalidate(ReferenceDataCache.SMS_CONFIG);
         return SmsConfigDTO.fromEntity(saved, true);
     }
 
@@ -79,6 +82,7 @@ public class SmsConfigService {
 
         SmsConfig saved = smsConfigRepository.save(config);
         log.info("SMS configuration updated: {}", id);
+        referenceDataCache.invalidate(ReferenceDataCache.SMS_CONFIG);
         return SmsConfigDTO.fromEntity(saved, true);
     }
 
@@ -90,6 +94,7 @@ public class SmsConfigService {
         }
         smsConfigRepository.delete(config);
         log.info("SMS configuration deleted: {}", id);
+        referenceDataCache.invalidate(ReferenceDataCache.SMS_CONFIG);
     }
 
     @Transactional
@@ -97,6 +102,7 @@ public class SmsConfigService {
         SmsConfig config = getConfigurationEntity(id);
         config.setActive(!Boolean.TRUE.equals(config.getActive()));
         SmsConfig saved = smsConfigRepository.save(config);
+        referenceDataCache.invalidate(ReferenceDataCache.SMS_CONFIG);
         return SmsConfigDTO.fromEntity(saved, true);
     }
 
@@ -106,6 +112,7 @@ public class SmsConfigService {
         clearExistingDefault(id);
         config.setDefaultConfig(true);
         SmsConfig saved = smsConfigRepository.save(config);
+        referenceDataCache.invalidate(ReferenceDataCache.SMS_CONFIG);
         return SmsConfigDTO.fromEntity(saved, true);
     }
 
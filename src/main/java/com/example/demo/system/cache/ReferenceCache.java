@@ -0,0 +1,141 @@
+package com.example.demo.system.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded in-process cache for one kind of reference data. Entries expire after a fixed time to
+ * live and the cache never grows past its size limit; a miss that would overflow it evicts the
+ * oldest entries. Absent values are cached too, so a lookup for a missing code does not hit the
+ * database every time.
+ * <p>
+ * Every invalidation bumps a generation counter; a load that started before an invalidation is
+ * returned to its caller but not stored, so a slow read cannot put pre-update data back.
+ * <p>
+ * Values must be immutable, or the cache is given a copier: it then stores a copy of what the
+ * loader returned and hands every caller its own copy, so no caller can change what another sees.
+ */
+public class ReferenceCache<K, V> {
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final UnaryOperator<V> copier;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ReferenceCache(String name, int maxSize, long ttlMillis) {
+        this(name, maxSize, ttlMillis, UnaryOperator.identity());
+    }
+
+    public ReferenceCache(String name, int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.copier = copier;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Cached value for the key, loading it on a miss. The loader may return null for "not found".
+     * A null key bypasses the cache.
+     */
+    public Optional<V> get(K key, Function<K, V> loader) {
+        if (key == null) {
+            return Optional.ofNullable(copy(loader.apply(null)));
+        }
+        long now = System.currentTimeMillis();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && now - entry.loadedAt < ttlMillis) {
+            hits.increment();
+            return Optional.ofNullable(copy(entry.value));
+        }
+        misses.increment();
+        long startedAt = generation.get();
+        V value = copy(loader.apply(key));
+        if (generation.get() == startedAt) {
+            if (entry == null && entries.size() >= maxSize) {
+                evictOldest();
+            }
+            // checked under the entry's lock, which an invalidation waits for before removing it
+            Entry<V> loaded = new Entry<>(value, now);
+            entries.compute(key, (k, current) -> generation.get() == startedAt ? loaded : current);
+        }
+        return Optional.ofNullable(copy(value));
+    }
+
+    public void invalidate(K key) {
+        generation.incrementAndGet();
+        entries.remove(key);
+        invalidations.increment();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        invalidations.increment();
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", entries.size());
+        result.put("maxSize", maxSize);
+        result.put("hits", h);
+        result.put("misses", m);
+        result.put("hitRatio", h + m > 0 ? (double) h / (h + m) : 0.0);
+        result.put("evictions", evictions.sum());
+        result.put("invalidations", invalidations.sum());
+        return result;
+    }
+
+    private V copy(V value) {
+        return value == null ? null : copier.apply(value);
+    }
+
+    private void evictOldest() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        entries.values().removeIf(e -> e.loadedAt < cutoff);
+        // reference tables are small; when live entries still fill the cache, drop the oldest tenth
+        int excess = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        if (excess <= 0) {
+            return;
+        }
+        Iterator<Map.Entry<K, Entry<V>>> oldest = entries.entrySet().stream()
+                .sorted((a, b) -> Long.compare(a.getValue().loadedAt, b.getValue().loadedAt))
+                .limit(excess)
+                .iterator();
+        while (oldest.hasNext()) {
+            Map.Entry<K, Entry<V>> e = oldest.next();
+            if (entries.remove(e.getKey(), e.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.system.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the reference-data caches (payment and SMS configs, products, chart of accounts,
+ * branches, roles, compiled charge rules, closed accounting periods). Services register a typed cache once and call {@link #invalidate(String)} from
+ * their write paths. Invalidation clears the local cache straight away and again after the
+ * surrounding transaction commits, then publishes the cache name on a Redis channel so every other
+ * node clears its copy too. If Redis is down the message is lost and other nodes catch up when
+ * their entries expire.
+ */
+@Component
+@Slf4j
+public class ReferenceDataCache implements MessageListener {
+
+    public static final String MPESA_CONFIG = "mpesaConfig";
+    public static final String SMS_CONFIG = "smsConfig";
+    public static final String PRODUCTS = "products";
+    public static final String CHART_OF_ACCOUNTS = "chartOfAccounts";
+    public static final String BRANCHES = "branches";
+    public static final String ROLES = "roles";
+    public static final String CHARGES = "charges";
+    public static final String ACCOUNTING_PERIODS = "accountingPeriods";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Map<String, ReferenceCache<?, ?>> caches = new ConcurrentHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${refdata.cache.channel:refdata:invalidate}")
+    private String channel;
+
+    @Value("${refdata.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${refdata.cache.max-size:1000}")
+    private int maxSize;
+
+    public ReferenceDataCache(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Cache for immutable values such as names or unmodifiable lists.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> ReferenceCache<K, V> cache(String name) {
+        return (ReferenceCache<K, V>) caches.computeIfAbsent(name,
+                n -> new ReferenceCache<>(n, maxSize, ttlSeconds * 1000));
+    }
+
+    /**
+     * Cache for entities. Loaded entities are copied property by property into detached instances
+     * made by {@code factory}, and every lookup gets its own copy, so a caller that changes the
+     * result changes neither the cache nor what other threads see. The cached entities must have
+     * only simple fields; associations would still be shared.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> ReferenceCache<K, V> entityCache(String name, Supplier<V> factory) {
+        return (ReferenceCache<K, V>) caches.computeIfAbsent(name,
+                n -> new ReferenceCache<K, V>(n, maxSize, ttlSeconds * 1000, source -> {
+                    V copy = factory.get();
+                    BeanUtils.copyProperties(source, copy);
+                    return copy;
+                }));
+    }
+
+    /**
+     * Drops every entry of the named cache on this node and, once committed, on all other nodes.
+     */
+    public void invalidate(String name) {
+        invalidateLocal(name);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateLocal(name);
+                    publish(name);
+                }
+            });
+        } else {
+            publish(name);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        caches.values().forEach(c -> result.put(c.getName(), c.stats()));
+        return result;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf('|');
+        if (sep < 0 || body.substring(0, sep).equals(nodeId)) {
+            return;
+        }
+        String name = body.substring(sep + 1);
+        log.debug("Reference cache {} invalidated by another node", name);
+        invalidateLocal(name);
+    }
+
+    private void invalidateLocal(String name) {
+        ReferenceCache<?, ?> cache = caches.get(name);
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private void publish(String name) {
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + "|" + name);
+        } catch (DataAccessException e) {
+            log.warn("Could not publish invalidation of {} cache: {}", name, e.getMessage());
+        }
+    }
+}
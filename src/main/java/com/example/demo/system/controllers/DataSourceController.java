@@ -0,0 +1,27 @@
+package com.example.demo.system.controllers;
+
+import com.example.demo.config.PoolMetrics;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/system/datasource")
+@RequiredArgsConstructor
+@Tag(name = "Data Source", description = "Connection pool statistics")
+public class DataSourceController {
+
+    private final PoolMetrics poolMetrics;
+
+    @GetMapping("/pools")
+    @Operation(summary = "Get active, idle and pending connections and wait times per pool")
+    public ResponseEntity<Map<String, Object>> getPools() {
+        return ResponseEntity.ok(poolMetrics.snapshot());
+    }
+}
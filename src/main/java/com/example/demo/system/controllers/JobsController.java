@@ -0,0 +1,41 @@
+package com.example.demo.system.controllers;
+
+import com.example.demo.system.parsitence.models.JobFence;
+import com.example.demo.system.parsitence.repositories.JobFenceRepo;
+import com.example.demo.system.services.JobCoordinator;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/system/jobs")
+@RequiredArgsConstructor
+@Tag(name = "Jobs", description = "Scheduled job coordination across nodes")
+public class JobsController {
+
+    private final JobCoordinator jobCoordinator;
+    private final JobFenceRepo jobFenceRepo;
+
+    @GetMapping
+    @Operation(summary = "Get lease acquisition, hold time and runtime per job on this node")
+    public ResponseEntity<Map<String, Object>> getJobs() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("node", jobCoordinator.getNodeId());
+        result.put("jobs", jobCoordinator.snapshot());
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/fences")
+    @Operation(summary = "Get the latest committed fencing token per job across the cluster")
+    public ResponseEntity<List<JobFence>> getFences() {
+        return ResponseEntity.ok(jobFenceRepo.findAllByOrderByUpdatedAtDesc());
+    }
+}
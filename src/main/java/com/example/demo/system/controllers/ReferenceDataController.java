@@ -0,0 +1,36 @@
+package com.example.demo.system.controllers;
+
+import com.example.demo.system.cache.ReferenceDataCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/system/reference-cache")
+@RequiredArgsConstructor
+@Tag(name = "Reference Data Cache", description = "Reference-data cache statistics and invalidation")
+public class ReferenceDataController {
+
+    private final ReferenceDataCache referenceDataCache;
+
+    @GetMapping("/stats")
+    @Operation(summary = "Get size, hit ratio and eviction counts per cache")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(referenceDataCache.stats());
+    }
+
+    @PostMapping("/{name}/invalidate")
+    @Operation(summary = "Clear a cache on every node")
+    public ResponseEntity<Map<String, Object>> invalidate(@PathVariable String name) {
+        referenceDataCache.invalidate(name);
+        return ResponseEntity.ok(Map.of("success", true, "cache", name));
+    }
+}
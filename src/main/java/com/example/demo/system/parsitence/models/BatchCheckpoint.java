@@ -0,0 +1,52 @@
+package com.example.demo.system.parsitence.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Progress marker for one partition of a chunked batch run.
+ * A partition covers the id range (lastId, endId]; lastId advances in the same transaction
+ * as each chunk, so a restarted run resumes after the last committed chunk.
+ */
+@Entity
+@Table(name = "batch_checkpoints",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"job_name", "run_key", "partition_no"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 50)
+    private String jobName;
+
+    @Column(name = "run_key", nullable = false, length = 50)
+    private String runKey;
+
+    @Column(name = "partition_no", nullable = false)
+    private Integer partitionNo;
+
+    private Long lastId;
+
+    private Long endId;
+
+    @Column(length = 20)
+    private String status; // PENDING, COMPLETED
+
+    private Long processed;
+
+    @Column(precision = 19, scale = 4)
+    private BigDecimal amount;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,29 @@
+package com.example.demo.system.parsitence.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Highest fencing token that has committed work for a coordinated job (or job partition).
+ * A holder whose token is lower than the stored one has lost its lease and must not commit.
+ */
+@Entity
+@Table(name = "job_fences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobFence {
+
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    @Column(nullable = false)
+    private Long token;
+
+    private LocalDateTime updatedAt;
+}
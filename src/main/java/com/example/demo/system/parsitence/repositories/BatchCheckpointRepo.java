@@ -0,0 +1,17 @@
+package com.example.demo.system.parsitence.repositories;
+
+import com.example.demo.system.parsitence.models.BatchCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface BatchCheckpointRepo extends JpaRepository<BatchCheckpoint, Long> {
+
+    List<BatchCheckpoint> findByJobNameAndRunKeyOrderByPartitionNo(String jobName, String runKey);
+
+    @Query("select coalesce(sum(b.amount), 0) from BatchCheckpoint b where b.jobName = :jobName and b.runKey = :runKey")
+    BigDecimal sumAmount(@Param("jobName") String jobName, @Param("runKey") String runKey);
+}
@@ -0,0 +1,11 @@
+package com.example.demo.system.parsitence.repositories;
+
+import com.example.demo.system.parsitence.models.JobFence;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface JobFenceRepo extends JpaRepository<JobFence, String> {
+
+    List<JobFence> findAllByOrderByUpdatedAtDesc();
+}
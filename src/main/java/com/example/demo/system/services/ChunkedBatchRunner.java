@@ -0,0 +1,278 @@
+package com.example.demo.system.services;
+
+import com.example.demo.config.DataSourceRoute;
+import com.example.demo.system.parsitence.models.BatchCheckpoint;
+import com.example.demo.system.parsitence.repositories.BatchCheckpointRepo;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a set-based batch over a table's id range, split into partitions processed in parallel
+ * and chunks committed one at a time. Each chunk commits together with its checkpoint, so a
+ * crashed or repeated run resumes after the last committed chunk and never re-applies one.
+ * Partitions run on the runner's own threads ({@code jobs.batch.threads}) and the batch connection
+ * pool, never on the caller's or the scheduler's thread.
+ * <p>
+ * Across nodes, each partition is held under its own {@link JobCoordinator} lease and every chunk
+ * is fenced, so several nodes running the same job share its partitions and a partition whose
+ * node dies is picked up by another once the lease expires.
+ */
+@Service
+@Log4j2
+public class ChunkedBatchRunner {
+
+    /**
+     * Set-based work for the id range (fromExclusive, toInclusive]. Runs inside the chunk transaction.
+     */
+    @FunctionalInterface
+    public interface ChunkWork {
+        ChunkResult process(long fromExclusive, long toInclusive);
+    }
+
+    public static final class ChunkResult {
+        private final long count;
+        private final BigDecimal amount;
+
+        public ChunkResult(long count, BigDecimal amount) {
+            this.count = count;
+            this.amount = amount != null ? amount : BigDecimal.ZERO;
+        }
+
+        public static ChunkResult of(Map<String, Object> row) {
+            return new ChunkResult(((Number) row.get("n")).longValue(), (BigDecimal) row.get("total"));
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+    }
+
+    private static final String ADVANCE_SQL =
+            "UPDATE batch_checkpoints SET last_id = ?, processed = processed + ?, amount = amount + ?, " +
+            "status = ?, updated_at = ? WHERE id = ?";
+
+    private final BatchCheckpointRepo checkpointRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobCoordinator jobCoordinator;
+
+    private final ScheduledExecutorService executor;
+
+    @Value("${jobs.partition-wait-ms:2000}")
+    private long partitionWaitMs;
+
+    @Value("${jobs.partition-stall-timeout-ms:600000}")
+    private long partitionStallTimeoutMs;
+
+    public ChunkedBatchRunner(BatchCheckpointRepo checkpointRepo, JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager, JobCoordinator jobCoordinator,
+                              @Value("${jobs.batch.threads:4}") int threads) {
+        this.checkpointRepo = checkpointRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobCoordinator = jobCoordinator;
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "batch-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs (or resumes) {@code jobName} for {@code runKey} over the ids of {@code table} on the
+     * runner's threads and returns at once. The result holds the totals accumulated across all
+     * partitions, including earlier attempts.
+     */
+    public CompletableFuture<ChunkResult> runAsync(String jobName, String runKey, String table, int partitions,
+                                                   int chunkSize, ChunkWork work) {
+        long started = System.currentTimeMillis();
+        return planned(jobName, runKey, table, partitions).thenCompose(checkpoints -> {
+            List<CompletableFuture<Void>> pending = new ArrayList<>();
+            for (BatchCheckpoint checkpoint : checkpoints) {
+                if (!"COMPLETED".equals(checkpoint.getStatus())) {
+                    String lease = jobName + ":" + runKey + ":p" + checkpoint.getPartitionNo();
+                    pending.add(partition(lease, checkpoint.getId(), chunkSize, work));
+                }
+            }
+            return CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]));
+        }).thenApply(ignored -> {
+            List<BatchCheckpoint> done = checkpointRepo.findByJobNameAndRunKeyOrderByPartitionNo(jobName, runKey);
+            long processed = done.stream().mapToLong(BatchCheckpoint::getProcessed).sum();
+            BigDecimal amount = done.stream().map(BatchCheckpoint::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+            log.info("Batch {} {} finished: {} rows, amount {} in {} ms",
+                    jobName, runKey, processed, amount, System.currentTimeMillis() - started);
+            return new ChunkResult(processed, amount);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Completes with the run's checkpoints, planning them under a lease if nobody has yet. While
+     * another node is planning, the check is rescheduled rather than waited for.
+     */
+    private CompletableFuture<List<BatchCheckpoint>> planned(String jobName, String runKey, String table, int partitions) {
+        CompletableFuture<List<BatchCheckpoint>> result = new CompletableFuture<>();
+        long deadline = System.currentTimeMillis() + partitionStallTimeoutMs;
+        Runnable attempt = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<BatchCheckpoint> checkpoints = checkpointRepo.findByJobNameAndRunKeyOrderByPartitionNo(jobName, runKey);
+                    if (checkpoints.isEmpty()) {
+                        jobCoordinator.runExclusive(jobName + ":" + runKey + ":plan", () -> {
+                            if (checkpointRepo.findByJobNameAndRunKeyOrderByPartitionNo(jobName, runKey).isEmpty()) {
+                                plan(jobName, runKey, table, partitions);
+                            }
+                        });
+                        checkpoints = checkpointRepo.findByJobNameAndRunKeyOrderByPartitionNo(jobName, runKey);
+                    }
+                    if (!checkpoints.isEmpty()) {
+                        result.complete(checkpoints);
+                    } else if (System.currentTimeMillis() > deadline) {
+                        result.completeExceptionally(new IllegalStateException("Batch " + jobName + " " + runKey + " could not be planned"));
+                    } else {
+                        executor.schedule(this, partitionWaitMs, TimeUnit.MILLISECONDS);
+                    }
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        };
+        executor.execute(attempt);
+        return result;
+    }
+
+    private CompletableFuture<Void> partition(String lease, Long checkpointId, int chunkSize, ChunkWork work) {
+        PartitionAttempt attempt = new PartitionAttempt(lease, checkpointId, chunkSize, work);
+        executor.execute(attempt);
+        return attempt.done;
+    }
+
+    private List<BatchCheckpoint> plan(String jobName, String runKey, String table, int partitions) {
+        Map<String, Object> bounds = jdbcTemplate.queryForMap(
+                "SELECT COALESCE(MIN(id), 0) AS lo, COALESCE(MAX(id), 0) AS hi FROM " + table);
+        long lo = ((Number) bounds.get("lo")).longValue() - 1;
+        long hi = ((Number) bounds.get("hi")).longValue();
+        long span = Math.max(1, (hi - lo + partitions - 1) / partitions);
+
+        List<BatchCheckpoint> checkpoints = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            long from = lo + i * span;
+            if (from >= hi && i > 0) {
+                break;
+            }
+            checkpoints.add(BatchCheckpoint.builder()
+                    .jobName(jobName)
+                    .runKey(runKey)
+                    .partitionNo(i)
+                    .lastId(from)
+                    .endId(i == partitions - 1 ? hi : Math.min(hi, from + span))
+                    .status("PENDING")
+                    .processed(0L)
+                    .amount(BigDecimal.ZERO)
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        }
+        return checkpointRepo.saveAll(checkpoints);
+    }
+
+    /**
+     * One look at a partition: runs it here when its lease is free; while another node holds it,
+     * checks again after {@code partitionWaitMs} so that this node takes over if that node stops
+     * before completing it. Each check is its own task, so no thread waits on a held lease. Gives
+     * up when the partition makes no progress for the stall timeout (for instance while Redis is
+     * unreachable).
+     */
+    private final class PartitionAttempt implements Runnable {
+        private final String lease;
+        private final Long checkpointId;
+        private final int chunkSize;
+        private final ChunkWork work;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private long seenLastId = Long.MIN_VALUE;
+        private long deadline;
+
+        private PartitionAttempt(String lease, Long checkpointId, int chunkSize, ChunkWork work) {
+            this.lease = lease;
+            this.checkpointId = checkpointId;
+            this.chunkSize = chunkSize;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            try {
+                DataSourceRoute.run(DataSourceRoute.BATCH, this::attempt);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }
+
+        private void attempt() {
+            BatchCheckpoint checkpoint = checkpointRepo.findById(checkpointId).orElseThrow();
+            if ("COMPLETED".equals(checkpoint.getStatus())) {
+                done.complete(null);
+                return;
+            }
+            if (checkpoint.getLastId() != seenLastId) {
+                seenLastId = checkpoint.getLastId();
+                deadline = System.currentTimeMillis() + partitionStallTimeoutMs;
+            } else if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Partition " + lease + " made no progress for "
+                        + partitionStallTimeoutMs + " ms");
+            }
+            if (jobCoordinator.runExclusive(lease, () -> runPartition(checkpointId, chunkSize, work))) {
+                executor.execute(this);
+            } else {
+                executor.schedule(this, partitionWaitMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void runPartition(Long checkpointId, int chunkSize, ChunkWork work) {
+        // re-read under the lease: the previous holder may have advanced it
+        BatchCheckpoint checkpoint = checkpointRepo.findById(checkpointId).orElseThrow();
+        long lastId = checkpoint.getLastId();
+        long endId = checkpoint.getEndId();
+        while (lastId < endId) {
+            long from = lastId;
+            long to = Math.min(endId, from + chunkSize);
+            transactionTemplate.executeWithoutResult(status -> {
+                ChunkResult result = work.process(from, to);
+                jobCoordinator.fence();
+                jdbcTemplate.update(ADVANCE_SQL, to, result.getCount(), result.getAmount(),
+                        to >= endId ? "COMPLETED" : "PENDING", LocalDateTime.now(), checkpointId);
+            });
+            lastId = to;
+        }
+        if (!"COMPLETED".equals(checkpoint.getStatus()) && checkpoint.getLastId() >= endId) {
+            jdbcTemplate.update("UPDATE batch_checkpoints SET status = 'COMPLETED', updated_at = ? WHERE id = ?",
+                    LocalDateTime.now(), checkpointId);
+        }
+    }
+}
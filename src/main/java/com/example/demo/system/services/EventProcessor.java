@@ -6,6 +6,7 @@ import com.example.demo.customerManagement.serviceImplimentations.CustomerServic
 import com.example.demo.enums.Statuses;
 import com.example.demo.events.appEvents.CreateAccountEvent;
 import com.example.demo.events.appEvents.CreateRepaymentScheduleEvent;
+import com.example.demo.events.appEvents.LoanDisbursementRequestedEvent;
 import com.example.demo.events.appEvents.SubscriptionEvent;
 import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
 import com.example.demo.loanManagement.parsistence.entities.LoanRepaymentSchedule;
@@ -14,7 +15,9 @@ import com.example.demo.loanManagement.parsistence.models.LoanAccountModel;
 import com.example.demo.loanManagement.parsistence.models.LoanBookUpload;
 import com.example.demo.loanManagement.parsistence.models.RepaymentSchedules;
 import com.example.demo.loanManagement.parsistence.repositories.LoanRepaymentScheduleRepository;
+import com.example.demo.loanManagement.services.EligibilitySnapshotService;
 import com.example.demo.loanManagement.services.LoanService;
+import com.example.demo.mobile.services.ChannelReadModelService;
 import lombok.extern.apachecommons.CommonsLog;
 import lombok.extern.log4j.Log4j2;
 import org.modelmapper.ModelMapper;
@@ -38,6 +41,12 @@ public class EventProcessor {
     ApplicationEventPublisher eventPublisher;
     @Autowired
     BankingService bankingService;
+    @Autowired
+    ScoreService scoreService;
+    @Autowired
+    EligibilitySnapshotService eligibilitySnapshotService;
+    @Autowired
+    ChannelReadModelService channelReadModelService;
     ModelMapper mapper =new ModelMapper();
     public void uploadManualLoanBook(List<LoanBookUpload> data) {
         //        Loan Book upload
@@ -52,8 +61,9 @@ public class EventProcessor {
             icount++;
             Customer customer = new Customer(upload);
             customer=this.createCustomerWithSubscripton(customer, upload.getProductName());
-            bankingService.createBankAccounts(customer);
-            bankingService.processInitialDepositIfPresent(customer);
+            if (customer!=null){
+                bankingService.requestAccountProvisioning(customer);
+            }
             //fire create account event
              eventPublisher.publishEvent(new CreateAccountEvent(this,upload,customer));
         }
@@ -95,6 +105,38 @@ public class EventProcessor {
     }
 
 
+    public void refreshCreditScore(String customerId) {
+        try {
+            scoreService.refreshScore(Long.valueOf(customerId));
+        } catch (NumberFormatException e) {
+            log.warn("Skipping score refresh for non-numeric customer id {}",customerId);
+        }
+    }
+
+    public void refreshEligibility(String customerId) {
+        eligibilitySnapshotService.refreshCustomer(customerId);
+    }
+
+    public void refreshChannelView(String customerId) {
+        try {
+            channelReadModelService.refreshCustomer(Long.valueOf(customerId));
+        } catch (NumberFormatException e) {
+            log.warn("Skipping channel view refresh for non-numeric customer id {}",customerId);
+        }
+    }
+
+    public void provisionAccounts(Long customerId) {
+        bankingService.provisionAccounts(customerId);
+    }
+
+    public void releaseParkedPayments(Long customerId) {
+        bankingService.releaseParkedPayments(customerId);
+    }
+
+    public void disburseLoan(LoanDisbursementRequestedEvent event) {
+        loanService.disburse(event.getTaskId());
+    }
+
     //        Customer upload
 //        1.create customer
 //        2.create subscription
@@ -0,0 +1,192 @@
+package com.example.demo.system.services;
+
+import com.example.demo.accounting.entities.JournalEntry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues unique, monotonic business references (loan numbers, loan refs, journal numbers, receipt
+ * numbers) from Postgres sequences in blocks. Each sequence increments by the block size, so one
+ * {@code nextval} reserves a whole block for this node; ids inside the block are handed out with a
+ * single atomic increment and no lock or database round trip. Only the thread that exhausts a block
+ * goes back to the database. Nodes never share a block, so ids are unique across the cluster;
+ * the unused tail of a block is skipped on restart, leaving gaps but never duplicates.
+ * <p>
+ * Sequences are created at startup and otherwise on first use, always in a transaction of their
+ * own that commits before any block is taken from them: created inside a caller's transaction that
+ * then rolled back, a sequence would vanish while its block stayed cached, and the next node to
+ * create it would hand out the same ids again.
+ */
+@Service
+@Log4j2
+public class IdGenerator {
+
+    public enum IdType {
+        LOAN_NUMBER("loan_number_seq", "SELECT COALESCE(MAX(loan_number), 0) + 1 FROM loan_application"),
+        LOAN_REF("loan_ref_seq", null),
+        JOURNAL_NUMBER("journal_number_seq", null),
+        RECEIPT_NUMBER("receipt_number_seq", null);
+
+        private final String sequence;
+        // first value for a new sequence, so numbers issued before the sequence existed are not reused
+        private final String seedSql;
+
+        IdType(String sequence, String seedSql) {
+            this.sequence = sequence;
+            this.seedSql = seedSql;
+        }
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    private static final class Allocator {
+        private volatile Block block = new Block(0, 0);
+        // the sequence's own increment; 0 until the sequence has been checked
+        private long blockLength;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate ownTransaction;
+    private final Map<IdType, Allocator> allocators = new EnumMap<>(IdType.class);
+
+    @Value("${ids.block-size:100}")
+    private int blockSize;
+
+    public IdGenerator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (IdType type : IdType.values()) {
+            allocators.put(type, new Allocator());
+        }
+    }
+
+    public long next(IdType type) {
+        Allocator allocator = allocators.get(type);
+        while (true) {
+            Block block = allocator.block;
+            long id = block.next.getAndIncrement();
+            if (id < block.end) {
+                return id;
+            }
+            refill(type, allocator, block);
+        }
+    }
+
+    /**
+     * Creates any missing sequence, each committed on its own. Called from the startup migration.
+     */
+    public void createSequences() {
+        for (IdType type : IdType.values()) {
+            Allocator allocator = allocators.get(type);
+            synchronized (allocator) {
+                if (allocator.blockLength == 0) {
+                    allocator.blockLength = createSequence(type);
+                }
+            }
+        }
+    }
+
+    public long nextLoanNumber() {
+        return next(IdType.LOAN_NUMBER);
+    }
+
+    /**
+     * e.g. {@code LN0000A7}: base-36 so refs stay short when read out over the phone.
+     */
+    public String nextLoanRef() {
+        return "LN" + pad(Long.toString(next(IdType.LOAN_REF), 36).toUpperCase(Locale.ROOT), 6);
+    }
+
+    /**
+     * e.g. {@code LR-00012345}; the number is unique across journal types.
+     */
+    public String nextJournalNumber(JournalEntry.JournalType type) {
+        String prefix = switch (type) {
+            case GENERAL -> "GJ";
+            case SALES -> "SJ";
+            case PURCHASES -> "PJ";
+            case CASH_RECEIPTS -> "CR";
+            case CASH_PAYMENTS -> "CP";
+            case LOAN_DISBURSEMENT -> "LD";
+            case LOAN_REPAYMENT -> "LR";
+            case DEPOSIT -> "DE";
+            case WITHDRAWAL -> "WD";
+            case ADJUSTMENT -> "AJ";
+            case CLOSING -> "CJ";
+        };
+        return prefix + "-" + pad(Long.toString(next(IdType.JOURNAL_NUMBER)), 8);
+    }
+
+    public String nextReceiptNumber() {
+        return "RCT" + pad(Long.toString(next(IdType.RECEIPT_NUMBER)), 9);
+    }
+
+    private void refill(IdType type, Allocator allocator, Block exhausted) {
+        synchronized (allocator) {
+            if (allocator.block != exhausted) {
+                return; // another thread already refilled
+            }
+            if (allocator.blockLength == 0) {
+                allocator.blockLength = createSequence(type);
+            }
+            // the sequence is committed and nextval is never rolled back, so the block stays
+            // reserved for this node even if the caller's transaction rolls back
+            Long start = jdbcTemplate.queryForObject("SELECT nextval('" + type.sequence + "')", Long.class);
+            allocator.block = new Block(start, start + allocator.blockLength);
+            log.debug("Allocated {} block {}..{}", type, start, start + allocator.blockLength - 1);
+        }
+    }
+
+    private long createSequence(IdType type) {
+        Long increment = ownTransaction.execute(status -> ensureSequence(type));
+        return increment != null ? increment : 1;
+    }
+
+    /**
+     * Creates the sequence if it does not exist and returns its increment. The block length always comes from
+     * the sequence, not from {@code ids.block-size}, so nodes started with different settings still
+     * reserve disjoint blocks; changing the block size of an existing sequence is a manual ALTER.
+     */
+    private long ensureSequence(IdType type) {
+        long start = 1;
+        if (type.seedSql != null) {
+            try {
+                Long seed = jdbcTemplate.queryForObject(type.seedSql, Long.class);
+                start = seed != null ? Math.max(1, seed) : 1;
+            } catch (Exception e) {
+                log.warn("Could not seed {}: {}", type.sequence, e.getMessage());
+            }
+        }
+        jdbcTemplate.execute(String.format("CREATE SEQUENCE IF NOT EXISTS %s START WITH %d INCREMENT BY %d",
+                type.sequence, start, blockSize));
+        Long increment = jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE sequencename = ?", Long.class, type.sequence);
+        return increment != null && increment > 0 ? increment : 1;
+    }
+
+    private static String pad(String value, int width) {
+        if (value.length() >= width) {
+            return value;
+        }
+        return "0".repeat(width - value.length()) + value;
+    }
+}
@@ -2,15 +2,17 @@ package com.example.demo.system.services;
 
 import com.example.demo.customerManagement.serviceImplimentations.CustomerService;
 import com.example.demo.loanManagement.parsistence.entities.Disbursements;
-import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
+import com.example.demo.loanManagement.parsistence.entities.EligibilitySnapshot;
 import com.example.demo.loanManagement.parsistence.entities.Products;
 import com.example.demo.loanManagement.parsistence.entities.Subscriptions;
+import com.example.demo.loanManagement.services.EligibilitySnapshotService;
 import com.example.demo.loanManagement.services.LoanAccountService;
 import com.example.demo.loanManagement.services.ProductService;
 import com.example.demo.loanManagement.services.SubscriptionService;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Qualifier;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Service
@@ -19,32 +21,43 @@ public final SubscriptionService subscriptionService;
 public final ProductService productService;
 public final CustomerService customerService;
 public final LoanAccountService loanAccountService;
+public final EligibilitySnapshotService eligibilitySnapshotService;
 
     public InternalChecks(
             SubscriptionService subscriptionService, 
             ProductService productService, 
             CustomerService customerService, 
-            @Qualifier("loanAccountService") LoanAccountService loanAccountService
+            @Qualifier("loanAccountService") LoanAccountService loanAccountService,
+            EligibilitySnapshotService eligibilitySnapshotService
     ) {
         this.subscriptionService = subscriptionService;
         this.productService = productService;
         this.customerService = customerService;
         this.loanAccountService = loanAccountService;
+        this.eligibilitySnapshotService = eligibilitySnapshotService;
     }
 
     //loan validation
     public String Productchecks(String[] data){
         //Received data=subscriptionId,amount,customerId
+        //snapshot lookup, falls back to the live checks when no snapshot can be built
+        Optional<EligibilitySnapshot> snapshot=eligibilitySnapshotService.findBySubscription(Long.valueOf(data[0]),data[2]);
+        if (snapshot.isPresent()){
+            return eligibilitySnapshotService.evaluate(snapshot.get(),new BigDecimal(data[1]));
+        }
+        return liveProductChecks(data);
+    }
+    public String liveProductChecks(String[] data){
         //get subscription
         Subscriptions subscription=subscriptionService.subscriptionsRepo.findById(Long.valueOf(data[0])).get();
         Products product=productService.findByProductCode(subscription.getProductCode());
         String feedback="";
         //amount check
-        Integer amount=Integer.valueOf(data[1]);
+        BigDecimal amount=new BigDecimal(data[1]);
         String currentStatus=statusCheck(data[2]);
-        if (amount>product.getMaxLimit() || amount<product.getMinLimit()){
+        if (amount.compareTo(BigDecimal.valueOf(product.getMaxLimit()))>0 || amount.compareTo(BigDecimal.valueOf(product.getMinLimit()))<0){
             feedback="NOT IN PRODUCT LIMIT";
-        }else if (amount>subscription.getCreditLimit()){
+        }else if (amount.compareTo(BigDecimal.valueOf(subscription.getCreditLimit()))>0){
             feedback="EXCEED LIMIT";
         }else if (subscription.getStatus()==Boolean.FALSE){
             feedback="INACTIVE SUBSCRIPTION";
@@ -57,14 +70,10 @@ public final LoanAccountService loanAccountService;
 
         return feedback;
     }
-    //Checking existing loan
+    //Checking existing loan: any loan not yet PAID (findByCustomerIdAndStatus matches status <> PAID),
+    //the same rule the snapshot path applies through EligibilitySnapshotService.openLoanStatus
     public String statusCheck(String customerId){
-        String status="";
-        Optional<LoanAccount> account=loanAccountService.findByCustomerIdAndStatus(customerId,"PAID");
-       if (account.isPresent()){
-           status=account.get().getStatus();
-       }
-        return  status;
+        return eligibilitySnapshotService.openLoanStatus(customerId);
     }
 
     public void bookLoan(Disbursements disbursementData) {
@@ -0,0 +1,333 @@
+package com.example.demo.system.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cluster-wide coordination for scheduled jobs. A job runs only on the node holding its lease, a
+ * Redis key set with NX and a TTL that a watchdog keeps extending while the job runs. Every grant
+ * carries a fencing token from a per-job Redis counter; jobs call {@link #fence()} inside each
+ * transaction just before it commits, which records the token in {@code job_fences} and rolls the
+ * transaction back if a newer holder has already committed. A node that stalled past its lease
+ * therefore cannot commit over the work of the node that took over.
+ * <p>
+ * With {@code jobs.coordination.enabled=false} (single-node installs without Redis) jobs run
+ * locally and fencing is skipped.
+ */
+@Service
+@Log4j2
+public class JobCoordinator {
+
+    private static final String LOCK_PREFIX = "job:lock:";
+    private static final String TOKEN_PREFIX = "job:token:";
+
+    /**
+     * KEYS[1] lock, KEYS[2] token counter; ARGV[1] owner prefix, ARGV[2] lease ms. Returns the new
+     * fencing token, or 0 when the lock is held.
+     */
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "local token = redis.call('INCR', KEYS[2]) " +
+            "redis.call('SET', KEYS[1], ARGV[1] .. token, 'PX', ARGV[2]) " +
+            "return token", Long.class);
+
+    /**
+     * KEYS[1] lock; ARGV[1] owner, ARGV[2] lease ms. Returns 1 when still held by the owner.
+     */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "  redis.call('PEXPIRE', KEYS[1], ARGV[2]) return 1 end " +
+            "return 0", Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    private static final String FENCE_SQL =
+            "INSERT INTO job_fences (job_name, token, updated_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (job_name) DO UPDATE SET token = EXCLUDED.token, updated_at = EXCLUDED.updated_at " +
+            "WHERE job_fences.token <= EXCLUDED.token";
+
+    /**
+     * Thrown by {@link #fence()} when the current holder may no longer commit.
+     */
+    public static class LeaseLostException extends RuntimeException {
+        public LeaseLostException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Lease {
+        private final String job;
+        private final String owner;
+        private final long token;
+        private volatile boolean lost;
+        private ScheduledFuture<?> renewal;
+
+        private Lease(String job, String owner, long token) {
+            this.job = job;
+            this.owner = owner;
+            this.token = token;
+        }
+    }
+
+    private static final class JobStats {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder lost = new LongAdder();
+        private final LongAdder fenceRejections = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAdder acquireAttempts = new LongAdder();
+        private final LongAdder holdNanos = new LongAdder();
+        private final AtomicLong lastRuntimeMs = new AtomicLong();
+        private final AtomicLong lastToken = new AtomicLong();
+        private final AtomicReference<LocalDateTime> lastRunAt = new AtomicReference<>();
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "job-lease-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ThreadLocal<Lease> current = new ThreadLocal<>();
+    private final Map<String, JobStats> stats = new ConcurrentHashMap<>();
+
+    @Value("${jobs.coordination.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jobs.coordination.lease-seconds:60}")
+    private long defaultLeaseSeconds;
+
+    @Value("${jobs.fences.retention-days:7}")
+    private long fenceRetentionDays;
+
+    public JobCoordinator(StringRedisTemplate redisTemplate, JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean runExclusive(String job, Runnable work) {
+        return runExclusive(job, Duration.ofSeconds(defaultLeaseSeconds), work);
+    }
+
+    /**
+     * Runs {@code work} on this thread if the job's lease can be taken; returns false without running
+     * it when another node holds the lease (or Redis is unreachable).
+     */
+    public boolean runExclusive(String job, Duration lease, Runnable work) {
+        JobStats jobStats = stats(job);
+        if (!enabled) {
+            timed(jobStats, work);
+            return true;
+        }
+        long started = System.nanoTime();
+        Lease acquired = acquire(job, lease);
+        jobStats.acquireAttempts.increment();
+        jobStats.acquireNanos.add(System.nanoTime() - started);
+        if (acquired == null) {
+            jobStats.skipped.increment();
+            return false;
+        }
+        jobStats.lastToken.set(acquired.token);
+        long leaseMs = lease.toMillis();
+        acquired.renewal = watchdog.scheduleAtFixedRate(() -> renew(acquired, leaseMs, jobStats),
+                leaseMs / 3, leaseMs / 3, TimeUnit.MILLISECONDS);
+        Lease outer = current.get();
+        current.set(acquired);
+        long held = System.nanoTime();
+        try {
+            timed(jobStats, work);
+        } finally {
+            acquired.renewal.cancel(false);
+            release(acquired);
+            jobStats.holdNanos.add(System.nanoTime() - held);
+            if (outer == null) {
+                current.remove();
+            } else {
+                current.set(outer);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs {@code work} exclusively inside one transaction fenced before commit, for jobs whose
+     * writes fit in a single transaction.
+     */
+    public boolean runExclusiveInTransaction(String job, Runnable work) {
+        return runExclusive(job, () -> fencedTransaction(work));
+    }
+
+    /**
+     * Runs {@code work} in its own transaction and fences it before commit, for jobs that commit
+     * in several transactions while holding one lease.
+     */
+    public void fencedTransaction(Runnable work) {
+        transactionTemplate.executeWithoutResult(status -> {
+            work.run();
+            fence();
+        });
+    }
+
+    /**
+     * Checks that the lease held by this thread is still the newest grant for its job. Call inside
+     * the job's transaction, after its writes; the fence row stays locked until commit, so an older
+     * holder either commits first or is rejected here and rolls back.
+     */
+    public void fence() {
+        Lease lease = current.get();
+        if (lease == null || !enabled) {
+            return;
+        }
+        JobStats jobStats = stats(lease.job);
+        if (lease.lost) {
+            jobStats.fenceRejections.increment();
+            throw new LeaseLostException("Lease on " + lease.job + " was lost; token " + lease.token + " may not commit");
+        }
+        int updated = jdbcTemplate.update(FENCE_SQL, lease.job, lease.token, LocalDateTime.now());
+        if (updated == 0) {
+            jobStats.fenceRejections.increment();
+            throw new LeaseLostException("Job " + lease.job + " has a newer holder than token " + lease.token);
+        }
+    }
+
+    /**
+     * Drops fence rows not written within the retention period. Batch partitions fence under
+     * per-run job names, which would otherwise leave one row per partition and run forever; a
+     * holder stalled for longer than the retention period lost its lease days before. Runs on
+     * every node, the delete being idempotent.
+     */
+    @Scheduled(cron = "${jobs.fences.prune-cron:0 30 3 * * *}")
+    public void pruneFences() {
+        if (!enabled) {
+            return;
+        }
+        int removed = jdbcTemplate.update("DELETE FROM job_fences WHERE updated_at < ?",
+                LocalDateTime.now().minusDays(fenceRetentionDays));
+        if (removed > 0) {
+            log.info("Pruned {} job fences older than {} days", removed, fenceRetentionDays);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        stats.forEach((job, s) -> {
+            long runs = s.runs.sum();
+            long attempts = s.acquireAttempts.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("runs", runs);
+            row.put("skipped", s.skipped.sum());
+            row.put("failures", s.failures.sum());
+            row.put("leasesLost", s.lost.sum());
+            row.put("fenceRejections", s.fenceRejections.sum());
+            row.put("avgAcquireMs", attempts > 0 ? s.acquireNanos.sum() / attempts / 1_000_000.0 : 0.0);
+            row.put("avgHoldMs", runs > 0 ? s.holdNanos.sum() / runs / 1_000_000.0 : 0.0);
+            row.put("lastRuntimeMs", s.lastRuntimeMs.get());
+            row.put("lastRunAt", s.lastRunAt.get());
+            row.put("lastToken", s.lastToken.get());
+            result.put(job, row);
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    private void timed(JobStats jobStats, Runnable work) {
+        long started = System.currentTimeMillis();
+        jobStats.runs.increment();
+        jobStats.lastRunAt.set(LocalDateTime.now());
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            jobStats.failures.increment();
+            throw e;
+        } finally {
+            jobStats.lastRuntimeMs.set(System.currentTimeMillis() - started);
+        }
+    }
+
+    private Lease acquire(String job, Duration lease) {
+        String ownerPrefix = nodeId + ":";
+        try {
+            Long token = redisTemplate.execute(ACQUIRE_SCRIPT, List.of(LOCK_PREFIX + job, TOKEN_PREFIX + job),
+                    ownerPrefix, String.valueOf(lease.toMillis()));
+            if (token == null || token == 0L) {
+                return null;
+            }
+            return new Lease(job, ownerPrefix + token, token);
+        } catch (DataAccessException e) {
+            log.error("Could not acquire lease for job {}, skipping this run: {}", job, e.getMessage());
+            return null;
+        }
+    }
+
+    private void renew(Lease lease, long leaseMs, JobStats jobStats) {
+        if (lease.lost) {
+            return;
+        }
+        try {
+            Long held = redisTemplate.execute(RENEW_SCRIPT, List.of(LOCK_PREFIX + lease.job),
+                    lease.owner, String.valueOf(leaseMs));
+            if (held == null || held == 0L) {
+                lease.lost = true;
+                jobStats.lost.increment();
+                log.warn("Lost lease on job {} (token {})", lease.job, lease.token);
+            }
+        } catch (DataAccessException e) {
+            // cannot prove we still hold it; the next fence() refuses to commit
+            lease.lost = true;
+            jobStats.lost.increment();
+            log.warn("Could not renew lease on job {}: {}", lease.job, e.getMessage());
+        }
+    }
+
+    private void release(Lease lease) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_PREFIX + lease.job), lease.owner);
+        } catch (DataAccessException e) {
+            log.warn("Could not release lease on job {}, it will expire: {}", lease.job, e.getMessage());
+        }
+    }
+
+    private JobStats stats(String job) {
+        return stats.computeIfAbsent(job, j -> new JobStats());
+    }
+}
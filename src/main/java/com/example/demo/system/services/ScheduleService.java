@@ -8,7 +8,10 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,34 +21,48 @@ import java.util.List;
 public class ScheduleService {
     private final ScheduleRepo scheduleRepo;
     public final LoanAccountService loanAccountService;
+    private final JobCoordinator jobCoordinator;
+    private final TransactionTemplate transactionTemplate;
 
     public ScheduleService(
             ScheduleRepo scheduleRepo, 
-            @Qualifier("loanAccountService") LoanAccountService loanAccountService
+            @Qualifier("loanAccountService") LoanAccountService loanAccountService,
+            JobCoordinator jobCoordinator,
+            PlatformTransactionManager transactionManager
     ) {
         this.scheduleRepo = scheduleRepo;
         this.loanAccountService = loanAccountService;
+        this.jobCoordinator = jobCoordinator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     //delete a schedule
     public void deleteSchedule(Long id){
         scheduleRepo.deleteById(id);
     }
-    //update a schedule
-    @Scheduled(fixedRate = 100L)
+    //update a schedule; one node at a time, each default fenced so a node that lost its lease rolls back.
+    //one lease acquisition per run, so the tick is seconds apart rather than every 100 ms
+    @Scheduled(fixedDelayString = "${loans.defaulting.poll-ms:30000}")
     public void schedule(){
+        jobCoordinator.runExclusive("loan-defaulting", Duration.ofSeconds(30), this::processDueSchedules);
+    }
+
+    private void processDueSchedules(){
         //check schedules
        // Optional<List<Schedule>> schedule=scheduleRepo.findByScheduleTimeLessThan(LocalDateTime.now());
         List<Schedule> schedule=scheduleRepo.findAll();
         for (Schedule schedule1:schedule
              ) {
             if (schedule1.getScheduleTime().isBefore(LocalDateTime.now())){
-                //change status to default
-                Boolean action=loanAccountService.defaultAccount(schedule1.getAccountNumber());
-                log.info(action);
-                if (action==Boolean.TRUE){
-                    log.info("deleting the schedule");
-                    deleteSchedule(schedule1.getId());
-                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    //change status to default
+                    Boolean action=loanAccountService.defaultAccount(schedule1.getAccountNumber());
+                    log.info(action);
+                    if (action==Boolean.TRUE){
+                        log.info("deleting the schedule");
+                        deleteSchedule(schedule1.getId());
+                    }
+                    jobCoordinator.fence();
+                });
             }
         }
 
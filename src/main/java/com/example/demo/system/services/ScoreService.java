@@ -1,169 +1,194 @@
 package com.example.demo.system.services;
 
-import com.example.demo.customerManagement.parsistence.entities.Customer;
-import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
-import com.example.demo.loanManagement.parsistence.entities.LoanStates;
+import com.example.demo.customerManagement.parsistence.entities.CreditScore;
+import com.example.demo.customerManagement.parsistence.repositories.CreditScoreRepo;
 import com.example.demo.customerManagement.parsistence.repositories.CustomerRepo;
-import com.example.demo.loanManagement.parsistence.repositories.LoanAccountRepo;
-import com.example.demo.loanManagement.parsistence.repositories.LoanStatesRepo;
-import com.example.demo.loanManagement.parsistence.repositories.ProductRepo;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Member credit scoring.
+ * Scores are computed set-based for the whole membership by a nightly batch and stored in
+ * {@code credit_score}; a member's score is refreshed on its own whenever one of their loans
+ * changes state. Application-time callers read the stored score and only fall back to an
+ * inline computation when the member has never been scored or the score has gone stale.
+ * The service keeps no per-request state, so concurrent scoring calls cannot interfere.
+ */
 @Service
 @Log4j2
 public class ScoreService {
-    Integer totalScore=0;
-    public  final CustomerRepo customerRepo;
-   // public final ProductRepo productRepo;
-    public final LoanAccountRepo accountRepo;
-    public final LoanStatesRepo statesRepo;
+    private static final int BATCH_SIZE = 1000;
 
-    public ScoreService(CustomerRepo customerRepo, ProductRepo productRepo, LoanAccountRepo accountRepo, LoanStatesRepo statesRepo) {
+    /**
+     * One row per member: age input plus total and defaulted loan accounts. An account counts
+     * as defaulted if it is currently DEFAULT or has ever passed through a DEFAULT state.
+     */
+    private static final String SCORE_INPUTS_SQL =
+            "SELECT c.id AS customer_id, c.dob AS dob, " +
+            "COUNT(la.account_id) AS total_accounts, " +
+            "COUNT(la.account_id) FILTER (WHERE la.status = 'DEFAULT' OR d.account_number IS NOT NULL) AS defaulted_accounts " +
+            "FROM customer c " +
+            "LEFT JOIN loan_account la ON la.customer_id = CAST(c.id AS VARCHAR) " +
+            "LEFT JOIN (SELECT DISTINCT account_number FROM loan_states WHERE status = 'DEFAULT') d " +
+            "ON d.account_number = CAST(la.account_id AS VARCHAR) ";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO credit_score (customer_id, score, age_score, default_score, transaction_score, " +
+            "total_accounts, defaulted_accounts, computed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (customer_id) DO UPDATE SET score = EXCLUDED.score, age_score = EXCLUDED.age_score, " +
+            "default_score = EXCLUDED.default_score, transaction_score = EXCLUDED.transaction_score, " +
+            "total_accounts = EXCLUDED.total_accounts, defaulted_accounts = EXCLUDED.defaulted_accounts, " +
+            "computed_at = EXCLUDED.computed_at";
+
+    public final CustomerRepo customerRepo;
+    public final CreditScoreRepo creditScoreRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final JobCoordinator jobCoordinator;
+
+    @Value("${score.max-age-hours:36}")
+    private long maxAgeHours;
+
+    public ScoreService(CustomerRepo customerRepo, CreditScoreRepo creditScoreRepo, JdbcTemplate jdbcTemplate,
+                        JobCoordinator jobCoordinator) {
         this.customerRepo = customerRepo;
-     //   this.productRepo = productRepo;
-        this.accountRepo = accountRepo;
-        this.statesRepo = statesRepo;
+        this.creditScoreRepo = creditScoreRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobCoordinator = jobCoordinator;
     }
 
-    public Integer loadData(Long id){
-        Customer client=customerRepo.findById(id).get();
-       // Products product=productRepo.findByCode(productCode);
-        List<LoanAccount> allAccounts=accountRepo.findByCustomerIdOrderByStartDateDesc(id.toString());
-        List<LoanAccount> defaultAccounts=accountRepo.findByStatusAndCustomerId(id.toString(),"DEFAULT");
-        Boolean isDefault=Boolean.FALSE;
-        Integer cusAge = 30; // Default age if DOB is not available
-        if (client.getDob() != null) {
-            cusAge = LocalDate.now().getYear() - client.getDob().getYear();
-        }
-      //  Integer maxValue=product.getMaxLimit();
-        for (LoanAccount account:allAccounts
+    /**
+     * Returns the member's stored score, computing and storing it first when missing or stale.
+     */
+    public Integer loadData(Long id) {
+        Optional<CreditScore> stored = creditScoreRepo.findByCustomerId(id);
+        if (stored.isPresent() && stored.get().getComputedAt().isAfter(LocalDateTime.now().minusHours(maxAgeHours))) {
+            return stored.get().getScore();
+        }
+        CreditScore score = refreshScore(id);
+        return score != null ? score.getScore() : null;
+    }
 
-             ) {
-            log.info("account, {}",account);
-            List<LoanStates> states=statesRepo.findByAccountNumber(account.getAccountId().toString());
-            for (LoanStates state:states
-                 ) {
-                if (state.getStatus()=="DEFAULT"){
-                    log.warn("default one found");
-                    isDefault=Boolean.TRUE;
-                }
-                log.info("state, {}",state.getStatus());
+    /**
+     * Recomputes a single member's score from one aggregate query and upserts it.
+     */
+    public CreditScore refreshScore(Long customerId) {
+        List<CreditScore> scores = jdbcTemplate.query(
+                SCORE_INPUTS_SQL + "WHERE c.id = ? GROUP BY c.id, c.dob",
+                (rs, rowNum) -> toScore(rs, LocalDateTime.now()),
+                customerId);
+        if (scores.isEmpty()) {
+            log.warn("No customer found for scoring {}", customerId);
+            return null;
+        }
+        upsert(scores);
+        return scores.get(0);
+    }
 
+    /**
+     * Nightly set-based scoring run over the whole membership. Inputs are streamed from a
+     * single grouped query and written back in JDBC batches, each committed in its own fenced
+     * transaction. Runs on one node.
+     */
+    @Scheduled(cron = "${score.batch.cron:0 30 1 * * *}")
+    public void scoreAllMembers() {
+        jobCoordinator.runExclusive("credit-scoring", this::scoreAll);
+    }
 
+    private void scoreAll() {
+        long started = System.currentTimeMillis();
+        LocalDateTime computedAt = LocalDateTime.now();
+        List<CreditScore> buffer = new ArrayList<>(BATCH_SIZE);
+        int[] total = {0};
+        jdbcTemplate.query(SCORE_INPUTS_SQL + "GROUP BY c.id, c.dob", (RowCallbackHandler) rs -> {
+            buffer.add(toScore(rs, computedAt));
+            if (buffer.size() == BATCH_SIZE) {
+                jobCoordinator.fencedTransaction(() -> upsert(buffer));
+                total[0] += buffer.size();
+                buffer.clear();
             }
-            if (isDefault==Boolean.TRUE){
-                defaultAccounts.add(account);
-            }
-        }
-        Integer numberOfAccounts=allAccounts.size();
-        Integer numberOdDefaults=defaultAccounts.size();
-        Float defaultRate = 0.0f; // Default to 0% if no defaults
-        if (numberOdDefaults>0){
-            log.info("number of defaults {}",numberOdDefaults);
-            defaultRate=Float.valueOf(numberOdDefaults/numberOfAccounts*100);
-            Integer sum=1/2;
-            log.info("simple division {}",sum);
-        }
-        log.info("Default rate is, {} and total accounts are {}",defaultRate,numberOfAccounts);
-        //age scoring
-        Integer ageScore=0;
-        Integer defaultScore=0;
-        Integer transactionScore=0;
-          if (cusAge<20){
-              ageScore=1;
-              log.info("age below 20");
-          }
-          if (cusAge>80){
-              ageScore=2;
-              log.info("age above 80");
-          }
-          if (cusAge >20 && cusAge<38){
-              ageScore=5;
-              log.info("age between 25 and 38");
-          }
-          if (cusAge>38 && cusAge<55){
-              ageScore=10;
-              log.info("jackpot age score");
-          }
-          if (cusAge>55 && cusAge<80){
-              log.info("between 55 and 80");
-              ageScore=7;
-          }
-          if (defaultRate==0 && numberOfAccounts>1){
-              defaultScore=10;
-              log.info("jackpot default score");
-          }
-        if (defaultRate==0 && numberOfAccounts==0){
-            defaultScore=5;
-            log.info("new client");
-        }
-        if (defaultRate>70 && defaultRate<80){
-            defaultScore=2;
-            log.info(" default rate between 70 and 80");
-        }
-        if (defaultRate>80 && defaultRate<100){
-            defaultScore=1;
-            log.info(" default rate between 80 and 100");
-        }
-        if (defaultRate>50 && defaultRate<70){
-            defaultScore=3;
-            log.info(" default rate between 50 and 70");
+        });
+        if (!buffer.isEmpty()) {
+            jobCoordinator.fencedTransaction(() -> upsert(buffer));
+            total[0] += buffer.size();
         }
-        if (defaultRate>40 && defaultRate<50){
-            defaultScore=4;
-            log.info(" default rate between 40 and 50");
-        }
-        if (defaultRate>30 && defaultRate<40){
-            defaultScore=5;
-            log.info(" default rate between 30 and 40");
-        }
-        if (defaultRate>20 && defaultRate<30){
-            defaultScore=6;
-            log.info(" default rate between 20 and 30");
-        }
-        if (defaultRate>10 && defaultRate<20){
-            defaultScore=7;
-            log.info(" default rate between 10 and 20");
-        }
-        if (defaultRate>0 && defaultRate<10){
-            defaultScore=8;
-            log.info(" default rate between 0 and 10");
-        }
-        if (numberOfAccounts<10){
-            transactionScore=2;
-            log.info(" transaction  less than 10");
-        }
-        if (numberOfAccounts>60){
-            transactionScore=10;
-            log.info("jackpot transaction score");
-        }
-        if (numberOfAccounts>10 && numberOfAccounts<30){
-            transactionScore=5;
-            log.info(" transaction  between 10 and 30");
-        }
-        if (numberOfAccounts>30 && numberOfAccounts<50){
-            transactionScore=7;
-            log.info(" transaction  between 30 and 50");
-        }
-        if (numberOfAccounts>50 && numberOfAccounts<60){
-            transactionScore=8;
-            log.info(" transaction  between 50 and 60");
-        }
-       totalScore=transactionScore+defaultScore+ageScore;
-        return totalScore;
+        log.info("Scored {} members in {} ms", total[0], System.currentTimeMillis() - started);
     }
 
-    public Integer score(){
-         Integer score=0;
+    private void upsert(List<CreditScore> scores) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, scores, scores.size(), (ps, score) -> {
+            ps.setLong(1, score.getCustomerId());
+            ps.setInt(2, score.getScore());
+            ps.setInt(3, score.getAgeScore());
+            ps.setInt(4, score.getDefaultScore());
+            ps.setInt(5, score.getTransactionScore());
+            ps.setInt(6, score.getTotalAccounts());
+            ps.setInt(7, score.getDefaultedAccounts());
+            ps.setTimestamp(8, Timestamp.valueOf(score.getComputedAt()));
+        });
+    }
 
+    private CreditScore toScore(ResultSet rs, LocalDateTime computedAt) throws SQLException {
+        Date dob = rs.getDate("dob");
+        int totalAccounts = rs.getInt("total_accounts");
+        int defaultedAccounts = rs.getInt("defaulted_accounts");
+        int age = dob != null ? LocalDate.now().getYear() - dob.toLocalDate().getYear() : 30;
+        float defaultRate = totalAccounts > 0 ? defaultedAccounts * 100f / totalAccounts : 0f;
 
-        return score;
+        int ageScore = ageScore(age);
+        int defaultScore = defaultScore(defaultRate, totalAccounts);
+        int transactionScore = transactionScore(totalAccounts);
+        return CreditScore.builder()
+                .customerId(rs.getLong("customer_id"))
+                .ageScore(ageScore)
+                .defaultScore(defaultScore)
+                .transactionScore(transactionScore)
+                .score(ageScore + defaultScore + transactionScore)
+                .totalAccounts(totalAccounts)
+                .defaultedAccounts(defaultedAccounts)
+                .computedAt(computedAt)
+                .build();
     }
 
+    static int ageScore(int age) {
+        if (age < 20) return 1;
+        if (age < 38) return 5;
+        if (age < 55) return 10;
+        if (age <= 80) return 7;
+        return 2;
+    }
 
+    static int defaultScore(float defaultRate, int totalAccounts) {
+        if (totalAccounts == 0) return 5;
+        if (defaultRate == 0) return 10;
+        if (defaultRate < 10) return 8;
+        if (defaultRate < 20) return 7;
+        if (defaultRate < 30) return 6;
+        if (defaultRate < 40) return 5;
+        if (defaultRate < 50) return 4;
+        if (defaultRate < 70) return 3;
+        if (defaultRate < 80) return 2;
+        return 1;
+    }
 
+    static int transactionScore(int totalAccounts) {
+        if (totalAccounts < 10) return 2;
+        if (totalAccounts < 30) return 5;
+        if (totalAccounts < 50) return 7;
+        if (totalAccounts < 60) return 8;
+        return 10;
+    }
 }
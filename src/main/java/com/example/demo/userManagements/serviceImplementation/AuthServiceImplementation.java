@@ -1,5 +1,7 @@
 package com.example.demo.userManagements.serviceImplementation;
 
+import com.example.demo.security.ClientIp;
+import com.example.demo.security.LoginThrottle;
 import com.example.demo.system.parsitence.models.AuthResponse;
 import com.example.demo.userManagements.parsitence.models.login;
 import com.example.demo.userManagements.services.auth.Auth;
@@ -16,24 +18,50 @@ import org.springframework.stereotype.Service;
 @Service
 @Log4j2
 public class AuthServiceImplementation implements Auth {
+    private static final String STAFF = "staff";
     public final AuthenticationManager authenticationManager;
     public final SecurityConstants jwtTokenUtil;
     public final UserService userDetailsService;
+    public final LoginThrottle loginThrottle;
+    public final LoginHistoryRecorder loginHistoryRecorder;
 
-    public AuthServiceImplementation(AuthenticationManager authenticationManager, SecurityConstants jwtTokenUtil, UserService userDetailsService) {
+    public AuthServiceImplementation(AuthenticationManager authenticationManager, SecurityConstants jwtTokenUtil, UserService userDetailsService,
+                                     LoginThrottle loginThrottle, LoginHistoryRecorder loginHistoryRecorder) {
         this.authenticationManager = authenticationManager;
         this.jwtTokenUtil = jwtTokenUtil;
         this.userDetailsService = userDetailsService;
+        this.loginThrottle = loginThrottle;
+        this.loginHistoryRecorder = loginHistoryRecorder;
     }
 
     public AuthResponse auth(login authenticationRequest){
-        AuthResponse checkUser= userDetailsService.findUser(authenticationRequest.getUserName());
+        long started = System.nanoTime();
+        try {
+            return doAuth(authenticationRequest);
+        } finally {
+            loginThrottle.recordLatency(started);
+        }
+    }
+
+    private AuthResponse doAuth(login authenticationRequest){
+        String userName = authenticationRequest.getUserName();
+        String ip = ClientIp.resolve();
         AuthResponse response = new AuthResponse();
+        // rejected before the user lookup and bcrypt check
+        if (loginThrottle.isBlocked(STAFF, userName, ip)) {
+            loginHistoryRecorder.record(userName, "THROTTLED", ip);
+            response.setHttpStatus(HttpStatus.TOO_MANY_REQUESTS);
+            response.setHttpStatusCode(429);
+            response.setReason("Too many failed attempts. Try again later");
+            return response;
+        }
+        AuthResponse checkUser= userDetailsService.findUser(userName);
         if (checkUser.getHttpStatusCode()==200) {
             log.info("Auth user found");
-            Boolean auth= this.authenticate(authenticationRequest.getUserName(), authenticationRequest.getPassword());
-            if (auth==Boolean.TRUE){
-                UserDetails userDetails = userDetailsService.loadUserByUsername(authenticationRequest.getUserName());
+            UserDetails userDetails = this.authenticate(userName, authenticationRequest.getPassword());
+            if (userDetails != null){
+                loginThrottle.recordSuccess(STAFF, userName);
+                loginHistoryRecorder.record(userName, "SUCCESS", ip);
                 log.info("Generating auth token");
                 String token = jwtTokenUtil.generateToken(userDetails);
                 String refreshToken = jwtTokenUtil.generateRefreshToken(userDetails);
@@ -51,12 +79,15 @@ public class AuthServiceImplementation implements Auth {
                     response.setHttpStatusCode(200);
                 }
             }else {
+                loginThrottle.recordFailure(STAFF, userName, ip);
+                loginHistoryRecorder.record(userName, "FAILED", ip);
                 response.setHttpStatus(HttpStatus.UNAUTHORIZED);
                 response.setHttpStatusCode(401);
                 response.setReason("Invalid Password");
             }
         }
         else {
+            loginThrottle.recordFailure(STAFF, userName, ip);
             response=checkUser;
         }
         return response;
@@ -135,20 +166,19 @@ public class AuthServiceImplementation implements Auth {
         return response;
     }
 
-    private Boolean authenticate(String username, String password){
-        Boolean authenticated = null;
+    /**
+     * Returns the authenticated principal, or null on bad credentials.
+     */
+    private UserDetails authenticate(String username, String password){
         try {
             Authentication auth=authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
             log.info(auth);
-            authenticated=true;
+            return (UserDetails) auth.getPrincipal();
         }
         catch (BadCredentialsException e) {
-            authenticated=false;
             log.warn( "INVALID_CREDENTIALS {}",e.getMessage());
-
+            return null;
         }
-
-        return authenticated;
     }
     }
 
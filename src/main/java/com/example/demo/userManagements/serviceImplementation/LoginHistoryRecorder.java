@@ -0,0 +1,72 @@
+package com.example.demo.userManagements.serviceImplementation;
+
+import com.example.demo.userManagements.parsitence.models.loginHistory;
+import com.example.demo.userManagements.parsitence.repositories.loginsRepo;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffers login history rows (staff and mobile, successes and failures) in memory and writes them
+ * in batches off the request path. The buffer is bounded; when it is full new rows are dropped and
+ * counted rather than slowing logins down.
+ */
+@Service
+@Log4j2
+public class LoginHistoryRecorder {
+    public final loginsRepo loginsRepo;
+    private final BlockingQueue<loginHistory> buffer;
+    private final LongAdder dropped = new LongAdder();
+
+    @Value("${login.history.batch-size:500}")
+    private int batchSize;
+
+    public LoginHistoryRecorder(loginsRepo loginsRepo, @Value("${login.history.buffer-capacity:10000}") int capacity) {
+        this.loginsRepo = loginsRepo;
+        this.buffer = new LinkedBlockingQueue<>(capacity);
+    }
+
+    public void record(String userId, String status, String ipAddress) {
+        record(new loginHistory(userId, LocalDateTime.now(), status, ipAddress, null));
+    }
+
+    public void record(loginHistory history) {
+        if (history.getLoginTime() == null) {
+            history.setLoginTime(LocalDateTime.now());
+        }
+        if (!buffer.offer(history)) {
+            dropped.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${login.history.flush-ms:2000}")
+    public void flush() {
+        List<loginHistory> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            try {
+                loginsRepo.saveAll(batch);
+            } catch (Exception e) {
+                log.error("Could not write {} login history rows: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            log.warn("Login history buffer full, dropped {} rows", lost);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.demo.userManagements.serviceImplementation;
 
 import com.example.demo.communication.services.CommunicationService;
+import com.example.demo.system.cache.ReferenceCache;
+import com.example.demo.system.cache.ReferenceDataCache;
 import com.example.demo.system.parsitence.models.AuthResponse;
 import com.example.demo.userManagements.parsitence.enitities.Roles;
 import com.example.demo.userManagements.parsitence.enitities.Users;
@@ -35,15 +37,17 @@ public class UserService implements UserDetailsService {
   public final rolesRepo roles;
   public final permissionsRepo permissions;
   public final CommunicationService communication;
+  public final ReferenceDataCache referenceDataCache;
 
   Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-    public UserService(com.example.demo.userManagements.parsitence.repositories.userRepo userRepo, com.example.demo.userManagements.parsitence.repositories.securityRepo securityRepo, com.example.demo.userManagements.parsitence.repositories.loginsRepo loginsRepo, rolesRepo roles, permissionsRepo permissions, CommunicationService communication) {
+    public UserService(com.example.demo.userManagements.parsitence.repositories.userRepo userRepo, com.example.demo.userManagements.parsitence.repositories.securityRepo securityRepo, com.example.demo.userManagements.parsitence.repositories.loginsRepo loginsRepo, rolesRepo roles, permissionsRepo permissions, CommunicationService communication, ReferenceDataCache referenceDataCache) {
         this.userRepo = userRepo;
         this.securityRepo = securityRepo;
         this.loginsRepo = loginsRepo;
         this.roles = roles;
         this.permissions = permissions;
         this.communication = communication;
+        this.referenceDataCache = referenceDataCache;
     }
       public String randomString(){
           log.info("Generating a random string.");
@@ -137,8 +141,6 @@ public class UserService implements UserDetailsService {
  }
 
     public loginHistory createHistory(loginHistory history) {
-
-        //
         return loginsRepo.save(history);
     }
 
@@ -257,13 +259,12 @@ return responseModel;
             log.info("Auth");
             Optional<Security> security = securityRepo.findByuserId(user.get().getId().toString());
             String roleId=user.get().getRoleId();
-            Roles role =getRoleById(roleId);
 
             loggedUser.userName=user.get().getUserName();
             loggedUser.password=security.get().getPassword();
 
             UserDetails user1=new org.springframework.security.core.userdetails.User(loggedUser.userName, loggedUser.password,
-                    this.addAuthorities(role));
+                    this.roleAuthorities(roleId));
             return user1;
 
         }else{
@@ -274,6 +275,15 @@ return responseModel;
 
     }
 
+    /**
+     * Authorities granted by a role, from the reference-data cache so a login does not reload the
+     * role and its permissions every time.
+     */
+    public Collection<SimpleGrantedAuthority> roleAuthorities(String roleId){
+        ReferenceCache<String, List<SimpleGrantedAuthority>> cache = referenceDataCache.cache(ReferenceDataCache.ROLES);
+        return cache.get(roleId, id -> List.copyOf(addAuthorities(getRoleById(id)))).orElseThrow();
+    }
+
     public Collection<SimpleGrantedAuthority > addAuthorities(Roles roles){
         Collection<SimpleGrantedAuthority> grantedAuthorities = new ArrayList<>();
           roles.getPermissions().forEach(permission->{
@@ -300,12 +310,16 @@ return responseModel;
     public Roles createRole(Roles role){
         role.setCreatedAt(LocalDateTime.now());
 
-            return roles.save(role);
+            Roles saved = roles.save(role);
+            referenceDataCache.invalidate(ReferenceDataCache.ROLES);
+            return saved;
 
     }
 
     public Roles updateRole(Roles role){
-        return roles.save(role);
+        Roles saved = roles.save(role);
+        referenceDataCache.invalidate(ReferenceDataCache.ROLES);
+        return saved;
     }
 
 
@@ -314,7 +328,9 @@ return responseModel;
         return roles.findById(Long.parseLong(id)).get();
     }
     public rolePermissions createPermission(rolePermissions permission){
-        return permissions.save(permission);
+        rolePermissions saved = permissions.save(permission);
+        referenceDataCache.invalidate(ReferenceDataCache.ROLES);
+        return saved;
 
     }
     public List<rolePermissions> getAllPermissions(){
@@ -2,6 +2,7 @@ package com.example.demo.ussd.controllers;
 
 import com.example.demo.ussd.dto.UssdRequest;
 import com.example.demo.ussd.dto.UssdResponse;
+import com.example.demo.ussd.services.UssdHopMetrics;
 import com.example.demo.ussd.services.UssdService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -11,6 +12,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/ussd")
 @RequiredArgsConstructor
@@ -19,6 +22,7 @@ import org.springframework.web.bind.annotation.*;
 public class UssdController {
 
     private final UssdService ussdService;
+    private final UssdHopMetrics hopMetrics;
 
     @PostMapping(value = "/callback", produces = MediaType.TEXT_PLAIN_VALUE)
     @Operation(summary = "USSD callback", description = "Main USSD callback endpoint for Africa's Talking")
@@ -60,4 +64,10 @@ public class UssdController {
         
         return ResponseEntity.ok(response.getMessage());
     }
+
+    @GetMapping("/metrics")
+    @Operation(summary = "USSD hop metrics", description = "Session load, handling, save and total hop latency since startup")
+    public ResponseEntity<Map<String, Object>> hopMetrics() {
+        return ResponseEntity.ok(hopMetrics.snapshot());
+    }
 }
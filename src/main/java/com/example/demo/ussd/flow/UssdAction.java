@@ -0,0 +1,15 @@
+package com.example.demo.ussd.flow;
+
+import com.example.demo.ussd.dto.UssdResponse;
+import com.example.demo.ussd.services.UssdSession;
+
+/**
+ * Dynamic step referenced from the flow definition by {@link #name()}, for screens that need
+ * live data. Implementations are Spring beans and are bound when the flow is compiled.
+ */
+public interface UssdAction {
+
+    String name();
+
+    UssdResponse execute(UssdSession session, String input);
+}
@@ -0,0 +1,196 @@
+package com.example.demo.ussd.flow;
+
+import com.example.demo.ussd.dto.UssdResponse;
+import com.example.demo.ussd.services.UssdSession;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable USSD state graph compiled from a {@link UssdFlowDefinition}.
+ * Every state, transition, action and template is resolved and validated at compile time, so a
+ * hop is a hash lookup on the current state and one on the input, followed by a pre-rendered or
+ * template-rendered screen.
+ */
+public final class UssdFlow {
+
+    private static final String CON = "CON ";
+    private static final String END = "END ";
+
+    private final String initial;
+    private final Map<String, State> states;
+
+    private UssdFlow(String initial, Map<String, State> states) {
+        this.initial = initial;
+        this.states = states;
+    }
+
+    public String getInitial() {
+        return initial;
+    }
+
+    /**
+     * Moves the session into {@code stateId} and returns that state's screen.
+     */
+    public UssdResponse enter(UssdSession session, String stateId) {
+        State state = states.get(stateId);
+        session.setCurrentState(state.id);
+        return new UssdResponse(state.screen.render(session), false);
+    }
+
+    public UssdResponse handle(UssdSession session, String input) {
+        State state = session.getCurrentState() != null ? states.get(session.getCurrentState()) : null;
+        if (state == null) {
+            return enter(session, initial);
+        }
+        Transition transition = state.options.get(input);
+        if (transition == null) {
+            transition = state.otherwise;
+            if (transition == null || !state.accept.test(session, input)) {
+                return state.invalid != null
+                        ? new UssdResponse(state.invalid.render(session), state.invalidEnds)
+                        : new UssdResponse(state.screen.render(session), false);
+            }
+        }
+        if (transition.store != null) {
+            session.storeData(transition.store, state.accept.normalize(input));
+        }
+        if (transition.action != null) {
+            return transition.action.execute(session, input);
+        }
+        if (transition.end != null) {
+            return new UssdResponse(transition.end.render(session), true);
+        }
+        return enter(session, transition.to);
+    }
+
+    public static UssdFlow compile(UssdFlowDefinition definition, Map<String, UssdAction> actions) {
+        Map<String, UssdFlowDefinition.StateDefinition> defined = definition.getStates();
+        if (definition.getInitial() == null || !defined.containsKey(definition.getInitial())) {
+            throw new IllegalStateException("USSD flow initial state is missing or undefined: " + definition.getInitial());
+        }
+        Map<String, State> states = new HashMap<>();
+        defined.forEach((id, state) -> {
+            if (state.getScreen() == null) {
+                throw new IllegalStateException("USSD state " + id + " has no screen");
+            }
+            Map<String, Transition> options = new HashMap<>();
+            state.getOptions().forEach((input, t) -> options.put(input, compileTransition(id, t, defined, actions)));
+            states.put(id, new State(id,
+                    UssdTemplate.compile(CON, state.getScreen()),
+                    Map.copyOf(options),
+                    state.getOtherwise() != null ? compileTransition(id, state.getOtherwise(), defined, actions) : null,
+                    AcceptRule.parse(id, state.getAccept()),
+                    state.getInvalid() != null ? UssdTemplate.compile(state.isInvalidEnds() ? END : CON, state.getInvalid()) : null,
+                    state.isInvalidEnds()));
+        });
+        return new UssdFlow(definition.getInitial(), Map.copyOf(states));
+    }
+
+    private static Transition compileTransition(String stateId, UssdFlowDefinition.TransitionDefinition t,
+                                                Map<String, UssdFlowDefinition.StateDefinition> defined,
+                                                Map<String, UssdAction> actions) {
+        UssdAction action = null;
+        if (t.getAction() != null) {
+            action = actions.get(t.getAction());
+            if (action == null) {
+                throw new IllegalStateException("USSD state " + stateId + " references unknown action " + t.getAction());
+            }
+        } else if (t.getEnd() == null && (t.getTo() == null || !defined.containsKey(t.getTo()))) {
+            throw new IllegalStateException("USSD state " + stateId + " has a transition to undefined state " + t.getTo());
+        }
+        return new Transition(t.getTo(), t.getEnd() != null ? UssdTemplate.compile(END, t.getEnd()) : null, t.getStore(), action);
+    }
+
+    private static final class State {
+        private final String id;
+        private final UssdTemplate screen;
+        private final Map<String, Transition> options;
+        private final Transition otherwise;
+        private final AcceptRule accept;
+        private final UssdTemplate invalid;
+        private final boolean invalidEnds;
+
+        private State(String id, UssdTemplate screen, Map<String, Transition> options, Transition otherwise,
+                      AcceptRule accept, UssdTemplate invalid, boolean invalidEnds) {
+            this.id = id;
+            this.screen = screen;
+            this.options = options;
+            this.otherwise = otherwise;
+            this.accept = accept;
+            this.invalid = invalid;
+            this.invalidEnds = invalidEnds;
+        }
+    }
+
+    private static final class Transition {
+        private final String to;
+        private final UssdTemplate end;
+        private final String store;
+        private final UssdAction action;
+
+        private Transition(String to, UssdTemplate end, String store, UssdAction action) {
+            this.to = to;
+            this.end = end;
+            this.store = store;
+            this.action = action;
+        }
+    }
+
+    /**
+     * Validation applied to free input before a state's {@code otherwise} transition.
+     */
+    private static final class AcceptRule {
+        private static final AcceptRule ANY = new AcceptRule(null, null);
+
+        private final String type;
+        private final String matchKey;
+
+        private AcceptRule(String type, String matchKey) {
+            this.type = type;
+            this.matchKey = matchKey;
+        }
+
+        private static AcceptRule parse(String stateId, String accept) {
+            if (accept == null) {
+                return ANY;
+            }
+            if (accept.startsWith("MATCHES:")) {
+                return new AcceptRule("MATCHES", accept.substring("MATCHES:".length()));
+            }
+            if ("AMOUNT".equals(accept) || "PIN".equals(accept)) {
+                return new AcceptRule(accept, null);
+            }
+            throw new IllegalStateException("USSD state " + stateId + " has unknown accept rule " + accept);
+        }
+
+        private boolean test(UssdSession session, String input) {
+            if (type == null) {
+                return true;
+            }
+            switch (type) {
+                case "AMOUNT":
+                    return amount(input) != null;
+                case "PIN":
+                    return input.length() >= 4;
+                default:
+                    return input.equals(session.getDataAsString(matchKey));
+            }
+        }
+
+        private String normalize(String input) {
+            BigDecimal amount = "AMOUNT".equals(type) ? amount(input) : null;
+            return amount != null ? amount.stripTrailingZeros().toPlainString() : input;
+        }
+
+        private static BigDecimal amount(String input) {
+            try {
+                BigDecimal amount = new BigDecimal(input);
+                return amount.signum() > 0 ? amount : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
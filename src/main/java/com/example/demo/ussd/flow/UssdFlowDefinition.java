@@ -0,0 +1,37 @@
+package com.example.demo.ussd.flow;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Declarative USSD menu flow as read from {@code ussd/menu-flow.json}.
+ * Each state has a screen shown on entry, exact-match options, an {@code otherwise}
+ * transition for free input, and an optional {@code accept} rule (AMOUNT, PIN or
+ * MATCHES:&lt;key&gt;) that free input must pass before {@code otherwise} applies.
+ * Screens and end messages may reference {phone} and stored session values as {key}.
+ */
+@Data
+public class UssdFlowDefinition {
+    private String initial;
+    private Map<String, StateDefinition> states = new LinkedHashMap<>();
+
+    @Data
+    public static class StateDefinition {
+        private String screen;
+        private Map<String, TransitionDefinition> options = new LinkedHashMap<>();
+        private TransitionDefinition otherwise;
+        private String accept;
+        private String invalid;
+        private boolean invalidEnds;
+    }
+
+    @Data
+    public static class TransitionDefinition {
+        private String to;
+        private String end;
+        private String store;
+        private String action;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.ussd.flow;
+
+import com.example.demo.ussd.services.UssdSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Screen text compiled once into literal and placeholder segments. Templates without
+ * placeholders are rendered at compile time and returned as-is on every hop.
+ */
+public final class UssdTemplate {
+
+    private static final String PHONE = "phone";
+
+    private final String prefix;
+    private final String[] literals;
+    private final String[] keys;
+    private final String rendered;
+
+    private UssdTemplate(String prefix, String[] literals, String[] keys) {
+        this.prefix = prefix;
+        this.literals = literals;
+        this.keys = keys;
+        this.rendered = keys.length == 0 ? prefix + literals[0] : null;
+    }
+
+    /**
+     * Compiles {@code text}, splitting out {key} placeholders. {@code prefix} is the
+     * gateway marker (CON/END) prepended to the rendered text.
+     */
+    public static UssdTemplate compile(String prefix, String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        int from = 0;
+        int open;
+        while ((open = text.indexOf('{', from)) >= 0) {
+            int close = text.indexOf('}', open);
+            if (close < 0) {
+                break;
+            }
+            literals.add(text.substring(from, open));
+            keys.add(text.substring(open + 1, close));
+            from = close + 1;
+        }
+        literals.add(text.substring(from));
+        return new UssdTemplate(prefix, literals.toArray(new String[0]), keys.toArray(new String[0]));
+    }
+
+    public boolean isStatic() {
+        return rendered != null;
+    }
+
+    public String render(UssdSession session) {
+        if (rendered != null) {
+            return rendered;
+        }
+        StringBuilder text = new StringBuilder(prefix.length() + 64).append(prefix);
+        for (int i = 0; i < keys.length; i++) {
+            text.append(literals[i]);
+            String value = PHONE.equals(keys[i]) ? session.getPhoneNumber() : session.getDataAsString(keys[i]);
+            text.append(value != null ? value : "");
+        }
+        return text.append(literals[keys.length]).toString();
+    }
+}
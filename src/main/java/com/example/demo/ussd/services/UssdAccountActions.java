@@ -0,0 +1,139 @@
+package com.example.demo.ussd.services;
+
+import com.example.demo.customerManagement.parsistence.repositories.CustomerRepo;
+import com.example.demo.mobile.dto.TransactionDto;
+import com.example.demo.mobile.persistence.entities.ChannelAccountView;
+import com.example.demo.mobile.services.ChannelReadModelService;
+import com.example.demo.ussd.dto.UssdResponse;
+import com.example.demo.ussd.flow.UssdAction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Balance and mini-statement actions for the USSD flow. Both read the member's rows from the
+ * channel read model, so a hop costs one indexed lookup instead of account and transaction queries.
+ */
+@Configuration
+public class UssdAccountActions {
+
+    private static final String NO_MEMBER = "No member account is linked to this number.";
+    private static final String THANK_YOU = "\nThank you for using SACCO services.";
+
+    private final CustomerRepo customerRepo;
+    private final ChannelReadModelService readModel;
+
+    public UssdAccountActions(CustomerRepo customerRepo, ChannelReadModelService readModel) {
+        this.customerRepo = customerRepo;
+        this.readModel = readModel;
+    }
+
+    @Bean
+    public UssdAction savingsBalance() {
+        return new BalanceAction("savingsBalance", ChannelReadModelService.SAVINGS);
+    }
+
+    @Bean
+    public UssdAction loanBalance() {
+        return new BalanceAction("loanBalance", ChannelReadModelService.LOAN);
+    }
+
+    @Bean
+    public UssdAction savingsStatement() {
+        return new StatementAction("savingsStatement", ChannelReadModelService.SAVINGS);
+    }
+
+    @Bean
+    public UssdAction loanStatement() {
+        return new StatementAction("loanStatement", ChannelReadModelService.LOAN);
+    }
+
+    /**
+     * Resolves the session's member once and keeps the id on the session for later hops.
+     */
+    private Long memberId(UssdSession session) {
+        if (session.getMemberId() == null) {
+            customerRepo.findByphoneNumber(session.getPhoneNumber())
+                    .ifPresent(customer -> session.setMemberId(customer.getId().toString()));
+        }
+        return session.getMemberId() != null ? Long.valueOf(session.getMemberId()) : null;
+    }
+
+    private static String amount(BigDecimal value) {
+        return String.format("KES %,.2f", value != null ? value : BigDecimal.ZERO);
+    }
+
+    private final class BalanceAction implements UssdAction {
+        private final String name;
+        private final String kind;
+
+        private BalanceAction(String name, String kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public UssdResponse execute(UssdSession session, String input) {
+            Long memberId = memberId(session);
+            if (memberId == null) {
+                return UssdResponse.end(NO_MEMBER);
+            }
+            List<ChannelAccountView> accounts = readModel.getMemberAccounts(memberId, kind);
+            if (accounts.isEmpty()) {
+                return UssdResponse.end("You have no " + kind.toLowerCase() + " account." + THANK_YOU);
+            }
+            StringBuilder message = new StringBuilder();
+            for (ChannelAccountView account : accounts) {
+                message.append(account.getAccountName()).append(" (").append(account.getAccountNumber()).append("): ")
+                        .append(amount(account.getBalance())).append('\n');
+            }
+            return UssdResponse.end(message.toString().trim() + THANK_YOU);
+        }
+    }
+
+    private final class StatementAction implements UssdAction {
+        private static final int LINES = 3;
+
+        private final String name;
+        private final String kind;
+
+        private StatementAction(String name, String kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public UssdResponse execute(UssdSession session, String input) {
+            Long memberId = memberId(session);
+            if (memberId == null) {
+                return UssdResponse.end(NO_MEMBER);
+            }
+            List<ChannelAccountView> accounts = readModel.getMemberAccounts(memberId, kind);
+            if (accounts.isEmpty()) {
+                return UssdResponse.end("You have no " + kind.toLowerCase() + " account." + THANK_YOU);
+            }
+            ChannelAccountView account = accounts.get(0);
+            List<TransactionDto> transactions = readModel.recentTransactions(account, LINES);
+            StringBuilder message = new StringBuilder("Last ").append(transactions.size()).append(" Transactions:\n");
+            int i = 1;
+            for (TransactionDto t : transactions) {
+                message.append(i++).append(". ").append(t.getTransactionType()).append(' ')
+                        .append(amount(t.getAmount())).append('\n');
+            }
+            message.append("Balance: ").append(amount(account.getBalance()));
+            return UssdResponse.end(message.toString());
+        }
+    }
+}
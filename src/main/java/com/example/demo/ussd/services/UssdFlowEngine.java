@@ -0,0 +1,50 @@
+package com.example.demo.ussd.services;
+
+import com.example.demo.ussd.dto.UssdResponse;
+import com.example.demo.ussd.flow.UssdAction;
+import com.example.demo.ussd.flow.UssdFlow;
+import com.example.demo.ussd.flow.UssdFlowDefinition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the USSD menu flow definition at startup and compiles it into an immutable
+ * {@link UssdFlow}. A broken definition (unknown state, action or accept rule) fails startup.
+ */
+@Service
+@Slf4j
+public class UssdFlowEngine {
+
+    private final UssdFlow flow;
+
+    public UssdFlowEngine(@Value("${ussd.flow.resource:classpath:ussd/menu-flow.json}") Resource resource,
+                          List<UssdAction> actions,
+                          ObjectMapper objectMapper) throws IOException {
+        UssdFlowDefinition definition;
+        try (InputStream in = resource.getInputStream()) {
+            definition = objectMapper.readValue(in, UssdFlowDefinition.class);
+        }
+        Map<String, UssdAction> byName = actions.stream()
+                .collect(Collectors.toMap(UssdAction::name, Function.identity()));
+        this.flow = UssdFlow.compile(definition, byName);
+        log.info("Compiled USSD flow with {} states from {}", definition.getStates().size(), resource.getDescription());
+    }
+
+    public UssdResponse start(UssdSession session) {
+        return flow.enter(session, flow.getInitial());
+    }
+
+    public UssdResponse handle(UssdSession session, String input) {
+        return flow.handle(session, input);
+    }
+}
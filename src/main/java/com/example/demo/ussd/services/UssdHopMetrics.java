@@ -0,0 +1,92 @@
+package com.example.demo.ussd.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process latency counters for USSD hops, split into session load, menu handling and
+ * session save so the Redis share of each hop is visible. Counters are lock-free and cumulative
+ * since startup.
+ */
+@Component
+public class UssdHopMetrics {
+
+    public enum Stage { LOAD, HANDLE, SAVE, HOP }
+
+    private static final long[] BUCKET_BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2000};
+
+    private final Map<Stage, Timer> timers = new LinkedHashMap<>();
+    private final LongAdder nearCacheHits = new LongAdder();
+    private final LongAdder nearCacheMisses = new LongAdder();
+
+    public UssdHopMetrics() {
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, new Timer());
+        }
+    }
+
+    public void record(Stage stage, long startedNanos) {
+        timers.get(stage).record(System.nanoTime() - startedNanos);
+    }
+
+    public void nearCacheHit() {
+        nearCacheHits.increment();
+    }
+
+    public void nearCacheMiss() {
+        nearCacheMisses.increment();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        timers.forEach((stage, timer) -> result.put(stage.name().toLowerCase(), timer.snapshot()));
+        result.put("nearCacheHits", nearCacheHits.sum());
+        result.put("nearCacheMisses", nearCacheMisses.sum());
+        return result;
+    }
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+
+        private Timer() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int i = 0;
+            while (i < BUCKET_BOUNDS_MS.length && millis >= BUCKET_BOUNDS_MS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+        }
+
+        private Map<String, Object> snapshot() {
+            long n = count.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", n);
+            result.put("avgMs", n > 0 ? totalNanos.sum() / n / 1_000_000.0 : 0.0);
+            result.put("maxMs", maxNanos.get() / 1_000_000.0);
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < buckets.length; i++) {
+                histogram.put(i < BUCKET_BOUNDS_MS.length ? "<" + BUCKET_BOUNDS_MS[i] + "ms"
+                        : ">=" + BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1] + "ms", buckets[i].sum());
+            }
+            result.put("histogram", histogram);
+            return result;
+        }
+    }
+}
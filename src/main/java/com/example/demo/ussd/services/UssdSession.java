@@ -1,37 +1,106 @@
 package com.example.demo.ussd.services;
 
-import com.example.demo.ussd.enums.UssdMenuState;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
+/**
+ * USSD session state. Setters record which fields changed during the hop so the session
+ * store only writes those fields back to Redis.
+ */
 @Data
 public class UssdSession implements Serializable {
     private static final long serialVersionUID = 1L;
-    
+
+    static final String STATE = "state";
+    static final String PHONE = "phone";
+    static final String MEMBER = "member";
+    static final String LAST_INPUT = "last";
+    static final String DATA_PREFIX = "d:";
+
     private String sessionId;
     private String phoneNumber;
     private String memberId;
-    private UssdMenuState currentState;
+    private String currentState;
     private String lastInput;
     private Map<String, Object> sessionData = new HashMap<>();
-    
+
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.NONE)
+    private transient Set<String> changedFields = new HashSet<>();
+
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.NONE)
+    private transient Set<String> removedFields = new HashSet<>();
+
+    public void setPhoneNumber(String phoneNumber) {
+        if (!Objects.equals(this.phoneNumber, phoneNumber)) {
+            this.phoneNumber = phoneNumber;
+            changedFields.add(PHONE);
+        }
+    }
+
+    public void setMemberId(String memberId) {
+        if (!Objects.equals(this.memberId, memberId)) {
+            this.memberId = memberId;
+            changedFields.add(MEMBER);
+        }
+    }
+
+    public void setCurrentState(String currentState) {
+        if (!Objects.equals(this.currentState, currentState)) {
+            this.currentState = currentState;
+            changedFields.add(STATE);
+        }
+    }
+
+    public void setLastInput(String lastInput) {
+        if (!Objects.equals(this.lastInput, lastInput)) {
+            this.lastInput = lastInput;
+            changedFields.add(LAST_INPUT);
+        }
+    }
+
     public void storeData(String key, Object value) {
         sessionData.put(key, value);
+        changedFields.add(DATA_PREFIX + key);
+        removedFields.remove(DATA_PREFIX + key);
     }
-    
+
     public Object getData(String key) {
         return sessionData.get(key);
     }
-    
+
     public String getDataAsString(String key) {
         Object value = sessionData.get(key);
         return value != null ? value.toString() : null;
     }
-    
+
     public void clearData() {
+        for (String key : sessionData.keySet()) {
+            changedFields.remove(DATA_PREFIX + key);
+            removedFields.add(DATA_PREFIX + key);
+        }
         sessionData.clear();
     }
+
+    boolean isDirty() {
+        return !changedFields.isEmpty() || !removedFields.isEmpty();
+    }
+
+    /**
+     * Called by the store once the changes are persisted (or the session was just loaded).
+     */
+    void markClean() {
+        changedFields.clear();
+        removedFields.clear();
+    }
 }
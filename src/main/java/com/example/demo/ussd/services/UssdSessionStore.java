@@ -0,0 +1,158 @@
+package com.example.demo.ussd.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis-backed USSD session store.
+ * Each session is a Redis hash of short string fields (state, phone, member, last input and
+ * one {@code d:<key>} field per data entry). A hop reads the hash once and writes back only the
+ * fields it changed plus the TTL refresh, in a single script call.
+ * An optional near-cache keeps the decoded session in memory for a few seconds so that hops
+ * served by the same node skip the read; enable it only when the gateway routes a session's
+ * hops to the same node.
+ */
+@Component
+@Slf4j
+public class UssdSessionStore {
+
+    private static final String SESSION_PREFIX = "ussd:session:";
+
+    /**
+     * ARGV: TTL seconds, number of changed field/value pairs, the pairs, then the removed fields.
+     * A script runs on the shared connection; a pipeline would take a dedicated connection per hop.
+     */
+    private static final RedisScript<Long> SAVE_SCRIPT = RedisScript.of(
+            "local pairs = tonumber(ARGV[2]) " +
+            "if pairs > 0 then redis.call('HSET', KEYS[1], unpack(ARGV, 3, 2 + pairs * 2)) end " +
+            "if #ARGV > 2 + pairs * 2 then redis.call('HDEL', KEYS[1], unpack(ARGV, 3 + pairs * 2)) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final UssdHopMetrics metrics;
+    private final Map<String, CachedSession> nearCache = new ConcurrentHashMap<>();
+
+    @Value("${ussd.session.timeout-seconds:300}")
+    private long sessionTimeoutSeconds;
+
+    @Value("${ussd.session.near-cache-ttl-ms:0}")
+    private long nearCacheTtlMs;
+
+    public UssdSessionStore(StringRedisTemplate redisTemplate, UssdHopMetrics metrics) {
+        this.redisTemplate = redisTemplate;
+        this.metrics = metrics;
+    }
+
+    public UssdSession load(String sessionId) {
+        long started = System.nanoTime();
+        try {
+            if (nearCacheTtlMs > 0) {
+                CachedSession cached = nearCache.get(sessionId);
+                if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+                    metrics.nearCacheHit();
+                    return cached.session;
+                }
+                metrics.nearCacheMiss();
+            }
+            Map<Object, Object> fields = redisTemplate.opsForHash().entries(SESSION_PREFIX + sessionId);
+            if (fields.isEmpty()) {
+                return null;
+            }
+            return decode(sessionId, fields);
+        } finally {
+            metrics.record(UssdHopMetrics.Stage.LOAD, started);
+        }
+    }
+
+    /**
+     * Writes the session's changed fields, deletes its removed data keys and refreshes its TTL in
+     * one round trip.
+     */
+    public void save(UssdSession session) {
+        long started = System.nanoTime();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(sessionTimeoutSeconds));
+        args.add("0");
+        int pairs = 0;
+        for (String field : session.getChangedFields()) {
+            String value = encode(session, field);
+            if (value != null) {
+                args.add(field);
+                args.add(value);
+                pairs++;
+            }
+        }
+        args.set(1, String.valueOf(pairs));
+        args.addAll(session.getRemovedFields());
+
+        redisTemplate.execute(SAVE_SCRIPT, List.of(SESSION_PREFIX + session.getSessionId()), args.toArray());
+        session.markClean();
+        if (nearCacheTtlMs > 0) {
+            nearCache.put(session.getSessionId(), new CachedSession(session, System.currentTimeMillis() + nearCacheTtlMs));
+        }
+        metrics.record(UssdHopMetrics.Stage.SAVE, started);
+    }
+
+    public void delete(String sessionId) {
+        nearCache.remove(sessionId);
+        redisTemplate.delete(SESSION_PREFIX + sessionId);
+    }
+
+    private UssdSession decode(String sessionId, Map<Object, Object> fields) {
+        UssdSession session = new UssdSession();
+        session.setSessionId(sessionId);
+        fields.forEach((k, v) -> {
+            String field = (String) k;
+            String value = (String) v;
+            switch (field) {
+                case UssdSession.STATE -> session.setCurrentState(value);
+                case UssdSession.PHONE -> session.setPhoneNumber(value);
+                case UssdSession.MEMBER -> session.setMemberId(value);
+                case UssdSession.LAST_INPUT -> session.setLastInput(value);
+                default -> {
+                    if (field.startsWith(UssdSession.DATA_PREFIX)) {
+                        session.getSessionData().put(field.substring(UssdSession.DATA_PREFIX.length()), value);
+                    }
+                }
+            }
+        });
+        session.markClean();
+        return session;
+    }
+
+    private String encode(UssdSession session, String field) {
+        return switch (field) {
+            case UssdSession.STATE -> session.getCurrentState();
+            case UssdSession.PHONE -> session.getPhoneNumber();
+            case UssdSession.MEMBER -> session.getMemberId();
+            case UssdSession.LAST_INPUT -> session.getLastInput();
+            default -> session.getDataAsString(field.substring(UssdSession.DATA_PREFIX.length()));
+        };
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        nearCache.values().removeIf(cached -> cached.expiresAt <= now);
+    }
+
+    private static final class CachedSession {
+        private final UssdSession session;
+        private final long expiresAt;
+
+        private CachedSession(UssdSession session, long expiresAt) {
+            this.session = session;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
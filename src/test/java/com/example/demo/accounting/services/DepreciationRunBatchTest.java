@@ -0,0 +1,163 @@
+package com.example.demo.accounting.services;
+
+import com.example.demo.accounting.entities.JournalEntry;
+import com.example.demo.accounting.entities.JournalEntryLine;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.services.JobCoordinator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A month-end run against Postgres: assets grouped by category and branch into one journal each,
+ * the sub-ledger and asset balances written per group, and reruns that charge nothing twice.
+ */
+class DepreciationRunBatchTest extends PostgresJpaTest {
+
+    private static final LocalDate MONTH = LocalDate.of(2026, 9, 1);
+
+    private final AccountingService accountingService = mock(AccountingService.class);
+    private final JobCoordinator jobCoordinator = mock(JobCoordinator.class);
+    private final List<JournalEntry> journals = new CopyOnWriteArrayList<>();
+    private final AtomicLong journalIds = new AtomicLong();
+    private volatile String failingReference = "";
+    private DepreciationRunService service;
+
+    @BeforeEach
+    void setUp() {
+        truncate("asset_depreciation", "fixed_assets", "asset_categories");
+        long vehicles = category("VEH");
+        long computers = category("ICT");
+        asset(1, vehicles, "HQ", "STRAIGHT_LINE", 120_000, 12_000, 5, null, 0, null, "ACTIVE", MONTH.minusYears(1));
+        asset(2, vehicles, "HQ", "STRAIGHT_LINE", 60_000, 0, 5, null, 0, null, "ACTIVE", MONTH.minusYears(1));
+        asset(3, vehicles, "NRB", "DECLINING_BALANCE", 100_000, 5_000, 5, 30.0, 20_000, 80_000.0, "ACTIVE", MONTH.minusYears(2));
+        asset(4, computers, null, "STRAIGHT_LINE", 36_000, 0, 3, null, 0, null, "ACTIVE", MONTH.minusMonths(3));
+        // written down to its residual value
+        asset(5, computers, "HQ", "STRAIGHT_LINE", 36_000, 1_000, 3, null, 35_000, 1_000.0, "ACTIVE", MONTH.minusYears(4));
+        asset(6, vehicles, "HQ", "STRAIGHT_LINE", 60_000, 0, 5, null, 0, null, "DISPOSED", MONTH.minusYears(1));
+        // bought during the month
+        asset(7, vehicles, "HQ", "STRAIGHT_LINE", 60_000, 0, 5, null, 0, null, "ACTIVE", MONTH.plusDays(3));
+        // book value adjusted below cost less accumulated depreciation
+        asset(8, computers, "HQ", "STRAIGHT_LINE", 36_000, 0, 3, null, 0, 500.0, "ACTIVE", MONTH.minusMonths(6));
+
+        when(accountingService.createJournalEntry(any(JournalEntry.class), anyString())).thenAnswer(invocation -> {
+            JournalEntry entry = invocation.getArgument(0);
+            if (entry.getReference().equals(failingReference)) {
+                throw new IllegalStateException("Accounting period closed");
+            }
+            entry.setId(journalIds.incrementAndGet());
+            entry.setJournalNumber("JE-" + entry.getId());
+            journals.add(entry);
+            return entry;
+        });
+        when(jobCoordinator.runExclusive(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+        service = new DepreciationRunService(jdbcTemplate, transactionManager, accountingService, jobCoordinator);
+    }
+
+    @Test
+    void postsOneJournalPerCategoryAndBranch() {
+        Map<String, Object> result = service.run(MONTH);
+
+        assertThat(result).containsEntry("period", "2026-09").containsEntry("assetsDepreciated", 5)
+                .containsEntry("totalDepreciation", 6_300.0)
+                .containsEntry("journals", List.of("JE-1", "JE-2", "JE-3", "JE-4"));
+        assertThat(journals).extracting(JournalEntry::getReference).containsExactly(
+                "DEP-2026-09-ICT-HQ", "DEP-2026-09-ICT-UNASSIGNED", "DEP-2026-09-VEH-HQ", "DEP-2026-09-VEH-NRB");
+        assertThat(journals).allSatisfy(entry -> assertThat(entry.getTransactionDate()).isEqualTo(LocalDate.of(2026, 9, 30)));
+        assertThat(journals.get(2).getLines()).extracting(JournalEntryLine::getAccountCode, JournalEntryLine::getType,
+                        JournalEntryLine::getAmount)
+                .containsExactly(
+                        tuple("5130", JournalEntryLine.EntryType.DEBIT, 2_800.0),
+                        tuple("1059", JournalEntryLine.EntryType.CREDIT, 2_800.0));
+        verify(accountingService, times(4)).postJournalEntry(any(), eq("system"));
+        // every group's commit is fenced under the depreciation lease
+        verify(jobCoordinator).runExclusive(eq("fixed-asset-depreciation"), any(Runnable.class));
+        verify(jobCoordinator, times(4)).fence();
+    }
+
+    @Test
+    void writesTheSubLedgerAndBalancesOfEveryChargedAsset() {
+        service.run(MONTH);
+
+        assertThat(jdbcTemplate.queryForList("SELECT asset_id || ':' || amount || ':' || accumulated_depreciation || ':' || " +
+                "book_value || ':' || journal_number FROM asset_depreciation WHERE period = '2026-09' ORDER BY asset_id", String.class))
+                .containsExactly("1:1800:1800:118200:JE-3", "2:1000:1000:59000:JE-3", "3:2000:22000:78000:JE-4",
+                        "4:1000:1000:35000:JE-2", "8:500:500:0:JE-1");
+        assertThat(jdbcTemplate.queryForList("SELECT id || ':' || accumulated_depreciation || ':' || " +
+                "COALESCE(CAST(current_book_value AS TEXT), '-') FROM fixed_assets ORDER BY id", String.class))
+                .containsExactly("1:1800:118200", "2:1000:59000", "3:22000:78000", "4:1000:35000",
+                        "5:35000:1000", "6:0:-", "7:0:-", "8:500:0");
+    }
+
+    @Test
+    void rerunForTheSameMonthChargesNothing() {
+        service.run(MONTH);
+
+        Map<String, Object> rerun = service.run(MONTH);
+
+        assertThat(rerun).containsEntry("assetsDepreciated", 0).containsEntry("journals", List.of());
+        assertThat(journals).hasSize(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM asset_depreciation", Integer.class)).isEqualTo(5);
+        assertThat(jdbcTemplate.queryForObject("SELECT accumulated_depreciation FROM fixed_assets WHERE id = 1", Double.class))
+                .isEqualTo(1_800.0);
+    }
+
+    @Test
+    void failedGroupIsRolledBackAndResumedByTheNextRun() {
+        failingReference = "DEP-2026-09-VEH-NRB";
+
+        assertThatThrownBy(() -> service.run(MONTH)).hasMessage("Accounting period closed");
+        assertThat(jdbcTemplate.queryForList("SELECT asset_id FROM asset_depreciation ORDER BY asset_id", Long.class))
+                .containsExactly(1L, 2L, 4L, 8L);
+
+        failingReference = "";
+        Map<String, Object> resumed = service.run(MONTH);
+
+        assertThat(resumed).containsEntry("assetsDepreciated", 1).containsEntry("totalDepreciation", 2_000.0);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM asset_depreciation", Integer.class)).isEqualTo(5);
+    }
+
+    @Test
+    void runIsRefusedWhileAnotherNodeHoldsTheLease() {
+        doReturn(false).when(jobCoordinator).runExclusive(anyString(), any(Runnable.class));
+
+        assertThatThrownBy(() -> service.run(MONTH)).isInstanceOf(IllegalStateException.class);
+        assertThat(journals).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM asset_depreciation", Integer.class)).isZero();
+    }
+
+    private long category(String code) {
+        return jdbcTemplate.queryForObject("INSERT INTO asset_categories (code, name, is_active) VALUES (?, ?, TRUE) RETURNING id",
+                Long.class, code, code + " assets");
+    }
+
+    private void asset(long id, long categoryId, String branchCode, String method, double cost, double residual,
+                       int lifeYears, Double rate, double accumulated, Double bookValue, String status, LocalDate purchased) {
+        jdbcTemplate.update("INSERT INTO fixed_assets (id, asset_code, asset_name, category_id, purchase_cost, purchase_date, " +
+                        "useful_life_years, depreciation_method, depreciation_rate, residual_value, accumulated_depreciation, " +
+                        "current_book_value, branch_code, status, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                id, "FA" + id, "Asset " + id, categoryId, cost, purchased, lifeYears, method, rate, residual, accumulated,
+                bookValue, branchCode, status, LocalDateTime.now());
+    }
+}
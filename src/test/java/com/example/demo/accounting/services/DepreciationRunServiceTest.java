@@ -0,0 +1,105 @@
+package com.example.demo.accounting.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DepreciationRunServiceTest {
+
+    private static final String STRAIGHT_LINE = "STRAIGHT_LINE";
+    private static final String DECLINING_BALANCE = "DECLINING_BALANCE";
+
+    @Test
+    void straightLineSpreadsDepreciableAmountOverLifeInMonths() {
+        //(120,000 - 12,000) / 60 months
+        assertThat(DepreciationRunService.monthlyCharge(STRAIGHT_LINE, 120_000, 12_000, 5, null, 120_000))
+                .isEqualTo(1_800.0);
+    }
+
+    @Test
+    void straightLineIgnoresRateAndCurrentBookValue() {
+        assertThat(DepreciationRunService.monthlyCharge(STRAIGHT_LINE, 120_000, 12_000, 5, 40.0, 60_000))
+                .isEqualTo(1_800.0);
+    }
+
+    @Test
+    void straightLineRoundsToCents() {
+        //10,000 / 36 = 277.777...
+        assertThat(DepreciationRunService.monthlyCharge(STRAIGHT_LINE, 10_000, 0, 3, null, 10_000))
+                .isEqualTo(277.78);
+    }
+
+    @Test
+    void straightLineWritesDownToExactlyResidualOverItsLife() {
+        double cost = 10_000;
+        double residual = 1_000;
+        double bookValue = cost;
+        int months = 0;
+        while (true) {
+            double charge = DepreciationRunService.monthlyCharge(STRAIGHT_LINE, cost, residual, 3, null, bookValue);
+            if (charge == 0.0) {
+                break;
+            }
+            bookValue = Math.round((bookValue - charge) * 100) / 100.0;
+            months++;
+        }
+        assertThat(bookValue).isEqualTo(residual);
+        assertThat(months).isEqualTo(36);
+    }
+
+    @Test
+    void decliningBalanceAppliesAnnualRateToBookValue() {
+        //80,000 * 30% / 12
+        assertThat(DepreciationRunService.monthlyCharge(DECLINING_BALANCE, 100_000, 5_000, 5, 30.0, 80_000))
+                .isEqualTo(2_000.0);
+    }
+
+    @Test
+    void decliningBalanceDefaultsToTwentyPercent() {
+        //60,000 * 20% / 12
+        assertThat(DepreciationRunService.monthlyCharge(DECLINING_BALANCE, 100_000, 0, 5, null, 60_000))
+                .isEqualTo(1_000.0);
+    }
+
+    @Test
+    void decliningBalanceNeverGoesBelowResidual() {
+        double residual = 5_000;
+        double bookValue = 100_000;
+        for (int month = 0; month < 600; month++) {
+            double charge = DepreciationRunService.monthlyCharge(DECLINING_BALANCE, 100_000, residual, 5, 50.0, bookValue);
+            assertThat(charge).isGreaterThanOrEqualTo(0.0);
+            bookValue = Math.round((bookValue - charge) * 100) / 100.0;
+            assertThat(bookValue).isGreaterThanOrEqualTo(residual);
+        }
+        assertThat(bookValue).isCloseTo(residual, within(1.0));
+    }
+
+    @Test
+    void chargeIsCappedAtRemainingDepreciableAmount() {
+        assertThat(DepreciationRunService.monthlyCharge(STRAIGHT_LINE, 120_000, 12_000, 5, null, 12_500))
+                .isEqualTo(500.0);
+        assertThat(DepreciationRunService.monthlyCharge(DECLINING_BALANCE, 120_000, 12_000, 5, 100.0, 12_300))
+                .isEqualTo(300.0);
+    }
+
+    @Test
+    void fullyDepreciatedAssetIsNotCharged() {
+        assertThat(DepreciationRunService.monthlyCharge(STRAIGHT_LINE, 120_000, 12_000, 5, null, 12_000)).isZero();
+        assertThat(DepreciationRunService.monthlyCharge(STRAIGHT_LINE, 120_000, 12_000, 5, null, 11_000)).isZero();
+        assertThat(DepreciationRunService.monthlyCharge(DECLINING_BALANCE, 120_000, 12_000, 5, 20.0, 12_000)).isZero();
+    }
+
+    @Test
+    void missingOrInvalidUsefulLifeIsNotCharged() {
+        assertThat(DepreciationRunService.monthlyCharge(STRAIGHT_LINE, 120_000, 0, null, null, 120_000)).isZero();
+        assertThat(DepreciationRunService.monthlyCharge(STRAIGHT_LINE, 120_000, 0, 0, null, 120_000)).isZero();
+        assertThat(DepreciationRunService.monthlyCharge(DECLINING_BALANCE, 120_000, 0, -1, 20.0, 120_000)).isZero();
+    }
+
+    @Test
+    void unknownOrMissingMethodIsNotCharged() {
+        assertThat(DepreciationRunService.monthlyCharge("UNITS_OF_PRODUCTION", 120_000, 0, 5, 20.0, 120_000)).isZero();
+        assertThat(DepreciationRunService.monthlyCharge(null, 120_000, 0, 5, 20.0, 120_000)).isZero();
+    }
+}
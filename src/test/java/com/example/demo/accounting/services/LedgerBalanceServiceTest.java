@@ -0,0 +1,106 @@
+package com.example.demo.accounting.services;
+
+import com.example.demo.accounting.services.LedgerBalanceService.Totals;
+import com.example.demo.support.LocalJobCoordinator;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.cache.ReferenceDataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Balances read as the last closed month's closing balances plus the lines posted since. The lines
+ * of closed months are deleted once they are closed, so any figure that still reads them is wrong.
+ */
+class LedgerBalanceServiceTest extends PostgresJpaTest {
+
+    private LedgerBalanceService service;
+    private long journals;
+
+    @BeforeEach
+    void setUp() {
+        truncate("journal_entry_lines", "journal_entries", "account_period_balances", "accounting_periods");
+        journal(LocalDate.of(2025, 12, 20), "HQ", "1010", "3010", 5_000);
+        journal(LocalDate.of(2026, 1, 10), "HQ", "1200", "1010", 2_000);
+        journal(LocalDate.of(2026, 1, 15), "NRB", "1010", "2010", 700);
+        journal(LocalDate.of(2026, 2, 5), "HQ", "1010", "4010", 300);
+        journal(LocalDate.of(2026, 2, 25), "NRB", "5010", "1010", 40);
+        journal(LocalDate.of(2026, 3, 10), "NRB", "1010", "2010", 50);
+        journal(LocalDate.of(2026, 3, 20), "HQ", "5010", "1010", 80);
+
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(referenceDataCache, "channel", "refdata:invalidate");
+        ReflectionTestUtils.setField(referenceDataCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(referenceDataCache, "maxSize", 100);
+        PeriodCloseService periodCloseService = new PeriodCloseService(jdbcTemplate, transactionManager,
+                LocalJobCoordinator.create(jdbcTemplate, transactionManager), referenceDataCache, "ADJUST");
+        periodCloseService.close(YearMonth.of(2026, 1), "accountant");
+        periodCloseService.close(YearMonth.of(2026, 2), "accountant");
+        jdbcTemplate.update("DELETE FROM journal_entry_lines WHERE journal_entry_id IN " +
+                "(SELECT id FROM journal_entries WHERE transaction_date < '2026-03-01')");
+
+        service = new LedgerBalanceService(jdbcTemplate);
+    }
+
+    @Test
+    void balanceInAnOpenMonthIsTheLastCloseSummedOverBranchesPlusTheDelta() {
+        assertThat(totals(service.balancesAsOf(LocalDate.of(2026, 3, 15)))).containsExactly(
+                Map.entry("1010", "6050/2040"), Map.entry("1200", "2000/0"), Map.entry("2010", "0/750"),
+                Map.entry("3010", "0/5000"), Map.entry("4010", "0/300"), Map.entry("5010", "40/0"));
+        assertThat(totals(service.balancesAsOf(LocalDate.of(2026, 3, 31)))).containsEntry("1010", "6050/2120")
+                .containsEntry("5010", "120/0");
+    }
+
+    @Test
+    void monthEndOfAClosedMonthIsItsClosingBalance() {
+        assertThat(totals(service.balancesAsOf(LocalDate.of(2026, 1, 31)))).containsExactly(
+                Map.entry("1010", "5700/2000"), Map.entry("1200", "2000/0"), Map.entry("2010", "0/700"),
+                Map.entry("3010", "0/5000"));
+    }
+
+    @Test
+    void midMonthOfAClosedMonthStartsFromThePreviousClose() {
+        // the lines of the 5th are back; the February close also holds the 25th, which the 10th must not see
+        jdbcTemplate.update("INSERT INTO journal_entry_lines (journal_entry_id, account_code, type, amount, line_number) " +
+                "SELECT id, '1010', 'DEBIT', 300, 1 FROM journal_entries WHERE transaction_date = '2026-02-05' " +
+                "UNION ALL SELECT id, '4010', 'CREDIT', 300, 2 FROM journal_entries WHERE transaction_date = '2026-02-05'");
+
+        assertThat(totals(service.balancesAsOf(LocalDate.of(2026, 2, 10)))).containsExactly(
+                Map.entry("1010", "6000/2000"), Map.entry("1200", "2000/0"), Map.entry("2010", "0/700"),
+                Map.entry("3010", "0/5000"), Map.entry("4010", "0/300"));
+    }
+
+    @Test
+    void movementBetweenTwoClosedMonthEndsIsTheDifferenceOfTheCloses() {
+        Map<String, String> february = totals(service.movements(LocalDate.of(2026, 2, 1), LocalDate.of(2026, 2, 28)));
+
+        assertThat(february).containsEntry("1010", "300/40").containsEntry("4010", "0/300")
+                .containsEntry("5010", "40/0").containsEntry("1200", "0/0");
+    }
+
+    private void journal(LocalDate date, String branch, String debit, String credit, double amount) {
+        long id = ++journals;
+        jdbcTemplate.update("INSERT INTO journal_entries (id, journal_number, transaction_date, description, reference, " +
+                        "branch_code, journal_type, status, total_debit, total_credit, is_balanced, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, 'test', ?, ?, 'GENERAL', 'POSTED', ?, ?, TRUE, ?, ?)",
+                id, "JE-" + id, date, "REF-" + id, branch, amount, amount, LocalDateTime.now(), LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO journal_entry_lines (journal_entry_id, account_code, type, amount, line_number) " +
+                "VALUES (?, ?, 'DEBIT', ?, 1), (?, ?, 'CREDIT', ?, 2)", id, debit, amount, id, credit, amount);
+    }
+
+    private static Map<String, String> totals(Map<String, Totals> balances) {
+        Map<String, String> totals = new TreeMap<>();
+        balances.forEach((code, t) -> totals.put(code, Math.round(t.debit()) + "/" + Math.round(t.credit())));
+        return totals;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.accounting.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PayrollEngineTest {
+
+    private static final PayrollEngine.StatutoryRates RATES = PayrollEngine.RATES;
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0",
+            "10000, 1000",
+            "24000, 2400",
+            "24001, 2400.25",
+            "32333, 4483.25",
+            "50000, 9783.1",
+            "500000, 144783.1",
+            "600000, 177283",
+            "800000, 242283",
+            "1000000, 312283"
+    })
+    void payeAppliesBandRateAboveBandFloor(double gross, double expected) {
+        assertThat(RATES.paye(gross)).isCloseTo(expected, within(0.01));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 150",
+            "5999, 150",
+            "6000, 300",
+            "11999, 400",
+            "12000, 500",
+            "24999, 750",
+            "25000, 850",
+            "49999, 1100",
+            "50000, 1200",
+            "99999, 1600",
+            "100000, 1700",
+            "1000000, 1700"
+    })
+    void nhifUsesBracketBelowUpperBound(double gross, double expected) {
+        assertThat(RATES.nhif(gross)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0",
+            "5000, 300",
+            "7000, 420",
+            "10000, 600",
+            "43000, 2580",
+            "100000, 2580"
+    })
+    void nssfChargesBothTiersUpToCap(double gross, double expected) {
+        assertThat(RATES.nssf(gross)).isCloseTo(expected, within(0.001));
+    }
+
+    @Test
+    void ratesMatchPreviousPayrollCalculationAcrossAllBands() {
+        for (int gross = 0; gross <= 1_200_000; gross += 37) {
+            assertThat(RATES.paye(gross)).as("paye at %d", gross).isCloseTo(referencePaye(gross), within(1e-6));
+            assertThat(RATES.nhif(gross)).as("nhif at %d", gross).isEqualTo(referenceNhif(gross));
+            assertThat(RATES.nssf(gross)).as("nssf at %d", gross).isCloseTo(referenceNssf(gross), within(1e-6));
+        }
+    }
+
+    @Test
+    void sharedRatesGiveSameResultsInParallel() {
+        double sequential = IntStream.range(0, 200_000).mapToDouble(i -> deductions(i * 5.0)).sum();
+        double parallel = IntStream.range(0, 200_000).parallel().mapToDouble(i -> deductions(i * 5.0)).sum();
+        assertThat(parallel).isCloseTo(sequential, within(1e-3));
+    }
+
+    private static double deductions(double gross) {
+        return RATES.paye(gross) + RATES.nhif(gross) + RATES.nssf(gross);
+    }
+
+    //the per-detail calculation the engine replaced
+    private static double referencePaye(double gross) {
+        if (gross <= 24000) {
+            return gross * 0.10;
+        } else if (gross <= 32333) {
+            return 2400 + ((gross - 24000) * 0.25);
+        } else if (gross <= 500000) {
+            return 4483 + ((gross - 32333) * 0.30);
+        } else if (gross <= 800000) {
+            return 144783 + ((gross - 500000) * 0.325);
+        } else {
+            return 242283 + ((gross - 800000) * 0.35);
+        }
+    }
+
+    private static double referenceNhif(double gross) {
+        double[] below = {6000, 8000, 12000, 15000, 20000, 25000, 30000, 35000, 40000,
+                45000, 50000, 60000, 70000, 80000, 90000, 100000};
+        double[] amount = {150, 300, 400, 500, 600, 750, 850, 900, 950, 1000, 1100, 1200, 1300, 1400, 1500, 1600};
+        for (int i = 0; i < below.length; i++) {
+            if (gross < below[i]) {
+                return amount[i];
+            }
+        }
+        return 1700;
+    }
+
+    private static double referenceNssf(double gross) {
+        double tierI = Math.min(gross, 7000) * 0.06;
+        double tierII = gross > 7000 ? Math.min(gross - 7000, 36000) * 0.06 : 0;
+        return tierI + tierII;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.demo.accounting.services;
+
+import com.example.demo.accounting.entities.JournalEntry;
+import com.example.demo.accounting.entities.JournalEntryLine;
+import com.example.demo.accounting.entities.PayrollRun;
+import com.example.demo.accounting.repositories.EmployeeRepository;
+import com.example.demo.accounting.repositories.PayrollRunRepository;
+import com.example.demo.support.Benchmark;
+import com.example.demo.support.PostgresJpaTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A payroll run against Postgres: details created for every active employee in one statement,
+ * computed and written back by the engine, and paid with one consolidated journal entry.
+ */
+class PayrollServiceTest extends PostgresJpaTest {
+
+    private static final int EMPLOYEES = 10_000;
+
+    @Autowired
+    private EmployeeRepository employeeRepo;
+    @Autowired
+    private PayrollRunRepository payrollRunRepo;
+
+    private final AccountingService accountingService = mock(AccountingService.class);
+    private TransactionTemplate transactionTemplate;
+    private PayrollEngine payrollEngine;
+    private PayrollService service;
+
+    @BeforeEach
+    void setUp() {
+        truncate("payroll_details", "payroll_runs", "employees");
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        payrollEngine = new PayrollEngine(jdbcTemplate);
+        service = new PayrollService(employeeRepo, payrollRunRepo, accountingService, payrollEngine, jdbcTemplate);
+        when(accountingService.createJournalEntry(any(JournalEntry.class), anyString())).thenAnswer(invocation -> {
+            JournalEntry entry = invocation.getArgument(0);
+            entry.setId(1L);
+            entry.setJournalNumber("CP-00000001");
+            return entry;
+        });
+    }
+
+    @Test
+    void createRunAddsEveryActiveEmployeeInOneStatement() {
+        employee(1, 50_000, 10_000, 5_000, "ACTIVE");
+        employee(2, 20_000, null, null, "ACTIVE");
+        employee(3, 80_000, 0, 0, "SUSPENDED");
+
+        PayrollRun run = transactionTemplate.execute(status -> service.createPayrollRun(9, 2026, "hr"));
+
+        assertThat(run.getStatus()).isEqualTo(PayrollRun.PayrollStatus.DRAFT);
+        assertThat(jdbcTemplate.queryForList("SELECT e.employee_code || ':' || d.basic_salary || ':' || " +
+                        "COALESCE(CAST(d.housing_allowance AS TEXT), '-') || ':' || d.overtime || ':' || d.is_paid " +
+                        "FROM payroll_details d JOIN employees e ON e.id = d.employee_id WHERE d.payroll_run_id = ? ORDER BY e.employee_code",
+                String.class, run.getId()))
+                .containsExactly("EMP00001:50000:10000:0:false", "EMP00002:20000:-:0:false");
+        assertThatThrownBy(() -> transactionTemplate.execute(status -> service.createPayrollRun(9, 2026, "hr")))
+                .hasMessageContaining("Payroll already exists");
+    }
+
+    @Test
+    void calculateWritesEveryDetailAndTheRunTotals() {
+        employee(1, 50_000, 10_000, 5_000, "ACTIVE");
+        employee(2, 20_000, null, null, "ACTIVE");
+        PayrollRun run = transactionTemplate.execute(status -> service.createPayrollRun(9, 2026, "hr"));
+        jdbcTemplate.update("UPDATE payroll_details SET loan_deductions = 2000 WHERE employee_id = 1");
+
+        PayrollRun calculated = transactionTemplate.execute(status -> service.calculatePayroll(run.getId()));
+
+        // 65,000 gross: PAYE 4,483 + 30% over 32,333; NHIF 1,300; NSSF 420 + 2,160
+        Map<String, Object> first = detail(1);
+        assertThat(first).containsEntry("gross_salary", 65_000.0).containsEntry("nhif", 1_300.0).containsEntry("nssf", 2_580.0);
+        assertThat((Double) first.get("paye")).isCloseTo(14_283.1, within(0.001));
+        assertThat((Double) first.get("total_deductions")).isCloseTo(20_163.1, within(0.001));
+        assertThat((Double) first.get("net_salary")).isCloseTo(44_836.9, within(0.001));
+        // 20,000 gross, no allowances: PAYE 10%; NHIF 750; NSSF 420 + 780
+        Map<String, Object> second = detail(2);
+        assertThat(second).containsEntry("gross_salary", 20_000.0).containsEntry("paye", 2_000.0)
+                .containsEntry("nhif", 750.0).containsEntry("nssf", 1_200.0).containsEntry("net_salary", 16_050.0);
+        assertThat(calculated.getStatus()).isEqualTo(PayrollRun.PayrollStatus.PROCESSED);
+        assertThat(calculated.getTotalGrossSalary()).isEqualTo(85_000.0);
+        assertThat(calculated.getTotalNetSalary()).isCloseTo(60_886.9, within(0.001));
+        assertThat(calculated.getTotalDeductions()).isCloseTo(24_113.1, within(0.001));
+        assertThatThrownBy(() -> transactionTemplate.execute(status -> service.calculatePayroll(run.getId())))
+                .hasMessage("Only draft payroll can be calculated");
+    }
+
+    @Test
+    void paymentPostsOneBalancedJournalAndMarksEveryDetailPaid() {
+        employee(1, 50_000, 10_000, 5_000, "ACTIVE");
+        employee(2, 20_000, null, null, "ACTIVE");
+        PayrollRun run = transactionTemplate.execute(status -> service.createPayrollRun(9, 2026, "hr"));
+        jdbcTemplate.update("UPDATE payroll_details SET loan_deductions = 2000, advance_deductions = 500 WHERE employee_id = 1");
+        transactionTemplate.execute(status -> service.calculatePayroll(run.getId()));
+        transactionTemplate.execute(status -> service.approvePayroll(run.getId(), "finance"));
+
+        PayrollRun paid = transactionTemplate.execute(status -> service.processPayment(run.getId(), "finance"));
+
+        ArgumentCaptor<JournalEntry> journal = ArgumentCaptor.forClass(JournalEntry.class);
+        verify(accountingService).createJournalEntry(journal.capture(), any());
+        verify(accountingService).postJournalEntry(1L, "finance");
+        List<JournalEntryLine> lines = journal.getValue().getLines();
+        assertThat(lines).extracting(JournalEntryLine::getAccountCode, JournalEntryLine::getType).containsExactly(
+                tuple("5030", JournalEntryLine.EntryType.DEBIT),
+                tuple("1020", JournalEntryLine.EntryType.CREDIT),
+                tuple("2030", JournalEntryLine.EntryType.CREDIT),
+                tuple("2040", JournalEntryLine.EntryType.CREDIT),
+                tuple("2050", JournalEntryLine.EntryType.CREDIT),
+                tuple("2060", JournalEntryLine.EntryType.CREDIT));
+        assertThat(lines.get(0).getAmount()).isEqualTo(85_000.0);
+        assertThat(lines.get(5).getAmount()).isEqualTo(2_500.0);
+        double credits = lines.stream().filter(line -> line.getType() == JournalEntryLine.EntryType.CREDIT)
+                .mapToDouble(JournalEntryLine::getAmount).sum();
+        assertThat(credits).isCloseTo(85_000.0, within(0.001));
+        assertThat(paid.getStatus()).isEqualTo(PayrollRun.PayrollStatus.PAID);
+        assertThat(paid.getJournalEntryId()).isEqualTo("CP-00000001");
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT is_paid || ':' || payment_reference FROM payroll_details",
+                String.class)).containsExactly("true:CP-00000001");
+    }
+
+    @Test
+    @Benchmark
+    void tenThousandEmployeesAreCalculatedInOnePass(TestReporter reporter) {
+        jdbcTemplate.batchUpdate("INSERT INTO employees (employee_code, first_name, last_name, national_id, phone_number, email, " +
+                        "position, basic_salary, housing_allowance, transport_allowance, other_allowances, date_of_joining, status, created_at) " +
+                        "VALUES (?, 'Staff', 'Member', ?, ?, ?, 'Officer', ?, ?, 3000, 0, ?, 'ACTIVE', ?)",
+                IntStream.rangeClosed(1, EMPLOYEES).mapToObj(i -> new Object[]{String.format("EMP%05d", i), "ID" + i,
+                        "2547" + String.format("%08d", i), "staff" + i + "@example.com", 15_000.0 + (i * 37) % 400_000,
+                        (double) (i % 5) * 2_000, LocalDate.of(2020, 1, 1), LocalDateTime.now()}).toList());
+
+        long started = System.nanoTime();
+        PayrollRun perDetail = transactionTemplate.execute(status -> service.createPayrollRun(8, 2026, "hr"));
+        long perDetailCreated = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> calculateDetailByDetail(perDetail.getId()));
+        long perDetailCalculated = System.nanoTime();
+
+        PayrollRun run = transactionTemplate.execute(status -> service.createPayrollRun(9, 2026, "hr"));
+        long created = System.nanoTime();
+        transactionTemplate.execute(status -> service.calculatePayroll(run.getId()));
+        long calculated = System.nanoTime();
+
+        double createMs = (created - perDetailCalculated) / 1e6;
+        double engineMs = (calculated - created) / 1e6;
+        double perDetailMs = (perDetailCalculated - perDetailCreated) / 1e6;
+        reporter.publishEntry("create run ms, " + EMPLOYEES + " employees", String.valueOf(Math.round(createMs)));
+        reporter.publishEntry("calculate ms, detail by detail", String.valueOf(Math.round(perDetailMs)));
+        reporter.publishEntry("calculate ms, engine", String.valueOf(Math.round(engineMs)));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payroll_details WHERE payroll_run_id = ? AND net_salary > 0",
+                Integer.class, run.getId())).isEqualTo(EMPLOYEES);
+        // both runs see the same employees, so the totals must agree
+        assertThat(jdbcTemplate.queryForObject("SELECT total_net_salary FROM payroll_runs WHERE id = ?", Double.class, run.getId()))
+                .isCloseTo(jdbcTemplate.queryForObject("SELECT SUM(net_salary) FROM payroll_details WHERE payroll_run_id = ?",
+                        Double.class, perDetail.getId()), within(1.0));
+        assertThat(engineMs).isLessThan(perDetailMs / 4);
+        assertThat(createMs + engineMs).isLessThan(10_000.0);
+    }
+
+    /**
+     * The calculation as it ran before the engine: each detail read, computed and saved on its own.
+     */
+    private void calculateDetailByDetail(long payrollRunId) {
+        for (Long id : jdbcTemplate.queryForList("SELECT id FROM payroll_details WHERE payroll_run_id = ?", Long.class, payrollRunId)) {
+            Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM payroll_details WHERE id = ?", id);
+            double gross = value(row, "basic_salary") + value(row, "housing_allowance") + value(row, "transport_allowance")
+                    + value(row, "other_allowances") + value(row, "overtime") + value(row, "bonus");
+            PayrollEngine.StatutoryRates rates = PayrollEngine.RATES;
+            double deductions = rates.paye(gross) + rates.nhif(gross) + rates.nssf(gross);
+            jdbcTemplate.update("UPDATE payroll_details SET gross_salary = ?, paye = ?, nhif = ?, nssf = ?, " +
+                            "total_deductions = ?, net_salary = ? WHERE id = ?",
+                    gross, rates.paye(gross), rates.nhif(gross), rates.nssf(gross), deductions, gross - deductions, id);
+        }
+    }
+
+    private static double value(Map<String, Object> row, String column) {
+        Object value = row.get(column);
+        return value != null ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private void employee(long id, double basic, Integer housing, Integer transport, String status) {
+        jdbcTemplate.update("INSERT INTO employees (id, employee_code, first_name, last_name, national_id, phone_number, email, " +
+                        "position, basic_salary, housing_allowance, transport_allowance, date_of_joining, status, created_at) " +
+                        "VALUES (?, ?, 'Staff', 'Member', ?, ?, ?, 'Officer', ?, ?, ?, ?, ?, ?)",
+                id, String.format("EMP%05d", id), "ID" + id, "25470000000" + id, "staff" + id + "@example.com", basic,
+                housing != null ? housing.doubleValue() : null, transport != null ? transport.doubleValue() : null,
+                LocalDate.of(2020, 1, 1), status, LocalDateTime.now());
+    }
+
+    private Map<String, Object> detail(long employeeId) {
+        return jdbcTemplate.queryForMap("SELECT gross_salary, paye, nhif, nssf, total_deductions, net_salary " +
+                "FROM payroll_details WHERE employee_id = ?", employeeId);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.accounting.services;
+
+import com.example.demo.support.Benchmark;
+import com.example.demo.support.LocalJobCoordinator;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.cache.ReferenceDataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Closing months of 1.5 million journals - three million lines each - spread over 40 accounts and
+ * 25 branches: the first close reads the whole history, the second carries it forward and reads
+ * only its own month. Each has to finish within five minutes.
+ */
+@Benchmark
+class PeriodCloseLoadTest extends PostgresJpaTest {
+
+    private static final int JOURNALS_PER_MONTH = 1_500_000;
+    private static final int ACCOUNTS = 40;
+    private static final int BRANCHES = 25;
+    private static final long LIMIT_MS = 5 * 60 * 1000;
+
+    private PeriodCloseService service;
+
+    @BeforeEach
+    void setUp() {
+        truncate("journal_entry_lines", "journal_entries", "account_period_balances", "accounting_periods");
+        seed(YearMonth.of(2026, 1), 0);
+        seed(YearMonth.of(2026, 2), JOURNALS_PER_MONTH);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_posted_date ON journal_entries (transaction_date, id) " +
+                "WHERE status IN ('POSTED', 'APPROVED', 'REVERSED')");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_line_entry ON journal_entry_lines " +
+                "(journal_entry_id, account_code, type, amount)");
+        jdbcTemplate.execute("ANALYZE journal_entries");
+        jdbcTemplate.execute("ANALYZE journal_entry_lines");
+
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(referenceDataCache, "channel", "refdata:invalidate");
+        ReflectionTestUtils.setField(referenceDataCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(referenceDataCache, "maxSize", 100);
+        service = new PeriodCloseService(jdbcTemplate, transactionManager,
+                LocalJobCoordinator.create(jdbcTemplate, transactionManager), referenceDataCache, "ADJUST");
+    }
+
+    @Test
+    void monthsOfMillionsOfLinesCloseWithinMinutes(TestReporter reporter) {
+        Map<String, Object> january = service.close(YearMonth.of(2026, 1), "benchmark");
+        Map<String, Object> february = service.close(YearMonth.of(2026, 2), "benchmark");
+
+        reporter.publishEntry("first close ms (whole history, 3M lines)", String.valueOf(january.get("elapsedMs")));
+        reporter.publishEntry("second close ms (carried forward, 3M lines)", String.valueOf(february.get("elapsedMs")));
+        assertThat(january).containsEntry("balanceRows", ACCOUNTS * BRANCHES);
+        assertThat(february).containsEntry("balanceRows", ACCOUNTS * BRANCHES);
+        assertThat((Long) january.get("elapsedMs")).isLessThan(LIMIT_MS);
+        assertThat((Long) february.get("elapsedMs")).isLessThan(LIMIT_MS);
+        // the carried-forward totals match a full recount of both months
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(debit_total) FROM account_period_balances WHERE period = '2026-02'",
+                Double.class)).isEqualTo(jdbcTemplate.queryForObject("SELECT SUM(amount) FROM journal_entry_lines " +
+                "WHERE type = 'DEBIT'", Double.class));
+    }
+
+    private void seed(YearMonth month, int offset) {
+        jdbcTemplate.update("INSERT INTO journal_entries (id, journal_number, transaction_date, description, reference, " +
+                "branch_code, journal_type, status, total_debit, total_credit, is_balanced, created_at, updated_at) " +
+                "SELECT g, 'JE-' || g, CAST(? AS DATE) + (g % ?), 'load', 'REF-' || g, 'BR' || (g % ?), 'GENERAL', " +
+                "'POSTED', 100, 100, TRUE, now(), now() FROM generate_series(?, ?) g",
+                Date.valueOf(month.atDay(1)), month.lengthOfMonth(), BRANCHES, offset + 1, offset + JOURNALS_PER_MONTH);
+        // debit and credit accounts cover every account in every branch
+        jdbcTemplate.update("INSERT INTO journal_entry_lines (journal_entry_id, account_code, type, amount, line_number) " +
+                "SELECT g, CAST(1000 + (g / ?) % ? AS TEXT), 'DEBIT', 1 + g % 500, 1 FROM generate_series(?, ?) g " +
+                "UNION ALL SELECT g, CAST(1000 + (g / ? + 1) % ? AS TEXT), 'CREDIT', 1 + g % 500, 2 FROM generate_series(?, ?) g",
+                BRANCHES, ACCOUNTS, offset + 1, offset + JOURNALS_PER_MONTH,
+                BRANCHES, ACCOUNTS, offset + 1, offset + JOURNALS_PER_MONTH);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.demo.accounting.services;
+
+import com.example.demo.support.LocalJobCoordinator;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.cache.ReferenceDataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Month-end close against Postgres: closing balances per account and branch carried forward from
+ * the previous close, months closed in order, and back-dated postings re-dated or refused.
+ */
+class PeriodCloseServiceTest extends PostgresJpaTest {
+
+    private static final YearMonth JANUARY = YearMonth.of(2026, 1);
+    private static final YearMonth FEBRUARY = YearMonth.of(2026, 2);
+
+    private long journals;
+
+    @BeforeEach
+    void setUp() {
+        truncate("journal_entry_lines", "journal_entries", "account_period_balances", "accounting_periods");
+        journal(LocalDate.of(2025, 12, 20), "POSTED", "HQ", "1010", "3010", 5_000);
+        journal(LocalDate.of(2026, 1, 10), "POSTED", "HQ", "1200", "1010", 2_000);
+        journal(LocalDate.of(2026, 1, 15), "POSTED", "NRB", "1010", "2010", 700);
+        journal(LocalDate.of(2026, 1, 20), "POSTED", null, "5010", "1010", 100);
+        journal(LocalDate.of(2026, 1, 25), "DRAFT", "HQ", "5010", "1010", 999);
+        journal(LocalDate.of(2026, 2, 5), "POSTED", "HQ", "1010", "4010", 300);
+    }
+
+    @Test
+    void firstCloseTakesTheWholeHistoryPerAccountAndBranch() {
+        assertThat(service("ADJUST").close(JANUARY, "accountant")).containsEntry("period", "2026-01")
+                .containsEntry("status", "CLOSED").containsEntry("balanceRows", 7);
+
+        assertThat(closingBalances(JANUARY)).containsExactly(
+                "HQ 1010 5000/2000", "HQ 1200 2000/0", "HQ 3010 0/5000",
+                "NRB 1010 700/0", "NRB 2010 0/700",
+                "UNASSIGNED 1010 0/100", "UNASSIGNED 5010 100/0");
+        assertThat(jdbcTemplate.queryForObject("SELECT status || ' ' || closed_by || ' ' || balance_rows " +
+                "FROM accounting_periods WHERE period = '2026-01'", String.class)).isEqualTo("CLOSED accountant 7");
+    }
+
+    @Test
+    void nextCloseCarriesTheBalancesForwardAndAddsTheMonth() {
+        PeriodCloseService service = service("ADJUST");
+        service.close(JANUARY, "accountant");
+        // lines of closed months are no longer read
+        jdbcTemplate.update("DELETE FROM journal_entry_lines WHERE journal_entry_id IN " +
+                "(SELECT id FROM journal_entries WHERE transaction_date < '2026-02-01')");
+
+        service.close(FEBRUARY, "accountant");
+
+        assertThat(closingBalances(FEBRUARY)).containsExactly(
+                "HQ 1010 5300/2000", "HQ 1200 2000/0", "HQ 3010 0/5000", "HQ 4010 0/300",
+                "NRB 1010 700/0", "NRB 2010 0/700",
+                "UNASSIGNED 1010 0/100", "UNASSIGNED 5010 100/0");
+    }
+
+    @Test
+    void monthsCloseInOrderAndOnlyOnceOver() {
+        PeriodCloseService service = service("ADJUST");
+        service.close(JANUARY, "accountant");
+
+        assertThatThrownBy(() -> service.close(YearMonth.of(2026, 3), "accountant"))
+                .hasMessage("Next period to close is 2026-02, not 2026-03");
+        assertThatThrownBy(() -> service.close(YearMonth.now(), "accountant"))
+                .hasMessage("Only past months can be closed: " + YearMonth.now());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM accounting_periods", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void closeLeftClosingIsRunAgainAndBlocksOtherMonths() {
+        jdbcTemplate.update("INSERT INTO accounting_periods (period, status, closing_started_at) VALUES ('2026-01', 'CLOSING', ?)",
+                LocalDateTime.now());
+        PeriodCloseService service = service("ADJUST");
+
+        assertThatThrownBy(() -> service.close(FEBRUARY, "accountant")).hasMessage("Period 2026-01 is still being closed");
+        service.close(JANUARY, "accountant");
+
+        assertThat(closingBalances(JANUARY)).hasSize(7);
+        assertThat(service.lastClosed()).isEqualTo(JANUARY);
+    }
+
+    @Test
+    void backDatedPostingsMoveToTheFirstOpenDay() {
+        PeriodCloseService service = service("ADJUST");
+        service.close(JANUARY, "accountant");
+
+        assertThat(postingDate(service, LocalDate.of(2026, 1, 15))).isEqualTo(LocalDate.of(2026, 2, 1));
+        assertThat(postingDate(service, LocalDate.of(2025, 6, 30))).isEqualTo(LocalDate.of(2026, 2, 1));
+        assertThat(postingDate(service, LocalDate.of(2026, 2, 10))).isEqualTo(LocalDate.of(2026, 2, 10));
+        assertThat(postingDate(service, LocalDate.now())).isEqualTo(LocalDate.now());
+    }
+
+    @Test
+    void rejectPolicyRefusesBackDatedPostings() {
+        PeriodCloseService service = service("REJECT");
+        service.close(JANUARY, "accountant");
+
+        assertThatThrownBy(() -> postingDate(service, LocalDate.of(2026, 1, 31)))
+                .hasMessage("Accounting period 2026-01 is closed");
+        assertThat(postingDate(service, LocalDate.of(2026, 2, 1))).isEqualTo(LocalDate.of(2026, 2, 1));
+    }
+
+    @Test
+    void nodeWithAStaleCacheStillRedatesPastTheLatestClose() {
+        PeriodCloseService node = service("ADJUST");
+        PeriodCloseService other = service("ADJUST");
+        node.close(JANUARY, "accountant");
+        assertThat(node.lastClosed()).isEqualTo(JANUARY);
+
+        // closed elsewhere; this node's cache is not told
+        other.close(FEBRUARY, "accountant");
+
+        assertThat(node.lastClosed()).isEqualTo(JANUARY);
+        assertThat(postingDate(node, LocalDate.of(2026, 1, 20))).isEqualTo(LocalDate.of(2026, 3, 1));
+        assertThat(postingDate(node, LocalDate.of(2026, 2, 20))).isEqualTo(LocalDate.of(2026, 3, 1));
+    }
+
+    private PeriodCloseService service(String policy) {
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(referenceDataCache, "channel", "refdata:invalidate");
+        ReflectionTestUtils.setField(referenceDataCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(referenceDataCache, "maxSize", 100);
+        return new PeriodCloseService(jdbcTemplate, transactionManager,
+                LocalJobCoordinator.create(jdbcTemplate, transactionManager), referenceDataCache, policy);
+    }
+
+    private LocalDate postingDate(PeriodCloseService service, LocalDate date) {
+        return new TransactionTemplate(transactionManager).execute(status -> service.postingDate(date));
+    }
+
+    private void journal(LocalDate date, String status, String branch, String debit, String credit, double amount) {
+        long id = ++journals;
+        jdbcTemplate.update("INSERT INTO journal_entries (id, journal_number, transaction_date, description, reference, " +
+                        "branch_code, journal_type, status, total_debit, total_credit, is_balanced, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, 'test', ?, ?, 'GENERAL', ?, ?, ?, TRUE, ?, ?)",
+                id, "JE-" + id, date, "REF-" + id, branch, status, amount, amount, LocalDateTime.now(), LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO journal_entry_lines (journal_entry_id, account_code, type, amount, line_number) " +
+                "VALUES (?, ?, 'DEBIT', ?, 1), (?, ?, 'CREDIT', ?, 2)", id, debit, amount, id, credit, amount);
+    }
+
+    private List<String> closingBalances(YearMonth period) {
+        return jdbcTemplate.queryForList("SELECT branch_code || ' ' || account_code || ' ' || debit_total || '/' || credit_total " +
+                "FROM account_period_balances WHERE period = ? ORDER BY branch_code, account_code", String.class, period.toString());
+    }
+}
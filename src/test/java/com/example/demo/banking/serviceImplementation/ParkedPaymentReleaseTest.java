@@ -0,0 +1,181 @@
+package com.example.demo.banking.serviceImplementation;
+
+import com.example.demo.banking.parsitence.enitities.BankAccounts;
+import com.example.demo.banking.parsitence.enitities.Payments;
+import com.example.demo.banking.parsitence.enitities.Transactions;
+import com.example.demo.banking.parsitence.repositories.AccountProvisioningTaskRepo;
+import com.example.demo.banking.parsitence.repositories.BankAccountRepo;
+import com.example.demo.banking.parsitence.repositories.PaymentRepo;
+import com.example.demo.banking.parsitence.repositories.PaymentTransactionRepo;
+import com.example.demo.communication.parsitence.repositories.emailRepo;
+import com.example.demo.communication.services.CommunicationService;
+import com.example.demo.communication.services.InfoBidApiService;
+import com.example.demo.customerManagement.parsistence.entities.Customer;
+import com.example.demo.customerManagement.parsistence.repositories.CustomerRepo;
+import com.example.demo.customerManagement.serviceImplimentations.CustomerService;
+import com.example.demo.events.appEvents.AccountsProvisionedEvent;
+import com.example.demo.loanManagement.services.LoanAccountService;
+import com.example.demo.loanManagement.services.PaymentService;
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.support.LocalJobCoordinator;
+import com.example.demo.support.PostgresJpaTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Releases of payments parked while a member's accounts were provisioned: failures roll back and
+ * are retried by the sweep, repeated failures stop, and concurrent releases credit once.
+ */
+class ParkedPaymentReleaseTest extends PostgresJpaTest {
+
+    private static final String PARKED = "AWAITING ACCOUNTS";
+    private static final String PROCESSED = "PROCESSED AS CONTRIBUTION";
+
+    @Autowired
+    private PaymentRepo paymentRepo;
+    @Autowired
+    private BankAccountRepo bankAccountRepo;
+    @Autowired
+    private PaymentTransactionRepo realTransactionsRepo;
+    @Autowired
+    private AccountProvisioningTaskRepo provisioningTaskRepo;
+    @Autowired
+    private CustomerRepo customerRepo;
+
+    private final CustomerService customerService = mock(CustomerService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private PaymentTransactionRepo transactionsRepo;
+    private BankingServiceImplementation service;
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        truncate("transactions", "payments", "bank_accounts", "account_provisioning_tasks", "customer");
+        transactionsRepo = mock(PaymentTransactionRepo.class, delegatesTo(realTransactionsRepo));
+        service = new BankingServiceImplementation(paymentRepo, customerService, mock(LoanAccountService.class),
+                mock(PaymentService.class), bankAccountRepo, transactionsRepo, mock(CommunicationService.class),
+                mock(emailRepo.class), mock(InfoBidApiService.class), provisioningTaskRepo, eventPublisher,
+                transactionManager, LocalJobCoordinator.create(jdbcTemplate, transactionManager));
+
+        Customer member = new Customer();
+        member.setFirstName("Jane");
+        member.setPhoneNumber("254700000001");
+        customer = customerRepo.save(member);
+        when(customerService.findCustomerById(customer.getId())).thenReturn(Optional.of(customer));
+        account("ALPHA");
+        account("SAVINGS");
+    }
+
+    @Test
+    void failedReleaseRollsBackItsCreditsAndParksThePaymentAgain() {
+        Payments payment = park("REF1", "100", LocalDateTime.now());
+        failSavingsCredits();
+
+        service.releaseParkedPayments(customer.getId());
+
+        Payments stored = paymentRepo.findById(payment.getPaymentId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(PARKED);
+        assertThat(stored.getReleaseAttempts()).isEqualTo(1);
+        assertThat(balance("ALPHA")).isZero();
+        assertThat(realTransactionsRepo.count()).isZero();
+        verify(customerService, never()).sendTransactionalSMS(anyString(), anyString());
+    }
+
+    @Test
+    void sweepReleasesAPaymentWhoseEarlierReleaseFailed() {
+        Payments payment = park("REF1", "100", LocalDateTime.now().minusMinutes(10));
+        failSavingsCredits();
+        service.releaseParkedPayments(customer.getId());
+        reset(transactionsRepo);
+
+        service.sweepProvisioning();
+        ArgumentCaptor<AccountsProvisionedEvent> event = ArgumentCaptor.forClass(AccountsProvisionedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        service.releaseParkedPayments(event.getValue().getCustomerId());
+
+        assertThat(paymentRepo.findById(payment.getPaymentId()).orElseThrow().getStatus()).isEqualTo(PROCESSED);
+        assertThat(balance("ALPHA")).isEqualTo(20.0);
+        assertThat(balance("SAVINGS")).isEqualTo(80.0);
+        verify(customerService, times(1)).sendTransactionalSMS(anyString(), anyString());
+    }
+
+    @Test
+    void paymentStopsBeingReleasedAfterTheLastAttempt() {
+        Payments payment = park("REF1", "100", LocalDateTime.now().minusMinutes(10));
+        failSavingsCredits();
+
+        for (int attempt = 0; attempt < 6; attempt++) {
+            service.releaseParkedPayments(customer.getId());
+        }
+        service.sweepProvisioning();
+
+        Payments stored = paymentRepo.findById(payment.getPaymentId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo("RELEASE FAILED");
+        assertThat(stored.getReleaseAttempts()).isEqualTo(5);
+        verify(eventPublisher, never()).publishEvent(any(AccountsProvisionedEvent.class));
+        assertThat(realTransactionsRepo.count()).isZero();
+    }
+
+    @Test
+    void concurrentReleasesCreditEachPaymentOnce() throws Exception {
+        List<Payments> parked = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            parked.add(park("REF" + i, "50", LocalDateTime.now()));
+        }
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(8, 32, i -> service.releaseParkedPayments(customer.getId()));
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(paymentRepo.findAllById(parked.stream().map(Payments::getPaymentId).toList()))
+                .allSatisfy(payment -> assertThat(payment.getStatus()).isEqualTo(PROCESSED));
+        assertThat(balance("ALPHA") + balance("SAVINGS")).isEqualTo(250.0);
+        assertThat(realTransactionsRepo.findAll().stream().mapToDouble(Transactions::getAmount).sum()).isEqualTo(250.0);
+        verify(customerService, times(5)).sendTransactionalSMS(anyString(), anyString());
+    }
+
+    private void failSavingsCredits() {
+        doThrow(new IllegalStateException("ledger unavailable")).when(transactionsRepo)
+                .save(argThat(transaction -> transaction != null && "SAVINGS".equals(transaction.getTransactionType())));
+    }
+
+    private Payments park(String ref, String amount, LocalDateTime paymentTime) {
+        Payments payment = new Payments("254700000001", PARKED, ref, amount, "254700000001", paymentTime);
+        payment.setCustomer(customer);
+        return paymentRepo.save(payment);
+    }
+
+    private void account(String type) {
+        BankAccounts account = new BankAccounts();
+        account.setCustomer(customer);
+        account.setBankAccount(type + customer.getId());
+        account.setAccountType(type);
+        account.setAccountBalance(0.0);
+        account.setCreatedAt(LocalDateTime.now());
+        bankAccountRepo.save(account);
+    }
+
+    private double balance(String type) {
+        return bankAccountRepo.findByBankAccount(type + customer.getId()).getAccountBalance();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.demo.communication.services;
+
+import com.example.demo.communication.parsitence.repositories.emailRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The scheduled dispatch must claim work only for idle workers and return without waiting for the
+ * sends. SMTP is held up on a latch so the workers stay busy for as long as a test needs.
+ */
+class EmailDeliveryServiceTest {
+
+    private static final int WORKERS = 2;
+    private static final int PER_TASK = 3;
+
+    private JdbcTemplate jdbc;
+    private SmtpTransportPool transportPool;
+    private EmailDeliveryService service;
+    private final CountDownLatch smtp = new CountDownLatch(1);
+    private final AtomicInteger available = new AtomicInteger(Integer.MAX_VALUE);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        jdbc = mock(JdbcTemplate.class);
+        transportPool = mock(SmtpTransportPool.class);
+        AtomicLong ids = new AtomicLong();
+        when(jdbc.query(anyString(), any(RowMapper.class), any(), any(), anyInt())).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            int limit = invocation.getArgument(4);
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("id")).thenAnswer(i -> ids.incrementAndGet());
+            when(rs.getString("recipient")).thenReturn("member@example.com");
+            List<Object> rows = new ArrayList<>();
+            for (int i = 0; i < Math.min(limit, available.get()); i++) {
+                rows.add(mapper.mapRow(rs, i));
+            }
+            return rows;
+        });
+        when(transportPool.borrow(anyLong())).thenAnswer(invocation -> {
+            smtp.await(10, TimeUnit.SECONDS);
+            return null;
+        });
+        service = new EmailDeliveryService(mock(emailRepo.class), jdbc, transportPool, WORKERS);
+        ReflectionTestUtils.setField(service, "messagesPerTask", PER_TASK);
+        ReflectionTestUtils.setField(service, "leaseSeconds", 300L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        smtp.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void dispatchHandsTheBatchOverWithoutWaitingForTheSends() {
+        long started = System.nanoTime();
+        service.dispatch();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(elapsedMs).isLessThan(1_000);
+        verify(jdbc).query(anyString(), any(RowMapper.class), any(), any(), eq(WORKERS * PER_TASK));
+    }
+
+    @Test
+    void nothingIsClaimedWhileEveryWorkerIsBusy() throws Exception {
+        service.dispatch();
+        service.dispatch();
+        service.dispatch();
+
+        verify(jdbc, times(1)).query(anyString(), any(RowMapper.class), any(), any(), anyInt());
+
+        smtp.countDown();
+        awaitIdle(WORKERS);
+        service.dispatch();
+        verify(jdbc, times(2)).query(anyString(), any(RowMapper.class), any(), any(), eq(WORKERS * PER_TASK));
+    }
+
+    @Test
+    void aPartlyBusyPoolOnlyClaimsForItsIdleWorkers() {
+        available.set(PER_TASK);
+        service.dispatch();
+
+        available.set(Integer.MAX_VALUE);
+        service.dispatch();
+
+        verify(jdbc).query(anyString(), any(RowMapper.class), any(), any(), eq(PER_TASK));
+    }
+
+    @Test
+    void unsentRowsAreRequeuedAndTheWorkerFreed() throws Exception {
+        available.set(PER_TASK);
+        service.dispatch();
+        smtp.countDown();
+        awaitIdle(WORKERS);
+
+        verify(jdbc).batchUpdate(eq("UPDATE email SET status = 'QUEUED', next_attempt_at = ? WHERE id = ?"),
+                ArgumentMatchers.<List<Object[]>>argThat(rows -> rows.size() == PER_TASK));
+    }
+
+    private void awaitIdle(int permits) throws InterruptedException {
+        Semaphore idle = (Semaphore) ReflectionTestUtils.getField(service, "idleWorkers");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (idle.availablePermits() < permits && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(idle.availablePermits()).isEqualTo(permits);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.demo.communication.services;
+
+import com.example.demo.communication.parsitence.repositories.emailRepo;
+import com.example.demo.support.Benchmark;
+import com.example.demo.support.FakeSmtpServer;
+import com.example.demo.support.PostgresJpaTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The delivery queue end to end: rows claimed from Postgres and sent to a local SMTP server over
+ * pooled connections, with the relay's reply deciding between sent, retried and failed.
+ */
+class EmailDeliverySmtpTest extends PostgresJpaTest {
+
+    private static final int WORKERS = 4;
+
+    @Autowired
+    private emailRepo emailRepo;
+
+    private FakeSmtpServer smtp;
+    private SmtpTransportPool pool;
+    private EmailDeliveryService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        truncate("email");
+        smtp = new FakeSmtpServer();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (service != null) {
+            service.shutdown();
+            pool.shutdown();
+        }
+        smtp.close();
+    }
+
+    @Test
+    void queuedEmailIsSentOverAFewReusedConnections() throws Exception {
+        start(100);
+        service.enqueueAll(emails(1_000));
+
+        drain(Duration.ofSeconds(60));
+
+        assertThat(count("SENT")).isEqualTo(1_000);
+        assertThat(smtp.messages()).isEqualTo(1_000);
+        // ten connections' worth of messages, and at most one partly used connection per worker on top
+        assertThat(smtp.connections()).isLessThanOrEqualTo(10 + WORKERS);
+        assertThat(service.getMetrics()).containsEntry("sent", 1_000L).containsEntry("queued", 0L);
+    }
+
+    @Test
+    void relayRepliesDecideBetweenRetryAndPermanentFailure() throws Exception {
+        smtp.reject("gone@example.com", "550 5.1.1 No such user")
+                .reject("busy@example.com", "451 4.3.0 Try again later");
+        start(100);
+        List<String[]> emails = emails(20);
+        emails.add(new String[]{"gone@example.com", "Statement", "<p>statement</p>"});
+        emails.add(new String[]{"busy@example.com", "Statement", "<p>statement</p>"});
+        service.enqueueAll(emails);
+
+        drain(Duration.ofSeconds(30));
+
+        assertThat(count("SENT")).isEqualTo(20);
+        Map<String, Object> gone = row("gone@example.com");
+        assertThat(gone).containsEntry("status", "FAILED").containsEntry("attempts", 1);
+        assertThat((String) gone.get("last_error")).isNotBlank();
+        Map<String, Object> busy = row("busy@example.com");
+        assertThat(busy).containsEntry("status", "QUEUED").containsEntry("attempts", 1);
+        assertThat(((Timestamp) busy.get("next_attempt_at")).toLocalDateTime())
+                .isAfter(LocalDateTime.now().plusSeconds(20));
+        // a refused recipient is answered on the open connection, which stays in use
+        assertThat(smtp.connections()).isEqualTo(1);
+    }
+
+    @Test
+    @Benchmark
+    void pooledConnectionsOutpaceAConnectionPerMessage(TestReporter reporter) throws Exception {
+        // 40 ms for connect, STARTTLS and AUTH; 5 ms for the relay to accept a message
+        smtp.withLatency(40, 5);
+        start(1);
+        service.enqueueAll(emails(1_000));
+        double perConnection = timedDrain();
+        service.shutdown();
+        pool.shutdown();
+
+        truncate("email");
+        start(100);
+        service.enqueueAll(emails(10_000));
+        double pooled = timedDrain();
+
+        reporter.publishEntry("messages per second, connection per message", String.valueOf(Math.round(perConnection)));
+        reporter.publishEntry("messages per second, pooled", String.valueOf(Math.round(pooled)));
+        reporter.publishEntry("messages per connection", String.valueOf(service.getMetrics().get("messagesPerConnection")));
+        assertThat(count("SENT")).isEqualTo(10_000);
+        assertThat(pooled).isGreaterThan(perConnection * 4);
+    }
+
+    private void start(int maxMessagesPerConnection) {
+        MailProperties mail = new MailProperties();
+        mail.setHost("127.0.0.1");
+        mail.setPort(smtp.getPort());
+        pool = new SmtpTransportPool(mail, WORKERS);
+        ReflectionTestUtils.setField(pool, "maxMessagesPerConnection", maxMessagesPerConnection);
+        ReflectionTestUtils.setField(pool, "idleTimeoutSeconds", 60L);
+        service = new EmailDeliveryService(emailRepo, jdbcTemplate, pool, WORKERS);
+        ReflectionTestUtils.setField(service, "from", "noreply@example.com");
+        ReflectionTestUtils.setField(service, "messagesPerTask", 50);
+        ReflectionTestUtils.setField(service, "maxAttempts", 5);
+        ReflectionTestUtils.setField(service, "retryBaseSeconds", 30L);
+        ReflectionTestUtils.setField(service, "leaseSeconds", 300L);
+        ReflectionTestUtils.setField(service, "ratePerSecond", 0.0);
+    }
+
+    /**
+     * Runs the scheduled dispatch until nothing is due and every worker is idle; returns messages
+     * sent per second.
+     */
+    private double timedDrain() throws InterruptedException {
+        long started = System.nanoTime();
+        drain(Duration.ofMinutes(5));
+        return count("SENT") / ((System.nanoTime() - started) / 1_000_000_000.0);
+    }
+
+    private void drain(Duration timeout) throws InterruptedException {
+        Semaphore idle = (Semaphore) ReflectionTestUtils.getField(service, "idleWorkers");
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            service.dispatch();
+            if (idle.availablePermits() == WORKERS && due() == 0) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        throw new AssertionError("Email queue not drained within " + timeout);
+    }
+
+    private int due() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email WHERE status IN ('QUEUED', 'SENDING') " +
+                "AND next_attempt_at <= ?", Integer.class, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private int count(String status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email WHERE status = ?", Integer.class, status);
+    }
+
+    private Map<String, Object> row(String recipient) {
+        return jdbcTemplate.queryForMap("SELECT status, attempts, last_error, next_attempt_at FROM email WHERE recipient = ?",
+                recipient);
+    }
+
+    private static List<String[]> emails(int count) {
+        List<String[]> emails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            emails.add(new String[]{"member" + i + "@example.com", "Monthly statement", "<p>Statement " + i + "</p>"});
+        }
+        return emails;
+    }
+}
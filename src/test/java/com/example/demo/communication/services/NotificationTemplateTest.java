@@ -0,0 +1,103 @@
+package com.example.demo.communication.services;
+
+import com.example.demo.communication.parsitence.models.Notification;
+import com.example.demo.customerManagement.parsistence.entities.Customer;
+import com.example.demo.events.appEvents.NotificationRequestedEvent;
+import com.example.demo.support.ConcurrentLoad;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Composition of member notifications, including from many request threads at once: every
+ * notification must carry its own member's contact details and values.
+ */
+class NotificationTemplateTest {
+
+    @Test
+    void composeFillsTheNameAndArgumentsInOrder() {
+        Notification notification = NotificationTemplate.LOAN_APPLICATION_FAILED
+                .compose(customer(7), new BigDecimal("15000"), "limit exceeded");
+
+        assertThat(notification.getRecipient()).isEqualTo("member7@example.com");
+        assertThat(notification.getPhoneNumber()).isEqualTo("2547000007");
+        assertThat(notification.getMessageType()).isEqualTo("Loan Application");
+        assertThat(notification.getMessage())
+                .isEqualTo("Hello Member7, your application of Ksh 15000 failed with the below error :: limit exceeded");
+    }
+
+    @Test
+    void argumentsCanAlsoFillTheMessageType() {
+        Notification notification = NotificationTemplate.CHARGE_APPLIED.compose(customer(1), "Late Fee", 250);
+
+        assertThat(notification.getMessageType()).isEqualTo("Late Fee Alert");
+        assertThat(notification.getMessage())
+                .isEqualTo("Hello Member1, you have been charged an extra amount as Late Fee. Your balance is now Ksh 250");
+    }
+
+    @Test
+    void missingArgumentsRenderEmpty() {
+        assertThat(NotificationTemplate.LOAN_DUE_REMINDER.compose(customer(2), 900).getMessage())
+                .isEqualTo("Hello Member2, your loan of Ksh 900 will be due by ");
+        assertThat(NotificationTemplate.LOAN_DEFAULTED.compose(customer(3)).getMessage()).startsWith("Hello Member3, you have");
+    }
+
+    @Test
+    void concurrentComposeNeverMixesMembers() throws Exception {
+        AtomicInteger mismatches = new AtomicInteger();
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(16, 320_000, i -> {
+            Customer customer = customer(i);
+            Notification notification = NotificationTemplate.PAYMENT_RECEIVED.compose(customer, i, i * 2L);
+            String expected = "Thank you Member" + i + ", we have received your payment of Ksh " + i
+                    + ". Your balance is Ksh " + (i * 2L);
+            if (!expected.equals(notification.getMessage())
+                    || !customer.getEmail().equals(notification.getRecipient())
+                    || !customer.getPhoneNumber().equals(notification.getPhoneNumber())) {
+                mismatches.incrementAndGet();
+            }
+        });
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(mismatches.get()).isZero();
+    }
+
+    @Test
+    void notificationServicePublishesTheComposedNotification() {
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+        NotificationService service = new NotificationService(publisher);
+
+        service.notify(customer(5), NotificationTemplate.LOAN_DISBURSED, 3000);
+
+        ArgumentCaptor<NotificationRequestedEvent> event = ArgumentCaptor.forClass(NotificationRequestedEvent.class);
+        verify(publisher).publishEvent(event.capture());
+        assertThat(event.getValue().getNotification().getMessage())
+                .isEqualTo("Hello Member5, we have disbursed Ksh 3000 to your account");
+    }
+
+    @Test
+    void noCustomerPublishesNothing() {
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+
+        new NotificationService(publisher).notify(null, NotificationTemplate.LOAN_DISBURSED, 3000);
+
+        verifyNoInteractions(publisher);
+    }
+
+    private static Customer customer(long id) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setFirstName("Member" + id);
+        customer.setEmail("member" + id + "@example.com");
+        customer.setPhoneNumber("2547" + String.format("%06d", id));
+        return customer;
+    }
+}
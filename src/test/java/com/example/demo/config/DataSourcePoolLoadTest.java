@@ -0,0 +1,96 @@
+package com.example.demo.config;
+
+import com.example.demo.support.Benchmark;
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.support.PostgresJpaTest;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Payment callbacks while report scans hold connections: one shared pool, as the application ran
+ * before, against the OLTP and reporting pools behind the routing DataSource.
+ */
+@Benchmark
+class DataSourcePoolLoadTest extends PostgresJpaTest {
+
+    private static final int REPORT_THREADS = 12;
+    private static final int CALLBACK_THREADS = 16;
+    private static final int CALLBACKS = 4_000;
+
+    @Test
+    void callbacksDoNotWaitBehindReportScans(TestReporter reporter) throws Exception {
+        PoolMetrics metrics = new PoolMetrics();
+        ConcurrentLoad.Result shared;
+        try (HikariDataSource pool = pool("shared", 10, metrics)) {
+            JdbcTemplate jdbc = new JdbcTemplate(pool);
+            shared = callbacksWhileReportsRun(jdbc, () -> jdbc.execute("SELECT pg_sleep(0.2)"));
+        }
+
+        ConcurrentLoad.Result split;
+        try (HikariDataSource oltp = pool("oltp", 10, metrics);
+             HikariDataSource reporting = pool("reporting", 4, metrics)) {
+            DataSourceConfig.RoutingDataSource routing = new DataSourceConfig.RoutingDataSource();
+            routing.setTargetDataSources(Map.of(DataSourceRoute.OLTP, oltp, DataSourceRoute.REPORTING, reporting,
+                    DataSourceRoute.BATCH, oltp));
+            routing.setDefaultTargetDataSource(oltp);
+            routing.afterPropertiesSet();
+            JdbcTemplate jdbc = new JdbcTemplate(routing);
+            split = callbacksWhileReportsRun(jdbc,
+                    () -> DataSourceRoute.run(DataSourceRoute.REPORTING, () -> jdbc.execute("SELECT pg_sleep(0.2)")));
+        }
+
+        reporter.publishEntry("callback p50/p99 ms, shared pool", shared.percentileMillis(50) + " / " + shared.percentileMillis(99));
+        reporter.publishEntry("callback p50/p99 ms, split pools", split.percentileMillis(50) + " / " + split.percentileMillis(99));
+        reporter.publishEntry("pool metrics", metrics.snapshot().toString());
+        assertThat(shared.failures()).isEmpty();
+        assertThat(split.failures()).isEmpty();
+        assertThat(split.percentileMillis(99)).isLessThan(50.0);
+        assertThat(split.percentileMillis(99)).isLessThan(shared.percentileMillis(99) / 4);
+    }
+
+    /**
+     * Keeps every report thread scanning while the callbacks run, and returns the callbacks' latencies.
+     */
+    private static ConcurrentLoad.Result callbacksWhileReportsRun(JdbcTemplate jdbc, Runnable report) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService reports = Executors.newFixedThreadPool(REPORT_THREADS);
+        try {
+            for (int t = 0; t < REPORT_THREADS; t++) {
+                reports.execute(() -> {
+                    while (running.get()) {
+                        report.run();
+                    }
+                });
+            }
+            // let the scans take their connections first
+            TimeUnit.MILLISECONDS.sleep(300);
+            return ConcurrentLoad.run(CALLBACK_THREADS, CALLBACKS,
+                    i -> jdbc.queryForObject("SELECT CAST(? AS INTEGER) + 1", Integer.class, i));
+        } finally {
+            running.set(false);
+            reports.shutdown();
+            reports.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static HikariDataSource pool(String name, int size, PoolMetrics metrics) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(POSTGRES.getJdbcUrl());
+        pool.setUsername(POSTGRES.getUsername());
+        pool.setPassword(POSTGRES.getPassword());
+        pool.setMaximumPoolSize(size);
+        pool.setMetricsTrackerFactory(metrics);
+        return pool;
+    }
+}
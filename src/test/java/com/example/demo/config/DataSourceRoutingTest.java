@@ -0,0 +1,128 @@
+package com.example.demo.config;
+
+import com.example.demo.support.ConcurrentLoad;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DataSourceRoutingTest {
+
+    private final DataSource oltp = mock(DataSource.class);
+    private final DataSource reporting = mock(DataSource.class);
+    private final DataSource batch = mock(DataSource.class);
+    private final Connection oltpConnection = mock(Connection.class);
+    private final Connection reportingConnection = mock(Connection.class);
+    private final Connection batchConnection = mock(Connection.class);
+    private DataSourceConfig.RoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(oltp.getConnection()).thenReturn(oltpConnection);
+        when(reporting.getConnection()).thenReturn(reportingConnection);
+        when(batch.getConnection()).thenReturn(batchConnection);
+        routing = new DataSourceConfig.RoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                DataSourceRoute.OLTP, oltp,
+                DataSourceRoute.REPORTING, reporting,
+                DataSourceRoute.BATCH, batch));
+        routing.setDefaultTargetDataSource(oltp);
+        routing.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setCurrentTransactionName(null);
+    }
+
+    @Test
+    void plainWorkUsesTheOltpPool() throws Exception {
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(DataSourceRoute.OLTP);
+        assertThat(routing.getConnection()).isSameAs(oltpConnection);
+    }
+
+    @Test
+    void explicitRouteWinsAndNestedRoutesRestoreTheOuterOne() throws Exception {
+        readOnly(ReportService.class.getName() + ".load");
+
+        Connection connection = DataSourceRoute.call(DataSourceRoute.BATCH, () -> {
+            DataSourceRoute.run(DataSourceRoute.OLTP,
+                    () -> assertThat(routing.determineCurrentLookupKey()).isEqualTo(DataSourceRoute.OLTP));
+            assertThat(DataSourceRoute.current()).isEqualTo(DataSourceRoute.BATCH);
+            return connect();
+        });
+
+        assertThat(connection).isSameAs(batchConnection);
+        assertThat(DataSourceRoute.current()).isNull();
+    }
+
+    @Test
+    void readOnlyServiceTransactionsUseTheReportingPool() throws Exception {
+        readOnly(ReportService.class.getName() + ".load");
+
+        assertThat(routing.getConnection()).isSameAs(reportingConnection);
+    }
+
+    @Test
+    void repositoryAndFrameworkReadTransactionsStayOnOltp() {
+        readOnly(MemberRepository.class.getName() + ".findAll");
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(DataSourceRoute.OLTP);
+
+        readOnly("org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById");
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(DataSourceRoute.OLTP);
+
+        readOnly("com.example.demo.NoSuchService.load");
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(DataSourceRoute.OLTP);
+    }
+
+    @Test
+    void writeTransactionsStayOnOltp() {
+        TransactionSynchronizationManager.setCurrentTransactionName(ReportService.class.getName() + ".load");
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(DataSourceRoute.OLTP);
+    }
+
+    @Test
+    void routesAreIsolatedPerThread() throws Exception {
+        DataSourceRoute[] routes = DataSourceRoute.values();
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(12, 240_000, i -> {
+            DataSourceRoute route = routes[i % routes.length];
+            Connection expected = route == DataSourceRoute.BATCH ? batchConnection
+                    : route == DataSourceRoute.REPORTING ? reportingConnection : oltpConnection;
+            assertThat(DataSourceRoute.call(route, this::connect)).isSameAs(expected);
+            assertThat(DataSourceRoute.current()).isNull();
+        });
+
+        assertThat(result.failures()).isEmpty();
+    }
+
+    private Connection connect() {
+        try {
+            return routing.getConnection();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void readOnly(String transactionName) {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        TransactionSynchronizationManager.setCurrentTransactionName(transactionName);
+    }
+
+    static class ReportService {
+    }
+
+    interface MemberRepository extends Repository<Object, Long> {
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.config;
+
+import com.example.demo.support.ConcurrentLoad;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PoolMetricsTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void snapshotReportsLiveCountsAndWaitTimes() {
+        PoolMetrics metrics = new PoolMetrics();
+        IMetricsTracker tracker = metrics.create("reporting", new FixedStats(3, 5, 8, 2));
+        tracker.recordConnectionCreatedMillis(12);
+        tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(2));
+        tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(6));
+        tracker.recordConnectionUsageMillis(40);
+        tracker.recordConnectionUsageMillis(60);
+        tracker.recordConnectionTimeout();
+
+        Map<String, Object> pool = (Map<String, Object>) metrics.snapshot().get("reporting");
+
+        assertThat(pool).containsEntry("active", 3).containsEntry("idle", 5).containsEntry("total", 8)
+                .containsEntry("pending", 2).containsEntry("acquired", 2L).containsEntry("avgWaitMs", 4.0)
+                .containsEntry("maxWaitMs", 6.0).containsEntry("avgHoldMs", 50.0).containsEntry("timeouts", 1L)
+                .containsEntry("connectionsCreated", 1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void poolsAreTrackedSeparatelyUnderConcurrentLoad() throws Exception {
+        PoolMetrics metrics = new PoolMetrics();
+        String[] pools = {"oltp", "reporting", "batch"};
+        List<IMetricsTracker> trackers = new ArrayList<>();
+        for (String pool : pools) {
+            trackers.add(metrics.create(pool, new FixedStats(0, 0, 0, 0)));
+        }
+        int borrows = 600_000;
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(12, borrows, i -> {
+            IMetricsTracker tracker = trackers.get(i % pools.length);
+            tracker.recordConnectionAcquiredNanos((i % 12 + 1) * 1_000L);
+            tracker.recordConnectionUsageMillis(1);
+        });
+
+        assertThat(result.failures()).isEmpty();
+        Map<String, Object> snapshot = metrics.snapshot();
+        assertThat(snapshot).containsOnlyKeys(pools);
+        long perPool = borrows / pools.length;
+        for (int p = 0; p < pools.length; p++) {
+            Map<String, Object> pool = (Map<String, Object>) snapshot.get(pools[p]);
+            assertThat(pool).containsEntry("acquired", perPool).containsEntry("avgHoldMs", 1.0);
+            // pool p records waits of p + 1, p + 4, p + 7 and p + 10 microseconds
+            assertThat(pool).containsEntry("maxWaitMs", (p + 10) / 1_000.0);
+        }
+    }
+
+    private static final class FixedStats extends PoolStats {
+        private FixedStats(int active, int idle, int total, int pending) {
+            super(0);
+            this.activeConnections = active;
+            this.idleConnections = idle;
+            this.totalConnections = total;
+            this.pendingThreads = pending;
+            this.maxConnections = 10;
+        }
+
+        @Override
+        protected void update() {
+        }
+    }
+}
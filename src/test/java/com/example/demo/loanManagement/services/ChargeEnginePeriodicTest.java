@@ -0,0 +1,129 @@
+package com.example.demo.loanManagement.services;
+
+import com.example.demo.loanManagement.parsistence.entities.Charges;
+import com.example.demo.loanManagement.parsistence.repositories.ChargesRepo;
+import com.example.demo.support.LocalJobCoordinator;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.cache.ReferenceDataCache;
+import com.example.demo.system.services.Backbone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * The nightly periodic charge statement against Postgres: running loans of the product are charged
+ * once per period, balances and loan transactions move with the charge, and a rerun for the same
+ * date charges nothing again.
+ */
+class ChargeEnginePeriodicTest extends PostgresJpaTest {
+
+    private static final LocalDate MONTH_END = LocalDate.of(2026, 1, 31);
+
+    private final ChargesRepo chargesRepo = mock(ChargesRepo.class);
+    private final LoanAccountingService loanAccountingService = mock(LoanAccountingService.class);
+    private final Backbone backbone = mock(Backbone.class);
+    private ChargeEngine engine;
+    private long productId;
+
+    @BeforeEach
+    void setUp() {
+        truncate("loan_charges", "loan_transactions", "loan_account", "loan_application", "products");
+        productId = product("P1");
+        long otherProduct = product("P2");
+        loan(1, "P1", "CURRENT", 10_000f);
+        loan(2, "P1", "CURRENT", 2_500f);
+        loan(3, "P1", "DEFAULT", 4_000f);
+        loan(4, "P1", "PAID", 8_000f);
+        loan(5, "P2", "CURRENT", 6_000f);
+        when(chargesRepo.findAll()).thenReturn(List.of(
+                new Charges(1L, "Insurance", String.valueOf(productId), false, true, 2, null, null, 1, "MONTH", null, null),
+                new Charges(2L, "Ledger fee", String.valueOf(productId), true, true, 30, null, null, 1, "MONTH", null, null),
+                new Charges(3L, "Ledger fee", String.valueOf(otherProduct), true, true, 30, null, null, 1, "YEAR", null, null)));
+        when(backbone.base64encode(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(referenceDataCache, "channel", "refdata:invalidate");
+        ReflectionTestUtils.setField(referenceDataCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(referenceDataCache, "maxSize", 100);
+        engine = new ChargeEngine(chargesRepo, referenceDataCache, jdbcTemplate, transactionManager,
+                LocalJobCoordinator.create(jdbcTemplate, transactionManager), loanAccountingService, backbone);
+    }
+
+    @Test
+    void chargesRunningLoansOnceAndMovesTheirBalances() {
+        Map<String, Integer> charged = engine.applyPeriodic(MONTH_END);
+
+        assertThat(charged).containsExactly(Map.entry("Insurance/" + productId, 3), Map.entry("Ledger fee/" + productId, 3));
+        // 2% insurance and a fixed 30 on every running loan of P1; paid and other-product loans are untouched
+        assertThat(balances()).containsExactly(10_230.0, 2_580.0, 4_110.0, 8_000.0, 6_000.0);
+        assertThat(jdbcTemplate.queryForList("SELECT transaction_type || ':' || final_balance " +
+                        "FROM loan_transactions WHERE account_id = 1 ORDER BY transaction_id", String.class))
+                .containsExactly("Insurance:10200.0", "Ledger fee:10230.0");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT period_key) FROM loan_charges", Integer.class)).isEqualTo(1);
+        verify(loanAccountingService).postChargeBatch(eq("Insurance"), eq("CHG-1-M24312"), eq(330.0), eq(3), eq("SYSTEM"));
+        verify(loanAccountingService).postChargeBatch(eq("Ledger fee"), eq("CHG-2-M24312"), eq(90.0), eq(3), eq("SYSTEM"));
+    }
+
+    @Test
+    void rerunForTheSamePeriodChargesNothingAgain() {
+        engine.applyPeriodic(MONTH_END);
+
+        Map<String, Integer> rerun = engine.applyPeriodic(MONTH_END);
+
+        assertThat(rerun).containsOnly(Map.entry("Insurance/" + productId, 0), Map.entry("Ledger fee/" + productId, 0));
+        assertThat(balances()).containsExactly(10_230.0, 2_580.0, 4_110.0, 8_000.0, 6_000.0);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM loan_charges", Integer.class)).isEqualTo(6);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM loan_transactions", Integer.class)).isEqualTo(6);
+        verify(loanAccountingService, times(2)).postChargeBatch(anyString(), anyString(), anyDouble(), anyInt(), eq("SYSTEM"));
+        verifyNoMoreInteractions(loanAccountingService);
+    }
+
+    @Test
+    void chargesOnlyOnThePeriodsLastDay() {
+        assertThat(engine.applyPeriodic(MONTH_END.minusDays(1))).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM loan_charges", Integer.class)).isZero();
+
+        // the next month is a new period
+        engine.applyPeriodic(MONTH_END);
+        engine.applyPeriodic(LocalDate.of(2026, 2, 28));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM loan_charges WHERE loan_account_id = 1", Integer.class))
+                .isEqualTo(4);
+    }
+
+    private long product(String code) {
+        return jdbcTemplate.queryForObject("INSERT INTO products (name, code, is_active) VALUES (?, ?, TRUE) RETURNING id",
+                Long.class, "Product " + code, code);
+    }
+
+    private void loan(long id, String productCode, String status, float amount) {
+        jdbcTemplate.update("INSERT INTO loan_application (application_id, loan_number, customer_id, customer_id_number, " +
+                        "customer_mobile_number, loan_amount, credit_limit, destination_account, product_code, application_time) " +
+                        "VALUES (?, ?, ?, '12345678', '254700000001', ?, '50000', '254700000001', ?, ?)",
+                id, 1000 + id, String.valueOf(id), String.valueOf(amount), productCode, LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO loan_account (account_id, application_id, amount, payable_amount, account_balance, " +
+                "status, customer_id, loanref) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                id, id, amount, amount, amount, status, String.valueOf(id), "LN" + id);
+    }
+
+    private List<Double> balances() {
+        return jdbcTemplate.queryForList("SELECT account_balance FROM loan_account ORDER BY account_id", Double.class);
+    }
+}
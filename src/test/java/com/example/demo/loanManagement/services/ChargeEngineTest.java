@@ -0,0 +1,157 @@
+package com.example.demo.loanManagement.services;
+
+import com.example.demo.loanManagement.parsistence.entities.Charges;
+import com.example.demo.loanManagement.parsistence.repositories.ChargesRepo;
+import com.example.demo.loanManagement.services.ChargeEngine.ChargeBreakdown;
+import com.example.demo.loanManagement.services.ChargeEngine.ChargeEvent;
+import com.example.demo.loanManagement.services.ChargeEngine.ChargeLine;
+import com.example.demo.loanManagement.services.ChargeEngine.ChargeRule;
+import com.example.demo.system.cache.ReferenceDataCache;
+import com.example.demo.system.services.Backbone;
+import com.example.demo.system.services.JobCoordinator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compiling charges into the rule table, one-pass computation with excise on the other fees, and
+ * the period a periodic rule is keyed and charged on.
+ */
+class ChargeEngineTest {
+
+    private final ChargesRepo chargesRepo = mock(ChargesRepo.class);
+    private ReferenceDataCache referenceDataCache;
+    private ChargeEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        referenceDataCache = new ReferenceDataCache(mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(referenceDataCache, "channel", "refdata:invalidate");
+        ReflectionTestUtils.setField(referenceDataCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(referenceDataCache, "maxSize", 100);
+        engine = new ChargeEngine(chargesRepo, referenceDataCache, mock(JdbcTemplate.class),
+                mock(PlatformTransactionManager.class), mock(JobCoordinator.class), mock(LoanAccountingService.class),
+                mock(Backbone.class));
+    }
+
+    @Test
+    void compilesActiveChargesByProductEventAndName() {
+        when(chargesRepo.findAll()).thenReturn(List.of(
+                charge(1L, "Processing fee", "1", false, 5, null, null),
+                charge(2L, "Late payment penalty", "1", false, 10, null, null),
+                charge(3L, "Repayment fee", "1", true, 50, null, null),
+                charge(4L, "Insurance", "1", false, 1, 1, "MONTH"),
+                charge(5L, "Processing fee", "2", false, 3, null, null),
+                inactive(charge(6L, "Old fee", "1", true, 100, null, null)),
+                charge(7L, "No rate", "1", true, null, null, null)));
+
+        assertThat(engine.find("1", "Processing fee")).get().extracting(ChargeRule::getEvent).isEqualTo(ChargeEvent.DISBURSEMENT);
+        assertThat(engine.find("1", "Late payment penalty")).get().extracting(ChargeRule::getEvent).isEqualTo(ChargeEvent.PENALTY);
+        assertThat(engine.find("1", "Repayment fee")).get().extracting(ChargeRule::getEvent).isEqualTo(ChargeEvent.REPAYMENT);
+        assertThat(engine.find("1", "Insurance")).get().extracting(ChargeRule::getEvent).isEqualTo(ChargeEvent.PERIODIC);
+        assertThat(engine.find("1", "Old fee")).isEmpty();
+        assertThat(engine.find("1", "No rate")).isEmpty();
+        assertThat(engine.compute("1", ChargeEvent.DISBURSEMENT, new BigDecimal("10000")).getLines())
+                .extracting(ChargeLine::getChargeId).containsExactly(1L);
+        assertThat(engine.compute("2", ChargeEvent.DISBURSEMENT, new BigDecimal("10000")).getTotal())
+                .isEqualByComparingTo("300.00");
+        assertThat(engine.compute("3", ChargeEvent.DISBURSEMENT, new BigDecimal("10000")).getLines()).isEmpty();
+        // compiled once for every lookup above
+        verify(chargesRepo, times(1)).findAll();
+    }
+
+    @Test
+    void invalidatedTableIsRecompiled() {
+        when(chargesRepo.findAll())
+                .thenReturn(List.of(charge(1L, "Processing fee", "1", false, 5, null, null)))
+                .thenReturn(List.of(charge(1L, "Processing fee", "1", false, 7, null, null)));
+        assertThat(engine.compute("1", ChargeEvent.DISBURSEMENT, new BigDecimal("1000")).getTotal()).isEqualByComparingTo("50");
+
+        referenceDataCache.invalidate(ReferenceDataCache.CHARGES);
+
+        assertThat(engine.compute("1", ChargeEvent.DISBURSEMENT, new BigDecimal("1000")).getTotal()).isEqualByComparingTo("70");
+        verify(chargesRepo, times(2)).findAll();
+    }
+
+    @Test
+    void exciseIsChargedLastOnTheOtherFeesOfThePass() {
+        // excise is stored first; the compiled table still charges it after the fees it is levied on
+        when(chargesRepo.findAll()).thenReturn(List.of(
+                charge(1L, "Excise duty", "1", false, 20, null, null),
+                charge(2L, "Processing fee", "1", false, 3, null, null),
+                charge(3L, "Application fee", "1", true, 200, null, null)));
+
+        ChargeBreakdown breakdown = engine.compute("1", ChargeEvent.DISBURSEMENT, new BigDecimal("1234.55"));
+
+        assertThat(breakdown.getLines()).extracting(ChargeLine::getName)
+                .containsExactly("Processing fee", "Application fee", "Excise duty");
+        // 3% of 1234.55 rounds half up to 37.04; excise is 20% of 237.04
+        assertThat(breakdown.getLines()).extracting(ChargeLine::getAmount)
+                .usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .containsExactly(new BigDecimal("37.04"), new BigDecimal("200"), new BigDecimal("47.41"));
+        assertThat(breakdown.getTotal()).isEqualByComparingTo("284.45");
+    }
+
+    @Test
+    void periodicRulesAreKeyedPerPeriodAndDueOnItsLastDay() {
+        when(chargesRepo.findAll()).thenReturn(List.of(
+                charge(1L, "Insurance", "1", false, 1, 1, "MONTH"),
+                charge(2L, "Ledger fee", "1", true, 30, 3, "MONTH"),
+                charge(3L, "Weekly fee", "1", true, 10, 1, "WEEK"),
+                charge(4L, "Annual fee", "1", true, 500, 1, "YEAR"),
+                charge(5L, "Daily fee", "1", true, 1, 1, "DAY")));
+        ChargeRule monthly = engine.find("1", "Insurance").orElseThrow();
+        ChargeRule quarterly = engine.find("1", "Ledger fee").orElseThrow();
+        ChargeRule weekly = engine.find("1", "Weekly fee").orElseThrow();
+        ChargeRule yearly = engine.find("1", "Annual fee").orElseThrow();
+        ChargeRule daily = engine.find("1", "Daily fee").orElseThrow();
+
+        assertThat(monthly.dueOn(LocalDate.of(2026, 1, 31))).isTrue();
+        assertThat(monthly.dueOn(LocalDate.of(2026, 1, 30))).isFalse();
+        assertThat(monthly.dueOn(LocalDate.of(2024, 2, 29))).isTrue();
+        assertThat(monthly.periodKey(LocalDate.of(2026, 1, 1))).isEqualTo("M24312")
+                .isEqualTo(monthly.periodKey(LocalDate.of(2026, 1, 31)))
+                .isNotEqualTo(monthly.periodKey(LocalDate.of(2026, 2, 1)));
+
+        assertThat(quarterly.dueOn(LocalDate.of(2026, 1, 31))).isFalse();
+        assertThat(quarterly.dueOn(LocalDate.of(2026, 3, 31))).isTrue();
+        assertThat(quarterly.periodKey(LocalDate.of(2026, 1, 1))).isEqualTo(quarterly.periodKey(LocalDate.of(2026, 3, 31)))
+                .isNotEqualTo(quarterly.periodKey(LocalDate.of(2026, 4, 1)));
+
+        // weeks run Monday to Sunday
+        assertThat(weekly.dueOn(LocalDate.of(2026, 10, 18))).isTrue();
+        assertThat(weekly.dueOn(LocalDate.of(2026, 10, 19))).isFalse();
+        assertThat(weekly.periodKey(LocalDate.of(2026, 10, 19))).isEqualTo(weekly.periodKey(LocalDate.of(2026, 10, 25)))
+                .isNotEqualTo(weekly.periodKey(LocalDate.of(2026, 10, 18)));
+
+        assertThat(yearly.dueOn(LocalDate.of(2026, 12, 31))).isTrue();
+        assertThat(yearly.dueOn(LocalDate.of(2026, 12, 30))).isFalse();
+        assertThat(yearly.periodKey(LocalDate.of(2026, 6, 1))).isEqualTo("Y2026");
+
+        assertThat(daily.dueOn(LocalDate.of(2026, 10, 19))).isTrue();
+        assertThat(daily.periodKey(LocalDate.of(2026, 10, 19))).isEqualTo("D20745");
+    }
+
+    private static Charges charge(Long id, String name, String productId, boolean fixed, Integer rate,
+                                  Integer interval, String intervalUnit) {
+        return new Charges(id, name, productId, fixed, true, rate, null, null, interval, intervalUnit, null, null);
+    }
+
+    private static Charges inactive(Charges charge) {
+        charge.setActive(false);
+        return charge;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.loanManagement.services;
+
+import com.example.demo.customerManagement.parsistence.repositories.CustomerRepo;
+import com.example.demo.loanManagement.parsistence.repositories.EligibilitySnapshotRepo;
+import com.example.demo.loanManagement.parsistence.repositories.ProductRepo;
+import com.example.demo.loanManagement.parsistence.repositories.SubscriptionRepo;
+import com.example.demo.support.Benchmark;
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.support.LocalJobCoordinator;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.services.InternalChecks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Current product checks (subscription, product and open-loan queries) against the snapshot
+ * lookup, both at 1,000 concurrent eligibility requests over the same membership.
+ */
+@Benchmark
+class EligibilityBenchmarkTest extends PostgresJpaTest {
+
+    private static final int MEMBERS = 5_000;
+    private static final int CONCURRENT_REQUESTS = 1_000;
+    private static final int REQUESTS = 20_000;
+
+    @Autowired
+    private SubscriptionRepo subscriptionRepo;
+    @Autowired
+    private ProductRepo productRepo;
+    @Autowired
+    private CustomerRepo customerRepo;
+    @Autowired
+    private EligibilitySnapshotRepo snapshotRepo;
+
+    private InternalChecks checks;
+    private final List<String[]> requests = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        truncate("eligibility_snapshot", "loan_account", "subscriptions", "products");
+        jdbcTemplate.update("INSERT INTO products (name, code, min_limit, max_limit, is_active) VALUES ('Salary advance', 'P1', 1000, 100000, TRUE)");
+        jdbcTemplate.batchUpdate("INSERT INTO subscriptions (customer_id, product_code, status, credit_limit) VALUES (?, 'P1', ?, ?)",
+                IntStream.range(0, MEMBERS).mapToObj(m -> new Object[]{String.valueOf(m), m % 11 != 0, 10_000 + (m % 5) * 10_000}).toList());
+        jdbcTemplate.batchUpdate("INSERT INTO loan_account (application_id, amount, payable_amount, account_balance, status, customer_id, loanref) " +
+                        "VALUES (?, 5000, 5500, ?, ?, ?, ?)",
+                IntStream.range(0, MEMBERS).filter(m -> m % 4 < 2 || m % 7 == 0)
+                        .mapToObj(m -> new Object[]{(long) m, m % 4 == 1 ? 0f : 5500f,
+                                m % 4 == 0 ? "ACTIVE" : m % 4 == 1 ? "PAID" : "INIT", String.valueOf(m), "REF" + m})
+                        .toList());
+
+        EligibilitySnapshotService snapshots = new EligibilitySnapshotService(snapshotRepo, jdbcTemplate,
+                LocalJobCoordinator.create(jdbcTemplate, transactionManager));
+        snapshots.refreshAll();
+        ProductService products = new ProductService(productRepo);
+        SubscriptionService subscriptions = new SubscriptionService(products, customerRepo, subscriptionRepo,
+                mock(ApplicationEventPublisher.class));
+        checks = new InternalChecks(subscriptions, products, null, mock(LoanAccountService.class), snapshots);
+
+        jdbcTemplate.query("SELECT id, customer_id FROM subscriptions ORDER BY id", rs -> {
+            requests.add(new String[]{rs.getString("id"), "", rs.getString("customer_id")});
+        });
+        for (int i = 0; i < requests.size(); i++) {
+            requests.get(i)[1] = String.valueOf(500 + (i * 7_919) % 60_000);
+        }
+    }
+
+    @Test
+    void snapshotLookupServesConcurrentRequestsFasterWithTheSameVerdicts(TestReporter reporter) throws Exception {
+        for (String[] request : requests) {
+            assertThat(checks.Productchecks(request)).as("verdict for %s", String.join(",", request))
+                    .isEqualTo(checks.liveProductChecks(request));
+        }
+
+        ConcurrentLoad.Result current = ConcurrentLoad.run(CONCURRENT_REQUESTS, REQUESTS,
+                i -> checks.liveProductChecks(requests.get(i % requests.size())));
+        ConcurrentLoad.Result snapshot = ConcurrentLoad.run(CONCURRENT_REQUESTS, REQUESTS,
+                i -> checks.Productchecks(requests.get(i % requests.size())));
+
+        reporter.publishEntry("current p50/p99 ms", current.percentileMillis(50) + " / " + current.percentileMillis(99));
+        reporter.publishEntry("snapshot p50/p99 ms", snapshot.percentileMillis(50) + " / " + snapshot.percentileMillis(99));
+        reporter.publishEntry("current/snapshot requests per second",
+                Math.round(current.throughputPerSecond()) + " / " + Math.round(snapshot.throughputPerSecond()));
+        assertThat(current.failures()).isEmpty();
+        assertThat(snapshot.failures()).isEmpty();
+        assertThat(snapshot.throughputPerSecond()).isGreaterThan(current.throughputPerSecond());
+        assertThat(snapshot.percentile(50)).isLessThan(current.percentile(50));
+    }
+}
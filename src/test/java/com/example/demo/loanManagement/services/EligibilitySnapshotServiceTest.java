@@ -0,0 +1,133 @@
+package com.example.demo.loanManagement.services;
+
+import com.example.demo.loanManagement.parsistence.entities.EligibilitySnapshot;
+import com.example.demo.loanManagement.parsistence.repositories.EligibilitySnapshotRepo;
+import com.example.demo.system.services.JobCoordinator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class EligibilitySnapshotServiceTest {
+
+    @Mock
+    private EligibilitySnapshotRepo snapshotRepo;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private JobCoordinator jobCoordinator;
+
+    private EligibilitySnapshotService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new EligibilitySnapshotService(snapshotRepo, jdbcTemplate, jobCoordinator);
+    }
+
+    @Test
+    void acceptsAmountWithinLimitsWithoutOpenLoan() {
+        assertThat(service.evaluate(snapshot(0), 20_000)).isEmpty();
+    }
+
+    @Test
+    void rejectsAmountOutsideProductLimits() {
+        assertThat(service.evaluate(snapshot(0), 500)).isEqualTo("NOT IN PRODUCT LIMIT");
+        assertThat(service.evaluate(snapshot(0), 200_000)).isEqualTo("NOT IN PRODUCT LIMIT");
+    }
+
+    @Test
+    void rejectsAmountAboveCreditLimit() {
+        assertThat(service.evaluate(snapshot(0), 60_000)).isEqualTo("EXCEED LIMIT");
+    }
+
+    @Test
+    void comparesDecimalAmountsExactlyAgainstTheLimits() {
+        assertThat(service.evaluate(snapshot(0), new BigDecimal("50000.00"))).isEmpty();
+        assertThat(service.evaluate(snapshot(0), new BigDecimal("50000.01"))).isEqualTo("EXCEED LIMIT");
+        assertThat(service.evaluate(snapshot(0), new BigDecimal("999.99"))).isEqualTo("NOT IN PRODUCT LIMIT");
+    }
+
+    @Test
+    void rejectsInactiveSubscription() {
+        EligibilitySnapshot snapshot = snapshot(0);
+        snapshot.setSubscriptionActive(false);
+        assertThat(service.evaluate(snapshot, 20_000)).isEqualTo("INACTIVE SUBSCRIPTION");
+    }
+
+    @Test
+    void openLoanInSnapshotBlocksTheApplication() {
+        EligibilitySnapshot snapshot = snapshot(0);
+        snapshot.setExistingLoanStatus("INIT");
+        assertThat(service.evaluate(snapshot, 20_000)).isEqualTo("EXISTING LOAN::INIT");
+    }
+
+    @Test
+    void decisionIsTakenFromTheSnapshotWithoutQueries() {
+        EligibilitySnapshot snapshot = snapshot(1);
+        snapshot.setExistingLoanStatus("ACTIVE");
+        service.evaluate(snapshot, 20_000);
+        service.evaluate(snapshot(0), 20_000);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void refreshCountsOnlyActiveLoansAndBlocksOnAnyUnpaidLoan() {
+        service.refreshCustomer("42");
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).update(sql.capture(), eq("42"));
+        assertThat(sql.getValue())
+                .contains("COUNT(*) FILTER (WHERE UPPER(status) = 'ACTIVE') AS active_loans")
+                .contains("SUM(account_balance) FILTER (WHERE UPPER(status) = 'ACTIVE') AS outstanding")
+                .contains("FROM loan_account WHERE status <> 'PAID'")
+                .contains("WHERE s.customer_id = ?");
+    }
+
+    @Test
+    void openLoanStatusIsEmptyWithoutUnpaidLoan() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("42"))).thenReturn(List.of());
+        assertThat(service.openLoanStatus("42")).isEmpty();
+    }
+
+    @Test
+    void findBySubscriptionRefreshesMissingSnapshotOnce() {
+        EligibilitySnapshot snapshot = snapshot(0);
+        when(snapshotRepo.findBySubscriptionId(7L)).thenReturn(Optional.empty(), Optional.of(snapshot));
+        assertThat(service.findBySubscription(7L, "42")).contains(snapshot);
+        verify(jdbcTemplate).update(anyString(), eq("42"));
+    }
+
+    private static EligibilitySnapshot snapshot(int activeLoans) {
+        return EligibilitySnapshot.builder()
+                .customerId("42")
+                .productCode("P1")
+                .productId(1L)
+                .subscriptionId(7L)
+                .subscriptionActive(true)
+                .minLimit(1_000)
+                .maxLimit(100_000)
+                .creditLimit(50_000)
+                .activeLoanCount(activeLoans)
+                .refreshedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.demo.loanManagement.services;
+
+import com.example.demo.banking.services.Dispatcher;
+import com.example.demo.communication.services.CommunicationService;
+import com.example.demo.communication.services.NotificationService;
+import com.example.demo.customerManagement.parsistence.entities.Customer;
+import com.example.demo.customerManagement.serviceImplimentations.CustomerService;
+import com.example.demo.events.appEvents.LoanDisbursementRequestedEvent;
+import com.example.demo.loanManagement.parsistence.entities.Disbursements;
+import com.example.demo.loanManagement.parsistence.entities.Subscriptions;
+import com.example.demo.loanManagement.parsistence.entities.loanTransactions;
+import com.example.demo.loanManagement.parsistence.repositories.ApplicationRepo;
+import com.example.demo.loanManagement.parsistence.repositories.LoanAccountRepo;
+import com.example.demo.loanManagement.parsistence.repositories.LoanDisbursementTaskRepo;
+import com.example.demo.loanManagement.parsistence.repositories.TransactionsRepo;
+import com.example.demo.support.Benchmark;
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.services.Backbone;
+import com.example.demo.system.services.IdGenerator;
+import com.example.demo.system.services.InternalChecks;
+import com.example.demo.system.services.JobCoordinator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Loan applications against Postgres with a mobile money gateway that takes 150 ms per transfer:
+ * the transfer sent inside the request, as applications ran before, against the disbursement task
+ * committed with the application and sent after commit.
+ */
+@Benchmark
+class LoanApplicationLoadTest extends PostgresJpaTest {
+
+    private static final int THREADS = 16;
+    private static final int APPLICATIONS = 480;
+    private static final long GATEWAY_MS = 150;
+
+    @Autowired
+    private ApplicationRepo applicationRepo;
+    @Autowired
+    private LoanAccountRepo loanAccountRepo;
+    @Autowired
+    private LoanDisbursementTaskRepo disbursementTaskRepo;
+
+    private final CustomerService customerService = mock(CustomerService.class);
+    private final SubscriptionService subscriptionService = mock(SubscriptionService.class);
+    private final InternalChecks internalChecks = mock(InternalChecks.class);
+    private final Dispatcher dispatcher = mock(Dispatcher.class);
+    private final Backbone backbone = mock(Backbone.class);
+    private final ExecutorService eventExecutor = Executors.newFixedThreadPool(THREADS);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        truncate("loan_application", "loan_account", "loan_disbursement_tasks");
+        Customer customer = new Customer();
+        customer.setId(5L);
+        customer.setDocumentNumber("12345678");
+        customer.setPhoneNumber("254700000001");
+        Subscriptions subscription = new Subscriptions();
+        subscription.setId(3L);
+        subscription.setProductCode("P1");
+        subscription.setCreditLimit(50_000);
+        subscription.setTerm(30);
+        subscription.setInterestRate(10);
+        when(customerService.findCustomerById(anyLong())).thenReturn(Optional.of(customer));
+        when(subscriptionService.findCustomerIdandproductCode(anyString(), anyString())).thenReturn(Optional.of(subscription));
+        when(internalChecks.Productchecks(any(String[].class))).thenReturn("");
+        loanTransactions interest = new loanTransactions();
+        interest.setFinalBalance("1650.55");
+        when(backbone.saveTransaction(any(String[].class))).thenReturn(interest);
+        when(dispatcher.Disburse(any(String[].class))).thenAnswer(invocation -> {
+            String[] request = invocation.getArgument(0);
+            Thread.sleep(GATEWAY_MS);
+            Disbursements disbursement = new Disbursements();
+            disbursement.setAccountId(Long.valueOf(request[2]));
+            disbursement.setAmount(request[3]);
+            disbursement.setStatus("PROCESSED");
+            disbursement.setOtherRef("REF" + request[2]);
+            return disbursement;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        eventExecutor.shutdown();
+        eventExecutor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void applicationsNoLongerWaitForTheGateway(TestReporter reporter) throws Exception {
+        LoanService[] inline = new LoanService[1];
+        inline[0] = service(event -> {
+            if (event instanceof LoanDisbursementRequestedEvent requested) {
+                inline[0].disburse(requested.getTaskId());
+            }
+        });
+        ConcurrentLoad.Result before = ConcurrentLoad.run(THREADS, APPLICATIONS,
+                i -> inline[0].loanApplication(5L, null, "P1", "1500.50"));
+        assertThat(completed()).isEqualTo(APPLICATIONS);
+
+        truncate("loan_application", "loan_account", "loan_disbursement_tasks");
+        LoanService[] afterCommit = new LoanService[1];
+        afterCommit[0] = service(event -> {
+            if (event instanceof LoanDisbursementRequestedEvent requested) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        eventExecutor.execute(() -> afterCommit[0].disburse(requested.getTaskId()));
+                    }
+                });
+            }
+        });
+        ConcurrentLoad.Result after = ConcurrentLoad.run(THREADS, APPLICATIONS,
+                i -> afterCommit[0].loanApplication(5L, null, "P1", "1500.50"));
+        awaitCompleted(Duration.ofSeconds(60));
+
+        reporter.publishEntry("application p50/p99 ms, transfer in request", before.percentileMillis(50) + " / " + before.percentileMillis(99));
+        reporter.publishEntry("application p50/p99 ms, transfer after commit", after.percentileMillis(50) + " / " + after.percentileMillis(99));
+        assertThat(before.failures()).isEmpty();
+        assertThat(after.failures()).isEmpty();
+        assertThat(before.percentileMillis(50)).isGreaterThanOrEqualTo((double) GATEWAY_MS);
+        assertThat(after.percentileMillis(99)).isLessThan(before.percentileMillis(50));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT loan_account_id) FROM loan_disbursement_tasks " +
+                "WHERE status = 'COMPLETED' AND amount = '1500.50'", Integer.class)).isEqualTo(APPLICATIONS);
+    }
+
+    private LoanService service(ApplicationEventPublisher publisher) {
+        IdGenerator idGenerator = new IdGenerator(jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(idGenerator, "blockSize", 100);
+        return new LoanService(applicationRepo, mock(TransactionsRepo.class), subscriptionService, customerService,
+                mock(ProductService.class), mock(CommunicationService.class), internalChecks, loanAccountRepo, dispatcher,
+                backbone, mock(EligibilitySnapshotService.class), mock(NotificationService.class),
+                idGenerator, publisher, disbursementTaskRepo,
+                mock(JobCoordinator.class), transactionManager);
+    }
+
+    private void awaitCompleted(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (completed() < APPLICATIONS) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Disbursements not completed within " + timeout);
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+    }
+
+    private int completed() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM loan_disbursement_tasks WHERE status = 'COMPLETED'", Integer.class);
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.demo.loanManagement.services;
+
+import com.example.demo.banking.services.Dispatcher;
+import com.example.demo.communication.services.CommunicationService;
+import com.example.demo.communication.services.NotificationService;
+import com.example.demo.customerManagement.parsistence.entities.Customer;
+import com.example.demo.customerManagement.serviceImplimentations.CustomerService;
+import com.example.demo.events.appEvents.LoanDisbursementRequestedEvent;
+import com.example.demo.loanManagement.parsistence.entities.Disbursements;
+import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
+import com.example.demo.loanManagement.parsistence.entities.LoanApplication;
+import com.example.demo.loanManagement.parsistence.entities.LoanDisbursementTask;
+import com.example.demo.loanManagement.parsistence.entities.Subscriptions;
+import com.example.demo.loanManagement.parsistence.entities.loanTransactions;
+import com.example.demo.loanManagement.parsistence.repositories.ApplicationRepo;
+import com.example.demo.loanManagement.parsistence.repositories.LoanAccountRepo;
+import com.example.demo.loanManagement.parsistence.repositories.LoanDisbursementTaskRepo;
+import com.example.demo.loanManagement.parsistence.repositories.TransactionsRepo;
+import com.example.demo.system.services.Backbone;
+import com.example.demo.system.services.IdGenerator;
+import com.example.demo.system.services.InternalChecks;
+import com.example.demo.system.services.JobCoordinator;
+import com.example.demo.support.ConcurrentLoad;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LoanServiceDisbursementTest {
+
+    @Mock
+    private ApplicationRepo applicationRepo;
+    @Mock
+    private TransactionsRepo transactionsRepo;
+    @Mock
+    private SubscriptionService subscriptionService;
+    @Mock
+    private CustomerService customerService;
+    @Mock
+    private ProductService productService;
+    @Mock
+    private CommunicationService communicationService;
+    @Mock
+    private InternalChecks internalChecks;
+    @Mock
+    private LoanAccountRepo loanAccountRepo;
+    @Mock
+    private Dispatcher dispatcher;
+    @Mock
+    private Backbone backbone;
+    @Mock
+    private EligibilitySnapshotService eligibilitySnapshotService;
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private IdGenerator idGenerator;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private LoanDisbursementTaskRepo disbursementTaskRepo;
+    @Mock
+    private JobCoordinator jobCoordinator;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<Long, LoanDisbursementTask> tasks = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> transfers = new ConcurrentHashMap<>();
+    private final AtomicLong taskIds = new AtomicLong();
+
+    private LoanService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new LoanService(applicationRepo, transactionsRepo, subscriptionService, customerService, productService,
+                communicationService, internalChecks, loanAccountRepo, dispatcher, backbone, eligibilitySnapshotService, notificationService,
+                idGenerator, eventPublisher, disbursementTaskRepo, jobCoordinator, transactionManager);
+
+        //the task table: conditional updates are atomic per row, as in the database
+        when(disbursementTaskRepo.save(any(LoanDisbursementTask.class))).thenAnswer(invocation -> {
+            LoanDisbursementTask task = invocation.getArgument(0);
+            synchronized (tasks) {
+                if (task.getId() == null) {
+                    task.setId(taskIds.incrementAndGet());
+                }
+                tasks.put(task.getId(), copy(task));
+            }
+            return task;
+        });
+        when(disbursementTaskRepo.findById(anyLong())).thenAnswer(invocation -> {
+            synchronized (tasks) {
+                return Optional.ofNullable(tasks.get(invocation.<Long>getArgument(0))).map(this::copy);
+            }
+        });
+        when(disbursementTaskRepo.claim(anyLong(), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            synchronized (tasks) {
+                LoanDisbursementTask task = tasks.get(invocation.<Long>getArgument(0));
+                if (task == null || !"PENDING".equals(task.getStatus())) {
+                    return 0;
+                }
+                task.setStatus("IN_PROGRESS");
+                task.setAttempts(task.getAttempts() + 1);
+                task.setUpdatedAt(invocation.getArgument(1));
+                return 1;
+            }
+        });
+        when(disbursementTaskRepo.findByStatusAndUpdatedAtBefore(anyString(), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            synchronized (tasks) {
+                String status = invocation.getArgument(0);
+                LocalDateTime before = invocation.getArgument(1);
+                return tasks.values().stream()
+                        .filter(task -> status.equals(task.getStatus()) && task.getUpdatedAt().isBefore(before))
+                        .map(this::copy)
+                        .toList();
+            }
+        });
+        when(disbursementTaskRepo.parkStalled(any(LocalDateTime.class), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            synchronized (tasks) {
+                LocalDateTime before = invocation.getArgument(0);
+                int parked = 0;
+                for (LoanDisbursementTask task : tasks.values()) {
+                    if ("IN_PROGRESS".equals(task.getStatus()) && task.getUpdatedAt().isBefore(before)) {
+                        task.setStatus("REVIEW");
+                        parked++;
+                    }
+                }
+                return parked;
+            }
+        });
+
+        when(dispatcher.Disburse(any(String[].class))).thenAnswer(invocation -> {
+            String[] request = invocation.getArgument(0);
+            Long accountId = Long.valueOf(request[2]);
+            transfers.computeIfAbsent(accountId, id -> new AtomicInteger()).incrementAndGet();
+            Disbursements disbursement = new Disbursements();
+            disbursement.setAccountId(accountId);
+            disbursement.setAmount(request[3]);
+            disbursement.setStatus("PROCESSED");
+            disbursement.setOtherRef("REF" + accountId);
+            return disbursement;
+        });
+        when(customerService.findCustomerById(anyLong())).thenReturn(Optional.empty());
+        when(jobCoordinator.runExclusive(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+    }
+
+    @Test
+    void authorisedApplicationRecordsTaskBeforeCommitAndPublishesItsId() {
+        authorisedApplicant();
+
+        service.loanApplication(5L, null, "P1", "10000");
+
+        InOrder order = inOrder(disbursementTaskRepo, transactionManager);
+        order.verify(disbursementTaskRepo).save(any(LoanDisbursementTask.class));
+        order.verify(transactionManager).commit(any());
+        LoanDisbursementTask task = tasks.values().iterator().next();
+        assertThat(task.getStatus()).isEqualTo("PENDING");
+        assertThat(task.getLoanAccountId()).isEqualTo(77L);
+        assertThat(task.getAmount()).isEqualTo("10000");
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        assertThat(events.getAllValues()).filteredOn(LoanDisbursementRequestedEvent.class::isInstance)
+                .singleElement()
+                .extracting(event -> ((LoanDisbursementRequestedEvent) event).getTaskId())
+                .isEqualTo(task.getId());
+        //the transfer itself waits for the event or the sweep
+        verify(dispatcher, never()).Disburse(any(String[].class));
+    }
+
+    @Test
+    void sweepDisbursesTaskWhoseEventWasLost() {
+        LoanDisbursementTask lost = pending(1L, LocalDateTime.now().minusMinutes(10));
+        LoanDisbursementTask fresh = pending(2L, LocalDateTime.now());
+
+        service.sweepDisbursements();
+
+        assertThat(transfers.get(1L)).hasValue(1);
+        assertThat(tasks.get(lost.getId()).getStatus()).isEqualTo("COMPLETED");
+        //a freshly committed task is left to its own event
+        assertThat(transfers).doesNotContainKey(2L);
+        assertThat(tasks.get(fresh.getId()).getStatus()).isEqualTo("PENDING");
+    }
+
+    @Test
+    void failedTransferIsLeftForReviewAndNeverResent() {
+        LoanDisbursementTask task = pending(9L, LocalDateTime.now().minusMinutes(10));
+        doAnswer(invocation -> {
+            transfers.computeIfAbsent(9L, id -> new AtomicInteger()).incrementAndGet();
+            throw new IllegalStateException("gateway timeout");
+        }).when(dispatcher).Disburse(any(String[].class));
+
+        service.disburse(task.getId());
+        service.sweepDisbursements();
+        service.disburse(task.getId());
+
+        assertThat(transfers.get(9L)).hasValue(1);
+        assertThat(tasks.get(task.getId()).getStatus()).isEqualTo("REVIEW");
+        assertThat(tasks.get(task.getId()).getLastError()).isEqualTo("gateway timeout");
+    }
+
+    @Test
+    void stalledTransferIsParkedForReview() {
+        LoanDisbursementTask task = pending(4L, LocalDateTime.now().minusHours(1));
+        tasks.get(task.getId()).setStatus("IN_PROGRESS");
+
+        service.sweepDisbursements();
+
+        assertThat(tasks.get(task.getId()).getStatus()).isEqualTo("REVIEW");
+        assertThat(transfers).isEmpty();
+    }
+
+    @Test
+    void decimalAmountIsCarriedToTheTransferUnchanged() {
+        authorisedApplicant();
+
+        service.loanApplication(5L, null, "P1", "1500.50");
+
+        LoanDisbursementTask task = tasks.values().iterator().next();
+        assertThat(task.getAmount()).isEqualTo("1500.50");
+        ArgumentCaptor<LoanAccount> account = ArgumentCaptor.forClass(LoanAccount.class);
+        verify(loanAccountRepo).save(account.capture());
+        assertThat(account.getValue().getAmount()).isEqualTo(1500.50f);
+        service.disburse(task.getId());
+        ArgumentCaptor<String[]> transfer = ArgumentCaptor.forClass(String[].class);
+        verify(dispatcher).Disburse(transfer.capture());
+        assertThat(transfer.getValue()[3]).isEqualTo("1500.50");
+    }
+
+    @Test
+    void invalidAmountIsRejectedBeforeAnythingIsSaved() {
+        authorisedApplicant();
+
+        for (String amount : new String[]{"abc", "", "0", "-500", "10.005", null}) {
+            assertThatThrownBy(() -> service.loanApplication(5L, null, "P1", amount))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("Invalid loan amount");
+        }
+
+        verify(applicationRepo, never()).save(any(LoanApplication.class));
+        verify(transactionManager, never()).getTransaction(any());
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    void eventsAndSweepsUnderLoadSendEachTransferExactlyOnce() throws Exception {
+        int loans = 5_000;
+        List<Long> ids = new ArrayList<>();
+        for (long account = 1; account <= loans; account++) {
+            ids.add(pending(account, LocalDateTime.now().minusMinutes(5)).getId());
+        }
+
+        //every event is delivered twice (redelivery) while sweeps race over the same rows
+        ConcurrentLoad.Result result = ConcurrentLoad.run(16, loans * 2, i -> {
+            if (i % 500 == 0) {
+                service.sweepDisbursements();
+            }
+            service.disburse(ids.get(i % loans));
+        });
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(transfers).hasSize(loans);
+        assertThat(transfers.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(1));
+        assertThat(tasks.values()).allSatisfy(task -> assertThat(task.getStatus()).isEqualTo("COMPLETED"));
+    }
+
+    /**
+     * Customer 5 with an active P1 subscription whose application passes the checks; the loan
+     * account is saved as account 77.
+     */
+    private void authorisedApplicant() {
+        Customer customer = new Customer();
+        customer.setId(5L);
+        customer.setDocumentNumber("12345678");
+        customer.setPhoneNumber("254700000001");
+        Subscriptions subscription = new Subscriptions();
+        subscription.setId(3L);
+        subscription.setProductCode("P1");
+        subscription.setCreditLimit(50_000);
+        subscription.setTerm(30);
+        subscription.setInterestRate(10);
+        when(customerService.findCustomerById(5L)).thenReturn(Optional.of(customer));
+        when(subscriptionService.findCustomerIdandproductCode("5", "P1")).thenReturn(Optional.of(subscription));
+        when(internalChecks.Productchecks(any(String[].class))).thenReturn("");
+        when(idGenerator.nextLoanNumber()).thenReturn(1001L);
+        when(idGenerator.nextLoanRef()).thenReturn("LN1001");
+        when(applicationRepo.save(any(LoanApplication.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        loanTransactions interest = new loanTransactions();
+        interest.setFinalBalance("11000.0");
+        when(backbone.saveTransaction(any(String[].class))).thenReturn(interest);
+        when(loanAccountRepo.save(any(LoanAccount.class))).thenAnswer(invocation -> {
+            LoanAccount account = invocation.getArgument(0);
+            account.setAccountId(77L);
+            return account;
+        });
+    }
+
+    private LoanDisbursementTask pending(Long loanAccountId, LocalDateTime updatedAt) {
+        LoanDisbursementTask task = new LoanDisbursementTask();
+        task.setLoanAccountId(loanAccountId);
+        task.setCustomerId(5L);
+        task.setLoanNumber(1000L + loanAccountId);
+        task.setCustomerMobileNumber("254700000001");
+        task.setDestinationAccount("254700000001");
+        task.setAmount("10000");
+        task.setAccountBalance("11000.0");
+        task.setStatus("PENDING");
+        task.setCreatedAt(updatedAt);
+        task.setUpdatedAt(updatedAt);
+        return disbursementTaskRepo.save(task);
+    }
+
+    private LoanDisbursementTask copy(LoanDisbursementTask task) {
+        return new LoanDisbursementTask(task.getId(), task.getLoanAccountId(), task.getCustomerId(), task.getLoanNumber(),
+                task.getCustomerMobileNumber(), task.getDestinationAccount(), task.getAmount(), task.getAccountBalance(),
+                task.getStatus(), task.getAttempts(), task.getLastError(), task.getCreatedAt(), task.getUpdatedAt(),
+                task.getCompletedAt());
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.demo.loanManagement.services;
+
+import com.example.demo.banking.parsitence.repositories.PaymentRepo;
+import com.example.demo.banking.services.Dispatcher;
+import com.example.demo.communication.parsitence.models.Notification;
+import com.example.demo.communication.services.CommunicationService;
+import com.example.demo.communication.services.NotificationService;
+import com.example.demo.customerManagement.parsistence.entities.Customer;
+import com.example.demo.customerManagement.serviceImplimentations.CustomerService;
+import com.example.demo.events.ApplicationEventListener;
+import com.example.demo.loanManagement.parsistence.entities.LoanAccount;
+import com.example.demo.loanManagement.parsistence.entities.LoanApplication;
+import com.example.demo.loanManagement.parsistence.entities.Subscriptions;
+import com.example.demo.loanManagement.parsistence.repositories.ApplicationRepo;
+import com.example.demo.loanManagement.parsistence.repositories.LoanAccountRepo;
+import com.example.demo.loanManagement.parsistence.repositories.LoanDisbursementTaskRepo;
+import com.example.demo.loanManagement.parsistence.repositories.LoanStatesRepo;
+import com.example.demo.loanManagement.parsistence.repositories.PaymentRequestRepo;
+import com.example.demo.loanManagement.parsistence.repositories.SuspensePaymentRepo;
+import com.example.demo.loanManagement.parsistence.repositories.TransactionsRepo;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.parsitence.repositories.ScheduleRepo;
+import com.example.demo.system.services.Backbone;
+import com.example.demo.system.services.EventProcessor;
+import com.example.demo.system.services.IdGenerator;
+import com.example.demo.system.services.InternalChecks;
+import com.example.demo.system.services.JobCoordinator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Member notifications raised inside loan and payment transactions: nothing reaches the gateway
+ * before the transaction commits, delivery runs on the async executor through the event listener,
+ * and a rolled-back operation sends nothing.
+ */
+@Import({NotificationService.class, ApplicationEventListener.class, NotificationAfterCommitTest.AsyncDelivery.class})
+class NotificationAfterCommitTest extends PostgresJpaTest {
+
+    private static final String PHONE = "254700000007";
+
+    @TestConfiguration
+    @EnableAsync
+    static class AsyncDelivery {
+    }
+
+    @MockBean
+    private CommunicationService communicationService;
+    @MockBean
+    private EventProcessor eventProcessor;
+    @Autowired
+    private NotificationService notificationService;
+
+    private final CustomerService customerService = mock(CustomerService.class);
+    private final SubscriptionService subscriptionService = mock(SubscriptionService.class);
+    private final InternalChecks internalChecks = mock(InternalChecks.class);
+    private final ApplicationRepo applicationRepo = mock(ApplicationRepo.class);
+    private final LoanAccountRepo loanAccountRepo = mock(LoanAccountRepo.class);
+    private final Set<String> deliveryThreads = ConcurrentHashMap.newKeySet();
+    private TransactionTemplate transactionTemplate;
+    private LoanService loanService;
+    private PaymentService paymentService;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        doAnswer(invocation -> {
+            deliveryThreads.add(Thread.currentThread().getName());
+            return null;
+        }).when(communicationService).deliver(any(Notification.class));
+
+        Customer customer = new Customer();
+        customer.setId(7L);
+        customer.setFirstName("Jane");
+        customer.setEmail("jane@example.com");
+        customer.setPhoneNumber(PHONE);
+        when(customerService.findCustomerById(7L)).thenReturn(Optional.of(customer));
+        when(customerService.findByPhone(PHONE)).thenReturn(Optional.of(customer));
+        Subscriptions subscription = new Subscriptions();
+        subscription.setId(3L);
+        subscription.setProductCode("P1");
+        subscription.setInterestRate(10);
+        subscription.setCreditLimit(20_000);
+        when(subscriptionService.findCustomerIdandproductCode("7", "P1")).thenReturn(Optional.of(subscription));
+        when(applicationRepo.save(any(LoanApplication.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        loanService = new LoanService(applicationRepo, mock(TransactionsRepo.class), subscriptionService, customerService,
+                mock(ProductService.class), communicationService, internalChecks, loanAccountRepo, mock(Dispatcher.class),
+                mock(Backbone.class), mock(EligibilitySnapshotService.class), notificationService, mock(IdGenerator.class),
+                mock(ApplicationEventPublisher.class), mock(LoanDisbursementTaskRepo.class), mock(JobCoordinator.class),
+                transactionManager);
+        paymentService = new PaymentService(loanAccountRepo, applicationRepo, mock(ProductService.class), mock(Backbone.class),
+                mock(LoanStatesRepo.class), mock(ChargeServiceImpl.class), mock(SuspensePaymentRepo.class), subscriptionService,
+                mock(PaymentRepo.class), mock(PaymentRequestRepo.class), customerService, mock(ScheduleRepo.class),
+                mock(TransactionsRepo.class));
+        ReflectionTestUtils.setField(paymentService, "notificationService", notificationService);
+        ReflectionTestUtils.setField(paymentService, "eventPublisher", mock(ApplicationEventPublisher.class));
+    }
+
+    @Test
+    void loanApplicationNotificationsAreSentAsynchronouslyAfterCommit() {
+        when(internalChecks.Productchecks(any())).thenReturn("NOT IN PRODUCT LIMIT");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            loanService.loanApplication(7L, null, "P1", "150000");
+            verify(communicationService, after(300).never()).deliver(any());
+        });
+
+        ArgumentCaptor<Notification> sent = ArgumentCaptor.forClass(Notification.class);
+        verify(communicationService, timeout(5_000).times(2)).deliver(sent.capture());
+        assertThat(sent.getAllValues()).extracting(Notification::getMessage).containsExactlyInAnyOrder(
+                "Hello Jane, your application of Ksh 150000 has been received, please wait as we process your request",
+                "Hello Jane, your application of Ksh 150000 failed with the below error :: NOT IN PRODUCT LIMIT");
+        assertThat(deliveryThreads).isNotEmpty().doesNotContain(Thread.currentThread().getName());
+    }
+
+    @Test
+    void repaymentNotificationIsSentAsynchronouslyAfterCommit() {
+        LoanAccount account = new LoanAccount();
+        account.setAccountId(11L);
+        account.setApplicationId(5L);
+        account.setAccountBalance(1_500f);
+        account.setCustomerId("7");
+        when(loanAccountRepo.findById(11L)).thenReturn(Optional.of(account));
+        LoanApplication application = new LoanApplication();
+        application.setLoanNumber(900L);
+        when(applicationRepo.findById(5L)).thenReturn(Optional.of(application));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentService.PayLoan("11", "500", PHONE, "REF1");
+            verify(communicationService, after(300).never()).deliver(any());
+        });
+
+        ArgumentCaptor<Notification> sent = ArgumentCaptor.forClass(Notification.class);
+        verify(communicationService, timeout(5_000)).deliver(sent.capture());
+        assertThat(sent.getValue().getMessage())
+                .isEqualTo("Thank you Jane, we have received your payment of Ksh 500. Your balance is Ksh 1000.0");
+        assertThat(sent.getValue().getPhoneNumber()).isEqualTo(PHONE);
+        assertThat(deliveryThreads).isNotEmpty().doesNotContain(Thread.currentThread().getName());
+    }
+
+    @Test
+    void rolledBackOperationSendsNothing() {
+        when(internalChecks.Productchecks(any())).thenReturn("NOT IN PRODUCT LIMIT");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            loanService.loanApplication(7L, null, "P1", "150000");
+            status.setRollbackOnly();
+        });
+
+        verify(communicationService, after(500).never()).deliver(any());
+        assertThat(List.copyOf(deliveryThreads)).isEmpty();
+    }
+}
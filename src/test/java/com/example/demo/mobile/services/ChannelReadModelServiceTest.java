@@ -0,0 +1,193 @@
+package com.example.demo.mobile.services;
+
+import com.example.demo.mobile.dto.TransactionDto;
+import com.example.demo.mobile.persistence.entities.ChannelAccountView;
+import com.example.demo.savingsManagement.persistence.entities.SavingsAccount;
+import com.example.demo.savingsManagement.persistence.entities.SavingsProduct;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsAccountRepository;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsProductRepository;
+import com.example.demo.savingsManagement.services.SavingsAccountService;
+import com.example.demo.savingsManagement.services.SavingsLedgerService;
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.services.ChunkedBatchRunner;
+import com.example.demo.system.services.JobCoordinator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The channel read model as maintained by real savings postings: applied incrementally in the
+ * posting transaction, never written by reads, and repaired by the consistency check.
+ */
+@Import({SavingsAccountService.class, SavingsLedgerService.class, ChunkedBatchRunner.class, ChannelReadModelService.class,
+        JobCoordinator.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(properties = {"channel.read-model.recent-count=3", "jobs.coordination.enabled=false"})
+class ChannelReadModelServiceTest extends PostgresJpaTest {
+
+    private static final Long MEMBER = 7L;
+    private static final BigDecimal OPENING = new BigDecimal("1000.00");
+
+    @MockBean
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private ChannelReadModelService readModel;
+    @Autowired
+    private SavingsAccountService accountService;
+    @Autowired
+    private SavingsAccountRepository accountRepository;
+    @Autowired
+    private SavingsProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        truncate("channel_account_view", "savings_transactions", "savings_accounts", "savings_products");
+        SavingsProduct product = new SavingsProduct();
+        product.setCode("ORD");
+        product.setName("Ordinary savings");
+        product.setInterestRate(BigDecimal.ZERO);
+        product.setInterestPostingFrequency("MONTHLY");
+        product.setWithdrawalFee(BigDecimal.ZERO);
+        productRepository.save(product);
+    }
+
+    @Test
+    void postingsAreAppliedToTheRowNewestFirstAndTrimmed() {
+        Long id = account();
+
+        for (int i = 1; i <= 5; i++) {
+            accountService.deposit(id, BigDecimal.valueOf(i * 10L), "MPESA", "REF" + i, "deposit " + i, "test");
+        }
+
+        ChannelAccountView view = readModel.getAccount(ChannelReadModelService.SAVINGS, id).orElseThrow();
+        assertThat(view.getId()).isNotNull();
+        assertThat(view.getBalance()).isEqualByComparingTo("1150.00");
+        List<TransactionDto> recent = readModel.recentTransactions(view, 10);
+        assertThat(recent).extracting(TransactionDto::getDescription).containsExactly("deposit 5", "deposit 4", "deposit 3");
+        assertThat(recent.get(0).getBalanceAfter()).isEqualByComparingTo("1150.00");
+        assertThat(recent.get(0).getDebitCredit()).isEqualTo("CR");
+        assertThat(recent.get(0).getChannel()).isEqualTo("MPESA");
+    }
+
+    @Test
+    void incrementalRowMatchesARebuildFromTheLedger() {
+        Long id = account();
+        accountService.deposit(id, new BigDecimal("300.00"), "CASH", null, "in", "test");
+        accountService.withdraw(id, new BigDecimal("120.00"), "CASH", "out", "test");
+        accountService.deposit(id, new BigDecimal("45.50"), "CASH", null, "in again", "test");
+        ChannelAccountView applied = readModel.getAccount(ChannelReadModelService.SAVINGS, id).orElseThrow();
+
+        readModel.refreshSavingsAccount(id);
+        ChannelAccountView rebuilt = readModel.getAccount(ChannelReadModelService.SAVINGS, id).orElseThrow();
+
+        assertThat(applied.getBalance()).isEqualByComparingTo(rebuilt.getBalance());
+        assertThat(readModel.recentTransactions(applied, 10)).map(ChannelReadModelServiceTest::line)
+                .containsExactlyElementsOf(readModel.recentTransactions(rebuilt, 10).stream()
+                        .map(ChannelReadModelServiceTest::line).toList());
+    }
+
+    @Test
+    void rolledBackPostingLeavesTheRowUnchanged() {
+        Long id = account();
+        accountService.deposit(id, BigDecimal.TEN, "CASH", null, "kept", "test");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            accountService.deposit(id, new BigDecimal("500.00"), "CASH", null, "rolled back", "test");
+            status.setRollbackOnly();
+        });
+
+        ChannelAccountView view = readModel.getAccount(ChannelReadModelService.SAVINGS, id).orElseThrow();
+        assertThat(view.getBalance()).isEqualByComparingTo("1010.00");
+        assertThat(readModel.recentTransactions(view, 10)).extracting(TransactionDto::getDescription).containsExactly("kept");
+    }
+
+    @Test
+    void readsOfAnAccountWithoutARowDoNotWrite() {
+        Long id = account();
+
+        ChannelAccountView view = readModel.getAccount(ChannelReadModelService.SAVINGS, id).orElseThrow();
+        List<ChannelAccountView> member = readModel.getMemberAccounts(MEMBER, ChannelReadModelService.SAVINGS);
+
+        assertThat(view.getId()).isNull();
+        assertThat(view.getBalance()).isEqualByComparingTo(OPENING);
+        assertThat(member).extracting(ChannelAccountView::getAccountId).containsExactly(id);
+        assertThat(viewRows()).isZero();
+        assertThat(readModel.getAccount(ChannelReadModelService.SAVINGS, id + 1)).isEmpty();
+    }
+
+    @Test
+    void concurrentPostingsKeepTheRowChainedInCommitOrder() throws Exception {
+        Long id = account();
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(8, 400, i -> {
+            if (i % 3 == 0) {
+                accountService.withdraw(id, BigDecimal.ONE, "CASH", "out " + i, "test");
+            } else {
+                accountService.deposit(id, BigDecimal.valueOf(2), "CASH", null, "in " + i, "test");
+            }
+        });
+
+        assertThat(result.failures()).isEmpty();
+        ChannelAccountView view = readModel.getAccount(ChannelReadModelService.SAVINGS, id).orElseThrow();
+        BigDecimal balance = accountRepository.findById(id).orElseThrow().getBalance();
+        assertThat(view.getBalance()).isEqualByComparingTo(balance);
+        List<TransactionDto> recent = readModel.recentTransactions(view, 10);
+        assertThat(recent).hasSize(3);
+        assertThat(recent.get(0).getBalanceAfter()).isEqualByComparingTo(balance);
+        for (int i = 0; i < recent.size() - 1; i++) {
+            assertThat(recent.get(i).getBalanceBefore()).isEqualByComparingTo(recent.get(i + 1).getBalanceAfter());
+        }
+        assertThat(readModel.checkConsistency()).isZero();
+    }
+
+    @Test
+    void consistencyCheckRepairsDriftedAndMissingRows() {
+        Long drifted = account();
+        accountService.deposit(drifted, BigDecimal.TEN, "CASH", null, "in", "test");
+        Long missing = account();
+        jdbcTemplate.update("UPDATE savings_accounts SET balance = balance + 5, available_balance = available_balance + 5 " +
+                "WHERE id = ?", drifted);
+
+        assertThat(readModel.checkConsistency()).isEqualTo(2);
+
+        assertThat(readModel.getAccount(ChannelReadModelService.SAVINGS, drifted).orElseThrow().getBalance())
+                .isEqualByComparingTo("1015.00");
+        assertThat(readModel.getAccount(ChannelReadModelService.SAVINGS, missing).orElseThrow().getId()).isNotNull();
+        assertThat(readModel.checkConsistency()).isZero();
+    }
+
+    private static String line(TransactionDto t) {
+        return String.join("|", t.getTransactionId(), t.getTransactionType(), t.getDebitCredit(), t.getDescription(),
+                t.getReference(), t.getAmount().toPlainString(), t.getBalanceBefore().toPlainString(),
+                t.getBalanceAfter().toPlainString());
+    }
+
+    private Integer viewRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM channel_account_view", Integer.class);
+    }
+
+    private Long account() {
+        SavingsAccount account = new SavingsAccount();
+        account.setCustomerId(MEMBER);
+        account.setAccountNumber("SA-" + System.nanoTime());
+        account.setProductCode("ORD");
+        account.setProductName("Ordinary savings");
+        account.setBalance(OPENING);
+        account.setAvailableBalance(OPENING);
+        account.setMinimumBalance(BigDecimal.ZERO);
+        return accountRepository.save(account).getId();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.mobile.services;
+
+import com.example.demo.sms.SmsService;
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.support.RedisTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Issue and verify limits, lockout and single use of codes against a real Redis.
+ */
+class OtpServiceTest extends RedisTest {
+
+    private static final String PHONE = "254700000001";
+    private static final String TYPE = "REGISTRATION";
+
+    private final SmsService smsService = mock(SmsService.class);
+    private OtpMetrics metrics;
+    private OtpService service;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new OtpMetrics();
+        service = new OtpService(redis, smsService, metrics);
+        ReflectionTestUtils.setField(service, "expiryMinutes", 5L);
+        ReflectionTestUtils.setField(service, "maxVerifyAttempts", 3);
+        ReflectionTestUtils.setField(service, "lockoutMinutes", 30L);
+        ReflectionTestUtils.setField(service, "limitWindowMinutes", 15L);
+        ReflectionTestUtils.setField(service, "issuePerPhone", 3);
+        ReflectionTestUtils.setField(service, "issuePerIp", 5);
+        ReflectionTestUtils.setField(service, "verifyPerPhone", 10);
+        ReflectionTestUtils.setField(service, "verifyPerIp", 50);
+    }
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void codeVerifiesOnceAndIsStoredOnlyAsADigest() {
+        service.generateAndSendOtp(PHONE, TYPE);
+        String code = lastCode(PHONE);
+
+        assertThat(redis.<String, String>opsForHash().get("otp:" + TYPE + ":" + PHONE, "c")).isNotEqualTo(code).hasSize(64);
+        assertThat(service.verifyOtp(PHONE, "PIN_RESET", code)).isFalse();
+        assertThat(service.verifyOtp(PHONE, TYPE, code)).isTrue();
+        assertThat(service.verifyOtp(PHONE, TYPE, code)).isFalse();
+    }
+
+    @Test
+    void issueIsThrottledPerPhoneWithoutLockingIt() {
+        for (int i = 0; i < 3; i++) {
+            service.generateAndSendOtp(PHONE, TYPE);
+        }
+        String code = lastCode(PHONE);
+
+        assertThatThrownBy(() -> service.generateAndSendOtp(PHONE, TYPE)).hasMessageStartingWith("Too many OTP requests");
+        assertThat(service.verifyOtp(PHONE, TYPE, code)).isTrue();
+        assertThat(metrics.snapshot()).containsEntry("issueThrottled", 1L).containsEntry("lockouts", 0L);
+    }
+
+    @Test
+    void verifyThrottleRefusesTheRequestButDoesNotLockThePhone() {
+        ReflectionTestUtils.setField(service, "verifyPerPhone", 2);
+        ReflectionTestUtils.setField(service, "maxVerifyAttempts", 5);
+        service.generateAndSendOtp(PHONE, TYPE);
+        String code = lastCode(PHONE);
+        assertThat(service.verifyOtp(PHONE, TYPE, wrong(code))).isFalse();
+        assertThat(service.verifyOtp(PHONE, TYPE, wrong(code))).isFalse();
+
+        assertThatThrownBy(() -> service.verifyOtp(PHONE, TYPE, code)).hasMessageStartingWith("Too many verification attempts");
+
+        assertThat(redis.hasKey("otp:lock:" + PHONE)).isFalse();
+        assertThat(metrics.snapshot()).containsEntry("verifyThrottled", 1L).containsEntry("lockouts", 0L);
+        redis.delete("otp:rl:verify:phone:" + PHONE);
+        assertThat(service.verifyOtp(PHONE, TYPE, code)).isTrue();
+    }
+
+    @Test
+    void exhaustingTheAttemptsOnACodeLocksThePhone() {
+        service.generateAndSendOtp(PHONE, TYPE);
+        String code = lastCode(PHONE);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(service.verifyOtp(PHONE, TYPE, wrong(code))).isFalse();
+        }
+
+        assertThat(redis.getExpire("otp:lock:" + PHONE)).isBetween(1L, 1800L);
+        assertThatThrownBy(() -> service.verifyOtp(PHONE, TYPE, code)).hasMessageStartingWith("Too many failed attempts");
+        assertThatThrownBy(() -> service.generateAndSendOtp(PHONE, TYPE)).hasMessageStartingWith("Too many failed attempts");
+        assertThat(redis.hasKey("otp:" + TYPE + ":" + PHONE)).isFalse();
+        assertThat(metrics.snapshot()).containsEntry("lockouts", 1L).containsEntry("verifyFailed", 3L)
+                .containsEntry("lockedRejections", 2L);
+    }
+
+    @Test
+    void issueIsThrottledPerClientAddressAcrossPhones() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Forwarded-For", "198.51.100.7, 10.0.0.1");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        for (int i = 0; i < 5; i++) {
+            service.generateAndSendOtp("25470000010" + i, TYPE);
+        }
+
+        assertThatThrownBy(() -> service.generateAndSendOtp("254700000200", TYPE)).hasMessageStartingWith("Too many OTP requests");
+        assertThat(redis.opsForZSet().size("otp:rl:issue:ip:198.51.100.7")).isEqualTo(5L);
+    }
+
+    @Test
+    void concurrentGuessesConsumeTheCodeExactlyOnce() throws Exception {
+        ReflectionTestUtils.setField(service, "verifyPerPhone", 1_000);
+        ReflectionTestUtils.setField(service, "maxVerifyAttempts", 1_000);
+        service.generateAndSendOtp(PHONE, TYPE);
+        String code = lastCode(PHONE);
+        AtomicInteger accepted = new AtomicInteger();
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(16, 400, i -> {
+            if (service.verifyOtp(PHONE, TYPE, i % 4 == 0 ? code : wrong(code))) {
+                accepted.incrementAndGet();
+            }
+        });
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(accepted.get()).isEqualTo(1);
+        assertThat(metrics.snapshot()).containsEntry("verified", 1L).containsEntry("verifyFailed", 399L);
+    }
+
+    private String lastCode(String phone) {
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(smsService, atLeastOnce()).sendSmsTest(eq(phone), message.capture());
+        return message.getValue().replaceAll("\\D*(\\d{6}).*", "$1");
+    }
+
+    private static String wrong(String code) {
+        return code.equals("000000") ? "000001" : "000000";
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.accounting.repositories.ChartOfAccountsRepo;
+import com.example.demo.accounting.services.LedgerBalanceService;
+import com.example.demo.support.PostgresJpaTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements over real journal lines: posted, approved and reversed entries count, drafts do not,
+ * every figure comes from one grouped query per date or period, and comparatives line up with the
+ * current figures account by account.
+ */
+class FinancialReportsServiceTest extends PostgresJpaTest {
+
+    private static final LocalDate JANUARY_END = LocalDate.of(2026, 1, 31);
+    private static final LocalDate FEBRUARY_START = LocalDate.of(2026, 2, 1);
+    private static final LocalDate FEBRUARY_END = LocalDate.of(2026, 2, 28);
+
+    @Autowired
+    private ChartOfAccountsRepo chartOfAccountsRepo;
+
+    private FinancialReportsService service;
+    private long journals;
+
+    @BeforeEach
+    void setUp() {
+        truncate("journal_entry_lines", "journal_entries", "account_period_balances", "accounting_periods", "chart_of_accounts");
+        account("1010", "Cash", "ASSET", "CURRENT_ASSET");
+        account("1200", "Loans to members", "ASSET", "CURRENT_ASSET");
+        account("1500", "Equipment", "ASSET", "FIXED_ASSET");
+        account("2010", "Member deposits", "LIABILITY", "CURRENT_LIABILITY");
+        account("3010", "Share capital", "EQUITY", "CAPITAL");
+        account("4010", "Interest income", "REVENUE", "OPERATING_REVENUE");
+        account("5010", "Salaries", "EXPENSE", "ADMINISTRATIVE_EXPENSE");
+
+        journal(LocalDate.of(2026, 1, 5), "POSTED", "1010", "3010", 10_000);
+        journal(LocalDate.of(2026, 1, 10), "POSTED", "1200", "1010", 6_000);
+        journal(LocalDate.of(2026, 1, 20), "POSTED", "1500", "1010", 1_500);
+        journal(LocalDate.of(2026, 2, 3), "POSTED", "1010", "4010", 800);
+        journal(LocalDate.of(2026, 2, 10), "APPROVED", "5010", "1010", 300);
+        journal(LocalDate.of(2026, 2, 12), "DRAFT", "5010", "1010", 999);
+        // a reversed entry and its reversal net off
+        journal(LocalDate.of(2026, 2, 15), "REVERSED", "5010", "1010", 50);
+        journal(LocalDate.of(2026, 2, 16), "POSTED", "1010", "5010", 50);
+        journal(LocalDate.of(2026, 2, 20), "POSTED", "1010", "2010", 2_000);
+
+        service = new FinancialReportsService(new LedgerBalanceService(jdbcTemplate), chartOfAccountsRepo);
+        ReflectionTestUtils.setField(service, "balanceSheetDefinition", FinancialReportsService.BALANCE_SHEET);
+        ReflectionTestUtils.setField(service, "incomeStatementDefinition", FinancialReportsService.INCOME_STATEMENT);
+        ReflectionTestUtils.setField(service, "cashFlowDefinition", FinancialReportsService.CASH_FLOW);
+        ReflectionTestUtils.setField(service, "cashAccounts", "1010");
+        service.parseTemplates();
+    }
+
+    @Test
+    void balanceSheetComparesTwoDatesAccountByAccount() {
+        Map<String, Object> sheet = service.generateBalanceSheet(FEBRUARY_END, JANUARY_END);
+
+        assertThat(lines(sheet.get("assets"))).containsExactly(
+                "Current Assets 1010 5000.00/2500.00", "Current Assets 1200 6000.00/6000.00",
+                "Non-current Assets 1500 1500.00/1500.00");
+        assertThat(lines(sheet.get("liabilities"))).containsExactly("Current Liabilities 2010 2000.00/0.00");
+        Map<String, Object> equity = map(sheet.get("equity"));
+        assertThat(lines(equity)).containsExactly("Equity 3010 10000.00/10000.00");
+        assertThat(equity).containsEntry("unclosedProfit", money("500"))
+                .containsEntry("totalEquity", money("10500"))
+                .containsEntry("comparativeTotalEquity", money("10000"));
+        assertThat(sheet).containsEntry("totalAssets", money("12500"))
+                .containsEntry("totalLiabilitiesAndEquity", money("12500"))
+                .containsEntry("balanced", true);
+    }
+
+    @Test
+    void profitAndLossCountsOnlyTheMovementsOfThePeriod() {
+        Map<String, Object> profitLoss = service.generateProfitLossStatement(FEBRUARY_START, FEBRUARY_END,
+                LocalDate.of(2026, 1, 1), JANUARY_END);
+
+        assertThat(lines(profitLoss.get("revenue"))).containsExactly("Operating Revenue 4010 800.00/0.00");
+        assertThat(lines(profitLoss.get("expenses"))).containsExactly("Administrative Expenses 5010 300.00/0.00");
+        assertThat(profitLoss).containsEntry("totalRevenue", money("800"))
+                .containsEntry("totalExpenses", money("300"))
+                .containsEntry("netProfit", money("500"))
+                .containsEntry("comparativeNetProfit", money("0"));
+        assertThat((BigDecimal) profitLoss.get("profitMargin")).isEqualByComparingTo("62.5");
+    }
+
+    @Test
+    void trialBalanceListsEveryNonZeroAccountAndBalances() {
+        Map<String, Object> trialBalance = service.generateTrialBalance(FEBRUARY_END);
+
+        List<String> accounts = new ArrayList<>();
+        for (Object account : (List<?>) trialBalance.get("accounts")) {
+            Map<String, Object> row = map(account);
+            accounts.add(row.get("code") + " " + row.get("debit") + "/" + row.get("credit"));
+        }
+        assertThat(accounts).containsExactly("1010 5000.00/0", "1200 6000.00/0", "1500 1500.00/0",
+                "2010 0/2000.00", "3010 0/10000.00", "4010 0/800.00", "5010 300.00/0");
+        assertThat(trialBalance).containsEntry("totalDebits", money("12800"))
+                .containsEntry("totalCredits", money("12800"))
+                .containsEntry("balanced", true);
+    }
+
+    @Test
+    void cashFlowReconcilesToTheMovementOfTheCashAccounts() {
+        Map<String, Object> january = service.generateCashFlowStatement(LocalDate.of(2026, 1, 1), JANUARY_END);
+        Map<String, Object> february = service.generateCashFlowStatement(FEBRUARY_START, FEBRUARY_END);
+
+        assertThat(activities(january)).containsExactly(
+                "Operating Activities -6000.00", "Investing Activities -1500.00", "Financing Activities 10000.00");
+        assertThat(january).containsEntry("openingCash", money("0"))
+                .containsEntry("closingCash", money("2500"))
+                .containsEntry("unreconciled", money("0"));
+        // revenue and expenses collapse into one net profit line
+        assertThat(map(map(((List<?>) february.get("activities")).get(0)).get("lines")))
+                .containsExactly(Map.entry("2010 Member deposits", money("2000")), Map.entry("Net Profit", money("500")));
+        assertThat(february).containsEntry("netCashChange", money("2500"))
+                .containsEntry("openingCash", money("2500"))
+                .containsEntry("closingCash", money("5000"))
+                .containsEntry("unreconciled", money("0"));
+    }
+
+    @Test
+    void templateOverrideRegroupsTheLines() {
+        ReflectionTestUtils.setField(service, "balanceSheetDefinition",
+                "Assets:CURRENT_ASSET,FIXED_ASSET|Liabilities:CURRENT_LIABILITY|Equity:CAPITAL");
+        service.parseTemplates();
+
+        Map<String, Object> sheet = service.generateBalanceSheet(FEBRUARY_END);
+
+        assertThat(lines(sheet.get("assets"))).containsExactly("Assets 1010 5000.00", "Assets 1200 6000.00",
+                "Assets 1500 1500.00");
+        assertThat(sheet).containsEntry("comparativeDate", null).containsEntry("balanced", true);
+    }
+
+    private void account(String code, String name, String type, String category) {
+        jdbcTemplate.update("INSERT INTO chart_of_accounts (account_code, account_name, account_type, account_category, " +
+                        "is_active, is_system_account, created_at, updated_at) VALUES (?, ?, ?, ?, TRUE, FALSE, ?, ?)",
+                code, name, type, category, LocalDateTime.now(), LocalDateTime.now());
+    }
+
+    private void journal(LocalDate date, String status, String debit, String credit, double amount) {
+        long id = ++journals;
+        jdbcTemplate.update("INSERT INTO journal_entries (id, journal_number, transaction_date, description, reference, " +
+                        "journal_type, status, total_debit, total_credit, is_balanced, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, 'test', ?, 'GENERAL', ?, ?, ?, TRUE, ?, ?)",
+                id, "JE-" + id, date, "REF-" + id, status, amount, amount, LocalDateTime.now(), LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO journal_entry_lines (journal_entry_id, account_code, type, amount, line_number) " +
+                "VALUES (?, ?, 'DEBIT', ?, 1), (?, ?, 'CREDIT', ?, 2)", id, debit, amount, id, credit, amount);
+    }
+
+    /**
+     * "section code amount[/comparative]" for every line of a statement part.
+     */
+    private static List<String> lines(Object part) {
+        List<String> lines = new ArrayList<>();
+        for (Object section : (List<?>) map(part).get("sections")) {
+            Map<String, Object> entry = map(section);
+            for (Object line : (List<?>) entry.get("lines")) {
+                Map<String, Object> row = map(line);
+                lines.add(entry.get("label") + " " + row.get("code") + " " + row.get("amount")
+                        + (row.containsKey("comparative") ? "/" + row.get("comparative") : ""));
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> activities(Map<String, Object> cashFlow) {
+        List<String> activities = new ArrayList<>();
+        for (Object activity : (List<?>) cashFlow.get("activities")) {
+            activities.add(map(activity).get("label") + " " + map(activity).get("total"));
+        }
+        return activities;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static BigDecimal money(String value) {
+        return new BigDecimal(value).setScale(2);
+    }
+}
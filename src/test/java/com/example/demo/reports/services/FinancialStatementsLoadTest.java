@@ -0,0 +1,112 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.accounting.repositories.ChartOfAccountsRepo;
+import com.example.demo.accounting.services.LedgerBalanceService;
+import com.example.demo.support.Benchmark;
+import com.example.demo.support.PostgresJpaTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A full year of ledger activity - 2,000 journals a day, two lines each, about 1.5 million lines -
+ * with the posted-entry and line indexes the application creates at startup. Every full-year
+ * statement, comparatives included, has to come back in under a second.
+ */
+@Benchmark
+class FinancialStatementsLoadTest extends PostgresJpaTest {
+
+    private static final int JOURNALS_PER_DAY = 2_000;
+    private static final LocalDate YEAR_START = LocalDate.of(2025, 1, 1);
+    private static final LocalDate YEAR_END = LocalDate.of(2025, 12, 31);
+    private static final int RUNS = 5;
+
+    private static final String[][] ACCOUNTS = {
+            {"1010", "Cash", "ASSET", "CURRENT_ASSET"},
+            {"1020", "Bank", "ASSET", "CURRENT_ASSET"},
+            {"1200", "Loans to members", "ASSET", "CURRENT_ASSET"},
+            {"1500", "Equipment", "ASSET", "FIXED_ASSET"},
+            {"2010", "Member deposits", "LIABILITY", "CURRENT_LIABILITY"},
+            {"2500", "Borrowings", "LIABILITY", "LONG_TERM_LIABILITY"},
+            {"3010", "Share capital", "EQUITY", "CAPITAL"},
+            {"4010", "Interest income", "REVENUE", "OPERATING_REVENUE"},
+            {"4020", "Fees", "REVENUE", "OPERATING_REVENUE"},
+            {"5010", "Salaries", "EXPENSE", "ADMINISTRATIVE_EXPENSE"},
+            {"5020", "Interest expense", "EXPENSE", "FINANCIAL_EXPENSE"}};
+
+    @Autowired
+    private ChartOfAccountsRepo chartOfAccountsRepo;
+
+    private FinancialReportsService service;
+
+    @BeforeEach
+    void setUp() {
+        truncate("journal_entry_lines", "journal_entries", "account_period_balances", "accounting_periods", "chart_of_accounts");
+        for (String[] account : ACCOUNTS) {
+            jdbcTemplate.update("INSERT INTO chart_of_accounts (account_code, account_name, account_type, account_category, " +
+                    "is_active, is_system_account, created_at, updated_at) VALUES (?, ?, ?, ?, TRUE, FALSE, now(), now())",
+                    (Object[]) account);
+        }
+        int days = YEAR_END.getDayOfYear();
+        // every twentieth journal is left in draft
+        jdbcTemplate.update("INSERT INTO journal_entries (id, journal_number, transaction_date, description, reference, " +
+                "journal_type, status, total_debit, total_credit, is_balanced, created_at, updated_at) " +
+                "SELECT g, 'JE-' || g, DATE '2025-01-01' + (g % ?), 'load', 'REF-' || g, 'GENERAL', " +
+                "CASE WHEN g % 20 = 0 THEN 'DRAFT' ELSE 'POSTED' END, 100, 100, TRUE, now(), now() " +
+                "FROM generate_series(1, ?) g", days, days * JOURNALS_PER_DAY);
+        String codes = "ARRAY[" + String.join(",", Arrays.stream(ACCOUNTS).map(a -> "'" + a[0] + "'").toList()) + "]";
+        jdbcTemplate.update("INSERT INTO journal_entry_lines (journal_entry_id, account_code, type, amount, line_number) " +
+                "SELECT g, (" + codes + ")[1 + g % " + ACCOUNTS.length + "], 'DEBIT', 1 + g % 500, 1 " +
+                "FROM generate_series(1, ?) g " +
+                "UNION ALL SELECT g, (" + codes + ")[1 + (g * 7) % " + ACCOUNTS.length + "], 'CREDIT', 1 + g % 500, 2 " +
+                "FROM generate_series(1, ?) g", days * JOURNALS_PER_DAY, days * JOURNALS_PER_DAY);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_posted_date ON journal_entries (transaction_date, id) " +
+                "WHERE status IN ('POSTED', 'APPROVED', 'REVERSED')");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_line_entry ON journal_entry_lines " +
+                "(journal_entry_id, account_code, type, amount)");
+        jdbcTemplate.execute("ANALYZE journal_entries");
+        jdbcTemplate.execute("ANALYZE journal_entry_lines");
+
+        service = new FinancialReportsService(new LedgerBalanceService(jdbcTemplate), chartOfAccountsRepo);
+        ReflectionTestUtils.setField(service, "balanceSheetDefinition", FinancialReportsService.BALANCE_SHEET);
+        ReflectionTestUtils.setField(service, "incomeStatementDefinition", FinancialReportsService.INCOME_STATEMENT);
+        ReflectionTestUtils.setField(service, "cashFlowDefinition", FinancialReportsService.CASH_FLOW);
+        ReflectionTestUtils.setField(service, "cashAccounts", "1010,1020");
+        service.parseTemplates();
+    }
+
+    @Test
+    void fullYearStatementsComeBackInUnderASecond(TestReporter reporter) {
+        Map<String, Supplier<Map<String, Object>>> statements = new LinkedHashMap<>();
+        statements.put("balance sheet", () -> service.generateBalanceSheet(YEAR_END, YEAR_END.minusYears(1)));
+        statements.put("profit and loss", () -> service.generateProfitLossStatement(YEAR_START, YEAR_END,
+                YEAR_START.minusYears(1), YEAR_END.minusYears(1)));
+        statements.put("trial balance", () -> service.generateTrialBalance(YEAR_END));
+        statements.put("cash flow", () -> service.generateCashFlowStatement(YEAR_START, YEAR_END));
+
+        for (Map.Entry<String, Supplier<Map<String, Object>>> statement : statements.entrySet()) {
+            statement.getValue().get();
+            long[] millis = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                long started = System.nanoTime();
+                Map<String, Object> result = statement.getValue().get();
+                millis[run] = (System.nanoTime() - started) / 1_000_000;
+                assertThat(result).isNotEmpty();
+            }
+            Arrays.sort(millis);
+            reporter.publishEntry(statement.getKey() + " ms, median / max of " + RUNS, millis[RUNS / 2] + " / " + millis[RUNS - 1]);
+            assertThat(millis[RUNS / 2]).as(statement.getKey()).isLessThan(1_000L);
+        }
+        assertThat(service.generateTrialBalance(YEAR_END)).containsEntry("balanced", true);
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.reports.models.MemberStatement;
+import com.example.demo.support.Benchmark;
+import com.example.demo.system.services.JobCoordinator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Year-end run over 100,000 members through the real cursor assembly, render pool and PDF renderer,
+ * with the statement query served from memory. Set {@code -Dstatements.benchmark.members} to resize.
+ * The heap stays within a fixed budget whatever the membership, since only the statements queued
+ * for the render pool are held at once.
+ */
+@Benchmark
+class MemberStatementBulkBenchmarkTest {
+
+    private static final int POSTINGS_PER_MEMBER = 3;
+    private static final long HEAP_BUDGET_MB = 512;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rendersYearEndStatementsForWholeMembership(TestReporter reporter) throws Exception {
+        int members = Integer.getInteger("statements.benchmark.members", 100_000);
+        int year = Year.now().getValue() - 1;
+        AtomicInteger loanQueries = new AtomicInteger();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(statementRows(members, year)) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                loanQueries.incrementAndGet();
+                return (List<T>) List.of(new MemberStatement.Loan("LN" + args[0], new BigDecimal("10000"),
+                        new BigDecimal("2500"), "ACTIVE", LocalDateTime.of(year, 3, 1, 0, 0), LocalDateTime.of(year + 1, 3, 1, 0, 0)));
+            }
+        };
+        JobCoordinator jobCoordinator = mock(JobCoordinator.class);
+        when(jobCoordinator.runExclusive(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+        MemberStatementService service = new MemberStatementService(jdbcTemplate, mock(PlatformTransactionManager.class),
+                jobCoordinator, new StatementPdfRenderer("Test SACCO", ""), 4, 64, 1000, directory.toString());
+        try {
+            MemberStatementService.StatementRun run = service.startRun(year, "benchmark");
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(30);
+            while (System.nanoTime() < deadline && !finished(run)) {
+                Thread.sleep(200);
+            }
+
+            Map<String, Object> summary = run.describe();
+            reporter.publishEntry("documents / pages", summary.get("documents") + " / " + summary.get("pages"));
+            reporter.publishEntry("elapsed s", String.valueOf(summary.get("elapsedSeconds")));
+            reporter.publishEntry("documents per s", String.valueOf(summary.get("documentsPerSecond")));
+            reporter.publishEntry("peak heap MB", String.valueOf(summary.get("peakHeapMb")));
+            assertThat(summary.get("status")).isEqualTo(MemberStatementService.RunStatus.COMPLETED);
+            assertThat(summary.get("members")).isEqualTo((long) members);
+            assertThat(summary.get("documents")).isEqualTo((long) members);
+            assertThat(summary.get("failures")).isEqualTo(0L);
+            assertThat(loanQueries).hasValue(members);
+            assertThat((Long) summary.get("peakHeapMb")).isPositive().isLessThan(HEAP_BUDGET_MB);
+            Path sample = service.artifact(year, (long) (members / 2 + 1)).orElseThrow();
+            byte[] header = new byte[4];
+            try (var in = Files.newInputStream(sample)) {
+                assertThat(in.read(header)).isEqualTo(4);
+            }
+            assertThat(new String(header)).isEqualTo("%PDF");
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static boolean finished(MemberStatementService.StatementRun run) {
+        Object status = run.describe().get("status");
+        return status == MemberStatementService.RunStatus.COMPLETED || status == MemberStatementService.RunStatus.FAILED;
+    }
+
+    /**
+     * A data source whose every query returns the statement rows of {@code members} members, each
+     * with one savings account and a few postings, in member order.
+     */
+    private static DataSource statementRows(int members, int year) {
+        ResultSet resultSet = fake(ResultSet.class, new StatementRows(members * POSTINGS_PER_MEMBER, year));
+        PreparedStatement statement = fake(PreparedStatement.class, (method, args) ->
+                "executeQuery".equals(method) ? resultSet : null);
+        Connection connection = fake(Connection.class, (method, args) ->
+                "prepareStatement".equals(method) ? statement : null);
+        return fake(DataSource.class, (method, args) -> "getConnection".equals(method) ? connection : null);
+    }
+
+    /**
+     * Cursor over generated rows; read by the single thread assembling the run.
+     */
+    private static final class StatementRows implements Handler {
+        private final int rows;
+        private final int year;
+        private int row = -1;
+
+        private StatementRows(int rows, int year) {
+            this.rows = rows;
+            this.year = year;
+        }
+
+        @Override
+        public Object invoke(String method, Object[] args) {
+            int member = row / POSTINGS_PER_MEMBER + 1;
+            int posting = row % POSTINGS_PER_MEMBER;
+            switch (method) {
+                case "next":
+                    return ++row < rows;
+                case "wasNull":
+                    return false;
+                case "getLong":
+                    return switch ((String) args[0]) {
+                        case "customer_id", "account_id" -> (long) member;
+                        case "txn_id" -> (long) row + 1;
+                        default -> 0L;
+                    };
+                case "getString":
+                    return switch ((String) args[0]) {
+                        case "member_name" -> "Member " + member;
+                        case "phone_number" -> "2547" + String.format("%08d", member);
+                        case "branch_code" -> "HQ";
+                        case "account_number" -> "SA" + member;
+                        case "product_name" -> "Ordinary Savings";
+                        case "transaction_ref" -> "TX" + row;
+                        case "transaction_type" -> posting == 2 ? "WITHDRAWAL" : "DEPOSIT";
+                        case "description" -> "Posting " + (posting + 1);
+                        default -> null;
+                    };
+                case "getBigDecimal":
+                    return switch ((String) args[0]) {
+                        case "opening_balance" -> new BigDecimal("1000.00");
+                        case "closing_balance" -> new BigDecimal("1500.00");
+                        case "delta" -> posting == 2 ? new BigDecimal("-500.00") : new BigDecimal("500.00");
+                        default -> null;
+                    };
+                case "getTimestamp":
+                    return Timestamp.valueOf(LocalDateTime.of(year, 1 + posting * 4, 15, 10, 0));
+                default:
+                    return null;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    private static <T> T fake(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "fake " + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Object result = handler.invoke(method.getName(), args);
+                    return result != null ? result : defaultValue(method.getReturnType());
+            }
+        }));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        return null;
+    }
+}
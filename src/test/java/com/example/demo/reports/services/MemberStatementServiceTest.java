@@ -0,0 +1,110 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.reports.models.MemberStatement;
+import com.example.demo.savingsManagement.persistence.entities.SavingsAccount;
+import com.example.demo.savingsManagement.persistence.entities.SavingsTransaction;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsAccountRepository;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsTransactionRepository;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.services.JobCoordinator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * A single member's statement over real savings rows: opening and closing balances taken back from
+ * today's balance through that member's own postings, unaffected by other members' accounts.
+ */
+class MemberStatementServiceTest extends PostgresJpaTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 12, 31);
+
+    @Autowired
+    private SavingsAccountRepository accountRepository;
+    @Autowired
+    private SavingsTransactionRepository transactionRepository;
+
+    @TempDir
+    Path directory;
+
+    private MemberStatementService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        truncate("savings_transactions", "savings_accounts", "loan_account", "customer");
+        service = new MemberStatementService(jdbcTemplate, transactionManager, mock(JobCoordinator.class),
+                new StatementPdfRenderer("Test SACCO", ""), 1, 1, 100, directory.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void balancesAreTakenBackThroughTheMembersOwnPostings() {
+        Long member = customer("254700000001", "Jane");
+        Long account = account(member, "1000.00");
+        post(account, "DEPOSIT", "100.00", LocalDateTime.of(2024, 12, 10, 9, 0));
+        post(account, "DEPOSIT", "200.00", LocalDateTime.of(2025, 3, 1, 9, 0));
+        post(account, "WITHDRAWAL", "50.00", LocalDateTime.of(2025, 7, 1, 9, 0));
+        post(account, "DEPOSIT", "300.00", LocalDateTime.of(2026, 2, 1, 9, 0));
+        Long other = account(customer("254700000002", "John"), "5000.00");
+        post(other, "DEPOSIT", "999.00", LocalDateTime.of(2025, 5, 1, 9, 0));
+
+        MemberStatement statement = service.load(member, FROM, TO).orElseThrow();
+
+        assertThat(statement.getMemberName()).isEqualTo("Jane Member");
+        assertThat(statement.getAccounts()).hasSize(1);
+        MemberStatement.Account savings = statement.getAccounts().get(0);
+        assertThat(savings.getOpeningBalance()).isEqualByComparingTo("550.00");
+        assertThat(savings.getClosingBalance()).isEqualByComparingTo("700.00");
+        assertThat(savings.getLines()).extracting(MemberStatement.Line::getBalance)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("750.00"), new BigDecimal("700.00"));
+    }
+
+    @Test
+    void memberWithoutAccountsOrLoansHasNoStatement() {
+        Long member = customer("254700000003", "Mary");
+        account(customer("254700000004", "Peter"), "10.00");
+
+        assertThat(service.load(member, FROM, TO)).isEmpty();
+    }
+
+    private Long customer(String phoneNumber, String firstName) {
+        return jdbcTemplate.queryForObject("INSERT INTO customer (phone_number, first_name, last_name, branch_code) " +
+                "VALUES (?, ?, 'Member', 'HQ') RETURNING id", Long.class, phoneNumber, firstName);
+    }
+
+    private Long account(Long customerId, String balance) {
+        SavingsAccount account = new SavingsAccount();
+        account.setCustomerId(customerId);
+        account.setAccountNumber("SA-" + customerId);
+        account.setBalance(new BigDecimal(balance));
+        account.setAvailableBalance(new BigDecimal(balance));
+        account.setOpenedDate(LocalDateTime.of(2024, 6, 1, 9, 0));
+        return accountRepository.save(account).getId();
+    }
+
+    private void post(Long accountId, String type, String amount, LocalDateTime date) {
+        SavingsTransaction transaction = new SavingsTransaction();
+        transaction.setSavingsAccountId(accountId);
+        transaction.setTransactionRef("T" + accountId + "-" + date);
+        transaction.setTransactionType(type);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setTransactionDate(date);
+        transactionRepository.save(transaction);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.reports.models.ReportType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReportJobServiceTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private ReportGenerationService reportGenerationService;
+    @Mock
+    private ExcelExportService excelExportService;
+    @Mock
+    private FinancialReportsService financialReportsService;
+
+    @TempDir
+    Path directory;
+
+    private final AtomicReference<String> watermark = new AtomicReference<>("100:40:2026-09-30 10:00:00");
+    private ReportJobService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenAnswer(invocation -> watermark.get());
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write("portfolio".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(excelExportService).writeLoanPortfolio(any(), any(), any(), any(OutputStream.class));
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("sasra".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(excelExportService).writeSASRAReport(any(), any(OutputStream.class));
+        service = new ReportJobService(jdbcTemplate, reportGenerationService, excelExportService, financialReportsService,
+                new ObjectMapper(), 2, 10, directory.toString(), 60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void unchangedDataIsServedFromArtifactWithoutRendering() throws Exception {
+        ReportJobService.ReportJob first = ready(portfolio());
+        ReportJobService.ReportJob second = ready(portfolio());
+
+        assertThat(second.describe().get("cached")).isEqualTo(true);
+        assertThat(second.getFile()).isEqualTo(first.getFile());
+        verify(excelExportService, times(1)).writeLoanPortfolio(any(), any(), any(), any(OutputStream.class));
+    }
+
+    @Test
+    void loanStatusChangeRendersAgain() throws Exception {
+        ReportJobService.ReportJob first = ready(portfolio());
+        //same transactions and accounts: only a status change touched an account
+        watermark.set("100:40:2026-09-30 10:05:00");
+        ReportJobService.ReportJob second = ready(portfolio());
+
+        assertThat(second.describe().get("cached")).isEqualTo(false);
+        assertThat(second.getFile()).isNotEqualTo(first.getFile());
+        verify(excelExportService, times(2)).writeLoanPortfolio(any(), any(), any(), any(OutputStream.class));
+    }
+
+    @Test
+    void watermarksAreMaximaOverLoanAndSavingsTables() throws Exception {
+        ready(service.submit(ReportType.SASRA_MONTHLY_RETURNS, Map.of("reportDate", "2026-09-30")));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).queryForObject(sql.capture(), eq(String.class));
+        assertThat(sql.getValue())
+                .contains("MAX(transaction_id), 0) FROM loan_transactions")
+                .contains("MAX(updated_at)::text, '') FROM loan_account")
+                .contains("MAX(id), 0) FROM savings_transactions")
+                .contains("MAX(updated_at)::text, '') FROM savings_accounts")
+                // nothing that scans the tables on every submit
+                .doesNotContain("GROUP BY")
+                .doesNotContain("SUM(")
+                .doesNotContain("COUNT(");
+    }
+
+    @Test
+    void agingReportsAreKeyedByToday() throws Exception {
+        Map<String, LocalDate> params = new TreeMap<>(Map.of("reportDate", LocalDate.parse("2026-09-30")));
+        String today = ReportJobService.cacheKey(ReportType.SASRA_MONTHLY_RETURNS, params, "w", LocalDate.now());
+        String tomorrow = ReportJobService.cacheKey(ReportType.SASRA_MONTHLY_RETURNS, params, "w", LocalDate.now().plusDays(1));
+        assertThat(today).isNotEqualTo(tomorrow);
+
+        ReportJobService.ReportJob job = ready(service.submit(ReportType.SASRA_MONTHLY_RETURNS, Map.of("reportDate", "2026-09-30")));
+        assertThat(job.getFile().getFileName().toString()).startsWith(
+                ReportJobService.cacheKey(ReportType.SASRA_MONTHLY_RETURNS, params, watermark.get(), LocalDate.now()));
+    }
+
+    @Test
+    void ledgerReportsAreNotKeyedByToday() throws Exception {
+        Map<String, LocalDate> params = new TreeMap<>(Map.of("asOfDate", LocalDate.parse("2026-09-30")));
+
+        ReportJobService.ReportJob job = ready(service.submit(ReportType.BALANCE_SHEET, Map.of("asOfDate", "2026-09-30")));
+
+        assertThat(job.getFile().getFileName().toString()).startsWith(
+                ReportJobService.cacheKey(ReportType.BALANCE_SHEET, params, watermark.get(), null));
+    }
+
+    @Test
+    void cacheHitDoesNotExtendArtifactLifetime() throws Exception {
+        Path file = ready(portfolio()).getFile();
+        FileTime renderedAt = FileTime.from(Instant.now().minus(30, ChronoUnit.MINUTES));
+        Files.setLastModifiedTime(file, renderedAt);
+
+        ReportJobService.ReportJob hit = ready(portfolio());
+
+        assertThat(hit.describe().get("cached")).isEqualTo(true);
+        assertThat(Files.getLastModifiedTime(file)).isEqualTo(renderedAt);
+    }
+
+    @Test
+    void artifactPastItsLifetimeIsRenderedAgain() throws Exception {
+        Path file = ready(portfolio()).getFile();
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(61, ChronoUnit.MINUTES)));
+
+        ReportJobService.ReportJob job = ready(portfolio());
+
+        assertThat(job.describe().get("cached")).isEqualTo(false);
+        assertThat(Files.getLastModifiedTime(file).toInstant()).isAfter(Instant.now().minus(1, ChronoUnit.MINUTES));
+        verify(excelExportService, times(2)).writeLoanPortfolio(any(), any(), any(), any(OutputStream.class));
+    }
+
+    private ReportJobService.ReportJob portfolio() {
+        return service.submit(ReportType.LOAN_PORTFOLIO, Map.of("startDate", "2026-01-01", "endDate", "2026-09-30"));
+    }
+
+    private ReportJobService.ReportJob ready(ReportJobService.ReportJob job) {
+        assertThat(service.await(job, WAIT)).isEqualTo(ReportJobService.JobStatus.READY);
+        return job;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.reports.models.MemberStatement;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementPdfRendererTest {
+
+    @Test
+    void loansAreLabelledAsCurrentPositionNotPeriodEnd() throws Exception {
+        MemberStatement statement = new MemberStatement();
+        statement.setCustomerId(42L);
+        statement.setMemberName("Jane Member");
+        statement.setFromDate(LocalDate.of(2025, 1, 1));
+        statement.setToDate(LocalDate.of(2025, 12, 31));
+        statement.setAccounts(new ArrayList<>());
+        statement.setLoans(List.of(new MemberStatement.Loan("LN42", new BigDecimal("10000"), new BigDecimal("2500"),
+                "ACTIVE", LocalDateTime.of(2025, 3, 1, 0, 0), LocalDateTime.of(2026, 3, 1, 0, 0))));
+        statement.setLoansAsOf(LocalDateTime.of(2026, 10, 19, 9, 30));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int pages = new StatementPdfRenderer("Test SACCO", "").render(statement, out);
+
+        assertThat(pages).isEqualTo(1);
+        String text = PdfTextExtractor.getTextFromPage(new PdfReader(out.toByteArray()), 1);
+        assertThat(text)
+                .contains("Loans - current position as at 19 Oct 2026")
+                .contains("not at the end of the statement period")
+                .contains("Current balance")
+                .contains("Current status")
+                .contains("Period: 01 Jan 2025 to 31 Dec 2025");
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.demo.reports.services;
+
+import com.example.demo.banking.parsitence.enitities.BankAccounts;
+import com.example.demo.banking.parsitence.enitities.Transactions;
+import com.example.demo.banking.parsitence.repositories.BankAccountRepo;
+import com.example.demo.banking.parsitence.repositories.PaymentTransactionRepo;
+import com.example.demo.mobile.dto.TransactionDto;
+import com.example.demo.reports.models.StatementPage;
+import com.example.demo.savingsManagement.persistence.entities.SavingsAccount;
+import com.example.demo.savingsManagement.persistence.entities.SavingsTransaction;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsAccountRepository;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsTransactionRepository;
+import com.example.demo.support.PostgresJpaTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Keyset statement pages over real ledger rows: running balances chained across pages, signed
+ * cursors, the end-date anchor and postings without a timestamp.
+ */
+class StatementQueryServiceTest extends PostgresJpaTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 9, 0);
+    private static final BigDecimal OPENING = new BigDecimal("500.00");
+
+    @Autowired
+    private SavingsAccountRepository accountRepository;
+    @Autowired
+    private SavingsTransactionRepository transactionRepository;
+    @Autowired
+    private BankAccountRepo bankAccountRepo;
+    @Autowired
+    private PaymentTransactionRepo paymentTransactionRepo;
+
+    private StatementQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        truncate("savings_transactions", "savings_accounts", "transactions", "bank_accounts");
+        service = new StatementQueryService(jdbcTemplate);
+        ReflectionTestUtils.setField(service, "cursorSecret", "test-secret");
+    }
+
+    @Test
+    void pagesChainTheRunningBalanceBackToTheOpeningBalance() {
+        Long id = account();
+        List<String> posted = post(id, 25);
+
+        List<TransactionDto> all = new ArrayList<>();
+        BigDecimal expectedClosing = balance(id);
+        String cursor = null;
+        int pages = 0;
+        do {
+            StatementPage page = service.getStatement(StatementQueryService.SAVINGS, id, null, null, cursor, 10);
+            assertThat(page.getClosingBalance()).isEqualByComparingTo(expectedClosing);
+            expectedClosing = page.getOpeningBalance();
+            all.addAll(page.getTransactions());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(expectedClosing).isEqualByComparingTo(OPENING);
+        Collections.reverse(posted);
+        assertThat(all).extracting(TransactionDto::getReference).containsExactlyElementsOf(posted);
+        for (TransactionDto row : all) {
+            SavingsTransaction stored = transactionRepository.findById(Long.valueOf(row.getTransactionId())).orElseThrow();
+            assertThat(row.getBalanceAfter()).isEqualByComparingTo(stored.getBalanceAfter());
+            assertThat(row.getBalanceBefore()).isEqualByComparingTo(stored.getBalanceBefore());
+        }
+    }
+
+    @Test
+    void alteredOrForeignCursorsAreRejected() {
+        Long id = account();
+        Long other = account();
+        post(id, 5);
+        String cursor = service.getStatement(StatementQueryService.SAVINGS, id, null, null, null, 2).getNextCursor();
+        String[] token = cursor.split("\\.");
+        String raw = new String(Base64.getUrlDecoder().decode(token[0]), StandardCharsets.UTF_8);
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.replaceAll("\\|[^|]+$", "|1000000.00").getBytes(StandardCharsets.UTF_8)) + "." + token[1];
+
+        assertThatThrownBy(() -> service.getStatement(StatementQueryService.SAVINGS, id, null, null, forged, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.getStatement(StatementQueryService.SAVINGS, other, null, null, cursor, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.getStatement(StatementQueryService.SAVINGS, id, START.toLocalDate(), null, cursor, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.getStatement(StatementQueryService.SAVINGS, id, null, null, "not-a-cursor", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.getStatement(StatementQueryService.SAVINGS, id, null, null, cursor, 2).getTransactions()).hasSize(2);
+    }
+
+    @Test
+    void endDateAnchorsOnTheBalanceAtTheEndOfThatDay() {
+        Long id = account();
+        post(id, 10);
+        LocalDate endDate = START.plusDays(4).toLocalDate();
+        BigDecimal atEndOfDay = transactionRepository.findAll().stream()
+                .filter(t -> t.getTransactionDate().toLocalDate().equals(endDate))
+                .map(SavingsTransaction::getBalanceAfter).findFirst().orElseThrow();
+
+        StatementPage stored = service.getStatement(StatementQueryService.SAVINGS, id, null, endDate, null, 3);
+        // The last posting of the day is pending and carries no balance: the anchor is recomputed from the later postings
+        jdbcTemplate.update("INSERT INTO savings_transactions (savings_account_id, transaction_ref, transaction_type, amount, " +
+                "transaction_date, value_date, status, created_at) VALUES (?, 'PENDING-1', 'DEPOSIT', 40, ?, ?, 'PENDING', ?)",
+                id, endDate.atTime(23, 0), endDate.atTime(23, 0), endDate.atTime(23, 0));
+        StatementPage recomputed = service.getStatement(StatementQueryService.SAVINGS, id, null, endDate, null, 3);
+
+        assertThat(stored.getClosingBalance()).isEqualByComparingTo(atEndOfDay);
+        assertThat(stored.getTransactions().get(0).getBalanceAfter()).isEqualByComparingTo(atEndOfDay);
+        assertThat(recomputed.getClosingBalance()).isEqualByComparingTo(atEndOfDay);
+        assertThat(recomputed.getTransactions().get(0).getReference()).isEqualTo("PENDING-1");
+    }
+
+    @Test
+    void postingsWithoutATimestampAreLeftOut() {
+        BankAccounts account = new BankAccounts();
+        account.setBankAccount("ALPHA1");
+        account.setAccountType("ALPHA");
+        account.setAccountBalance(300.0);
+        account.setCreatedAt(START);
+        account = bankAccountRepo.save(account);
+        paymentTransactionRepo.save(new Transactions(null, "DEPOSIT", "P1", 100.0, 0.0, 100.0, START, account));
+        paymentTransactionRepo.save(new Transactions(null, "DEPOSIT", "P2", 50.0, 100.0, 150.0, null, account));
+        paymentTransactionRepo.save(new Transactions(null, "DEPOSIT", "P3", 150.0, 150.0, 300.0, START.plusHours(1), account));
+
+        StatementPage page = service.getStatement(StatementQueryService.PAYMENT, account.getId(), null, null, null, 1);
+        StatementPage next = service.getStatement(StatementQueryService.PAYMENT, account.getId(), null, null,
+                page.getNextCursor(), 1);
+
+        assertThat(page.getTransactions()).extracting(TransactionDto::getReference).containsExactly("P3");
+        assertThat(next.getTransactions()).extracting(TransactionDto::getReference).containsExactly("P1");
+        assertThat(next.isHasMore()).isFalse();
+    }
+
+    /**
+     * Posts {@code count} alternating deposits and withdrawals, one per day, and returns their references.
+     */
+    private List<String> post(Long accountId, int count) {
+        List<String> references = new ArrayList<>();
+        BigDecimal balance = balance(accountId);
+        for (int i = 0; i < count; i++) {
+            boolean deposit = i % 3 != 2;
+            BigDecimal amount = BigDecimal.valueOf(10 + i);
+            BigDecimal after = deposit ? balance.add(amount) : balance.subtract(amount);
+            SavingsTransaction transaction = new SavingsTransaction();
+            transaction.setSavingsAccountId(accountId);
+            transaction.setTransactionRef("T" + accountId + "-" + i);
+            transaction.setTransactionType(deposit ? "DEPOSIT" : "WITHDRAWAL");
+            transaction.setAmount(amount);
+            transaction.setBalanceBefore(balance);
+            transaction.setBalanceAfter(after);
+            transaction.setTransactionDate(START.plusDays(i));
+            transactionRepository.save(transaction);
+            references.add(transaction.getTransactionRef());
+            balance = after;
+        }
+        jdbcTemplate.update("UPDATE savings_accounts SET balance = ? WHERE id = ?", balance, accountId);
+        return references;
+    }
+
+    private BigDecimal balance(Long accountId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM savings_accounts WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    private Long account() {
+        SavingsAccount account = new SavingsAccount();
+        account.setCustomerId(1L);
+        account.setAccountNumber("SA-" + System.nanoTime());
+        account.setBalance(OPENING);
+        account.setAvailableBalance(OPENING);
+        return accountRepository.save(account).getId();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.demo.savingsManagement.services;
+
+import com.example.demo.accounting.entities.JournalEntry;
+import com.example.demo.accounting.repositories.JournalEntryRepo;
+import com.example.demo.accounting.services.AccountingService;
+import com.example.demo.savingsManagement.persistence.entities.SavingsAccount;
+import com.example.demo.savingsManagement.persistence.entities.SavingsInterestTier;
+import com.example.demo.savingsManagement.persistence.entities.SavingsProduct;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsAccountRepository;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsInterestAccrualRepository;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsInterestTierRepository;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsProductRepository;
+import com.example.demo.support.LocalJobCoordinator;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.parsitence.repositories.BatchCheckpointRepo;
+import com.example.demo.system.services.ChunkedBatchRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SavingsInterestServiceTest extends PostgresJpaTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2026, 1, 1);
+    private static final LocalDate FEB_1 = LocalDate.of(2026, 2, 1);
+    private static final LocalDate MAR_1 = LocalDate.of(2026, 3, 1);
+
+    @Autowired
+    private SavingsAccountRepository accountRepository;
+    @Autowired
+    private SavingsProductRepository productRepository;
+    @Autowired
+    private SavingsInterestTierRepository tierRepository;
+    @Autowired
+    private SavingsInterestAccrualRepository accrualRepository;
+    @Autowired
+    private BatchCheckpointRepo checkpointRepo;
+    @Autowired
+    private JournalEntryRepo journalEntryRepo;
+
+    private final AccountingService accountingService = mock(AccountingService.class);
+    private SavingsInterestService service;
+
+    @BeforeEach
+    void setUp() {
+        truncate("savings_interest_accruals", "savings_transactions", "savings_accounts", "savings_interest_tiers",
+                "savings_products", "batch_checkpoints");
+        when(accountingService.createJournalEntry(any(), anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        ChunkedBatchRunner batchRunner = new ChunkedBatchRunner(checkpointRepo, jdbcTemplate, transactionManager,
+                LocalJobCoordinator.create(jdbcTemplate, transactionManager), 2);
+        service = new SavingsInterestService(batchRunner, jdbcTemplate, accountingService, journalEntryRepo);
+        ReflectionTestUtils.setField(service, "partitions", 2);
+        ReflectionTestUtils.setField(service, "chunkSize", 10);
+        product("REG", "3.65");
+    }
+
+    @Test
+    void capitalizationCreditsWholeCentsAndCarriesTheRemainder() {
+        Long id = account("1234.56");
+        accrueMonth(JAN_1);
+
+        service.capitalize(FEB_1);
+
+        // 31 days of ROUND(1234.56 * 3.65 / 36500, 4) = 31 * 0.1235 = 3.8285
+        assertThat(balance(id)).isEqualByComparingTo("1238.38");
+        assertThat(interestCredits(id)).isEqualByComparingTo("3.82");
+        assertThat(accrualRepository.sumUncapitalized(id)).isEqualByComparingTo("0.0085");
+        ArgumentCaptor<JournalEntry> journal = ArgumentCaptor.forClass(JournalEntry.class);
+        verify(accountingService).createJournalEntry(journal.capture(), eq("SYSTEM"));
+        assertThat(journal.getValue().getLines()).allSatisfy(line -> assertThat(line.getAmount()).isEqualTo(3.82));
+    }
+
+    @Test
+    void carriedRemainderIsCreditedByTheNextCapitalization() {
+        Long id = account("1234.56");
+        accrueMonth(JAN_1);
+        service.capitalize(FEB_1);
+        accrueMonth(FEB_1);
+
+        service.capitalize(MAR_1);
+
+        BigDecimal accrued = jdbcTemplate.queryForObject(
+                "SELECT SUM(amount) FROM savings_interest_accruals WHERE savings_account_id = ? AND carried_forward = FALSE",
+                BigDecimal.class, id);
+        BigDecimal open = accrualRepository.sumUncapitalized(id);
+        assertThat(interestCredits(id).add(open)).isEqualByComparingTo(accrued);
+        assertThat(open).isLessThan(new BigDecimal("0.01"));
+        assertThat(balance(id)).isEqualByComparingTo(new BigDecimal("1234.56").add(interestCredits(id)));
+    }
+
+    @Test
+    void interestBelowOneCentIsCarriedNotDropped() {
+        Long id = account("1.00");
+        accrueMonth(JAN_1);
+
+        service.capitalize(FEB_1);
+
+        assertThat(balance(id)).isEqualByComparingTo("1.00");
+        assertThat(interestCredits(id)).isEqualByComparingTo("0");
+        // 31 days of 0.0001
+        assertThat(accrualRepository.sumUncapitalized(id)).isEqualByComparingTo("0.0031");
+        verify(accountingService, never()).createJournalEntry(any(), anyString());
+    }
+
+    @Test
+    void capitalizingTheSameDateTwiceCreditsOnce() {
+        Long id = account("1234.56");
+        accrueMonth(JAN_1);
+
+        service.capitalize(FEB_1);
+        service.capitalize(FEB_1);
+
+        assertThat(balance(id)).isEqualByComparingTo("1238.38");
+        assertThat(accrualRepository.sumUncapitalized(id)).isEqualByComparingTo("0.0085");
+    }
+
+    @Test
+    void accruingTheSameDateTwiceStoresOneAccrual() {
+        Long id = account("1234.56");
+
+        service.accrue(JAN_1);
+        service.accrue(JAN_1);
+
+        assertThat(accrualRepository.findBySavingsAccountIdAndCapitalizedFalseOrderByAccrualDate(id)).hasSize(1);
+    }
+
+    @Test
+    void balanceTierOverridesTheProductRate() {
+        tier("REG", "0", "1000", "1.00");
+        tier("REG", "1000", null, "7.30");
+        Long low = account("500.00");
+        Long high = account("5000.00");
+
+        service.accrue(JAN_1);
+
+        assertThat(accrualRepository.sumUncapitalized(low)).isEqualByComparingTo("0.0137");
+        assertThat(accrualRepository.sumUncapitalized(high)).isEqualByComparingTo("1.0000");
+    }
+
+    private void accrueMonth(LocalDate first) {
+        for (LocalDate day = first; day.getMonth() == first.getMonth(); day = day.plusDays(1)) {
+            service.accrue(day);
+        }
+    }
+
+    private BigDecimal balance(Long id) {
+        return accountRepository.findById(id).orElseThrow().getBalance();
+    }
+
+    private BigDecimal interestCredits(Long id) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(amount), 0) FROM savings_transactions " +
+                "WHERE savings_account_id = ? AND transaction_type = 'INTEREST_CREDIT'", BigDecimal.class, id);
+    }
+
+    private void product(String code, String rate) {
+        SavingsProduct product = new SavingsProduct();
+        product.setCode(code);
+        product.setName(code + " savings");
+        product.setInterestRate(new BigDecimal(rate));
+        product.setInterestPostingFrequency("MONTHLY");
+        productRepository.save(product);
+    }
+
+    private void tier(String productCode, String min, String max, String rate) {
+        SavingsInterestTier tier = new SavingsInterestTier();
+        tier.setProductCode(productCode);
+        tier.setMinBalance(new BigDecimal(min));
+        tier.setMaxBalance(max != null ? new BigDecimal(max) : null);
+        tier.setInterestRate(new BigDecimal(rate));
+        tierRepository.save(tier);
+    }
+
+    private Long account(String balance) {
+        SavingsAccount account = new SavingsAccount();
+        account.setCustomerId(1L);
+        account.setAccountNumber("SA-" + System.nanoTime());
+        account.setProductCode("REG");
+        account.setProductName("REG savings");
+        account.setBalance(new BigDecimal(balance));
+        account.setAvailableBalance(new BigDecimal(balance));
+        return accountRepository.save(account).getId();
+    }
+}
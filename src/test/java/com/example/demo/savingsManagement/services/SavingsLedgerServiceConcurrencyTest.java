@@ -0,0 +1,201 @@
+package com.example.demo.savingsManagement.services;
+
+import com.example.demo.mobile.services.ChannelReadModelService;
+import com.example.demo.savingsManagement.persistence.entities.SavingsAccount;
+import com.example.demo.savingsManagement.persistence.entities.SavingsProduct;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsAccountRepository;
+import com.example.demo.savingsManagement.persistence.repositories.SavingsProductRepository;
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.system.services.ChunkedBatchRunner;
+import com.example.demo.system.services.JobCoordinator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Postings, the monthly withdrawal limit, status changes and checkpoints running against the
+ * real ledger SQL from many threads at once.
+ */
+@Import({SavingsAccountService.class, SavingsLedgerService.class, ChunkedBatchRunner.class, ChannelReadModelService.class,
+        JobCoordinator.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(properties = {"savings.checkpoint.chunk-size=5", "jobs.coordination.enabled=false"})
+class SavingsLedgerServiceConcurrencyTest extends PostgresJpaTest {
+
+    private static final int THREADS = 16;
+    private static final int ACCOUNTS = 20;
+    private static final int POSTINGS = 4_000;
+    private static final int CHECKPOINT_EVERY = 500;
+    private static final BigDecimal OPENING = new BigDecimal("1000.00");
+    private static final BigDecimal MINIMUM = new BigDecimal("100.00");
+    private static final BigDecimal FEE = new BigDecimal("5.00");
+    private static final LocalDate DAY_ONE = LocalDate.of(2026, 1, 1);
+
+    @MockBean
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private SavingsAccountService accountService;
+    @Autowired
+    private SavingsLedgerService ledgerService;
+    @Autowired
+    private SavingsAccountRepository accountRepository;
+    @Autowired
+    private SavingsProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        truncate("savings_balance_checkpoints", "savings_transactions", "savings_accounts", "savings_products",
+                "batch_checkpoints", "channel_account_view");
+    }
+
+    @Test
+    void concurrentPostingsKeepBalancesEqualToTheLedger(TestReporter reporter) throws Exception {
+        product("REG", null);
+        List<Long> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(account("REG"));
+        }
+        Map<Long, BigDecimal> moved = new ConcurrentHashMap<>();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(THREADS, POSTINGS, i -> {
+            Long id = accounts.get(i % ACCOUNTS);
+            BigDecimal amount = BigDecimal.valueOf(1 + (i * 37L) % 200);
+            if (i % CHECKPOINT_EVERY == 0) {
+                ledgerService.checkpoint(DAY_ONE.plusDays(i / CHECKPOINT_EVERY));
+            }
+            if (i % 2 == 0) {
+                accountService.deposit(id, amount, "CASH", null, "load", "test");
+                moved.merge(id, amount, BigDecimal::add);
+                return;
+            }
+            try {
+                accountService.withdraw(id, amount, "CASH", "load", "test");
+                moved.merge(id, amount.add(FEE).negate(), BigDecimal::add);
+            } catch (RuntimeException e) {
+                assertThat(e).hasMessageStartingWith("Insufficient balance");
+                rejected.incrementAndGet();
+            }
+        });
+
+        reporter.publishEntry("postings per second", String.valueOf(Math.round(result.throughputPerSecond())));
+        reporter.publishEntry("p99 ms", String.valueOf(result.percentileMillis(99)));
+        reporter.publishEntry("rejected withdrawals", String.valueOf(rejected.get()));
+        assertThat(result.failures()).isEmpty();
+        for (Long id : accounts) {
+            BigDecimal balance = balance(id);
+            assertThat(balance).as("account %d", id)
+                    .isEqualByComparingTo(OPENING.add(moved.getOrDefault(id, BigDecimal.ZERO)))
+                    .isGreaterThanOrEqualTo(MINIMUM);
+        }
+        assertThat(ledgerService.reconcile()).isEmpty();
+        assertThat(inconsistentCheckpoints()).isZero();
+    }
+
+    @Test
+    void checkpointTakenAfterTheLoadReconcilesEveryAccount() throws Exception {
+        product("REG", null);
+        Long id = account("REG");
+        ConcurrentLoad.Result result = ConcurrentLoad.run(THREADS, 200,
+                i -> accountService.deposit(id, BigDecimal.ONE, "CASH", null, "load", "test"));
+        assertThat(result.failures()).isEmpty();
+
+        assertThat(ledgerService.checkpoint(DAY_ONE)).isEqualTo(1);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT balance FROM savings_balance_checkpoints WHERE savings_account_id = ?",
+                BigDecimal.class, id)).isEqualByComparingTo("1200.00");
+        assertThat(ledgerService.reconcile()).isEmpty();
+    }
+
+    @Test
+    void monthlyWithdrawalLimitHoldsUnderConcurrentWithdrawals() throws Exception {
+        product("LTD", 5);
+        Long id = account("LTD");
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(THREADS, 40,
+                i -> accountService.withdraw(id, BigDecimal.TEN, "CASH", "limit", "test"));
+
+        assertThat(result.failures()).hasSize(35)
+                .allSatisfy(e -> assertThat(e).hasMessage("Maximum withdrawals per month exceeded"));
+        assertThat(balance(id)).isEqualByComparingTo(OPENING.subtract(new BigDecimal("75.00")));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM savings_transactions WHERE transaction_type = 'WITHDRAWAL'",
+                Integer.class)).isEqualTo(5);
+    }
+
+    @Test
+    void statusChangeDoesNotOverwriteAConcurrentDeposit() {
+        product("REG", null);
+        Long id = account("REG");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // The entity is loaded into this transaction before the deposit commits elsewhere
+            assertThat(accountRepository.findById(id).orElseThrow().getBalance()).isEqualByComparingTo(OPENING);
+            CompletableFuture.runAsync(() -> accountService.deposit(id, new BigDecimal("250.00"), "CASH", null, "race", "test"))
+                    .join();
+            accountService.updateAccountStatus(id, "DORMANT");
+        });
+
+        SavingsAccount account = accountRepository.findById(id).orElseThrow();
+        assertThat(account.getStatus()).isEqualTo("DORMANT");
+        assertThat(account.getBalance()).isEqualByComparingTo("1250.00");
+        assertThat(ledgerService.reconcile()).isEmpty();
+    }
+
+    /**
+     * Checkpoints whose balance plus the later ledger movements does not reach the final balance.
+     */
+    private Integer inconsistentCheckpoints() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM savings_balance_checkpoints c " +
+                "JOIN savings_accounts a ON a.id = c.savings_account_id " +
+                "WHERE a.balance <> c.balance + (SELECT COALESCE(SUM(CASE WHEN t.transaction_type = 'DEPOSIT' " +
+                "THEN t.amount ELSE -t.amount END), 0) FROM savings_transactions t " +
+                "WHERE t.savings_account_id = c.savings_account_id AND t.id > c.last_transaction_id)", Integer.class);
+    }
+
+    private BigDecimal balance(Long id) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM savings_accounts WHERE id = ?", BigDecimal.class, id);
+    }
+
+    private void product(String code, Integer maxWithdrawalsPerMonth) {
+        SavingsProduct product = new SavingsProduct();
+        product.setCode(code);
+        product.setName(code + " savings");
+        product.setInterestRate(BigDecimal.ZERO);
+        product.setInterestPostingFrequency("MONTHLY");
+        product.setWithdrawalFee(FEE);
+        product.setMaxWithdrawalsPerMonth(maxWithdrawalsPerMonth);
+        productRepository.save(product);
+    }
+
+    private Long account(String productCode) {
+        SavingsAccount account = new SavingsAccount();
+        account.setCustomerId(1L);
+        account.setAccountNumber("SA-" + System.nanoTime());
+        account.setProductCode(productCode);
+        account.setProductName(productCode + " savings");
+        account.setBalance(OPENING);
+        account.setAvailableBalance(OPENING);
+        account.setMinimumBalance(MINIMUM);
+        return accountRepository.save(account).getId();
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demo.security;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.RemoteIpValve;
+import org.apache.catalina.valves.ValveBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Simulates a credential-stuffing client that rotates forged forwarding headers on every attempt
+ * to spread its failures over many "IPs". The address the throttle keys on must stay the socket
+ * address unless the connection comes from a configured proxy.
+ */
+class ClientIpSpoofingTest {
+
+    private static final String ATTACKER = "203.0.113.7";
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void forgedForwardingHeadersDoNotChangeTheClientIp() {
+        for (int i = 0; i < 1_000; i++) {
+            bind(forgedRequest(i));
+            assertThat(ClientIp.resolve()).isEqualTo(ATTACKER);
+        }
+    }
+
+    @Test
+    void rotatingForgedHeadersCannotEscapeTheIpWindow() {
+        InMemoryWindows redis = new InMemoryWindows();
+        LoginThrottle throttle = new LoginThrottle(redis);
+        ReflectionTestUtils.setField(throttle, "windowMinutes", 15L);
+        ReflectionTestUtils.setField(throttle, "accountFailures", 5);
+        ReflectionTestUtils.setField(throttle, "ipFailures", 30);
+
+        int attempts = 1_000;
+        int reachedPassword = 0;
+        for (int i = 0; i < attempts; i++) {
+            bind(forgedRequest(i));
+            // a different account every time, so only the IP window can stop the attack
+            String account = "2547" + String.format("%08d", i);
+            String ip = ClientIp.resolve();
+            if (!throttle.isBlocked("MOBILE", account, ip)) {
+                reachedPassword++;
+                throttle.recordFailure("MOBILE", account, ip);
+            }
+        }
+
+        assertThat(reachedPassword).isEqualTo(30);
+        assertThat(throttle.snapshot()).containsEntry("throttled", (long) attempts - 30);
+        assertThat(redis.windows).containsKey("login:fail:ip:" + ATTACKER).hasSize(31);
+    }
+
+    @Test
+    void containerHonoursForwardedForOnlyFromTrustedProxies() throws Exception {
+        RemoteIpValve valve = new RemoteIpValve();
+        valve.setRemoteIpHeader("X-Forwarded-For");
+        valve.setInternalProxies(configuredTrustedProxies());
+        Capture capture = new Capture();
+        valve.setNext(capture);
+
+        valve.invoke(tomcatRequest(ATTACKER, "198.51.100.1"), null);
+        assertThat(capture.remoteAddr).isEqualTo(ATTACKER);
+
+        valve.invoke(tomcatRequest("10.0.0.5", "198.51.100.1"), null);
+        assertThat(capture.remoteAddr).as("private but unlisted peer").isEqualTo("10.0.0.5");
+
+        valve.invoke(tomcatRequest("127.0.0.1", "198.51.100.1"), null);
+        assertThat(capture.remoteAddr).isEqualTo("198.51.100.1");
+
+        // a forged leftmost hop added by the client is ignored: the proxy appended the real peer
+        valve.invoke(tomcatRequest("127.0.0.1", "1.1.1.1, " + ATTACKER), null);
+        assertThat(capture.remoteAddr).isEqualTo(ATTACKER);
+    }
+
+    private static MockHttpServletRequest forgedRequest(int i) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/mobile/auth/login");
+        request.setRemoteAddr(ATTACKER);
+        String forged = "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255);
+        request.addHeader("X-Forwarded-For", forged + ", 127.0.0.1");
+        request.addHeader("X-Real-IP", forged);
+        request.addHeader("Forwarded", "for=" + forged);
+        return request;
+    }
+
+    private static void bind(MockHttpServletRequest request) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static Request tomcatRequest(String peer, String forwardedFor) {
+        Request request = new Request(new Connector());
+        request.setCoyoteRequest(new org.apache.coyote.Request());
+        request.setRemoteAddr(peer);
+        request.setRemoteHost(peer);
+        request.getCoyoteRequest().getMimeHeaders().addValue("X-Forwarded-For").setString(forwardedFor);
+        return request;
+    }
+
+    /**
+     * The default allow-list shipped in application.properties, as the container would receive it.
+     */
+    private static String configuredTrustedProxies() throws Exception {
+        Properties properties = new Properties();
+        try (InputStream in = new ClassPathResource("application.properties").getInputStream()) {
+            properties.load(in);
+        }
+        String value = properties.getProperty("server.tomcat.remoteip.internal-proxies");
+        return value.substring("${TRUSTED_PROXIES:".length(), value.length() - 1);
+    }
+
+    private static final class Capture extends ValveBase {
+        private String remoteAddr;
+
+        @Override
+        public void invoke(Request request, Response response) {
+            remoteAddr = request.getRemoteAddr();
+        }
+    }
+
+    /**
+     * Evaluates the throttle's two scripts against in-memory sliding windows.
+     */
+    private static final class InMemoryWindows extends StringRedisTemplate {
+        private final Map<String, List<Long>> windows = new HashMap<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            long now = Long.parseLong((String) args[0]);
+            long window = Long.parseLong((String) args[1]);
+            if (script.getScriptAsString().contains("ZCARD")) {
+                for (int i = 0; i < keys.size(); i++) {
+                    List<Long> failures = windows.getOrDefault(keys.get(i), new ArrayList<>());
+                    failures.removeIf(at -> at <= now - window);
+                    if (failures.size() >= Integer.parseInt((String) args[2 + i])) {
+                        return (T) Long.valueOf(1);
+                    }
+                }
+                return (T) Long.valueOf(0);
+            }
+            for (String key : keys) {
+                windows.computeIfAbsent(key, k -> new ArrayList<>()).add(now);
+            }
+            return (T) Long.valueOf(0);
+        }
+    }
+}
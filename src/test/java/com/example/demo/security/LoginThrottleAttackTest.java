@@ -0,0 +1,84 @@
+package com.example.demo.security;
+
+import com.example.demo.support.Benchmark;
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.support.RedisTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Credential stuffing against the login throttle on a real Redis: many threads try a different
+ * account on every attempt from one address, and a PIN check costs a bcrypt hash at the cost the
+ * mobile PINs are stored with.
+ */
+class LoginThrottleAttackTest extends RedisTest {
+
+    private static final String ATTACKER = "203.0.113.7";
+    private static final int THREADS = 16;
+    private static final int IP_FAILURES = 30;
+    private static final String STORED_PIN = BCrypt.hashpw("4821", BCrypt.gensalt(12));
+
+    private LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        throttle = new LoginThrottle(redis);
+        ReflectionTestUtils.setField(throttle, "windowMinutes", 15L);
+        ReflectionTestUtils.setField(throttle, "accountFailures", 5);
+        ReflectionTestUtils.setField(throttle, "ipFailures", IP_FAILURES);
+    }
+
+    @Test
+    void concurrentAttackIsStoppedByTheAddressWindow() throws Exception {
+        AtomicInteger reachedPin = new AtomicInteger();
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(THREADS, 2_000, i -> attempt(i, reachedPin));
+
+        assertThat(result.failures()).isEmpty();
+        // A check and its failure are two round trips, so attempts in flight on every thread can pass together
+        assertThat(reachedPin.get()).isBetween(IP_FAILURES, IP_FAILURES + THREADS);
+        assertThat(throttle.snapshot()).containsEntry("attempts", 2_000L)
+                .containsEntry("throttled", 2_000L - reachedPin.get());
+        assertThat(redis.opsForZSet().size("login:fail:ip:" + ATTACKER)).isEqualTo((long) reachedPin.get());
+    }
+
+    @Test
+    @Benchmark
+    void throttledAttackCostsARedisRoundTripInsteadOfABcryptHash(TestReporter reporter) throws Exception {
+        ConcurrentLoad.Result unthrottled = ConcurrentLoad.run(THREADS, 64,
+                i -> BCrypt.checkpw(String.format("%04d", i), STORED_PIN));
+        AtomicInteger reachedPin = new AtomicInteger();
+        ConcurrentLoad.Result throttled = ConcurrentLoad.run(THREADS, 50_000, i -> attempt(i, reachedPin));
+
+        reporter.publishEntry("unthrottled attempts per second", String.valueOf(Math.round(unthrottled.throughputPerSecond())));
+        reporter.publishEntry("throttled attempts per second", String.valueOf(Math.round(throttled.throughputPerSecond())));
+        reporter.publishEntry("throttled p50/p99 ms", throttled.percentileMillis(50) + " / " + throttled.percentileMillis(99));
+        reporter.publishEntry("attempts that reached the PIN check", String.valueOf(reachedPin.get()));
+        assertThat(throttled.failures()).isEmpty();
+        assertThat(reachedPin.get()).isLessThanOrEqualTo(IP_FAILURES + THREADS);
+        assertThat(throttled.throughputPerSecond()).isGreaterThan(unthrottled.throughputPerSecond() * 20);
+        assertThat(throttled.percentileMillis(99)).isLessThan(50.0);
+    }
+
+    /**
+     * One login attempt as the mobile login runs it: throttle check, then the PIN check and a
+     * recorded failure, every time for a new account.
+     */
+    private void attempt(int i, AtomicInteger reachedPin) {
+        String account = "2547" + String.format("%08d", i);
+        if (throttle.isBlocked("MOBILE", account, ATTACKER)) {
+            return;
+        }
+        reachedPin.incrementAndGet();
+        if (!BCrypt.checkpw("0000", STORED_PIN)) {
+            throttle.recordFailure("MOBILE", account, ATTACKER);
+        }
+    }
+}
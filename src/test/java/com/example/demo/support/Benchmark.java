@@ -0,0 +1,17 @@
+package com.example.demo.support;
+
+import org.junit.jupiter.api.Tag;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a load test or benchmark. Excluded from the default build; run with {@code mvn test -Pbenchmark}.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Tag("benchmark")
+public @interface Benchmark {
+}
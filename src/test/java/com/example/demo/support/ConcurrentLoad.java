@@ -0,0 +1,110 @@
+package com.example.demo.support;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives an operation from a fixed number of threads that are released together and records the
+ * latency of every call, so load tests assert on percentiles and throughput.
+ * A failing call does not stop the run; its exception is collected in {@link Result#failures()}.
+ */
+public final class ConcurrentLoad {
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(10);
+
+    private ConcurrentLoad() {
+    }
+
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * @param index 0-based position of this call in the run, unique across threads
+         */
+        void run(int index) throws Exception;
+    }
+
+    public static Result run(int threads, int operations, Operation operation) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger next = new AtomicInteger();
+        long[] latencies = new long[operations];
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Future<?>> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                ready.countDown();
+                start.await();
+                for (int i = next.getAndIncrement(); i < operations; i = next.getAndIncrement()) {
+                    long began = System.nanoTime();
+                    try {
+                        operation.run(i);
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                    latencies[i] = System.nanoTime() - began;
+                }
+                return null;
+            }));
+        }
+        ready.await();
+        long began = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                pool.shutdownNow();
+                throw new IllegalStateException("Load run did not finish within " + TIMEOUT);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - began;
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Load worker failed", e.getCause());
+            }
+        }
+        Arrays.sort(latencies);
+        return new Result(latencies, Duration.ofNanos(elapsed), List.copyOf(failures));
+    }
+
+    public record Result(long[] sortedLatencyNanos, Duration elapsed, List<Throwable> failures) {
+
+        public int operations() {
+            return sortedLatencyNanos.length;
+        }
+
+        public double throughputPerSecond() {
+            return operations() / (elapsed.toNanos() / 1e9);
+        }
+
+        /**
+         * Latency at the given percentile (0-100], nearest-rank.
+         */
+        public Duration percentile(double percentile) {
+            int rank = (int) Math.ceil(percentile / 100.0 * operations());
+            return Duration.ofNanos(sortedLatencyNanos[Math.max(0, Math.min(operations(), rank) - 1)]);
+        }
+
+        public double percentileMicros(double percentile) {
+            return percentile(percentile).toNanos() / 1_000.0;
+        }
+
+        public double percentileMillis(double percentile) {
+            return percentile(percentile).toNanos() / 1_000_000.0;
+        }
+    }
+}
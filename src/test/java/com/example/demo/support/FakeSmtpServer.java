@@ -0,0 +1,139 @@
+package com.example.demo.support;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal SMTP server on a local port for delivery tests. It speaks just enough of the protocol
+ * for Jakarta Mail without TLS or AUTH, counts connections and accepted messages, and can add the
+ * latency of a real relay: a delay before the greeting stands in for connect, STARTTLS and AUTH,
+ * and a delay after each message for the relay accepting it. Recipients can be given a fixed
+ * RCPT reply to produce permanent or transient failures.
+ */
+public final class FakeSmtpServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions = Executors.newCachedThreadPool();
+    private final Map<String, String> rcptReplies = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger messages = new AtomicInteger();
+    private volatile long greetingDelayMs;
+    private volatile long messageDelayMs;
+
+    public FakeSmtpServer() throws IOException {
+        serverSocket = new ServerSocket(0, 200, InetAddress.getLoopbackAddress());
+        sessions.execute(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public FakeSmtpServer withLatency(long greetingDelayMs, long messageDelayMs) {
+        this.greetingDelayMs = greetingDelayMs;
+        this.messageDelayMs = messageDelayMs;
+        return this;
+    }
+
+    /**
+     * Answers RCPT for the address with the given reply, e.g. {@code "550 5.1.1 No such user"}.
+     */
+    public FakeSmtpServer reject(String address, String reply) {
+        rcptReplies.put(address.toLowerCase(), reply);
+        return this;
+    }
+
+    public int connections() {
+        return connections.get();
+    }
+
+    public int messages() {
+        return messages.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdownNow();
+        try {
+            sessions.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                sessions.execute(() -> session(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void session(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = socket.getOutputStream()) {
+            pause(greetingDelayMs);
+            reply(out, "220 localhost fake ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(out, "250 localhost");
+                    case "MAIL", "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "RCPT" -> reply(out, rcptReplies.getOrDefault(address(line), "250 OK"));
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // message body is not kept
+                        }
+                        pause(messageDelayMs);
+                        messages.incrementAndGet();
+                        reply(out, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // client went away or the server is closing
+        }
+    }
+
+    private static String address(String rcptLine) {
+        int start = rcptLine.indexOf('<');
+        int end = rcptLine.indexOf('>');
+        return start >= 0 && end > start ? rcptLine.substring(start + 1, end).toLowerCase() : "";
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static void pause(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.support;
+
+import com.example.demo.system.services.JobCoordinator;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * A {@link JobCoordinator} configured as a single-node install without Redis
+ * ({@code jobs.coordination.enabled=false}): jobs run on the calling thread and fencing is
+ * skipped, for tests of the jobs themselves.
+ */
+public final class LocalJobCoordinator {
+
+    private LocalJobCoordinator() {
+    }
+
+    public static JobCoordinator create(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        JobCoordinator coordinator = new JobCoordinator(mock(StringRedisTemplate.class), jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(coordinator, "enabled", false);
+        ReflectionTestUtils.setField(coordinator, "defaultLeaseSeconds", 60L);
+        return coordinator;
+    }
+}
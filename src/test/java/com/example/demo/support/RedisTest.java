@@ -0,0 +1,43 @@
+package com.example.demo.support;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base for tests that run against a real Redis. One container and one shared Lettuce connection
+ * factory, configured like production (no pool), serve every subclass; the database is flushed
+ * before each test. Skipped when Docker is not available.
+ * <p>
+ * Tests that also need Postgres extend {@link PostgresJpaTest} and build their template on
+ * {@link #CONNECTION_FACTORY}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class RedisTest {
+
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    public static final LettuceConnectionFactory CONNECTION_FACTORY;
+
+    static {
+        REDIS.start();
+        CONNECTION_FACTORY = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        CONNECTION_FACTORY.afterPropertiesSet();
+        CONNECTION_FACTORY.start();
+    }
+
+    protected final StringRedisTemplate redis = new StringRedisTemplate(CONNECTION_FACTORY);
+
+    @BeforeEach
+    void flushRedis() {
+        redis.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+    }
+}
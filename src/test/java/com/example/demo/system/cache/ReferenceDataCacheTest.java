@@ -0,0 +1,162 @@
+package com.example.demo.system.cache;
+
+import com.example.demo.branch.entities.Branch;
+import com.example.demo.support.ConcurrentLoad;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Reference caches under concurrent reads and invalidations, the copies handed out for cached
+ * entities, and invalidation across nodes.
+ */
+class ReferenceDataCacheTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private ReferenceDataCache registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ReferenceDataCache(redisTemplate);
+        ReflectionTestUtils.setField(registry, "channel", "refdata:invalidate");
+        ReflectionTestUtils.setField(registry, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(registry, "maxSize", 100);
+    }
+
+    @Test
+    void eachLookupOfACachedEntityGetsItsOwnCopy() {
+        ReferenceCache<String, Branch> cache = registry.entityCache(ReferenceDataCache.BRANCHES, Branch::new);
+        Branch stored = branch("HQ", "Head office");
+        AtomicInteger loads = new AtomicInteger();
+
+        Branch first = cache.get("code:HQ", k -> {
+            loads.incrementAndGet();
+            return stored;
+        }).orElseThrow();
+        first.setBranchName("Changed by a caller");
+        stored.setBranchName("Changed in the persistence context");
+        Branch second = cache.get("code:HQ", k -> null).orElseThrow();
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(first).isNotSameAs(stored);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getBranchName()).isEqualTo("Head office");
+        assertThat(second.getBranchCode()).isEqualTo("HQ");
+    }
+
+    @Test
+    void concurrentReadersNeverSeeAValueOlderThanTheLastInvalidation() throws Exception {
+        ReferenceCache<String, Integer> cache = registry.cache(ReferenceDataCache.PRODUCTS);
+        AtomicInteger stored = new AtomicInteger();
+        AtomicInteger invalidated = new AtomicInteger();
+        AtomicInteger stale = new AtomicInteger();
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(16, 50_000, i -> {
+            if (i % 100 == 0) {
+                int version = stored.incrementAndGet();
+                cache.invalidateAll();
+                invalidated.accumulateAndGet(version, Math::max);
+                return;
+            }
+            int floor = invalidated.get();
+            int seen = cache.get("LOAN", k -> stored.get()).orElseThrow();
+            if (seen < floor) {
+                stale.incrementAndGet();
+            }
+        });
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(stale.get()).isZero();
+        assertThat(cache.get("LOAN", k -> -1).orElseThrow()).isEqualTo(stored.get());
+    }
+
+    @Test
+    void concurrentReadersOfAnUnchangedEntryShareOneLoad() throws Exception {
+        ReferenceCache<String, Branch> cache = registry.entityCache(ReferenceDataCache.BRANCHES, Branch::new);
+        cache.get("code:HQ", k -> branch("HQ", "Head office"));
+        AtomicInteger loads = new AtomicInteger();
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(16, 20_000, i -> {
+            Branch branch = cache.get("code:HQ", k -> {
+                loads.incrementAndGet();
+                return branch("HQ", "Reloaded");
+            }).orElseThrow();
+            branch.setBranchName("Thread " + i);
+        });
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(loads.get()).isZero();
+        assertThat(cache.get("code:HQ", k -> null).orElseThrow().getBranchName()).isEqualTo("Head office");
+        assertThat(cache.stats()).containsEntry("hits", 20_001L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void missesAreCachedAndEntriesExpire() throws Exception {
+        ReferenceCache<String, String> cache = new ReferenceCache<>("names", 10, 50);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get("9999", k -> {
+            loads.incrementAndGet();
+            return null;
+        })).isEmpty();
+        assertThat(cache.get("9999", k -> "unexpected")).isEmpty();
+        Thread.sleep(60);
+        assertThat(cache.get("9999", k -> "Suspense")).contains("Suspense");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void fullCacheEvictsItsOldestEntries() throws Exception {
+        ReferenceCache<Integer, String> cache = new ReferenceCache<>("names", 10, 60_000);
+        for (int i = 0; i < 10; i++) {
+            cache.get(i, String::valueOf);
+            Thread.sleep(2);
+        }
+
+        cache.get(10, String::valueOf);
+
+        assertThat(cache.stats()).containsEntry("size", 10).containsEntry("evictions", 1L);
+        assertThat(cache.get(0, k -> "reloaded")).contains("reloaded");
+        assertThat(cache.get(9, k -> "reloaded")).contains("9");
+    }
+
+    @Test
+    void invalidationIsPublishedAndAppliedOnlyByOtherNodes() {
+        ReferenceCache<String, Integer> cache = registry.cache(ReferenceDataCache.ROLES);
+        cache.get("1", k -> 1);
+
+        registry.invalidate(ReferenceDataCache.ROLES);
+        ArgumentCaptor<String> published = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq("refdata:invalidate"), published.capture());
+        cache.get("1", k -> 2);
+        registry.onMessage(message(published.getValue()), null);
+        Integer afterOwnMessage = cache.get("1", k -> 3).orElseThrow();
+        registry.onMessage(message("other-node|" + ReferenceDataCache.ROLES), null);
+
+        assertThat(afterOwnMessage).isEqualTo(2);
+        assertThat(cache.get("1", k -> 4)).contains(4);
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("refdata:invalidate".getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Branch branch(String code, String name) {
+        Branch branch = new Branch();
+        branch.setId(1L);
+        branch.setBranchCode(code);
+        branch.setBranchName(name);
+        return branch;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demo.system.services;
+
+import com.example.demo.system.parsitence.models.BatchCheckpoint;
+import com.example.demo.system.parsitence.repositories.BatchCheckpointRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs batches against an in-memory checkpoint table. Checks that partitions run on the runner's
+ * threads, that a held lease is re-checked by rescheduling instead of a sleeping thread, and that
+ * a partition making no progress fails the run.
+ */
+class ChunkedBatchRunnerTest {
+
+    private static final long MAX_ID = 10_000;
+
+    private final Map<Long, BatchCheckpoint> table = new TreeMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicInteger heldChecks = new AtomicInteger();
+    private final Set<String> workThreads = ConcurrentHashMap.newKeySet();
+    private ChunkedBatchRunner runner;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        BatchCheckpointRepo repo = mock(BatchCheckpointRepo.class);
+        when(repo.findByJobNameAndRunKeyOrderByPartitionNo(anyString(), anyString())).thenAnswer(i -> {
+            synchronized (table) {
+                return table.values().stream().map(ChunkedBatchRunnerTest::copy).toList();
+            }
+        });
+        when(repo.findById(anyLong())).thenAnswer(i -> {
+            synchronized (table) {
+                return Optional.ofNullable(table.get(i.<Long>getArgument(0))).map(ChunkedBatchRunnerTest::copy);
+            }
+        });
+        when(repo.saveAll(anyList())).thenAnswer(i -> {
+            synchronized (table) {
+                for (BatchCheckpoint checkpoint : i.<List<BatchCheckpoint>>getArgument(0)) {
+                    checkpoint.setId(ids.incrementAndGet());
+                    table.put(checkpoint.getId(), copy(checkpoint));
+                }
+            }
+            return i.getArgument(0);
+        });
+
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        when(jdbc.queryForMap(startsWith("SELECT COALESCE(MIN(id)"))).thenReturn(Map.of("lo", 1L, "hi", MAX_ID));
+        when(jdbc.update(startsWith("UPDATE batch_checkpoints SET last_id"), any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> {
+                    synchronized (table) {
+                        BatchCheckpoint checkpoint = table.get(i.<Long>getArgument(6));
+                        checkpoint.setLastId(i.getArgument(1));
+                        checkpoint.setProcessed(checkpoint.getProcessed() + i.<Long>getArgument(2));
+                        checkpoint.setAmount(checkpoint.getAmount().add(i.getArgument(3)));
+                        checkpoint.setStatus(i.getArgument(4));
+                    }
+                    return 1;
+                });
+
+        JobCoordinator coordinator = mock(JobCoordinator.class);
+        when(coordinator.runExclusive(anyString(), any(Runnable.class))).thenAnswer(i -> {
+            String lease = i.getArgument(0);
+            if (lease.matches(".*:p\\d+") && heldChecks.getAndDecrement() > 0) {
+                return false;
+            }
+            i.<Runnable>getArgument(1).run();
+            return true;
+        });
+
+        runner = new ChunkedBatchRunner(repo, jdbc, mock(PlatformTransactionManager.class), coordinator, 3);
+        ReflectionTestUtils.setField(runner, "partitionWaitMs", 20L);
+        ReflectionTestUtils.setField(runner, "partitionStallTimeoutMs", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.shutdown();
+    }
+
+    @Test
+    void partitionsRunOnTheRunnerThreadsAndCoverEveryId() throws Exception {
+        ChunkedBatchRunner.ChunkResult result = runner.runAsync("JOB", "2026-10-18", "t", 4, 250, this::count)
+                .get(30, TimeUnit.SECONDS);
+
+        assertThat(result.getCount()).isEqualTo(MAX_ID);
+        assertThat(result.getAmount()).isEqualByComparingTo(BigDecimal.valueOf(MAX_ID));
+        assertThat(table.values()).hasSize(4).allMatch(c -> "COMPLETED".equals(c.getStatus()));
+        assertThat(workThreads).isNotEmpty().allMatch(name -> name.startsWith("batch-"));
+    }
+
+    @Test
+    void heldLeasesAreRecheckedWithoutHoldingTheCaller() throws Exception {
+        heldChecks.set(12);
+
+        long started = System.nanoTime();
+        CompletableFuture<ChunkedBatchRunner.ChunkResult> run = runner.runAsync("JOB", "2026-10-18", "t", 4, 500, this::count);
+        long returnedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(returnedMs).isLessThan(500);
+        assertThat(run.get(30, TimeUnit.SECONDS).getCount()).isEqualTo(MAX_ID);
+        assertThat(heldChecks.get()).isNegative();
+    }
+
+    @Test
+    void aPartitionThatNeverProgressesFailsTheRun() {
+        heldChecks.set(Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(runner, "partitionStallTimeoutMs", 200L);
+
+        CompletableFuture<ChunkedBatchRunner.ChunkResult> run = runner.runAsync("JOB", "2026-10-18", "t", 2, 500, this::count);
+
+        assertThatThrownBy(() -> run.get(30, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("made no progress");
+    }
+
+    @Test
+    void aCompletedRunIsNotReprocessed() throws Exception {
+        runner.runAsync("JOB", "2026-10-18", "t", 4, 1_000, this::count).get(30, TimeUnit.SECONDS);
+        workThreads.clear();
+
+        ChunkedBatchRunner.ChunkResult again = runner.runAsync("JOB", "2026-10-18", "t", 4, 1_000, this::count)
+                .get(30, TimeUnit.SECONDS);
+
+        assertThat(again.getCount()).isEqualTo(MAX_ID);
+        assertThat(workThreads).isEmpty();
+    }
+
+    private ChunkedBatchRunner.ChunkResult count(long fromExclusive, long toInclusive) {
+        workThreads.add(Thread.currentThread().getName());
+        long n = toInclusive - fromExclusive;
+        return new ChunkedBatchRunner.ChunkResult(n, BigDecimal.valueOf(n));
+    }
+
+    private static BatchCheckpoint copy(BatchCheckpoint c) {
+        return BatchCheckpoint.builder().id(c.getId()).jobName(c.getJobName()).runKey(c.getRunKey())
+                .partitionNo(c.getPartitionNo()).lastId(c.getLastId()).endId(c.getEndId()).status(c.getStatus())
+                .processed(c.getProcessed()).amount(c.getAmount()).updatedAt(c.getUpdatedAt()).build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.system.services;
+
+import com.example.demo.support.ConcurrentLoad;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Block allocation against an in-memory stand-in for Postgres sequences shared by several nodes.
+ */
+class IdGeneratorTest {
+
+    private static final int IDS = 2_000_000;
+
+    private final Sequences sequences = new Sequences();
+
+    @Test
+    void millionsOfIdsAreUniqueAcrossThreadsAndNodes() throws Exception {
+        // the second node is configured with another block size; it must still follow the sequence
+        List<IdGenerator> nodes = List.of(node(100), node(7));
+        nodes.get(0).createSequences();
+        // one flag per possible id: blocks left partly used at the end add at most a block per thread
+        AtomicIntegerArray issued = new AtomicIntegerArray(IDS + 16 * 100 + 1);
+        AtomicInteger duplicates = new AtomicInteger();
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(16, IDS, i -> {
+            long id = nodes.get(i % nodes.size()).next(IdGenerator.IdType.RECEIPT_NUMBER);
+            if (issued.getAndSet(Math.toIntExact(id), 1) != 0) {
+                duplicates.incrementAndGet();
+            }
+        });
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(duplicates.get()).isZero();
+        assertThat(sequences.increments).containsEntry("receipt_number_seq", 100L);
+    }
+
+    @Test
+    void sequenceIsCommittedInItsOwnTransactionBeforeTheFirstBlock() {
+        IdGenerator generator = node(100);
+
+        assertThat(generator.next(IdGenerator.IdType.LOAN_REF)).isEqualTo(1L);
+        assertThat(generator.next(IdGenerator.IdType.LOAN_REF)).isEqualTo(2L);
+
+        assertThat(sequences.events).containsExactly(
+                "begin:" + TransactionDefinition.PROPAGATION_REQUIRES_NEW,
+                "create:loan_ref_seq",
+                "commit",
+                "nextval:loan_ref_seq");
+    }
+
+    @Test
+    void startupCreatesEverySequenceOnce() {
+        IdGenerator generator = node(50);
+
+        generator.createSequences();
+        sequences.events.clear();
+        generator.nextReceiptNumber();
+        generator.nextLoanNumber();
+
+        assertThat(sequences.increments).containsOnlyKeys(
+                "loan_number_seq", "loan_ref_seq", "journal_number_seq", "receipt_number_seq");
+        assertThat(sequences.events).containsExactly("nextval:receipt_number_seq", "nextval:loan_number_seq");
+    }
+
+    @Test
+    void formattedReferencesArePadded() {
+        IdGenerator generator = node(100);
+
+        assertThat(generator.nextReceiptNumber()).isEqualTo("RCT000000001");
+        assertThat(generator.nextLoanRef()).isEqualTo("LN000001");
+        assertThat(generator.nextLoanNumber()).isEqualTo(1L);
+    }
+
+    private IdGenerator node(int blockSize) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            TransactionDefinition definition = invocation.getArgument(0);
+            sequences.events.add("begin:" + definition.getPropagationBehavior());
+            return mock(TransactionStatus.class);
+        });
+        doAnswer(invocation -> sequences.events.add("commit")).when(transactionManager).commit(any());
+        IdGenerator generator = new IdGenerator(sequences, transactionManager);
+        ReflectionTestUtils.setField(generator, "blockSize", blockSize);
+        return generator;
+    }
+
+    /**
+     * CREATE SEQUENCE IF NOT EXISTS, nextval and pg_sequences, with one shared set of sequences.
+     */
+    private static final class Sequences extends JdbcTemplate {
+        private static final Pattern CREATE =
+                Pattern.compile("CREATE SEQUENCE IF NOT EXISTS (\\w+) START WITH (\\d+) INCREMENT BY (\\d+)");
+        private static final Pattern NEXTVAL = Pattern.compile("SELECT nextval\\('(\\w+)'\\)");
+
+        private final Map<String, AtomicLong> values = new ConcurrentHashMap<>();
+        private final Map<String, Long> increments = new ConcurrentHashMap<>();
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void execute(String sql) {
+            Matcher create = CREATE.matcher(sql);
+            assertThat(create.matches()).as(sql).isTrue();
+            String name = create.group(1);
+            synchronized (this) {
+                if (!values.containsKey(name)) {
+                    values.put(name, new AtomicLong(Long.parseLong(create.group(2))));
+                    increments.put(name, Long.parseLong(create.group(3)));
+                }
+            }
+            events.add("create:" + name);
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            Matcher nextval = NEXTVAL.matcher(sql);
+            if (nextval.matches()) {
+                String name = nextval.group(1);
+                events.add("nextval:" + name);
+                return requiredType.cast(values.get(name).getAndAdd(increments.get(name)));
+            }
+            // seed query of a sequence that continues existing numbers: an empty table
+            return requiredType.cast(1L);
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            return requiredType.cast(increments.get((String) args[0]));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.demo.system.services;
+
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.support.LocalJobCoordinator;
+import com.example.demo.support.PostgresJpaTest;
+import com.example.demo.support.RedisTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Two nodes' coordinators sharing a real Redis and Postgres: one holder at a time, leases renewed
+ * while a job runs and lost when renewal stops, and fencing that keeps a stalled holder from
+ * committing over the node that took its job over.
+ */
+class JobCoordinatorTest extends PostgresJpaTest {
+
+    private static final Duration SHORT_LEASE = Duration.ofMillis(300);
+
+    private final StringRedisTemplate redis = new StringRedisTemplate(RedisTest.CONNECTION_FACTORY);
+    private JobCoordinator nodeA;
+    private JobCoordinator nodeB;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS job_output (node VARCHAR(10) NOT NULL)");
+        truncate("job_fences", "job_output");
+        redis.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+        nodeA = node(redis);
+        nodeB = node(redis);
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.shutdown();
+        nodeB.shutdown();
+    }
+
+    @Test
+    void onlyOneNodeRunsAJobAtATime() throws Exception {
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger mostInside = new AtomicInteger();
+        AtomicInteger runs = new AtomicInteger();
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(8, 400, i -> {
+            JobCoordinator node = i % 2 == 0 ? nodeA : nodeB;
+            boolean ran = node.runExclusive("settlement", Duration.ofSeconds(5), () -> {
+                mostInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                pause(1);
+                inside.decrementAndGet();
+            });
+            if (ran) {
+                runs.incrementAndGet();
+            }
+        });
+
+        assertThat(result.failures()).isEmpty();
+        assertThat(mostInside.get()).isEqualTo(1);
+        assertThat(runs.get()).isPositive();
+        assertThat(count(nodeA, "runs") + count(nodeB, "runs")).isEqualTo(runs.get());
+        assertThat(count(nodeA, "skipped") + count(nodeB, "skipped")).isEqualTo(400 - runs.get());
+    }
+
+    @Test
+    void watchdogKeepsTheLeaseWhileALongJobRuns() {
+        AtomicBoolean ranElsewhere = new AtomicBoolean(true);
+
+        boolean ran = nodeA.runExclusive("statements", SHORT_LEASE, () -> {
+            pause(1_000);
+            ranElsewhere.set(nodeB.runExclusive("statements", SHORT_LEASE, () -> { }));
+        });
+
+        assertThat(ran).isTrue();
+        assertThat(ranElsewhere).isFalse();
+        assertThat(count(nodeA, "leasesLost")).isZero();
+        assertThat(nodeB.runExclusive("statements", SHORT_LEASE, () -> { })).isTrue();
+    }
+
+    @Test
+    void stalledHolderIsTakenOverAndItsLateCommitIsFenced() {
+        AtomicBoolean tookOver = new AtomicBoolean();
+        AtomicReference<Throwable> lateCommit = new AtomicReference<>();
+
+        nodeA.runExclusive("interest", SHORT_LEASE, () -> {
+            // the watchdog stops as it would in a long GC pause, and the lease runs out
+            nodeA.shutdown();
+            pause(600);
+            tookOver.set(CompletableFuture.supplyAsync(() -> nodeB.runExclusive("interest", Duration.ofSeconds(5),
+                    () -> nodeB.fencedTransaction(() -> write("B")))).join());
+            lateCommit.set(catchThrowable(() -> nodeA.fencedTransaction(() -> write("A"))));
+        });
+
+        assertThat(tookOver).isTrue();
+        assertThat(lateCommit.get()).isInstanceOf(JobCoordinator.LeaseLostException.class);
+        assertThat(jdbcTemplate.queryForList("SELECT node FROM job_output", String.class)).containsExactly("B");
+        assertThat(jdbcTemplate.queryForObject("SELECT token FROM job_fences WHERE job_name = 'interest'", Long.class))
+                .isEqualTo(count(nodeB, "lastToken"))
+                .isGreaterThan(count(nodeA, "lastToken"));
+        assertThat(count(nodeA, "fenceRejections")).isEqualTo(1);
+    }
+
+    @Test
+    void holderThatLostItsLeaseCannotCommitEvenBeforeAnotherNodeTakesOver() {
+        AtomicReference<Throwable> commit = new AtomicReference<>();
+
+        nodeA.runExclusive("fees", SHORT_LEASE, () -> {
+            // the key expires or is evicted; the next renewal finds it gone
+            redis.delete("job:lock:fees");
+            pause(250);
+            commit.set(catchThrowable(() -> nodeA.fencedTransaction(() -> write("A"))));
+        });
+
+        assertThat(commit.get()).isInstanceOf(JobCoordinator.LeaseLostException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_output", Integer.class)).isZero();
+        assertThat(count(nodeA, "leasesLost")).isEqualTo(1);
+    }
+
+    @Test
+    void unreachableRedisSkipsTheRun() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = socket.getLocalPort();
+        }
+        LettuceConnectionFactory unreachable = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("127.0.0.1", closedPort));
+        unreachable.afterPropertiesSet();
+        unreachable.start();
+        JobCoordinator node = node(new StringRedisTemplate(unreachable));
+        AtomicBoolean ran = new AtomicBoolean();
+        try {
+            assertThat(node.runExclusive("statements", () -> ran.set(true))).isFalse();
+        } finally {
+            node.shutdown();
+            unreachable.destroy();
+        }
+
+        assertThat(ran).isFalse();
+        assertThat(count(node, "skipped")).isEqualTo(1);
+    }
+
+    @Test
+    void withCoordinationDisabledJobsRunLocallyWithoutFencing() {
+        JobCoordinator local = LocalJobCoordinator.create(jdbcTemplate, transactionManager);
+
+        boolean ran = local.runExclusive("statements", () -> local.fencedTransaction(() -> write("local")));
+
+        assertThat(ran).isTrue();
+        assertThat(jdbcTemplate.queryForList("SELECT node FROM job_output", String.class)).containsExactly("local");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_fences", Integer.class)).isZero();
+    }
+
+    @Test
+    void fencesPastTheRetentionPeriodArePruned() {
+        jdbcTemplate.update("INSERT INTO job_fences (job_name, token, updated_at) VALUES (?, 3, ?), (?, 4, ?)",
+                "SAVINGS_INTEREST_ACCRUAL:2026-01-01:p0", Timestamp.valueOf(LocalDateTime.now().minusDays(8)),
+                "credit-scoring", Timestamp.valueOf(LocalDateTime.now().minusDays(1)));
+
+        nodeA.pruneFences();
+
+        assertThat(jdbcTemplate.queryForList("SELECT job_name FROM job_fences", String.class))
+                .containsExactly("credit-scoring");
+    }
+
+    private JobCoordinator node(StringRedisTemplate redisTemplate) {
+        JobCoordinator node = new JobCoordinator(redisTemplate, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(node, "enabled", true);
+        ReflectionTestUtils.setField(node, "defaultLeaseSeconds", 60L);
+        ReflectionTestUtils.setField(node, "fenceRetentionDays", 7L);
+        return node;
+    }
+
+    private void write(String node) {
+        jdbcTemplate.update("INSERT INTO job_output (node) VALUES (?)", node);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long count(JobCoordinator node, String stat) {
+        Map<String, Object> jobs = node.snapshot();
+        return jobs.values().stream()
+                .mapToLong(row -> ((Number) ((Map<String, Object>) row).get(stat)).longValue())
+                .sum();
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
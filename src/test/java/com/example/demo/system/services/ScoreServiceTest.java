@@ -0,0 +1,177 @@
+package com.example.demo.system.services;
+
+import com.example.demo.customerManagement.parsistence.entities.CreditScore;
+import com.example.demo.customerManagement.parsistence.repositories.CreditScoreRepo;
+import com.example.demo.customerManagement.parsistence.repositories.CustomerRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ScoreServiceTest {
+
+    private final CreditScoreRepo creditScoreRepo = mock(CreditScoreRepo.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final JobCoordinator jobCoordinator = mock(JobCoordinator.class);
+    private ScoreService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ScoreService(mock(CustomerRepo.class), creditScoreRepo, jdbcTemplate, jobCoordinator);
+        ReflectionTestUtils.setField(service, "maxAgeHours", 36L);
+    }
+
+    /**
+     * Band edges belong to the band they open. The old chain of strict comparisons left
+     * ages 20, 38, 55 and 80 with no age score at all.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "0, 1",
+            "19, 1",
+            "20, 5",
+            "37, 5",
+            "38, 10",
+            "54, 10",
+            "55, 7",
+            "80, 7",
+            "81, 2"
+    })
+    void ageScoreBands(int age, int expected) {
+        assertThat(ScoreService.ageScore(age)).isEqualTo(expected);
+    }
+
+    /**
+     * A member with no loans is a new client; a single clean loan now earns the full score,
+     * where the old rule required more than one. 100% defaulted scores 1 instead of nothing.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0, 5",
+            "0, 1, 10",
+            "0, 5, 10",
+            "0.1, 10, 8",
+            "9.99, 10, 8",
+            "10, 10, 7",
+            "19.99, 10, 7",
+            "20, 10, 6",
+            "30, 10, 5",
+            "40, 10, 4",
+            "50, 10, 3",
+            "69.99, 10, 3",
+            "70, 10, 2",
+            "80, 10, 1",
+            "100, 10, 1"
+    })
+    void defaultScoreBands(float defaultRate, int totalAccounts, int expected) {
+        assertThat(ScoreService.defaultScore(defaultRate, totalAccounts)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 2",
+            "9, 2",
+            "10, 5",
+            "29, 5",
+            "30, 7",
+            "49, 7",
+            "50, 8",
+            "59, 8",
+            "60, 10",
+            "200, 10"
+    })
+    void transactionScoreBands(int totalAccounts, int expected) {
+        assertThat(ScoreService.transactionScore(totalAccounts)).isEqualTo(expected);
+    }
+
+    @Test
+    void freshStoredScoreIsServedWithoutRecomputing() {
+        when(creditScoreRepo.findByCustomerId(7L)).thenReturn(Optional.of(stored(LocalDateTime.now().minusHours(2))));
+
+        assertThat(service.loadData(7L)).isEqualTo(17);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void staleStoredScoreIsRecomputedAndStored() {
+        CreditScore recomputed = CreditScore.builder().customerId(7L).score(25).ageScore(10).defaultScore(10)
+                .transactionScore(5).totalAccounts(12).defaultedAccounts(0).computedAt(LocalDateTime.now()).build();
+        when(creditScoreRepo.findByCustomerId(7L)).thenReturn(Optional.of(stored(LocalDateTime.now().minusHours(40))));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(7L))).thenReturn(List.of(recomputed));
+
+        assertThat(service.loadData(7L)).isEqualTo(25);
+        verify(jdbcTemplate).batchUpdate(anyString(), eq(List.of(recomputed)), eq(1), any());
+    }
+
+    /**
+     * The nightly run commits each batch of scores in its own fenced transaction, so a node that
+     * lost the lease mid-run cannot write another batch over the new holder's.
+     */
+    @Test
+    void nightlyRunCommitsEveryBatchInAFencedTransaction() {
+        AtomicBoolean inFencedTransaction = new AtomicBoolean();
+        List<Integer> batchSizes = new ArrayList<>();
+        when(jobCoordinator.runExclusive(eq("credit-scoring"), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+        doAnswer(invocation -> {
+            inFencedTransaction.set(true);
+            try {
+                invocation.<Runnable>getArgument(0).run();
+            } finally {
+                inFencedTransaction.set(false);
+            }
+            return null;
+        }).when(jobCoordinator).fencedTransaction(any(Runnable.class));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any())).thenAnswer(invocation -> {
+            assertThat(inFencedTransaction).isTrue();
+            batchSizes.add(invocation.<List<?>>getArgument(1).size());
+            return new int[0][];
+        });
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong("customer_id")).thenReturn(1L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < 2_500; i++) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        service.scoreAllMembers();
+
+        assertThat(batchSizes).containsExactly(1_000, 1_000, 500);
+        verify(jobCoordinator, times(3)).fencedTransaction(any(Runnable.class));
+    }
+
+    private static CreditScore stored(LocalDateTime computedAt) {
+        return CreditScore.builder().customerId(7L).score(17).ageScore(5).defaultScore(10).transactionScore(2)
+                .totalAccounts(3).defaultedAccounts(0).computedAt(computedAt).build();
+    }
+}
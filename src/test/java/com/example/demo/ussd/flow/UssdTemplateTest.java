@@ -0,0 +1,37 @@
+package com.example.demo.ussd.flow;
+
+import com.example.demo.ussd.services.UssdSession;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UssdTemplateTest {
+
+    @Test
+    void textWithoutPlaceholdersIsRenderedOnce() {
+        UssdTemplate template = UssdTemplate.compile("CON ", "Enter amount:");
+
+        assertThat(template.isStatic()).isTrue();
+        assertThat(template.render(new UssdSession())).isEqualTo("CON Enter amount:");
+        assertThat(template.render(new UssdSession())).isSameAs(template.render(new UssdSession()));
+    }
+
+    @Test
+    void placeholdersReadThePhoneAndStoredValues() {
+        UssdTemplate template = UssdTemplate.compile("END ", "Sent to {phone} for KES {amount}.");
+        UssdSession session = new UssdSession();
+        session.setPhoneNumber("254700000001");
+        session.storeData("amount", "250");
+
+        assertThat(template.isStatic()).isFalse();
+        assertThat(template.render(session)).isEqualTo("END Sent to 254700000001 for KES 250.");
+    }
+
+    @Test
+    void missingValuesRenderEmptyAndUnclosedBracesStayLiteral() {
+        UssdSession session = new UssdSession();
+
+        assertThat(UssdTemplate.compile("CON ", "{a}-{b}").render(session)).isEqualTo("CON -");
+        assertThat(UssdTemplate.compile("CON ", "Total {amount").render(session)).isEqualTo("CON Total {amount");
+    }
+}
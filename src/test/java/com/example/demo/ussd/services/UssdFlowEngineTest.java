@@ -0,0 +1,239 @@
+package com.example.demo.ussd.services;
+
+import com.example.demo.support.Benchmark;
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.ussd.dto.UssdResponse;
+import com.example.demo.ussd.flow.UssdAction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the shipped {@code ussd/menu-flow.json} through the compiled flow: menu navigation,
+ * accept rules, stored values in end messages, actions, and definitions that must fail startup.
+ * Complete journeys also run from many threads against the one shared flow; the benchmark times
+ * hop handling in microseconds.
+ */
+class UssdFlowEngineTest {
+
+    private static final String PHONE = "254700000001";
+    private static final String[] LOAN_INPUTS = {"3", "1", "12500", "4321"};
+    private static final String LOAN_SUBMITTED = "END Loan application for KES 12500 submitted successfully!";
+
+    private UssdFlowEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = new UssdFlowEngine(new ClassPathResource("ussd/menu-flow.json"),
+                List.of(action("savingsBalance"), action("loanBalance"), action("savingsStatement"), action("loanStatement")),
+                new ObjectMapper());
+    }
+
+    @Test
+    void newSessionOpensOnTheMainMenu() {
+        UssdSession session = session();
+
+        UssdResponse response = engine.start(session);
+
+        assertThat(response.getMessage()).startsWith("CON Welcome to SACCO Services");
+        assertThat(response.isEnd()).isFalse();
+        assertThat(session.getCurrentState()).isEqualTo("MAIN_MENU");
+    }
+
+    @Test
+    void unknownOptionShowsTheInvalidScreenAndStaysPut() {
+        UssdSession session = started();
+
+        UssdResponse response = engine.handle(session, "9");
+
+        assertThat(response.getMessage()).startsWith("CON Invalid option. Please try again.");
+        assertThat(response.isEnd()).isFalse();
+        assertThat(session.getCurrentState()).isEqualTo("MAIN_MENU");
+    }
+
+    @Test
+    void loanApplicationStoresTheNormalisedAmountAndRendersIt() {
+        UssdSession session = started();
+
+        engine.handle(session, "3");
+        engine.handle(session, "2");
+        assertThat(session.getDataAsString("selectedProduct")).isEqualTo("2");
+        assertThat(engine.handle(session, "abc").getMessage()).isEqualTo("CON Invalid amount. Please enter a valid number:");
+        assertThat(engine.handle(session, "-5").getMessage()).isEqualTo("CON Invalid amount. Please enter a valid number:");
+        assertThat(engine.handle(session, "15000.00").getMessage()).isEqualTo("CON Enter your PIN to confirm:");
+        UssdResponse done = engine.handle(session, "1234");
+
+        assertThat(done.isEnd()).isTrue();
+        assertThat(done.getMessage()).isEqualTo("END Loan application for KES 15000 submitted successfully!");
+    }
+
+    @Test
+    void shortPinEndsTheSession() {
+        UssdSession session = started();
+        engine.handle(session, "3");
+        engine.handle(session, "1");
+        engine.handle(session, "500");
+
+        UssdResponse response = engine.handle(session, "12");
+
+        assertThat(response.isEnd()).isTrue();
+        assertThat(response.getMessage()).isEqualTo("END Invalid PIN. Transaction cancelled.");
+    }
+
+    @Test
+    void depositEndMessageUsesThePhoneAndStoredAmount() {
+        UssdSession session = started();
+        engine.handle(session, "4");
+        engine.handle(session, "1");
+
+        UssdResponse response = engine.handle(session, "250");
+
+        assertThat(response.isEnd()).isTrue();
+        assertThat(response.getMessage()).isEqualTo("END STK Push sent to " + PHONE + " for KES 250");
+    }
+
+    @Test
+    void confirmPinMustMatchTheNewPin() {
+        UssdSession matching = started();
+        engine.handle(matching, "6");
+        engine.handle(matching, "1111");
+        engine.handle(matching, "2222");
+        assertThat(engine.handle(matching, "2222").getMessage()).isEqualTo("END PIN changed successfully!");
+
+        UssdSession different = started();
+        engine.handle(different, "6");
+        engine.handle(different, "1111");
+        engine.handle(different, "2222");
+        assertThat(engine.handle(different, "3333").getMessage()).isEqualTo("END PINs do not match. Please try again.");
+    }
+
+    @Test
+    void optionsBoundToActionsRunThem() {
+        UssdSession session = started();
+        engine.handle(session, "1");
+
+        UssdResponse response = engine.handle(session, "2");
+
+        assertThat(response.isEnd()).isTrue();
+        assertThat(response.getMessage()).isEqualTo("END loanBalance");
+    }
+
+    @Test
+    void sessionWithoutAStateFallsBackToTheInitialScreen() {
+        UssdSession session = session();
+
+        UssdResponse response = engine.handle(session, "1");
+
+        assertThat(response.getMessage()).startsWith("CON Welcome to SACCO Services");
+        assertThat(session.getCurrentState()).isEqualTo("MAIN_MENU");
+    }
+
+    @Test
+    void brokenDefinitionsFailStartup() {
+        assertThatThrownBy(() -> compile("{\"initial\":\"A\",\"states\":{\"A\":{\"screen\":\"x\",\"options\":{\"1\":{\"to\":\"B\"}}}}}"))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("undefined state B");
+        assertThatThrownBy(() -> compile("{\"initial\":\"A\",\"states\":{\"A\":{\"screen\":\"x\",\"options\":{\"1\":{\"action\":\"nope\"}}}}}"))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("unknown action nope");
+        assertThatThrownBy(() -> compile("{\"initial\":\"A\",\"states\":{\"A\":{\"screen\":\"x\",\"accept\":\"EMAIL\"}}}"))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("unknown accept rule EMAIL");
+        assertThatThrownBy(() -> compile("{\"initial\":\"Z\",\"states\":{\"A\":{\"screen\":\"x\"}}}"))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("initial state");
+        assertThatThrownBy(() -> compile("{\"initial\":\"A\",\"states\":{\"A\":{}}}"))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("has no screen");
+    }
+
+    @Test
+    void concurrentJourneysShareTheCompiledFlow() throws Exception {
+        ConcurrentLoad.Result result = ConcurrentLoad.run(8, 20_000, i -> {
+            UssdResponse response = loanJourney();
+            assertThat(response.isEnd()).isTrue();
+            assertThat(response.getMessage()).isEqualTo(LOAN_SUBMITTED);
+        });
+
+        assertThat(result.failures()).isEmpty();
+    }
+
+    /**
+     * Hop handling without I/O, timed hop by hop on one thread after a warm-up, then whole
+     * journeys from 8 threads against the shared flow.
+     */
+    @Test
+    @Benchmark
+    void hopHandlingTakesMicroseconds(TestReporter reporter) throws Exception {
+        int hopsPerJourney = LOAN_INPUTS.length + 1;
+        UssdSession[] current = new UssdSession[1];
+        ConcurrentLoad.Operation hop = i -> {
+            int step = i % hopsPerJourney;
+            if (step == 0) {
+                current[0] = session();
+                engine.start(current[0]);
+            } else {
+                engine.handle(current[0], LOAN_INPUTS[step - 1]);
+            }
+        };
+        ConcurrentLoad.run(1, 500_000, hop);
+
+        ConcurrentLoad.Result hops = ConcurrentLoad.run(1, 1_000_000, hop);
+        ConcurrentLoad.Result journeys = ConcurrentLoad.run(8, 200_000, i -> loanJourney());
+
+        reporter.publishEntry("hop p50/p99/p99.9 us",
+                hops.percentileMicros(50) + " / " + hops.percentileMicros(99) + " / " + hops.percentileMicros(99.9));
+        reporter.publishEntry("hops per second from 8 threads",
+                String.valueOf(Math.round(journeys.throughputPerSecond() * hopsPerJourney)));
+        assertThat(hops.failures()).isEmpty();
+        assertThat(journeys.failures()).isEmpty();
+        assertThat(hops.percentileMicros(50)).isLessThan(10.0);
+        assertThat(hops.percentileMicros(99)).isLessThan(50.0);
+        assertThat(journeys.percentileMicros(50) / hopsPerJourney).isLessThan(10.0);
+    }
+
+    private UssdResponse loanJourney() {
+        UssdSession session = session();
+        engine.start(session);
+        UssdResponse response = null;
+        for (String input : LOAN_INPUTS) {
+            response = engine.handle(session, input);
+        }
+        return response;
+    }
+
+    private void compile(String json) throws Exception {
+        new UssdFlowEngine(new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8)), List.of(), new ObjectMapper());
+    }
+
+    private UssdSession started() {
+        UssdSession session = session();
+        engine.start(session);
+        return session;
+    }
+
+    private static UssdSession session() {
+        UssdSession session = new UssdSession();
+        session.setSessionId("S1");
+        session.setPhoneNumber(PHONE);
+        return session;
+    }
+
+    private static UssdAction action(String name) {
+        return new UssdAction() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public UssdResponse execute(UssdSession session, String input) {
+                return UssdResponse.end(name);
+            }
+        };
+    }
+}
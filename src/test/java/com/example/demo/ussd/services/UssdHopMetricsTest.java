@@ -0,0 +1,52 @@
+package com.example.demo.ussd.services;
+
+import com.example.demo.support.ConcurrentLoad;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The hop counters are recorded from every request thread at once; none of the recordings may be lost.
+ */
+class UssdHopMetricsTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void concurrentRecordingsAreAllCounted() throws Exception {
+        UssdHopMetrics metrics = new UssdHopMetrics();
+        int hops = 320_000;
+
+        ConcurrentLoad.Result result = ConcurrentLoad.run(16, hops, i -> {
+            metrics.record(UssdHopMetrics.Stage.HOP, System.nanoTime());
+            if (i % 2 == 0) {
+                metrics.nearCacheHit();
+            } else {
+                metrics.nearCacheMiss();
+            }
+        });
+
+        assertThat(result.failures()).isEmpty();
+        Map<String, Object> snapshot = metrics.snapshot();
+        Map<String, Object> hop = (Map<String, Object>) snapshot.get("hop");
+        assertThat(hop.get("count")).isEqualTo((long) hops);
+        long bucketed = ((Map<String, Long>) hop.get("histogram")).values().stream().mapToLong(Long::longValue).sum();
+        assertThat(bucketed).isEqualTo(hops);
+        assertThat(snapshot.get("nearCacheHits")).isEqualTo((long) hops / 2);
+        assertThat(snapshot.get("nearCacheMisses")).isEqualTo((long) hops / 2);
+        assertThat(((Map<String, Object>) snapshot.get("load")).get("count")).isEqualTo(0L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void slowStagesLandInTheUpperBucket() {
+        UssdHopMetrics metrics = new UssdHopMetrics();
+        metrics.record(UssdHopMetrics.Stage.SAVE, System.nanoTime() - TimeUnit.SECONDS.toNanos(3));
+
+        Map<String, Object> save = (Map<String, Object>) metrics.snapshot().get("save");
+        assertThat((Map<String, Long>) save.get("histogram")).containsEntry(">=2000ms", 1L);
+        assertThat((double) save.get("maxMs")).isGreaterThanOrEqualTo(3000.0);
+    }
+}
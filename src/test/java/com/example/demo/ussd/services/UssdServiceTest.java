@@ -0,0 +1,17 @@
+package com.example.demo.ussd.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UssdServiceTest {
+
+    @Test
+    void lastInputIsTheSegmentAfterTheFinalStar() {
+        assertThat(UssdService.extractLastInput(null)).isEmpty();
+        assertThat(UssdService.extractLastInput("")).isEmpty();
+        assertThat(UssdService.extractLastInput("1")).isEqualTo("1");
+        assertThat(UssdService.extractLastInput("1*2*500")).isEqualTo("500");
+        assertThat(UssdService.extractLastInput("1*2*")).isEmpty();
+    }
+}
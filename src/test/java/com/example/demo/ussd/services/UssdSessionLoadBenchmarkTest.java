@@ -0,0 +1,145 @@
+package com.example.demo.ussd.services;
+
+import com.example.demo.support.Benchmark;
+import com.example.demo.support.ConcurrentLoad;
+import com.example.demo.support.RedisTest;
+import lombok.Data;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Session load and save per hop at 2,000 concurrent sessions: the previous JSON value rewritten
+ * whole on every hop, against the field-level hash store with and without the near-cache.
+ */
+@Benchmark
+class UssdSessionLoadBenchmarkTest extends RedisTest {
+
+    private static final int SESSIONS = 2_000;
+    private static final int HOPS_PER_SESSION = 10;
+    private static final Duration GATEWAY_BUDGET = Duration.ofSeconds(2);
+    private static final String[] STATES = {"MAIN_MENU", "BALANCE_INQUIRY", "MINI_STATEMENT", "LOAN_PRODUCTS", "DEPOSIT_MENU"};
+
+    @Test
+    void hashStoreServesConcurrentSessionsWithinTheGatewayBudget(TestReporter reporter) throws Exception {
+        RedisTemplate<String, Object> jsonTemplate = jsonTemplate();
+        ConcurrentLoad.Result before = run(i -> jsonHop(jsonTemplate, "J" + i % SESSIONS, i / SESSIONS));
+        UssdSessionStore store = store(0);
+        ConcurrentLoad.Result after = run(i -> storeHop(store, "H" + i % SESSIONS, i / SESSIONS));
+        UssdSessionStore nearCached = store(5_000);
+        ConcurrentLoad.Result cached = run(i -> storeHop(nearCached, "N" + i % SESSIONS, i / SESSIONS));
+
+        long jsonBytes = redis.execute((RedisCallback<Long>) connection ->
+                connection.stringCommands().strLen("ussd:session:J0".getBytes(StandardCharsets.UTF_8)));
+        long hashBytes = redis.<String, String>opsForHash().entries("ussd:session:H0").entrySet().stream()
+                .mapToLong(e -> e.getKey().length() + e.getValue().length()).sum();
+
+        report(reporter, "json value", before);
+        report(reporter, "hash store", after);
+        report(reporter, "hash store with near-cache", cached);
+        reporter.publishEntry("bytes per session json/hash", jsonBytes + " / " + hashBytes);
+        assertThat(before.failures()).isEmpty();
+        assertThat(after.failures()).isEmpty();
+        assertThat(cached.failures()).isEmpty();
+        assertThat(after.percentile(99)).isLessThan(GATEWAY_BUDGET);
+        assertThat(cached.percentile(50)).isLessThan(before.percentile(50));
+        assertThat(hashBytes).isLessThan(jsonBytes);
+    }
+
+    /**
+     * One thread per session. A gateway sends a session's next hop only after the previous reply,
+     * so hops of the same session never overlap.
+     */
+    private static ConcurrentLoad.Result run(ConcurrentLoad.Operation hop) throws InterruptedException {
+        Object[] sessionLocks = new Object[SESSIONS];
+        for (int s = 0; s < SESSIONS; s++) {
+            sessionLocks[s] = new Object();
+        }
+        return ConcurrentLoad.run(SESSIONS, SESSIONS * HOPS_PER_SESSION, i -> {
+            synchronized (sessionLocks[i % SESSIONS]) {
+                hop.run(i);
+            }
+        });
+    }
+
+    /**
+     * The hop as it was: read the whole session, change it, write the whole session back.
+     */
+    private static void jsonHop(RedisTemplate<String, Object> template, String sessionId, int hop) {
+        String key = "ussd:session:" + sessionId;
+        JsonSession session = (JsonSession) template.opsForValue().get(key);
+        if (session == null) {
+            session = new JsonSession();
+            session.setSessionId(sessionId);
+            session.setPhoneNumber("2547" + sessionId);
+        }
+        session.setCurrentState(STATES[hop % STATES.length]);
+        session.setLastInput(String.valueOf(hop));
+        session.getSessionData().put("step", String.valueOf(hop));
+        template.opsForValue().set(key, session, 300, TimeUnit.SECONDS);
+    }
+
+    private static void storeHop(UssdSessionStore store, String sessionId, int hop) {
+        UssdSession session = store.load(sessionId);
+        if (session == null) {
+            session = new UssdSession();
+            session.setSessionId(sessionId);
+            session.setPhoneNumber("2547" + sessionId);
+        }
+        session.setCurrentState(STATES[hop % STATES.length]);
+        session.setLastInput(String.valueOf(hop));
+        session.storeData("step", String.valueOf(hop));
+        store.save(session);
+    }
+
+    private UssdSessionStore store(long nearCacheTtlMs) {
+        UssdSessionStore store = new UssdSessionStore(redis, new UssdHopMetrics());
+        ReflectionTestUtils.setField(store, "sessionTimeoutSeconds", 300L);
+        ReflectionTestUtils.setField(store, "nearCacheTtlMs", nearCacheTtlMs);
+        return store;
+    }
+
+    /**
+     * Configured as the application's {@code redisTemplate} bean.
+     */
+    private static RedisTemplate<String, Object> jsonTemplate() {
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(CONNECTION_FACTORY);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setHashKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    private static void report(TestReporter reporter, String name, ConcurrentLoad.Result result) {
+        reporter.publishEntry(name + " p50/p99 ms", result.percentileMillis(50) + " / " + result.percentileMillis(99));
+        reporter.publishEntry(name + " hops per second", String.valueOf(Math.round(result.throughputPerSecond())));
+    }
+
+    /**
+     * The session object as it was stored before the hash store.
+     */
+    @Data
+    static class JsonSession {
+        private String sessionId;
+        private String phoneNumber;
+        private String memberId;
+        private String currentState;
+        private String lastInput;
+        private Map<String, Object> sessionData = new HashMap<>();
+    }
+}
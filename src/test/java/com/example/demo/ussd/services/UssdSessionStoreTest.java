@@ -0,0 +1,127 @@
+package com.example.demo.ussd.services;
+
+import com.example.demo.support.RedisTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Session dirty tracking and the partial writes the store issues for it, against a real Redis.
+ */
+class UssdSessionStoreTest extends RedisTest {
+
+    private static final String KEY = "ussd:session:S1";
+
+    private UssdHopMetrics metrics;
+    private UssdSessionStore store;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new UssdHopMetrics();
+        store = new UssdSessionStore(redis, metrics);
+        ReflectionTestUtils.setField(store, "sessionTimeoutSeconds", 300L);
+        ReflectionTestUtils.setField(store, "nearCacheTtlMs", 0L);
+        redis.opsForHash().putAll(KEY, Map.of(
+                UssdSession.STATE, "MAIN_MENU",
+                UssdSession.PHONE, "254700000001",
+                UssdSession.MEMBER, "42",
+                UssdSession.LAST_INPUT, "1",
+                "d:account", "SAV-1"));
+    }
+
+    @Test
+    void settersOnlyMarkFieldsWhoseValueChanged() {
+        UssdSession session = store.load("S1");
+
+        session.setCurrentState("MAIN_MENU");
+        session.setPhoneNumber("254700000001");
+        assertThat(session.isDirty()).isFalse();
+
+        session.setCurrentState("BALANCE_INQUIRY");
+        session.storeData("amount", "500");
+        assertThat(session.getChangedFields()).containsExactlyInAnyOrder(UssdSession.STATE, "d:amount");
+    }
+
+    @Test
+    void clearDataRemovesStoredKeysAndDropsPendingWrites() {
+        UssdSession session = store.load("S1");
+        session.storeData("pin", "1234");
+
+        session.clearData();
+
+        assertThat(session.getChangedFields()).doesNotContain("d:pin");
+        assertThat(session.getRemovedFields()).containsExactlyInAnyOrder("d:account", "d:pin");
+        session.storeData("account", "SAV-2");
+        assertThat(session.getRemovedFields()).containsExactly("d:pin");
+    }
+
+    @Test
+    void loadDecodesTheHashIntoACleanSession() {
+        UssdSession session = store.load("S1");
+
+        assertThat(session.getSessionId()).isEqualTo("S1");
+        assertThat(session.getCurrentState()).isEqualTo("MAIN_MENU");
+        assertThat(session.getPhoneNumber()).isEqualTo("254700000001");
+        assertThat(session.getMemberId()).isEqualTo("42");
+        assertThat(session.getLastInput()).isEqualTo("1");
+        assertThat(session.getDataAsString("account")).isEqualTo("SAV-1");
+        assertThat(session.isDirty()).isFalse();
+    }
+
+    @Test
+    void loadReturnsNullForAnUnknownSession() {
+        assertThat(store.load("missing")).isNull();
+    }
+
+    @Test
+    void saveWritesOnlyChangedFieldsAndRefreshesTheTtl() {
+        UssdSession session = store.load("S1");
+        // Written by another hop after this one loaded; untouched fields must not be overwritten
+        redis.opsForHash().put(KEY, UssdSession.MEMBER, "43");
+        session.setCurrentState("BALANCE_INQUIRY");
+        session.setLastInput("2");
+        session.clearData();
+        session.storeData("amount", "750");
+
+        store.save(session);
+
+        assertThat(redis.<String, String>opsForHash().entries(KEY)).isEqualTo(Map.of(
+                UssdSession.STATE, "BALANCE_INQUIRY",
+                UssdSession.PHONE, "254700000001",
+                UssdSession.MEMBER, "43",
+                UssdSession.LAST_INPUT, "2",
+                "d:amount", "750"));
+        assertThat(redis.getExpire(KEY)).isBetween(1L, 300L);
+        assertThat(session.isDirty()).isFalse();
+    }
+
+    @Test
+    void cleanSessionOnlyRefreshesTheTtl() {
+        assertThat(redis.getExpire(KEY)).isEqualTo(-1L);
+        UssdSession session = store.load("S1");
+
+        store.save(session);
+
+        assertThat(redis.opsForHash().size(KEY)).isEqualTo(5L);
+        assertThat(redis.getExpire(KEY)).isBetween(1L, 300L);
+    }
+
+    @Test
+    void nearCacheServesTheNextHopWithoutARead() {
+        ReflectionTestUtils.setField(store, "nearCacheTtlMs", 5_000L);
+        UssdSession session = store.load("S1");
+        session.setCurrentState("BALANCE_INQUIRY");
+        store.save(session);
+        redis.delete(KEY);
+
+        assertThat(store.load("S1")).isSameAs(session);
+        assertThat(metrics.snapshot()).containsEntry("nearCacheHits", 1L);
+
+        store.delete("S1");
+        assertThat(store.load("S1")).isNull();
+    }
+}